@@ -8,9 +8,11 @@ import com.khorn.terraincontrol.exception.BiomeNotFoundException;
 import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 import com.khorn.terraincontrol.util.minecraftTypes.TreeType;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Random;
 
@@ -168,6 +170,66 @@ public interface LocalWorld
 
     public void setBlock(int x, int y, int z, LocalMaterialData material);
 
+    /**
+     * Replaces the block at the given position if it is one of the source
+     * blocks. Meant for ores and other resources that swap one solid block
+     * for another during population: in the chunk being populated, and in
+     * the neighbouring chunks that are not populated yet, the block is
+     * written directly to the chunk section, without light updates or
+     * client notifications. Players never see those chunks. When the light
+     * properties of the blocks differ, in chunks that may have been sent to
+     * players, or outside population, this falls back to
+     * {@link #setBlock(int, int, int, LocalMaterialData)}.
+     * @param x            Block x.
+     * @param y            Block y.
+     * @param z            Block z.
+     * @param sourceBlocks The blocks that may be replaced.
+     * @param material     The new block.
+     * @return True if the block was replaced, false otherwise.
+     */
+    public boolean replaceBlock(int x, int y, int z, MaterialSet sourceBlocks, LocalMaterialData material);
+
+    /**
+     * Places many blocks in one chunk section. In the chunk being populated,
+     * and in the neighbouring chunks that are not populated yet, the chunk
+     * and the section are looked up only once, and the blocks are written
+     * directly to the section, just like
+     * {@link #replaceBlock(int, int, int, MaterialSet, LocalMaterialData)}
+     * does. Blocks with other light properties than the old block, blocks
+     * with tile entities and blocks in chunks that may have been sent to
+     * players go through {@link #setBlock(int, int, int, LocalMaterialData)}.
+     * @param chunkX   Chunk x.
+     * @param sectionY Section y, which is the block y divided by 16.
+     * @param chunkZ   Chunk z.
+     * @param blocks   The blocks, 4096 of them, indexed by
+     *                 {@code (y << 8) | (z << 4) | x} with the coordinates
+     *                 relative to the section. Null for blocks that must not
+     *                 be changed.
+     */
+    public void setSectionBlocks(int chunkX, int sectionY, int chunkZ, LocalMaterialData[] blocks);
+
+    /**
+     * Places a vertical run of blocks. Starting at startY and moving up or
+     * down, blocks are replaced by the material as long as they are one of
+     * the through blocks. The first block that isn't one of them ends the
+     * run, and so does endY, which is never replaced. Blocks above or below
+     * the world count as air and are skipped.
+     *
+     * <p>Every block of the run goes through
+     * {@link #setBlock(int, int, int, LocalMaterialData)}, so that light and
+     * players are updated, see
+     * {@link com.khorn.terraincontrol.customobjects.ObjectExtrusionHelper#setBlockRunPerBlock(LocalWorld, int, int, int, int, boolean, MaterialSet, LocalMaterialData)}.
+     * @param x             Block x.
+     * @param z             Block z.
+     * @param startY        The first block y to replace.
+     * @param endY          The block y the run stops at, exclusive.
+     * @param up            True to move up, false to move down.
+     * @param throughBlocks The blocks that may be replaced.
+     * @param material      The new block.
+     * @return The length of the run, including blocks outside the world.
+     */
+    public int setBlockRun(int x, int z, int startY, int endY, boolean up, MaterialSet throughBlocks, LocalMaterialData material);
+
     public void attachMetadata(int x, int y, int z, NamedBinaryTag tag);
 
     @SuppressWarnings("UnusedDeclaration")
@@ -209,6 +271,13 @@ public interface LocalWorld
 
     public long getSeed();
 
+    /**
+     * Gets the folder the world is saved in by Minecraft.
+     * @return The folder, or null if the world is not saved here, like
+     *         worlds on the client.
+     */
+    public File getWorldSaveFolder();
+
     /**
      * Gets the height the base terrain of the world is capped at. Resources
      * ignore this limit.
@@ -6,6 +6,7 @@ import com.khorn.terraincontrol.customobjects.CustomObject;
 import com.khorn.terraincontrol.customobjects.CustomObjectManager;
 import com.khorn.terraincontrol.events.EventHandler;
 import com.khorn.terraincontrol.events.EventPriority;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.generator.biome.BiomeModeManager;
 import com.khorn.terraincontrol.generator.resource.Resource;
@@ -70,6 +71,14 @@ public class TerrainControl
         engine.firePopulationStartEvent(world, random, villageInChunk, chunkCoord);
     }
 
+    /**
+     * @see TerrainControlEngine#hasEventHandlers(EventType)
+     */
+    public static boolean hasEventHandlers(EventType type)
+    {
+        return engine.hasEventHandlers(type);
+    }
+
     /**
      * @see TerrainControlEngine#fireResourceProcessEvent(Resource,
      * LocalWorld, Random, boolean, int, int)
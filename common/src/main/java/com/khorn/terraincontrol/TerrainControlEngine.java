@@ -9,6 +9,7 @@ import com.khorn.terraincontrol.customobjects.CustomObject;
 import com.khorn.terraincontrol.customobjects.CustomObjectManager;
 import com.khorn.terraincontrol.events.EventHandler;
 import com.khorn.terraincontrol.events.EventPriority;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.generator.biome.BiomeModeManager;
 import com.khorn.terraincontrol.generator.resource.Resource;
@@ -32,6 +33,15 @@ public abstract class TerrainControlEngine
     private PluginConfig pluginConfig;
     private Logger logger;
 
+    /**
+     * Snapshots of the event handlers, indexed by {@link EventType#ordinal()}.
+     * Only handlers that handle the event are included. Updated whenever an
+     * event handler is registered, so that firing an event doesn't need to
+     * iterate over a list.
+     */
+    private volatile EventHandler[][] cancelableHandlersByType = createHandlerArrays(null);
+    private volatile EventHandler[][] monitoringHandlersByType = createHandlerArrays(null);
+
     public TerrainControlEngine(Logger logger)
     {
         this.logger = logger;
@@ -48,14 +58,14 @@ public abstract class TerrainControlEngine
     public boolean fireCanCustomObjectSpawnEvent(CustomObject object, LocalWorld world, int x, int y, int z)
     {
         boolean success = true;
-        for (EventHandler handler : cancelableEventHandlers)
+        for (EventHandler handler : cancelableHandlersByType[EventType.CAN_CUSTOM_OBJECT_SPAWN.ordinal()])
         {
             if (!handler.canCustomObjectSpawn(object, world, x, y, z, !success))
             {
                 success = false;
             }
         }
-        for (EventHandler handler : monitoringEventHandlers)
+        for (EventHandler handler : monitoringHandlersByType[EventType.CAN_CUSTOM_OBJECT_SPAWN.ordinal()])
         {
             handler.canCustomObjectSpawn(object, world, x, y, z, !success);
         }
@@ -69,9 +79,9 @@ public abstract class TerrainControlEngine
      */
     public void firePopulationEndEvent(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
-        for (EventHandler handler : cancelableEventHandlers)
+        for (EventHandler handler : cancelableHandlersByType[EventType.POPULATE_END.ordinal()])
             handler.onPopulateEnd(world, random, villageInChunk, chunkCoord.getChunkX(), chunkCoord.getChunkZ());
-        for (EventHandler handler : monitoringEventHandlers)
+        for (EventHandler handler : monitoringHandlersByType[EventType.POPULATE_END.ordinal()])
             handler.onPopulateEnd(world, random, villageInChunk, chunkCoord.getChunkX(), chunkCoord.getChunkZ());
     }
 
@@ -83,9 +93,9 @@ public abstract class TerrainControlEngine
      */
     public void firePopulationStartEvent(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
-        for (EventHandler handler : cancelableEventHandlers)
+        for (EventHandler handler : cancelableHandlersByType[EventType.POPULATE_START.ordinal()])
             handler.onPopulateStart(world, random, villageInChunk, chunkCoord.getChunkX(), chunkCoord.getChunkZ());
-        for (EventHandler handler : monitoringEventHandlers)
+        for (EventHandler handler : monitoringHandlersByType[EventType.POPULATE_START.ordinal()])
             handler.onPopulateStart(world, random, villageInChunk, chunkCoord.getChunkX(), chunkCoord.getChunkZ());
     }
 
@@ -101,14 +111,14 @@ public abstract class TerrainControlEngine
             int chunkZ)
     {
         boolean success = true;
-        for (EventHandler handler : cancelableEventHandlers)
+        for (EventHandler handler : cancelableHandlersByType[EventType.RESOURCE_PROCESS.ordinal()])
         {
             if (!handler.onResourceProcess(resource, world, random, villageInChunk, chunkX, chunkZ, !success))
             {
                 success = false;
             }
         }
-        for (EventHandler handler : monitoringEventHandlers)
+        for (EventHandler handler : monitoringHandlersByType[EventType.RESOURCE_PROCESS.ordinal()])
         {
             handler.onResourceProcess(resource, world, random, villageInChunk, chunkX, chunkZ, !success);
         }
@@ -207,6 +217,8 @@ public abstract class TerrainControlEngine
         monitoringEventHandlers.clear();
         cancelableEventHandlers = null;
         monitoringEventHandlers = null;
+        cancelableHandlersByType = createHandlerArrays(null);
+        monitoringHandlersByType = createHandlerArrays(null);
     }
 
     public void onStart()
@@ -236,6 +248,50 @@ public abstract class TerrainControlEngine
         // Load global objects after the event has been fired, so that custom
         // object types are also taken into account
         customObjectManager.loadGlobalObjects();
+        if (pluginConfig.hotReloadObjects)
+        {
+            customObjectManager.getWatcher().start();
+        }
+    }
+
+    /**
+     * Gets whether any registered event handler handles the given event. If
+     * not, firing the event can be skipped, including the creation of any
+     * objects only needed for the event.
+     * @param type The type of the event.
+     * @return True if at least one event handler handles the event.
+     */
+    public boolean hasEventHandlers(EventType type)
+    {
+        return cancelableHandlersByType[type.ordinal()].length != 0 || monitoringHandlersByType[type.ordinal()].length != 0;
+    }
+
+    private static EventHandler[][] createHandlerArrays(List<EventHandler> handlers)
+    {
+        EventType[] types = EventType.values();
+        List<List<EventHandler>> handlersOfTypes = new ArrayList<List<EventHandler>>(types.length);
+        for (int i = 0; i < types.length; i++)
+        {
+            handlersOfTypes.add(new ArrayList<EventHandler>());
+        }
+        if (handlers != null)
+        {
+            for (EventHandler handler : handlers)
+            {
+                for (EventType type : handler.getHandledEvents())
+                {
+                    handlersOfTypes.get(type.ordinal()).add(handler);
+                }
+            }
+        }
+
+        EventHandler[][] handlersByType = new EventHandler[types.length][];
+        for (int i = 0; i < types.length; i++)
+        {
+            List<EventHandler> handlersOfType = handlersOfTypes.get(i);
+            handlersByType[i] = handlersOfType.toArray(new EventHandler[handlersOfType.size()]);
+        }
+        return handlersByType;
     }
 
     /**
@@ -247,7 +303,7 @@ public abstract class TerrainControlEngine
      */
     public void registerEventHandler(EventHandler handler)
     {
-        cancelableEventHandlers.add(handler);
+        registerEventHandler(handler, EventPriority.CANCELABLE);
     }
 
     /**
@@ -263,9 +319,11 @@ public abstract class TerrainControlEngine
         if (priority == EventPriority.CANCELABLE)
         {
             cancelableEventHandlers.add(handler);
+            cancelableHandlersByType = createHandlerArrays(cancelableEventHandlers);
         } else
         {
             monitoringEventHandlers.add(handler);
+            monitoringHandlersByType = createHandlerArrays(monitoringEventHandlers);
         }
     }
 
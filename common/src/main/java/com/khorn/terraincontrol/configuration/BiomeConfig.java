@@ -89,6 +89,12 @@ public class BiomeConfig extends ConfigFile
 
     public List<ConfigFunction<BiomeConfig>> resourceSequence = new ArrayList<ConfigFunction<BiomeConfig>>();
 
+    /**
+     * The resources of {@link #resourceSequence} that can place something,
+     * in the same order. Created by {@link #compilePopulationPlan()}.
+     */
+    private Resource[] populationPlan = new Resource[0];
+
     private Map<SaplingType, SaplingGen> saplingGrowers = new EnumMap<SaplingType, SaplingGen>(SaplingType.class);
 
     public ArrayList<CustomObject> biomeObjects;
@@ -188,6 +194,35 @@ public class BiomeConfig extends ConfigFile
             this.riverWaterLevel = this.configRiverWaterLevel;
         }
 
+        this.compilePopulationPlan();
+    }
+
+    /**
+     * Creates the population plan from the {@link #resourceSequence}. Must
+     * be called again after the resource sequence has been changed.
+     */
+    public void compilePopulationPlan()
+    {
+        List<Resource> plan = new ArrayList<Resource>(this.resourceSequence.size());
+        for (ConfigFunction<BiomeConfig> res : this.resourceSequence)
+        {
+            if (res instanceof Resource && !((Resource) res).isNeverSpawned())
+            {
+                plan.add((Resource) res);
+            }
+        }
+        this.populationPlan = plan.toArray(new Resource[plan.size()]);
+    }
+
+    /**
+     * Gets the resources that must be processed when populating a chunk in
+     * this biome, in the order they must be processed.
+     *
+     * @return The resources. Don't modify the array.
+     */
+    public Resource[] getPopulationPlan()
+    {
+        return this.populationPlan;
     }
 
     /**
@@ -35,6 +35,8 @@ public final class ClientConfigProvider implements ConfigProvider
      */
     private LocalBiome[] biomes;
 
+    private StandardBiomeTemplate defaultSettings;
+
     public ClientConfigProvider(DataInputStream stream, LocalWorld world) throws IOException
     {
         // We need a valid CustomObjects object with things like the trees in
@@ -44,10 +46,7 @@ public final class ClientConfigProvider implements ConfigProvider
         this.customObjects = TerrainControl.getCustomObjectManager().getGlobalObjects();
 
         // Create WorldConfig
-        SettingsMap worldSettingsReader = new SimpleSettingsMap(world.getName(), false);
-        worldSettingsReader.putSetting(WorldStandardValues.WORLD_FOG, stream.readInt());
-        worldSettingsReader.putSetting(WorldStandardValues.WORLD_NIGHT_FOG, stream.readInt());
-        worldConfig = new WorldConfig(new File("."), worldSettingsReader, world, customObjects);
+        worldConfig = readWorldConfig(stream, world);
 
         // Custom biomes + ids
         int count = stream.readInt();
@@ -59,32 +58,71 @@ public final class ClientConfigProvider implements ConfigProvider
         }
 
         // BiomeConfigs
-        StandardBiomeTemplate defaultSettings = new StandardBiomeTemplate(worldConfig.worldHeightCap);
+        defaultSettings = new StandardBiomeTemplate(worldConfig.worldHeightCap);
         biomes = new LocalBiome[world.getMaxBiomesCount()];
 
         count = stream.readInt();
         while (count-- > 0)
         {
-            int id = stream.readInt();
-            String biomeName = ConfigFile.readStringFromStream(stream);
-            SettingsMap biomeReader = new SimpleSettingsMap(biomeName, false);
-            biomeReader.putSetting(BiomeStandardValues.BIOME_TEMPERATURE, stream.readFloat());
-            biomeReader.putSetting(BiomeStandardValues.BIOME_WETNESS, stream.readFloat());
-            biomeReader.putSetting(BiomeStandardValues.SKY_COLOR, stream.readInt());
-            biomeReader.putSetting(BiomeStandardValues.WATER_COLOR, stream.readInt());
-            biomeReader.putSetting(BiomeStandardValues.GRASS_COLOR, stream.readInt());
-            biomeReader.putSetting(BiomeStandardValues.GRASS_COLOR_IS_MULTIPLIER, stream.readBoolean());
-            biomeReader.putSetting(BiomeStandardValues.FOLIAGE_COLOR, stream.readInt());
-            biomeReader.putSetting(BiomeStandardValues.FOLIAGE_COLOR_IS_MULTIPLIER, stream.readBoolean());
-
-            BiomeLoadInstruction instruction = new BiomeLoadInstruction(biomeName, id, defaultSettings);
-            BiomeConfig config = new BiomeConfig(instruction, biomeReader, worldConfig);
-
-            LocalBiome biome = world.createBiomeFor(config, new BiomeIds(id));
-            biomes[id] = biome;
+            readBiome(stream, world);
+        }
+    }
+
+    /**
+     * Updates the settings using an update packet, see
+     * {@link ConfigToNetworkSender#createUpdatePacket(ConfigToNetworkSender.Snapshot, ConfigProvider)}.
+     * The world name must already be read from the stream. Biomes that are
+     * not in the packet keep their settings.
+     * @param stream The stream to read from.
+     * @param world  The world.
+     * @throws IOException If an IO error occurs.
+     */
+    public void update(DataInputStream stream, LocalWorld world) throws IOException
+    {
+        WorldConfig newWorldConfig = readWorldConfig(stream, world);
+        newWorldConfig.customBiomeGenerationIds.putAll(worldConfig.customBiomeGenerationIds);
+        worldConfig = newWorldConfig;
+
+        // Replace the array instead of changing it, so that others can see
+        // that the biomes changed
+        biomes = biomes.clone();
+
+        int count = stream.readInt();
+        while (count-- > 0)
+        {
+            readBiome(stream, world);
         }
     }
 
+    private WorldConfig readWorldConfig(DataInputStream stream, LocalWorld world) throws IOException
+    {
+        SettingsMap worldSettingsReader = new SimpleSettingsMap(world.getName(), false);
+        worldSettingsReader.putSetting(WorldStandardValues.WORLD_FOG, stream.readInt());
+        worldSettingsReader.putSetting(WorldStandardValues.WORLD_NIGHT_FOG, stream.readInt());
+        return new WorldConfig(new File("."), worldSettingsReader, world, customObjects);
+    }
+
+    private void readBiome(DataInputStream stream, LocalWorld world) throws IOException
+    {
+        int id = stream.readInt();
+        String biomeName = ConfigFile.readStringFromStream(stream);
+        SettingsMap biomeReader = new SimpleSettingsMap(biomeName, false);
+        biomeReader.putSetting(BiomeStandardValues.BIOME_TEMPERATURE, stream.readFloat());
+        biomeReader.putSetting(BiomeStandardValues.BIOME_WETNESS, stream.readFloat());
+        biomeReader.putSetting(BiomeStandardValues.SKY_COLOR, stream.readInt());
+        biomeReader.putSetting(BiomeStandardValues.WATER_COLOR, stream.readInt());
+        biomeReader.putSetting(BiomeStandardValues.GRASS_COLOR, stream.readInt());
+        biomeReader.putSetting(BiomeStandardValues.GRASS_COLOR_IS_MULTIPLIER, stream.readBoolean());
+        biomeReader.putSetting(BiomeStandardValues.FOLIAGE_COLOR, stream.readInt());
+        biomeReader.putSetting(BiomeStandardValues.FOLIAGE_COLOR_IS_MULTIPLIER, stream.readBoolean());
+
+        BiomeLoadInstruction instruction = new BiomeLoadInstruction(biomeName, id, defaultSettings);
+        BiomeConfig config = new BiomeConfig(instruction, biomeReader, worldConfig);
+
+        LocalBiome biome = world.createBiomeFor(config, new BiomeIds(id));
+        biomes[id] = biome;
+    }
+
     @Override
     public WorldConfig getWorldConfig()
     {
@@ -1,11 +1,16 @@
 package com.khorn.terraincontrol.configuration;
 
 import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * Writes the relevant settings of a configuration file to a network stream.
@@ -14,9 +19,185 @@ import java.util.Collection;
  * names: basically everything that is needed to display a world properly on the
  * client. Irrelevant settings include things like biome size, ore distribution,
  * etc.: the client doesn't need to generate chunks on its own.</p>
+ *
+ * <p>There are two kinds of packets. A {@link #PACKET_FULL full packet}
+ * contains all settings and is sent when a player joins a world. An
+ * {@link #PACKET_UPDATE update packet} only contains the world fog and the
+ * biomes that changed since the last time the settings were sent, and is
+ * sent to all players in a world when the settings are reloaded.</p>
  */
 public final class ConfigToNetworkSender
 {
+    /**
+     * Packet type of a packet with all settings, written using
+     * {@link #send(ConfigProvider, DataOutput)}.
+     */
+    public static final byte PACKET_FULL = 0;
+
+    /**
+     * Packet type of a packet with only the changed settings, see
+     * {@link #createUpdatePacket(Snapshot, ConfigProvider)}.
+     */
+    public static final byte PACKET_UPDATE = 1;
+
+    /**
+     * The settings that were sent to the clients, used to find out which
+     * settings changed after a reload.
+     */
+    public static final class Snapshot
+    {
+        private final int worldFog;
+        private final int worldNightFog;
+        private final Map<String, Integer> customBiomeIds;
+        private final Map<Integer, byte[]> biomes;
+
+        private Snapshot(int worldFog, int worldNightFog, Map<String, Integer> customBiomeIds, Map<Integer, byte[]> biomes)
+        {
+            this.worldFog = worldFog;
+            this.worldNightFog = worldNightFog;
+            this.customBiomeIds = customBiomeIds;
+            this.biomes = biomes;
+        }
+    }
+
+    /**
+     * Creates the complete packet for the client: the protocol version, the
+     * {@link #PACKET_FULL packet type}, followed by the relevant settings
+     * compressed using a {@link Deflater}. The client can read the settings
+     * using an {@link java.util.zip.InflaterInputStream}.
+     *
+     * <p>Creating the packet is expensive, so servers should reuse the
+     * packet until the settings are changed.
+     * @param configProvider All the settings of a world.
+     * @return The packet.
+     * @throws IOException If an IO error occurs.
+     */
+    public static byte[] createPacket(ConfigProvider configProvider) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try
+        {
+            DataOutputStream compressedStream = startPacket(outputStream, PACKET_FULL, deflater);
+            send(configProvider, compressedStream);
+            compressedStream.close();
+        } finally
+        {
+            deflater.end();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Takes a snapshot of the settings that are sent to the clients. Take a
+     * snapshot before reloading the settings, and pass it to
+     * {@link #createUpdatePacket(Snapshot, ConfigProvider)} afterwards.
+     * @param configProvider All the settings of a world.
+     * @return The snapshot.
+     * @throws IOException If an IO error occurs.
+     */
+    public static Snapshot createSnapshot(ConfigProvider configProvider) throws IOException
+    {
+        WorldConfig worldConfig = configProvider.getWorldConfig();
+
+        Map<String, Integer> customBiomeIds = new HashMap<String, Integer>();
+        for (LocalBiome biome : getNonVirtualBiomes(configProvider))
+        {
+            if (biome.isCustom())
+            {
+                customBiomeIds.put(biome.getName(), biome.getIds().getSavedId());
+            }
+        }
+
+        Map<Integer, byte[]> biomes = new LinkedHashMap<Integer, byte[]>();
+        for (LocalBiome biome : getNonVirtualBiomes(configProvider))
+        {
+            ByteArrayOutputStream biomeBytes = new ByteArrayOutputStream();
+            DataOutputStream biomeStream = new DataOutputStream(biomeBytes);
+            biome.getBiomeConfig().writeToStream(biomeStream);
+            biomeStream.flush();
+            biomes.put(biome.getIds().getSavedId(), biomeBytes.toByteArray());
+        }
+
+        return new Snapshot(worldConfig.WorldFog, worldConfig.WorldNightFog, customBiomeIds, biomes);
+    }
+
+    /**
+     * Creates a packet with only the settings that changed since the
+     * snapshot was taken. The packet starts with the protocol version and
+     * the {@link #PACKET_UPDATE packet type}, followed by the compressed world
+     * name, world fog, night fog, the amount of changed biomes and for each
+     * changed biome the saved id and the settings as written by
+     * {@link BiomeConfig#writeToStream(DataOutput)}.
+     *
+     * <p>If custom biomes were added, removed or moved to another id, the
+     * client cannot update its biomes, so a {@link #createPacket(ConfigProvider)
+     * full packet} is returned instead.
+     * @param oldSnapshot    The snapshot taken before the settings changed.
+     * @param configProvider All the settings of a world.
+     * @return The packet, or null if nothing changed.
+     * @throws IOException If an IO error occurs.
+     */
+    public static byte[] createUpdatePacket(Snapshot oldSnapshot, ConfigProvider configProvider) throws IOException
+    {
+        Snapshot newSnapshot = createSnapshot(configProvider);
+        if (!newSnapshot.customBiomeIds.equals(oldSnapshot.customBiomeIds)
+                || !newSnapshot.biomes.keySet().equals(oldSnapshot.biomes.keySet()))
+        {
+            return createPacket(configProvider);
+        }
+
+        List<Entry<Integer, byte[]>> changedBiomes = new ArrayList<Entry<Integer, byte[]>>();
+        for (Entry<Integer, byte[]> entry : newSnapshot.biomes.entrySet())
+        {
+            if (!Arrays.equals(entry.getValue(), oldSnapshot.biomes.get(entry.getKey())))
+            {
+                changedBiomes.add(entry);
+            }
+        }
+        if (changedBiomes.isEmpty() && newSnapshot.worldFog == oldSnapshot.worldFog
+                && newSnapshot.worldNightFog == oldSnapshot.worldNightFog)
+        {
+            return null;
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try
+        {
+            DataOutputStream compressedStream = startPacket(outputStream, PACKET_UPDATE, deflater);
+            ConfigFile.writeStringToStream(compressedStream, configProvider.getWorldConfig().getName());
+            compressedStream.writeInt(newSnapshot.worldFog);
+            compressedStream.writeInt(newSnapshot.worldNightFog);
+            compressedStream.writeInt(changedBiomes.size());
+            for (Entry<Integer, byte[]> entry : changedBiomes)
+            {
+                compressedStream.writeInt(entry.getKey());
+                compressedStream.write(entry.getValue());
+            }
+            compressedStream.close();
+        } finally
+        {
+            deflater.end();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes the protocol version and packet type, and returns a stream that
+     * compresses everything written to it using the given deflater. Close the
+     * returned stream to finish the packet. The deflater is not ended when
+     * the stream is closed, the caller must do that.
+     */
+    private static DataOutputStream startPacket(ByteArrayOutputStream outputStream, byte packetType, Deflater deflater) throws IOException
+    {
+        DataOutputStream stream = new DataOutputStream(outputStream);
+        stream.writeInt(PluginStandardValues.ProtocolVersion);
+        stream.writeByte(packetType);
+        stream.flush();
+
+        return new DataOutputStream(new DeflaterOutputStream(outputStream, deflater));
+    }
 
     /**
      * Sends the relevant settings in the {@link ConfigProvider} to the given
@@ -28,7 +209,6 @@ public final class ConfigToNetworkSender
     public static void send(ConfigProvider configProvider, DataOutput stream) throws IOException
     {
         WorldConfig worldConfig = configProvider.getWorldConfig();
-        LocalBiome[] biomes = configProvider.getBiomeArray();
 
         // General information
         ConfigFile.writeStringToStream(stream, worldConfig.getName());
@@ -37,20 +217,13 @@ public final class ConfigToNetworkSender
         stream.writeInt(worldConfig.WorldNightFog);
 
         // Fetch all non-virtual biomes
-        Collection<LocalBiome> nonVirtualBiomes = new ArrayList<LocalBiome>();
+        Collection<LocalBiome> nonVirtualBiomes = getNonVirtualBiomes(configProvider);
         Collection<LocalBiome> nonVirtualCustomBiomes = new ArrayList<LocalBiome>();
-        for (LocalBiome biome : biomes)
+        for (LocalBiome biome : nonVirtualBiomes)
         {
-            if (biome == null)
-                continue;
-
-            if (!biome.getIds().isVirtual())
+            if (biome.isCustom())
             {
-                nonVirtualBiomes.add(biome);
-                if (biome.isCustom())
-                {
-                    nonVirtualCustomBiomes.add(biome);
-                }
+                nonVirtualCustomBiomes.add(biome);
             }
         }
 
@@ -65,13 +238,25 @@ public final class ConfigToNetworkSender
         // BiomeConfigs
         stream.writeInt(nonVirtualBiomes.size());
         for (LocalBiome biome : nonVirtualBiomes)
+        {
+            stream.writeInt(biome.getIds().getSavedId());
+            biome.getBiomeConfig().writeToStream(stream);
+        }
+    }
+
+    private static Collection<LocalBiome> getNonVirtualBiomes(ConfigProvider configProvider)
+    {
+        Collection<LocalBiome> nonVirtualBiomes = new ArrayList<LocalBiome>();
+        for (LocalBiome biome : configProvider.getBiomeArray())
         {
             if (biome == null)
-            {
                 continue;
+
+            if (!biome.getIds().isVirtual())
+            {
+                nonVirtualBiomes.add(biome);
             }
-            stream.writeInt(biome.getIds().getSavedId());
-            biome.getBiomeConfig().writeToStream(stream);
         }
+        return nonVirtualBiomes;
     }
 }
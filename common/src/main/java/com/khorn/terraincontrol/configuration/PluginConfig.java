@@ -41,6 +41,7 @@ public final class PluginConfig extends ConfigFile
 
     private LogLevels LogLevel = LogLevels.Standard;
     public String biomeConfigExtension;
+    public boolean hotReloadObjects;
 
     public PluginConfig(SettingsMap settingsReader)
     {
@@ -78,6 +79,7 @@ public final class PluginConfig extends ConfigFile
         this.SettingsMode = reader.getSetting(WorldStandardValues.SETTINGS_MODE);
         this.LogLevel = reader.getSetting(PluginStandardValues.LogLevel);
         this.biomeConfigExtension = reader.getSetting(BiomeStandardValues.BIOME_CONFIG_EXTENSION);
+        this.hotReloadObjects = reader.getSetting(PluginStandardValues.HotReloadObjects);
     }
 
     @Override
@@ -120,6 +122,16 @@ public final class PluginConfig extends ConfigFile
                 "BiomeConfig.ini, .biome, .bc, .bc.ini, and .biome.ini",
                 " ",
                 "Defaults to: .bc");
+
+        writer.bigTitle("Custom Objects");
+
+        writer.putSetting(PluginStandardValues.HotReloadObjects, this.hotReloadObjects,
+                "Set to true to check the GlobalObjects and WorldObjects folders for edited BO2 and BO3",
+                "files every few seconds. Edited objects are read again without reloading the whole world,",
+                "structures that use the object will be planned again. New and deleted files still",
+                "need a /tc reload.",
+                " ",
+                "Defaults to: false");
     }
 
     public LogLevels getLogLevel()
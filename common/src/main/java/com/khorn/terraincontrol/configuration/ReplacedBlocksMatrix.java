@@ -6,6 +6,7 @@ import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.helpers.StringHelper;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -114,6 +115,18 @@ public class ReplacedBlocksMatrix
      */
     public LocalMaterialData[][] compiledInstructions;
 
+    /**
+     * Ids of all blocks that are replaced at some height.
+     */
+    private BitSet replacedBlockIds = new BitSet();
+
+    /**
+     * Lowest and highest y position where blocks are replaced, inclusive.
+     * When nothing is replaced, minReplacedY is larger than maxReplacedY.
+     */
+    private int minReplacedY = Integer.MAX_VALUE;
+    private int maxReplacedY = Integer.MIN_VALUE;
+
     public ReplacedBlocksMatrix(String setting, int maxHeight) throws InvalidConfigException
     {
         this.maxHeight = maxHeight;
@@ -158,6 +171,53 @@ public class ReplacedBlocksMatrix
         return this.compiledInstructions != null;
     }
 
+    /**
+     * Gets whether blocks with the given id are replaced at some height.
+     * 
+     * @param blockId The block id.
+     * @return True if the block is replaced, false otherwise.
+     */
+    public boolean replacesBlock(int blockId)
+    {
+        return this.replacedBlockIds.get(blockId);
+    }
+
+    /**
+     * Gets whether blocks are replaced somewhere in the given height range.
+     * Used to skip whole chunk sections.
+     * 
+     * @param minY Minimum y position, inclusive.
+     * @param maxY Maximum y position, inclusive.
+     * @return True if blocks may be replaced in the range, false if no block
+     *         is replaced in the range.
+     */
+    public boolean replacesBlocksBetween(int minY, int maxY)
+    {
+        return minY <= this.maxReplacedY && maxY >= this.minReplacedY;
+    }
+
+    /**
+     * Gets the lowest y position where blocks are replaced.
+     * 
+     * @return The lowest y position, or {@link Integer#MAX_VALUE} if this
+     *         biome doesn't replace blocks.
+     */
+    public int getMinReplacedY()
+    {
+        return this.minReplacedY;
+    }
+
+    /**
+     * Gets the highest y position where blocks are replaced.
+     * 
+     * @return The highest y position, or {@link Integer#MIN_VALUE} if this
+     *         biome doesn't replace blocks.
+     */
+    public int getMaxReplacedY()
+    {
+        return this.maxReplacedY;
+    }
+
     /**
      * Gets an immutable list of all ReplacedBlocks instructions.
      * 
@@ -178,6 +238,9 @@ public class ReplacedBlocksMatrix
     public void setInstructions(Collection<ReplacedBlocksInstruction> instructions)
     {
         this.instructions = Collections.unmodifiableList(new ArrayList<ReplacedBlocksInstruction>(instructions));
+        this.replacedBlockIds = new BitSet();
+        this.minReplacedY = Integer.MAX_VALUE;
+        this.maxReplacedY = Integer.MIN_VALUE;
 
         if (this.instructions.size() == 0)
         {
@@ -201,6 +264,10 @@ public class ReplacedBlocksMatrix
             {
                 compiledInstructions[fromBlockId][y] = toBlock;
             }
+
+            this.replacedBlockIds.set(fromBlockId);
+            this.minReplacedY = Math.min(this.minReplacedY, minHeight);
+            this.maxReplacedY = Math.max(this.maxReplacedY, maxHeight);
         }
     }
 
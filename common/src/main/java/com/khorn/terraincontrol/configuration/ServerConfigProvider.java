@@ -14,6 +14,7 @@ import com.khorn.terraincontrol.configuration.standard.StandardBiomeTemplate;
 import com.khorn.terraincontrol.configuration.standard.WorldStandardValues;
 import com.khorn.terraincontrol.customobjects.CustomObjectCollection;
 import com.khorn.terraincontrol.customobjects.CustomObjectLoader;
+import com.khorn.terraincontrol.customobjects.CustomObjectWatcher;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.helpers.FileHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
@@ -64,6 +65,37 @@ public final class ServerConfigProvider implements ConfigProvider
      */
     private int biomesCount;
 
+    /**
+     * All loaded biomes, by name.
+     */
+    private final Map<String, LocalBiome> biomesByName = new HashMap<String, LocalBiome>();
+
+    /**
+     * The raw settings of the WorldConfig, which are the fallback of all
+     * biome settings.
+     */
+    private SettingsMap worldConfigSettings;
+
+    /**
+     * Fingerprints of the files that were loaded, see
+     * {@link #getFingerprint(File)}. Used to reload only the files that
+     * changed.
+     */
+    private long worldConfigFingerprint;
+    private long customObjectsFingerprint;
+    private final Map<String, Long> biomeFingerprints = new HashMap<String, Long>();
+
+    /**
+     * The value of {@link WorldConfig#maxSmoothRadius} before the biomes
+     * were indexed.
+     */
+    private int worldMaxSmoothRadius;
+
+    /**
+     * Whether any file had changed on the last {@link #reload()}.
+     */
+    private boolean changedOnLastReload;
+
     /**
      * Loads the settings from the given directory for the given world.
      * @param settingsDir The directory to load from.
@@ -87,8 +119,8 @@ public final class ServerConfigProvider implements ConfigProvider
     {
         loadCustomObjects();
 
-        SettingsMap worldConfigSettings = loadWorldConfig();
-        loadBiomes(worldConfigSettings);
+        loadWorldConfig();
+        loadBiomes();
 
         // We have to wait for the loading in order to get things like
         // temperature
@@ -111,22 +143,104 @@ public final class ServerConfigProvider implements ConfigProvider
 
         Map<String, CustomObjectLoader> objectLoaders = TerrainControl.getCustomObjectManager().getObjectLoaders();
 
+        CustomObjectWatcher watcher = TerrainControl.getCustomObjectManager().getWatcher();
+        if (customObjects != null)
+        {
+            watcher.unwatch(customObjects);
+        }
+
+        customObjectsFingerprint = getFingerprint(worldObjectsDir);
         customObjects = new CustomObjectCollection(objectLoaders, worldObjectsDir);
         customObjects.setFallback(TerrainControl.getCustomObjectManager().getGlobalObjects());
+        watcher.watch(customObjects, world);
         TerrainControl.log(LogMarker.INFO, "{} world custom objects loaded.", customObjects.getAll().size());
     }
 
-    private SettingsMap loadWorldConfig()
+    private void loadWorldConfig()
     {
         File worldConfigFile = new File(settingsDir, WorldStandardValues.WORLD_CONFIG_FILE_NAME);
-        SettingsMap settingsMap = FileSettingsReader.read(world.getName(), worldConfigFile);
-        this.worldConfig = new WorldConfig(settingsDir, settingsMap, world, customObjects);
+        this.worldConfigSettings = FileSettingsReader.read(world.getName(), worldConfigFile);
+        this.worldConfig = new WorldConfig(settingsDir, worldConfigSettings, world, customObjects);
+        this.worldMaxSmoothRadius = worldConfig.maxSmoothRadius;
         FileSettingsWriter.writeToFile(worldConfig.getSettingsAsMap(), worldConfigFile, worldConfig.SettingsMode);
+        this.worldConfigFingerprint = getFingerprint(worldConfigFile);
+    }
 
-        return settingsMap;
+    private void loadBiomes()
+    {
+        Map<String, BiomeConfigStub> biomeConfigStubs = findBiomes();
+
+        // Read all settings
+        Map<String, BiomeConfig> loadedBiomes = readAndWriteSettings(biomeConfigStubs, biomeConfigStubs.keySet());
+
+        // Index all necessary settings
+        String loadedBiomeNames = indexSettings(loadedBiomes, loadedBiomes.keySet());
+        updateBiomeFingerprints(biomeConfigStubs);
+
+        TerrainControl.log(LogMarker.INFO, "{} biomes Loaded", biomesCount);
+        TerrainControl.log(LogMarker.DEBUG, "{}", loadedBiomeNames);
     }
 
-    private void loadBiomes(SettingsMap worldConfigSettings)
+    /**
+     * Reads only the biomes whose files changed since they were loaded,
+     * together with the biomes that inherit from them or that use their
+     * saved id. The other biomes are kept as they are.
+     */
+    private void reloadChangedBiomes()
+    {
+        Map<String, BiomeConfigStub> biomeConfigStubs = findBiomes();
+
+        Set<String> changedBiomes = new HashSet<String>();
+        for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+        {
+            String biomeName = biomeConfigStub.getBiomeName();
+            Long oldFingerprint = biomeFingerprints.get(biomeName);
+            if (oldFingerprint == null || oldFingerprint != getFingerprint(biomeConfigStubs, biomeConfigStub, 0))
+            {
+                changedBiomes.add(biomeName);
+            }
+        }
+        for (LocalBiome biome : biomesByName.values())
+        {
+            // The saved id depends on the ReplaceToBiomeName biome
+            if (changedBiomes.contains(biome.getBiomeConfig().replaceToBiomeName))
+            {
+                changedBiomes.add(biome.getName());
+            }
+        }
+
+        changedOnLastReload = !changedBiomes.isEmpty();
+        if (!changedOnLastReload)
+        {
+            TerrainControl.log(LogMarker.INFO, "No changed files found");
+            return;
+        }
+
+        // Read the changed settings
+        Map<String, BiomeConfig> loadedBiomes = readAndWriteSettings(biomeConfigStubs, changedBiomes);
+        for (LocalBiome biome : biomesByName.values())
+        {
+            if (!loadedBiomes.containsKey(biome.getName()))
+            {
+                loadedBiomes.put(biome.getName(), biome.getBiomeConfig());
+            }
+        }
+
+        // Index again, the world settings depend on all biomes
+        worldConfig.BiomeConfigsHaveReplacement = false;
+        worldConfig.maxSmoothRadius = worldMaxSmoothRadius;
+        worldConfig.biomeColorMap = null;
+        this.biomesCount = 0;
+        String loadedBiomeNames = indexSettings(loadedBiomes, changedBiomes);
+        updateBiomeFingerprints(biomeConfigStubs);
+
+        worldConfig.biomeGroupManager.processBiomeData(world);
+
+        TerrainControl.log(LogMarker.INFO, "{} of {} biomes reloaded", changedBiomes.size(), biomesCount);
+        TerrainControl.log(LogMarker.DEBUG, "{}", loadedBiomeNames);
+    }
+
+    private Map<String, BiomeConfigStub> findBiomes()
     {
         // Establish folders
         List<File> biomeDirs = new ArrayList<File>(2);
@@ -153,16 +267,7 @@ public final class ServerConfigProvider implements ConfigProvider
 
         // Load all files
         BiomeConfigFinder biomeConfigFinder = new BiomeConfigFinder(worldConfig, TerrainControl.getPluginConfig().biomeConfigExtension);
-        Map<String, BiomeConfigStub> biomeConfigStubs = biomeConfigFinder.findBiomes(biomeDirs, biomesToLoad);
-
-        // Read all settings
-        Map<String, BiomeConfig> loadedBiomes = readAndWriteSettings(worldConfigSettings, biomeConfigStubs);
-
-        // Index all necessary settings
-        String loadedBiomeNames = indexSettings(loadedBiomes);
-
-        TerrainControl.log(LogMarker.INFO, "{} biomes Loaded", biomesCount);
-        TerrainControl.log(LogMarker.DEBUG, "{}", loadedBiomeNames);
+        return biomeConfigFinder.findBiomes(biomeDirs, biomesToLoad);
     }
 
     @Override
@@ -181,26 +286,72 @@ public final class ServerConfigProvider implements ConfigProvider
         return biomes[id];
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the WorldConfig and the custom objects didn't change, only the
+     * changed BiomeConfigs are read again. All other biomes stay the same.
+     */
     @Override
     public void reload()
     {
+        File worldConfigFile = new File(settingsDir, WorldStandardValues.WORLD_CONFIG_FILE_NAME);
+        File worldObjectsDir = new File(settingsDir, WorldStandardValues.WORLD_OBJECTS_DIRECTORY_NAME);
+        if (getFingerprint(worldConfigFile) == worldConfigFingerprint
+                && getFingerprint(worldObjectsDir) == customObjectsFingerprint)
+        {
+            reloadChangedBiomes();
+            return;
+        }
+
         // Clear biome collections
         Arrays.fill(this.biomes, null);
         this.savedBiomes.clear();
+        this.biomesByName.clear();
+        this.biomeFingerprints.clear();
         this.biomesCount = 0;
 
         // Load again
         loadSettings();
+        changedOnLastReload = true;
     }
 
-    private Map<String, BiomeConfig> readAndWriteSettings(SettingsMap worldConfigSettings, Map<String, BiomeConfigStub> biomeConfigStubs)
+    /**
+     * Gets whether any setting was changed by the last call to
+     * {@link #reload()}.
+     * @return True if settings were changed, false if all files were
+     * still the same.
+     */
+    public boolean hasChangedOnLastReload()
+    {
+        return changedOnLastReload;
+    }
+
+    /**
+     * Reads the settings of the given biomes, and writes them back to disk.
+     * @param biomeConfigStubs The stubs of all biomes, needed for
+     *                         inheritance.
+     * @param biomesToRead     The names of the biomes to read.
+     * @return The read biomes, by name.
+     */
+    private Map<String, BiomeConfig> readAndWriteSettings(Map<String, BiomeConfigStub> biomeConfigStubs, Set<String> biomesToRead)
     {
         Map<String, BiomeConfig> loadedBiomes = new HashMap<String, BiomeConfig>();
 
+        // Allow to let world settings influence biome settings. Done first
+        // for all biomes, so that inheritance can replace it for biomes that
+        // are processed as parent of another biome
         for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
         {
-            // Allow to let world settings influence biome settings
             biomeConfigStub.getSettings().setFallback(worldConfigSettings);
+        }
+
+        for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+        {
+            if (!biomesToRead.contains(biomeConfigStub.getBiomeName()))
+            {
+                continue;
+            }
 
             // Inheritance
             processInheritance(biomeConfigStubs, biomeConfigStub, 0);
@@ -242,7 +393,15 @@ public final class ServerConfigProvider implements ConfigProvider
         return requestedGenerationId;
     }
 
-    private String indexSettings(Map<String, BiomeConfig> loadedBiomes)
+    /**
+     * Indexes the given biomes, and creates the biomes that were read.
+     * @param loadedBiomes  All biomes of the world, by name.
+     * @param createdBiomes The names of the biomes that were read and need a
+     *                      new {@link LocalBiome}. For the other biomes, the
+     *                      existing {@link LocalBiome} is kept.
+     * @return The names of the biomes, for logging.
+     */
+    private String indexSettings(Map<String, BiomeConfig> loadedBiomes, Set<String> createdBiomes)
     {
         StringBuilder loadedBiomeNames = new StringBuilder();
 
@@ -255,43 +414,16 @@ public final class ServerConfigProvider implements ConfigProvider
             loadedBiomeNames.append(biomeConfig.getName());
             loadedBiomeNames.append(", ");
 
-            int requestedGenerationId = getRequestedGenerationId(biomeConfig);
-
-            // Get correct saved id (defaults to generation id, but can be set
-            // to use the generation id of another biome)
-            int requestedSavedId = requestedGenerationId;
-            if (!biomeConfig.replaceToBiomeName.isEmpty())
+            LocalBiome biome = biomesByName.get(biomeConfig.getName());
+            if (biome == null || createdBiomes.contains(biomeConfig.getName()))
             {
-                BiomeConfig replaceToConfig = loadedBiomes.get(biomeConfig.replaceToBiomeName);
-                if (replaceToConfig == null)
-                {
-                    TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} doesn't exist", biomeConfig.getName(),
-                            biomeConfig.replaceToBiomeName);
-                    biomeConfig.replaceToBiomeName = "";
-                } else if (!replaceToConfig.replaceToBiomeName.isEmpty())
+                if (biome != null)
                 {
-                    TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} also has a ReplaceToBiomeName value",
-                            biomeConfig.getName(), biomeConfig.replaceToBiomeName);
-                    biomeConfig.replaceToBiomeName = "";
-                } else
-                {
-                    requestedSavedId = getRequestedGenerationId(replaceToConfig);
+                    // Replace the old biome
+                    this.biomes[biome.getIds().getGenerationId()] = null;
+                    this.savedBiomes.remove(biome);
                 }
-            }
-
-            // Create biome
-            LocalBiome biome = world.createBiomeFor(biomeConfig, new BiomeIds(requestedGenerationId, requestedSavedId));
-
-            int generationId = biome.getIds().getGenerationId();
-
-            this.biomes[generationId] = biome;
-            // Update WorldConfig with actual id
-            worldConfig.customBiomeGenerationIds.put(biome.getName(), generationId);
-
-            // If not virtual, add to saved biomes set
-            if (!biome.getIds().isVirtual())
-            {
-                savedBiomes.add(biome);
+                biome = createBiome(loadedBiomes, biomeConfig);
             }
 
             // Indexing ReplacedBlocks
@@ -327,6 +459,57 @@ public final class ServerConfigProvider implements ConfigProvider
         return loadedBiomeNames.toString();
     }
 
+    /**
+     * Creates the {@link LocalBiome} for the given settings, and registers it
+     * in the biome collections of this class.
+     * @param loadedBiomes All biomes of the world, by name.
+     * @param biomeConfig  The settings of the biome.
+     * @return The biome.
+     */
+    private LocalBiome createBiome(Map<String, BiomeConfig> loadedBiomes, BiomeConfig biomeConfig)
+    {
+        int requestedGenerationId = getRequestedGenerationId(biomeConfig);
+
+        // Get correct saved id (defaults to generation id, but can be set
+        // to use the generation id of another biome)
+        int requestedSavedId = requestedGenerationId;
+        if (!biomeConfig.replaceToBiomeName.isEmpty())
+        {
+            BiomeConfig replaceToConfig = loadedBiomes.get(biomeConfig.replaceToBiomeName);
+            if (replaceToConfig == null)
+            {
+                TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} doesn't exist", biomeConfig.getName(),
+                        biomeConfig.replaceToBiomeName);
+                biomeConfig.replaceToBiomeName = "";
+            } else if (!replaceToConfig.replaceToBiomeName.isEmpty())
+            {
+                TerrainControl.log(LogMarker.WARN, "Invalid ReplaceToBiomeName in biome {}: biome {} also has a ReplaceToBiomeName value",
+                        biomeConfig.getName(), biomeConfig.replaceToBiomeName);
+                biomeConfig.replaceToBiomeName = "";
+            } else
+            {
+                requestedSavedId = getRequestedGenerationId(replaceToConfig);
+            }
+        }
+
+        // Create biome
+        LocalBiome biome = world.createBiomeFor(biomeConfig, new BiomeIds(requestedGenerationId, requestedSavedId));
+
+        int generationId = biome.getIds().getGenerationId();
+
+        this.biomes[generationId] = biome;
+        this.biomesByName.put(biome.getName(), biome);
+        // Update WorldConfig with actual id
+        worldConfig.customBiomeGenerationIds.put(biome.getName(), generationId);
+
+        // If not virtual, add to saved biomes set
+        if (!biome.getIds().isVirtual())
+        {
+            savedBiomes.add(biome);
+        }
+        return biome;
+    }
+
     private void processInheritance(Map<String, BiomeConfigStub> biomeConfigStubs, BiomeConfigStub biomeConfigStub, int currentDepth)
     {
         if (biomeConfigStub.biomeExtendsProcessed)
@@ -373,6 +556,73 @@ public final class ServerConfigProvider implements ConfigProvider
         biomeConfigStub.biomeExtendsProcessed = true;
     }
 
+    /**
+     * Remembers the fingerprints of all biome files, so that changed files
+     * can be found on the next reload.
+     * @param biomeConfigStubs The stubs of all biomes.
+     */
+    private void updateBiomeFingerprints(Map<String, BiomeConfigStub> biomeConfigStubs)
+    {
+        biomeFingerprints.clear();
+        for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+        {
+            biomeFingerprints.put(biomeConfigStub.getBiomeName(), getFingerprint(biomeConfigStubs, biomeConfigStub, 0));
+        }
+    }
+
+    /**
+     * Gets the fingerprint of the file of the biome, combined with the
+     * fingerprints of the biomes it inherits from.
+     * @param biomeConfigStubs The stubs of all biomes.
+     * @param biomeConfigStub  The stub of the biome.
+     * @param currentDepth     Inheritance depth, to stop on cyclical
+     *                         inheritance.
+     * @return The fingerprint.
+     */
+    private long getFingerprint(Map<String, BiomeConfigStub> biomeConfigStubs, BiomeConfigStub biomeConfigStub, int currentDepth)
+    {
+        long fingerprint = getFingerprint(biomeConfigStub.getFile());
+
+        String extendedBiomeName = biomeConfigStub.getSettings().getSetting(BiomeStandardValues.BIOME_EXTENDS);
+        BiomeConfigStub extendedBiomeConfig = biomeConfigStubs.get(extendedBiomeName);
+        if (extendedBiomeConfig != null && currentDepth <= MAX_INHERITANCE_DEPTH)
+        {
+            fingerprint = fingerprint * 31 + getFingerprint(biomeConfigStubs, extendedBiomeConfig, currentDepth + 1);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Gets a number that changes when the file is edited, based on the
+     * last modification time and the size of the file. For directories, all
+     * files in the directory are included.
+     * @param file The file or directory.
+     * @return The fingerprint, or 0 if the file doesn't exist.
+     */
+    private static long getFingerprint(File file)
+    {
+        if (file.isDirectory())
+        {
+            File[] files = file.listFiles();
+            long fingerprint = 1;
+            if (files != null)
+            {
+                Arrays.sort(files);
+                for (File child : files)
+                {
+                    fingerprint = fingerprint * 31 + child.getName().hashCode();
+                    fingerprint = fingerprint * 31 + getFingerprint(child);
+                }
+            }
+            return fingerprint;
+        }
+        if (!file.exists())
+        {
+            return 0;
+        }
+        return file.lastModified() * 31 + file.length();
+    }
+
     private String correctOldBiomeConfigFolder(File settingsDir)
     {
         // Rename the old folder
@@ -165,6 +165,10 @@ public class WorldConfig extends ConfigFile
     public boolean removeSurfaceStone;
 
     public int objectSpawnRatio;
+    public int terrainWorkerThreads;
+    public int terrainReadyQueueSize;
+    public ReplaceBlocksMode replaceBlocksMode;
+    public boolean fastBiomeSmoothing;
     public File customObjectsDirectory;
 
     public ConfigMode SettingsMode;
@@ -180,6 +184,7 @@ public class WorldConfig extends ConfigFile
 
     public long resourcesSeed;
     public int maximumCustomStructureRadius;
+    public boolean saveCustomStructures;
 
     // Settings for console commands
     public String author;
@@ -436,6 +441,7 @@ public class WorldConfig extends ConfigFile
         this.oceanMonumentGridSize = reader.getSetting(WorldStandardValues.OCEAN_MONUMENT_GRID_SIZE);
 
         this.maximumCustomStructureRadius = reader.getSetting(WorldStandardValues.MAXIMUM_CUSTOM_STRUCTURE_RADIUS);
+        this.saveCustomStructures = reader.getSetting(WorldStandardValues.SAVE_CUSTOM_STRUCTURES);
         this.mineshaftsEnabled = reader.getSetting(WorldStandardValues.MINESHAFTS_ENABLED);
         this.netherFortressesEnabled = reader.getSetting(WorldStandardValues.NETHER_FORTRESSES_ENABLED);
 
@@ -484,6 +490,10 @@ public class WorldConfig extends ConfigFile
         this.resourcesSeed = reader.getSetting(WorldStandardValues.RESOURCES_SEED);
         this.populationBoundsCheck = reader.getSetting(WorldStandardValues.POPULATION_BOUNDS_CHECK);
         this.populateUsingSavedBiomes = reader.getSetting(WorldStandardValues.POPULATE_USING_SAVED_BIOMES);
+        this.terrainWorkerThreads = reader.getSetting(WorldStandardValues.TERRAIN_WORKER_THREADS);
+        this.terrainReadyQueueSize = reader.getSetting(WorldStandardValues.TERRAIN_READY_QUEUE_SIZE);
+        this.replaceBlocksMode = reader.getSetting(WorldStandardValues.REPLACE_BLOCKS_MODE);
+        this.fastBiomeSmoothing = reader.getSetting(WorldStandardValues.FAST_BIOME_SMOOTHING);
 
         this.oldTerrainGenerator = this.ModeTerrain == TerrainMode.OldGenerator;
 
@@ -832,6 +842,30 @@ public class WorldConfig extends ConfigFile
                 "By Default, snow falls on the highest block only.",
                 "Setting this to true will cause snow to fall through leaves but leave a little snow on the way");
 
+        writer.bigTitle("Performance");
+
+        writer.putSetting(WorldStandardValues.TERRAIN_WORKER_THREADS, this.terrainWorkerThreads,
+                "Number of background threads that generate the terrain of chunks in front of moving",
+                "players, before the server asks for those chunks. Population still happens on the",
+                "main thread. Set to 0 to generate all terrain on the main thread.",
+                "Ignored when PopulateUsingSavedBiomes is true or when BiomeMode is Default.");
+
+        writer.putSetting(WorldStandardValues.TERRAIN_READY_QUEUE_SIZE, this.terrainReadyQueueSize,
+                "Maximum number of chunks that the background threads keep ready. Each chunk takes",
+                "a few hundred kilobytes of memory.");
+
+        writer.putSetting(WorldStandardValues.REPLACE_BLOCKS_MODE, this.replaceBlocksMode,
+                "When the ReplacedBlocks settings of the biomes are applied.",
+                "   AfterPopulation - all blocks of the chunk are checked after the chunk is populated.",
+                "   DuringTerrainGeneration - the terrain is replaced while it is generated, after population",
+                "       only the chunk sections changed by resources and custom objects are checked.",
+                "       Faster, but blocks placed by vanilla trees and structures are no longer replaced.");
+
+        writer.putSetting(WorldStandardValues.FAST_BIOME_SMOOTHING, this.fastBiomeSmoothing,
+                "Set to true to skip the smoothing of terrain heights in places where there is only one",
+                "biome within the SmoothRadius. Much faster for high SmoothRadius values. The terrain",
+                "can differ very slightly from the normal smoothing because of rounding.");
+
         writer.bigTitle("Resources");
 
         writer.putSetting(WorldStandardValues.RESOURCES_SEED, this.resourcesSeed,
@@ -920,6 +954,11 @@ public class WorldConfig extends ConfigFile
                 "Maximum radius of custom structures in chunks. Custom structures are spawned by",
                 "the CustomStructure resource in the biome configuration files.");
 
+        writer.putSetting(WorldStandardValues.SAVE_CUSTOM_STRUCTURES, this.saveCustomStructures,
+                "Set to true to save the layout of custom structures in the " + WorldStandardValues.WORLD_STRUCTURES_DIRECTORY_NAME + " folder",
+                "of the world save, so that they don't need to be planned again when the server is restarted.",
+                "Structures made of objects with parameters, like MyObject(MaxBranchDepth=3), are never saved.");
+
         // Other structures
         writer.smallTitle("Other structures");
         writer.putSetting(WorldStandardValues.MINESHAFTS_ENABLED, this.mineshaftsEnabled);
@@ -1068,6 +1107,12 @@ public class WorldConfig extends ConfigFile
         West,
     }
 
+    public enum ReplaceBlocksMode
+    {
+        AfterPopulation,
+        DuringTerrainGeneration
+    }
+
     public enum ConfigMode
     {
         WriteAll,
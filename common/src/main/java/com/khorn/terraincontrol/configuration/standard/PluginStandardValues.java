@@ -17,10 +17,11 @@ public class PluginStandardValues extends Settings
     
   //>>  Network
     public static final String ChannelName = "TerrainControl";
-    public static final int ProtocolVersion = 5;
+    public static final int ProtocolVersion = 6;
     
   //>>  Plugin Defaults
     public static final Setting<LogLevels> LogLevel = enumSetting("LogLevel", LogLevels.Standard);
+    public static final Setting<Boolean> HotReloadObjects = booleanSetting("HotReloadObjects", false);
 
     /**
      * Name of the plugin, "TerrainControl".
@@ -7,6 +7,7 @@ import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.configuration.WorldConfig.ConfigMode;
 import com.khorn.terraincontrol.configuration.WorldConfig.ImageMode;
 import com.khorn.terraincontrol.configuration.WorldConfig.ImageOrientation;
+import com.khorn.terraincontrol.configuration.WorldConfig.ReplaceBlocksMode;
 import com.khorn.terraincontrol.configuration.WorldConfig.TerrainMode;
 import com.khorn.terraincontrol.configuration.settingType.MaterialSetting;
 import com.khorn.terraincontrol.configuration.settingType.Setting;
@@ -21,6 +22,7 @@ public class WorldStandardValues extends Settings
     public static final String WORLD_CONFIG_FILE_NAME = "WorldConfig.ini";
     public static final String WORLD_BIOMES_DIRECTORY_NAME = "WorldBiomes";
     public static final String WORLD_OBJECTS_DIRECTORY_NAME = "WorldObjects";
+    public static final String WORLD_STRUCTURES_DIRECTORY_NAME = "WorldStructures";
 
     /**
      * Temperatures below this temperature will cause the biome to be covered
@@ -44,6 +46,7 @@ public class WorldStandardValues extends Settings
     public static final Setting<TerrainMode> TERRAIN_MODE = enumSetting("TerrainMode", TerrainMode.Normal);
     public static final Setting<ImageMode> IMAGE_MODE = enumSetting("ImageMode", ImageMode.Mirror);
     public static final Setting<ImageOrientation> IMAGE_ORIENTATION = enumSetting("ImageOrientation", ImageOrientation.West);
+    public static final Setting<ReplaceBlocksMode> REPLACE_BLOCKS_MODE = enumSetting("ReplaceBlocksMode", ReplaceBlocksMode.AfterPopulation);
 
     public static final Setting<String>
             BIOME_MODE = stringSetting("BiomeMode", "Normal"),
@@ -91,7 +94,9 @@ public class WorldStandardValues extends Settings
             MAXIMUM_DISTANCE_BETWEEN_RARE_BUILDINGS = intSetting("MaximumDistanceBetweenRareBuildings", 32, 1, 10000),
             OCEAN_MONUMENT_GRID_SIZE = intSetting("OceanMonumentGridSize", 32, 5, 10000),
             OCEAN_MONUMENT_RANDOM_OFFSET = intSetting("OceanMonumentRandomOffset", 26, 0, 10000),
-            MAXIMUM_CUSTOM_STRUCTURE_RADIUS = intSetting("MaximumCustomStructureRadius", 5, 1, 100);
+            MAXIMUM_CUSTOM_STRUCTURE_RADIUS = intSetting("MaximumCustomStructureRadius", 5, 1, 100),
+            TERRAIN_WORKER_THREADS = intSetting("TerrainWorkerThreads", 0, 0, 16),
+            TERRAIN_READY_QUEUE_SIZE = intSetting("TerrainReadyQueueSize", 64, 1, 1024);
 
     public static final Setting<Boolean>
             RIVERS_ENABLED = booleanSetting("RiversEnabled", true),
@@ -114,7 +119,9 @@ public class WorldStandardValues extends Settings
             MINESHAFTS_ENABLED = booleanSetting("MineshaftsEnabled", true),
             RARE_BUILDINGS_ENABLED = booleanSetting("RareBuildingsEnabled", true),
             OCEAN_MONUMENTS_ENABLED = booleanSetting("OceanMonumentsEnabled", true),
-            POPULATE_USING_SAVED_BIOMES = booleanSetting("PopulateUsingSavedBiomes", false);
+            POPULATE_USING_SAVED_BIOMES = booleanSetting("PopulateUsingSavedBiomes", false),
+            FAST_BIOME_SMOOTHING = booleanSetting("FastBiomeSmoothing", false),
+            SAVE_CUSTOM_STRUCTURES = booleanSetting("SaveCustomStructures", true);
 
     public static final Setting<LocalMaterialData>
             WATER_BLOCK = new MaterialSetting("WaterBlock", DefaultMaterial.STATIONARY_WATER),
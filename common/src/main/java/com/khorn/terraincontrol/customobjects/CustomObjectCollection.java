@@ -18,6 +18,7 @@ public class CustomObjectCollection implements Iterable<CustomObject>
     private final List<CustomObject> objects;
     private final Map<String, CustomObject> objectsByName;
     private CustomObjectCollection fallback;
+    private File directory;
 
     /**
      * Creates a new {@link CustomObjectCollection} instance with no loaded objects.
@@ -56,6 +57,7 @@ public class CustomObjectCollection implements Iterable<CustomObject>
         {
             return;
         }
+        this.directory = directory;
 
         Map<String, CustomObject> objects = loadObjectsRecursive(loaders, directory);
         for (CustomObject object : objects.values())
@@ -165,6 +167,26 @@ public class CustomObjectCollection implements Iterable<CustomObject>
         return object;
     }
 
+    /**
+     * Gets the object with the given name, without looking in the fallback.
+     * @param name Name of the object.
+     * @return The object, or null if not found.
+     */
+    CustomObject getLoadedObject(String name)
+    {
+        return objectsByName.get(name.toLowerCase());
+    }
+
+    /**
+     * Gets the directory the objects were loaded from.
+     * @return The directory, or null if the objects were not loaded from a
+     * directory.
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
     /**
      * Parses a string in the format <code>name(setting1=foo,setting2=bar)
      * </code>. The object is retrieved using {@link #getObjectByName(String)}.
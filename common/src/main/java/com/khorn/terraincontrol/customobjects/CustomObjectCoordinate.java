@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.customobjects;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.customobjects.bo3.BO3;
 import com.khorn.terraincontrol.util.BoundingBox;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.Rotation;
@@ -68,6 +69,29 @@ public class CustomObjectCoordinate
         return object.spawnForced(world, random, rotation, x, y, z);
     }
 
+    /**
+     * Gets whether this object can be spawned in a
+     * {@link StructureChunkBuffer}.
+     * @return True if it can be spawned in a buffer.
+     */
+    boolean canSpawnInBuffer()
+    {
+        return object instanceof BO3 && ((BO3) object).canSpawnInBuffer();
+    }
+
+    /**
+     * Spawns the object in the buffer if it can spawn there. Only call this
+     * if {@link #canSpawnInBuffer()} returns true. The y position is used
+     * as is, like {@link StructurePartSpawnHeight#PROVIDED} does.
+     * @param buffer The buffer.
+     * @param random Random number generator.
+     * @return Whether the object was spawned.
+     */
+    boolean spawnWithChecks(StructureChunkBuffer buffer, Random random)
+    {
+        return ((BO3) object).spawnWithChecks(buffer, random, rotation, x, y, z);
+    }
+
     @Override
     public boolean equals(Object otherObject)
     {
@@ -43,6 +43,7 @@ public class CustomObjectManager
 
     private final Map<String, CustomObjectLoader> loaders;
     private final CustomObjectCollection globalCustomObjects;
+    private final CustomObjectWatcher watcher;
 
     public CustomObjectManager()
     {
@@ -54,6 +55,7 @@ public class CustomObjectManager
         registerCustomObjectLoader("bo3", new BO3Loader());
 
         this.globalCustomObjects = new CustomObjectCollection();
+        this.watcher = new CustomObjectWatcher();
 
         // Put some default CustomObjects
         for (TreeType type : TreeType.values())
@@ -71,6 +73,7 @@ public class CustomObjectManager
         // Load all global objects (they can overwrite special objects)
         this.globalCustomObjects.load(this.loaders, TerrainControl.getEngine().getGlobalObjectsDirectory());
         TerrainControl.log(LogMarker.INFO, "{} Global custom objects loaded", globalCustomObjects.getAll().size());
+        this.watcher.watch(this.globalCustomObjects, null);
     }
 
     /**
@@ -105,6 +108,16 @@ public class CustomObjectManager
         return globalCustomObjects;
     }
 
+    /**
+     * Gets the watcher that reads edited objects again. The watcher only
+     * runs if enabled in the plugin config.
+     * @return The watcher.
+     */
+    public CustomObjectWatcher getWatcher()
+    {
+        return watcher;
+    }
+
     /**
      * Gets an unmodifiable view of all object loaders, indexed by the
      * lowercase extension without the dot (for example "bo3").
@@ -116,11 +129,13 @@ public class CustomObjectManager
     }
 
     /**
-     * Calls the {@link CustomObjectLoader#onShutdown()} method of each
-     * loader, then unloads them.
+     * Stops the watcher, then calls the
+     * {@link CustomObjectLoader#onShutdown()} method of each loader, then
+     * unloads them.
      */
     public void shutdown()
     {
+        watcher.stop();
         for (CustomObjectLoader loader : loaders.values())
         {
             loader.onShutdown();
@@ -1,7 +1,10 @@
 package com.khorn.terraincontrol.customobjects;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.Rotation;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 
@@ -13,15 +16,20 @@ import java.util.*;
  * of those branches, etc., until
  * {@link CustomObject#getMaxBranchDepth()} is reached.
  *
+ * <p>Structures can be saved using {@link CustomObjectStructureFile}, so that
+ * they don't need to be calculated again.
+ *
  */
 public class CustomObjectStructure
 {
-    protected final Random random;
+    protected final FastRandom random;
     protected LocalWorld world;
     protected CustomObjectCoordinate start;
     protected StructurePartSpawnHeight height;
     private Map<ChunkCoordinate, Set<CustomObjectCoordinate>> objectsToSpawn;
+    private Set<ChunkCoordinate> spawnedChunks;
     private int maxBranchDepth;
+    private boolean changed;
 
     CustomObjectStructure(LocalWorld world, CustomObjectCoordinate start)
     {
@@ -31,12 +39,38 @@ public class CustomObjectStructure
         this.start = start;
         this.height = object.getStructurePartSpawnHeight();
         this.maxBranchDepth = object.getMaxBranchDepth();
-        random = RandomHelper.getRandomForCoords(start.getX(), start.getY(), start.getZ(), world.getSeed());
+        random = new FastRandom(0);
+        RandomHelper.setSeedForCoords(random, start.getX(), start.getY(), start.getZ(), world.getSeed());
 
         // Calculate all branches and add them to a list
         objectsToSpawn = new LinkedHashMap<ChunkCoordinate, Set<CustomObjectCoordinate>>();
+        spawnedChunks = new HashSet<ChunkCoordinate>();
         addToSpawnList(start); // Add the object itself
         addBranches(start, 1);
+        changed = true;
+    }
+
+    /**
+     * Creates a structure that was calculated before.
+     * @param world          The world.
+     * @param start          The start of the structure.
+     * @param objectsToSpawn The objects to spawn, by chunk.
+     * @param spawnedChunks  The chunks that were already spawned.
+     * @param randomState    State of the random number generator, see
+     *                       {@link FastRandom#getState()}.
+     */
+    CustomObjectStructure(LocalWorld world, CustomObjectCoordinate start,
+            Map<ChunkCoordinate, Set<CustomObjectCoordinate>> objectsToSpawn, Set<ChunkCoordinate> spawnedChunks,
+            long randomState)
+    {
+        this.world = world;
+        this.start = start;
+        this.height = start.getObject().getStructurePartSpawnHeight();
+        this.maxBranchDepth = start.getObject().getMaxBranchDepth();
+        this.objectsToSpawn = objectsToSpawn;
+        this.spawnedChunks = spawnedChunks;
+        random = new FastRandom(0);
+        random.setState(randomState);
     }
 
     private void addBranches(CustomObjectCoordinate coordObject, int depth)
@@ -88,17 +122,133 @@ public class CustomObjectStructure
 
     /**
      * Spawns all the objects that should be spawned in that chunk.
+     *
+     * <p>Objects that only read and place blocks are spawned in a
+     * {@link StructureChunkBuffer}, which is written to the world section by
+     * section. Before any other object is spawned, the buffer is written, so
+     * that every object still sees all blocks placed before it.
      * @param chunkCoordinate The chunk to spawn in.
      */
     public void spawnForChunk(ChunkCoordinate chunkCoordinate)
     {
         Set<CustomObjectCoordinate> objectsInChunk = objectsToSpawn.get(chunkCoordinate);
-        if (objectsInChunk != null)
+        if (objectsInChunk == null || !spawnedChunks.add(chunkCoordinate))
         {
-            for (CustomObjectCoordinate coordObject : objectsInChunk)
+            return;
+        }
+        changed = true;
+
+        // The height must not depend on the world, and no event handler may
+        // look at the world while the blocks are still in the buffer
+        boolean useBuffer = height == StructurePartSpawnHeight.PROVIDED
+                && !TerrainControl.hasEventHandlers(EventType.CAN_CUSTOM_OBJECT_SPAWN);
+        StructureChunkBuffer buffer = null;
+        for (CustomObjectCoordinate coordObject : objectsInChunk)
+        {
+            if (useBuffer && coordObject.canSpawnInBuffer())
+            {
+                if (buffer == null)
+                {
+                    buffer = new StructureChunkBuffer(world);
+                }
+                coordObject.spawnWithChecks(buffer, random);
+            } else
             {
+                if (buffer != null)
+                {
+                    buffer.flush();
+                }
                 coordObject.spawnWithChecks(world, height, random);
             }
         }
+        if (buffer != null)
+        {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * Gets the start of this structure.
+     * @return The start.
+     */
+    public CustomObjectCoordinate getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Gets the objects of this structure, by the chunk they spawn in.
+     * @return The objects.
+     */
+    Map<ChunkCoordinate, Set<CustomObjectCoordinate>> getObjectsToSpawn()
+    {
+        return objectsToSpawn;
+    }
+
+    /**
+     * Gets whether this structure contains an object with the given name.
+     * Objects in chunks that have already been spawned are not included.
+     * @param objectName Name of the object, case insensitive.
+     * @return True if this structure contains the object.
+     */
+    boolean containsObject(String objectName)
+    {
+        if (start.getObject().getName().equalsIgnoreCase(objectName))
+        {
+            return true;
+        }
+        for (Map.Entry<ChunkCoordinate, Set<CustomObjectCoordinate>> entry : objectsToSpawn.entrySet())
+        {
+            if (spawnedChunks.contains(entry.getKey()))
+            {
+                continue;
+            }
+            for (CustomObjectCoordinate coordObject : entry.getValue())
+            {
+                if (coordObject.getObject().getName().equalsIgnoreCase(objectName))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets whether the objects of the given chunk have already been spawned.
+     * @param chunkCoordinate The chunk.
+     * @return True if the objects have been spawned.
+     */
+    boolean isSpawned(ChunkCoordinate chunkCoordinate)
+    {
+        return spawnedChunks.contains(chunkCoordinate);
+    }
+
+    /**
+     * Gets the state of the random number generator, which is used to spawn
+     * the objects.
+     * @return The state.
+     */
+    long getRandomState()
+    {
+        return random.getState();
+    }
+
+    /**
+     * Gets whether this structure was calculated or spawned in since it was
+     * last saved.
+     * @return True if this structure changed.
+     */
+    boolean isChanged()
+    {
+        return changed;
+    }
+
+    /**
+     * Marks this structure as saved.
+     */
+    void markSaved()
+    {
+        changed = false;
     }
 }
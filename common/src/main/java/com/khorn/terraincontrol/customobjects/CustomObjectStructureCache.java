@@ -1,38 +1,148 @@
 package com.khorn.terraincontrol.customobjects;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.configuration.WorldConfig;
+import com.khorn.terraincontrol.configuration.standard.WorldStandardValues;
 import com.khorn.terraincontrol.generator.resource.CustomStructureGen;
+import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Random;
 
 /**
  * Each world has a cache of unfinished structures. This class is the cache.
  *
+ * <p>When {@link WorldConfig#saveCustomStructures} is enabled, structures are
+ * saved per region using {@link CustomObjectStructureFile}. Only the last
+ * used regions are kept in memory, the other regions are saved and loaded
+ * again when needed.
+ *
  */
 public class CustomObjectStructureCache
 {
+    /**
+     * Maximum number of regions kept in memory.
+     */
+    private static final int MAX_LOADED_REGIONS = 16;
+
     private Map<ChunkCoordinate, CustomObjectStructure> structureCache;
     private LocalWorld world;
 
+    /**
+     * Directory of the structure files, or null if structures are not saved.
+     */
+    private File directory;
+
+    /**
+     * The saved structures of the last used regions, by region.
+     */
+    private final Map<ChunkCoordinate, Map<ChunkCoordinate, CustomObjectStructure>> regions;
+
+    /**
+     * Reused for every structure lookup, reseeded for each chunk.
+     */
+    private final Random random = new FastRandom(0);
+
     public CustomObjectStructureCache(LocalWorld world)
     {
         this.world = world;
         this.structureCache = new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        this.regions = new LinkedHashMap<ChunkCoordinate, Map<ChunkCoordinate, CustomObjectStructure>>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ChunkCoordinate, Map<ChunkCoordinate, CustomObjectStructure>> eldest)
+            {
+                if (size() > MAX_LOADED_REGIONS)
+                {
+                    saveRegion(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.directory = getDirectory(world);
     }
 
     public void reload(LocalWorld world)
     {
+        // The objects of the saved structures may have changed
+        save();
+        regions.clear();
+
         this.world = world;
+        this.directory = getDirectory(world);
         structureCache.clear();
     }
 
+    /**
+     * Saves all structures that changed since they were last saved. Does
+     * nothing if {@link WorldConfig#saveCustomStructures} is disabled.
+     * Should be called before the world is unloaded.
+     */
+    public void save()
+    {
+        for (Map.Entry<ChunkCoordinate, Map<ChunkCoordinate, CustomObjectStructure>> entry : regions.entrySet())
+        {
+            saveRegion(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes all structures that contain the given object, so that they
+     * are planned again with the new version of the object.
+     * @param objectName Name of the object that was changed.
+     */
+    public void invalidate(String objectName)
+    {
+        removeStructuresWith(structureCache, objectName);
+        for (Map.Entry<ChunkCoordinate, Map<ChunkCoordinate, CustomObjectStructure>> entry : regions.entrySet())
+        {
+            if (removeStructuresWith(entry.getValue(), objectName))
+            {
+                writeRegion(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static boolean removeStructuresWith(Map<ChunkCoordinate, CustomObjectStructure> structures, String objectName)
+    {
+        boolean removed = false;
+        for (Iterator<CustomObjectStructure> it = structures.values().iterator(); it.hasNext();)
+        {
+            if (it.next().containsObject(objectName))
+            {
+                it.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
     public CustomObjectStructure getStructureStart(int chunkX, int chunkZ)
     {
         ChunkCoordinate coord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
+        Map<ChunkCoordinate, CustomObjectStructure> region = null;
+        if (directory != null)
+        {
+            region = getRegion(chunkX, chunkZ);
+            CustomObjectStructure structureStart = region.get(coord);
+            if (structureStart != null)
+            {
+                return structureStart;
+            }
+        }
+
         CustomObjectStructure structureStart = structureCache.get(coord);
 
         // Clear cache if needed
@@ -46,7 +156,7 @@ public class CustomObjectStructureCache
             return structureStart;
         }
         // No structure found, create one
-        Random random = RandomHelper.getRandomForCoords(chunkX ^ 2, (chunkZ + 1) * 2, world.getSeed());
+        RandomHelper.setSeedForCoords(random, chunkX ^ 2, (chunkZ + 1) * 2, world.getSeed());
         CustomStructureGen structureGen = world.getBiome(chunkX * 16 + 15, chunkZ * 16 + 15).getBiomeConfig().structureGen;
         if (structureGen != null)
         {
@@ -54,11 +164,76 @@ public class CustomObjectStructureCache
             if (customObject != null)
             {
                 structureStart = new CustomObjectStructure(world, customObject);
-                structureCache.put(coord, structureStart);
+                if (region != null && CustomObjectStructureFile.canSave(world, structureStart))
+                {
+                    region.put(coord, structureStart);
+                } else
+                {
+                    structureCache.put(coord, structureStart);
+                }
                 return structureStart;
             } // TODO Maybe also store that no structure was here?
         }
 
         return null;
     }
+
+    private Map<ChunkCoordinate, CustomObjectStructure> getRegion(int chunkX, int chunkZ)
+    {
+        ChunkCoordinate regionCoord = CustomObjectStructureFile.getRegion(chunkX, chunkZ);
+        Map<ChunkCoordinate, CustomObjectStructure> region = regions.get(regionCoord);
+        if (region == null)
+        {
+            File file = CustomObjectStructureFile.getFile(directory, regionCoord);
+            try
+            {
+                region = CustomObjectStructureFile.read(world, file);
+            } catch (IOException e)
+            {
+                TerrainControl.log(LogMarker.WARN, "Failed to load custom structures from {}: {}", file, e.getMessage());
+                region = new HashMap<ChunkCoordinate, CustomObjectStructure>();
+            }
+            regions.put(regionCoord, region);
+        }
+        return region;
+    }
+
+    private void saveRegion(ChunkCoordinate regionCoord, Map<ChunkCoordinate, CustomObjectStructure> region)
+    {
+        boolean changed = false;
+        for (CustomObjectStructure structure : region.values())
+        {
+            changed |= structure.isChanged();
+        }
+        if (changed)
+        {
+            writeRegion(regionCoord, region);
+        }
+    }
+
+    private void writeRegion(ChunkCoordinate regionCoord, Map<ChunkCoordinate, CustomObjectStructure> region)
+    {
+        File file = CustomObjectStructureFile.getFile(directory, regionCoord);
+        try
+        {
+            CustomObjectStructureFile.write(world, file, region);
+            for (CustomObjectStructure structure : region.values())
+            {
+                structure.markSaved();
+            }
+        } catch (IOException e)
+        {
+            TerrainControl.log(LogMarker.WARN, "Failed to save custom structures to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static File getDirectory(LocalWorld world)
+    {
+        File saveFolder = world.getWorldSaveFolder();
+        if (!world.getConfigs().getWorldConfig().saveCustomStructures || saveFolder == null)
+        {
+            return null;
+        }
+        return new File(saveFolder, WorldStandardValues.WORLD_STRUCTURES_DIRECTORY_NAME);
+    }
 }
@@ -0,0 +1,391 @@
+package com.khorn.terraincontrol.customobjects;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.logging.LogMarker;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.Rotation;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes the {@link CustomObjectStructure}s of one region of
+ * {@value #REGION_SIZE}x{@value #REGION_SIZE} chunks. Structures are placed
+ * in the region of the chunk they were searched for in, see
+ * {@link CustomObjectStructureCache#getStructureStart(int, int)}.
+ *
+ * <p>Objects are stored by name. Only the objects of chunks that haven't
+ * been spawned yet are stored, for the other chunks only the coordinates are
+ * stored, so that those chunks are never spawned again.
+ *
+ * <p>The files are stored in the save folder of the world, together with the
+ * seed of the world. Files of another seed are left over from a world that
+ * was deleted and generated again, so they are discarded.
+ */
+final class CustomObjectStructureFile
+{
+    /**
+     * Size of a region in chunks. Must be a power of two.
+     */
+    static final int REGION_SIZE = 32;
+    private static final int REGION_SHIFT = 5;
+
+    private static final int FILE_VERSION = 1;
+
+    private CustomObjectStructureFile()
+    {
+        // No instances
+    }
+
+    /**
+     * Gets the region the given chunk is in.
+     * @param chunkX Chunk x.
+     * @param chunkZ Chunk z.
+     * @return The region coordinates, stored as a chunk coordinate.
+     */
+    static ChunkCoordinate getRegion(int chunkX, int chunkZ)
+    {
+        return ChunkCoordinate.fromChunkCoords(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+    }
+
+    /**
+     * Gets the file of the given region.
+     * @param directory The directory of all structure files.
+     * @param region    The region, as returned by {@link #getRegion(int, int)}.
+     * @return The file.
+     */
+    static File getFile(File directory, ChunkCoordinate region)
+    {
+        return new File(directory, "r." + region.getChunkX() + "." + region.getChunkZ() + ".tcs");
+    }
+
+    /**
+     * Gets whether all objects of the structure can be found again by their
+     * name. Objects with parameters, like <code>MyObject(Setting=value)</code>,
+     * are copies that can't be found by name, so those structures cannot be
+     * saved.
+     * @param world     The world of the structure.
+     * @param structure The structure.
+     * @return True if the structure can be saved.
+     */
+    static boolean canSave(LocalWorld world, CustomObjectStructure structure)
+    {
+        CustomObjectCollection customObjects = world.getConfigs().getCustomObjects();
+        if (!isSameObject(customObjects, structure.getStart()))
+        {
+            return false;
+        }
+        for (Set<CustomObjectCoordinate> objectsInChunk : structure.getObjectsToSpawn().values())
+        {
+            for (CustomObjectCoordinate coordObject : objectsInChunk)
+            {
+                if (!isSameObject(customObjects, coordObject))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSameObject(CustomObjectCollection customObjects, CustomObjectCoordinate coordObject)
+    {
+        CustomObject object = coordObject.getObject();
+        return customObjects.getObjectByName(object.getName()) == object;
+    }
+
+    /**
+     * Reads all structures in the given file. Structures with objects that
+     * no longer exist are left out, so that they are calculated again. If
+     * the file was written for another world seed, it is deleted.
+     * @param world The world of the structures.
+     * @param file  The file.
+     * @return The structures, by the chunk they were searched for in. Empty
+     * if the file doesn't exist.
+     * @throws IOException If the file couldn't be read.
+     */
+    static Map<ChunkCoordinate, CustomObjectStructure> read(LocalWorld world, File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            return new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        }
+
+        Map<ChunkCoordinate, CustomObjectStructure> structures;
+        FileInputStream fileStream = new FileInputStream(file);
+        try
+        {
+            DataInputStream stream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fileStream)));
+            try
+            {
+                structures = readStructures(world, stream);
+            } finally
+            {
+                stream.close();
+            }
+        } finally
+        {
+            fileStream.close();
+        }
+
+        if (structures == null)
+        {
+            TerrainControl.log(LogMarker.INFO, "Discarding custom structures of another world seed in {}", file);
+            if (!file.delete())
+            {
+                throw new IOException("Failed to delete " + file);
+            }
+            return new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        }
+        return structures;
+    }
+
+    /**
+     * Reads all structures from the stream.
+     * @return The structures, or null if they are for another world seed.
+     */
+    private static Map<ChunkCoordinate, CustomObjectStructure> readStructures(LocalWorld world, DataInputStream stream)
+            throws IOException
+    {
+        int version = stream.readInt();
+        if (version != FILE_VERSION)
+        {
+            throw new IOException("Unknown structure file version " + version);
+        }
+        if (stream.readLong() != world.getSeed())
+        {
+            return null;
+        }
+
+        CustomObjectCollection customObjects = world.getConfigs().getCustomObjects();
+        CustomObject[] objects = new CustomObject[stream.readInt()];
+        for (int i = 0; i < objects.length; i++)
+        {
+            // Null if the object was removed
+            objects[i] = customObjects.getObjectByName(stream.readUTF());
+        }
+
+        Map<ChunkCoordinate, CustomObjectStructure> structures = new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        int structureCount = stream.readInt();
+        for (int i = 0; i < structureCount; i++)
+        {
+            ChunkCoordinate searchChunk = ChunkCoordinate.fromChunkCoords(stream.readInt(), stream.readInt());
+            CustomObjectStructure structure = readStructure(world, stream, objects);
+            if (structure != null)
+            {
+                structures.put(searchChunk, structure);
+            }
+        }
+        return structures;
+    }
+
+    private static CustomObjectStructure readStructure(LocalWorld world, DataInputStream stream, CustomObject[] objects)
+            throws IOException
+    {
+        boolean complete = true;
+        CustomObjectCoordinate start = readObject(stream, objects);
+        complete &= start != null;
+        long randomState = stream.readLong();
+
+        int chunkCount = stream.readInt();
+        long[] spawnedBits = new long[(chunkCount + 63) >> 6];
+        for (int i = 0; i < spawnedBits.length; i++)
+        {
+            spawnedBits[i] = stream.readLong();
+        }
+
+        Map<ChunkCoordinate, Set<CustomObjectCoordinate>> objectsToSpawn = new LinkedHashMap<ChunkCoordinate, Set<CustomObjectCoordinate>>();
+        Set<ChunkCoordinate> spawnedChunks = new HashSet<ChunkCoordinate>();
+        for (int i = 0; i < chunkCount; i++)
+        {
+            ChunkCoordinate chunk = ChunkCoordinate.fromChunkCoords(stream.readInt(), stream.readInt());
+            Set<CustomObjectCoordinate> objectsInChunk = new LinkedHashSet<CustomObjectCoordinate>();
+            int objectCount = stream.readInt();
+            for (int j = 0; j < objectCount; j++)
+            {
+                CustomObjectCoordinate coordObject = readObject(stream, objects);
+                complete &= coordObject != null;
+                objectsInChunk.add(coordObject);
+            }
+            objectsToSpawn.put(chunk, objectsInChunk);
+            if ((spawnedBits[i >> 6] & (1L << (i & 63))) != 0)
+            {
+                spawnedChunks.add(chunk);
+            }
+        }
+
+        if (!complete)
+        {
+            return null;
+        }
+        return new CustomObjectStructure(world, start, objectsToSpawn, spawnedChunks, randomState);
+    }
+
+    private static CustomObjectCoordinate readObject(DataInputStream stream, CustomObject[] objects) throws IOException
+    {
+        CustomObject object = objects[stream.readInt()];
+        Rotation rotation = Rotation.getRotation(stream.readByte());
+        int x = stream.readInt();
+        int y = stream.readShort();
+        int z = stream.readInt();
+        if (object == null)
+        {
+            return null;
+        }
+        return new CustomObjectCoordinate(object, rotation, x, y, z);
+    }
+
+    /**
+     * Writes the given structures to the file, replacing the old file. If
+     * there are no structures, the file is deleted.
+     * @param world      The world of the structures.
+     * @param file       The file.
+     * @param structures The structures, by the chunk they were searched for
+     *                   in.
+     * @throws IOException If the file couldn't be written.
+     */
+    static void write(LocalWorld world, File file, Map<ChunkCoordinate, CustomObjectStructure> structures) throws IOException
+    {
+        if (structures.isEmpty())
+        {
+            if (file.exists() && !file.delete())
+            {
+                throw new IOException("Failed to delete " + file);
+            }
+            return;
+        }
+
+        // Give all objects a number
+        Map<String, Integer> objectIds = new LinkedHashMap<String, Integer>();
+        for (CustomObjectStructure structure : structures.values())
+        {
+            addObjectId(objectIds, structure.getStart());
+            for (Map.Entry<ChunkCoordinate, Set<CustomObjectCoordinate>> entry : structure.getObjectsToSpawn().entrySet())
+            {
+                if (!structure.isSpawned(entry.getKey()))
+                {
+                    for (CustomObjectCoordinate coordObject : entry.getValue())
+                    {
+                        addObjectId(objectIds, coordObject);
+                    }
+                }
+            }
+        }
+
+        // Write to a temporary file first, so that a crash cannot leave a
+        // broken file behind
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new IOException("Failed to create " + directory);
+        }
+        File tempFile = new File(directory, file.getName() + ".tmp");
+        FileOutputStream fileStream = new FileOutputStream(tempFile);
+        try
+        {
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fileStream)));
+            try
+            {
+                writeStructures(stream, world.getSeed(), objectIds, structures);
+            } finally
+            {
+                stream.close();
+            }
+        } finally
+        {
+            fileStream.close();
+        }
+
+        if (file.exists() && !file.delete())
+        {
+            throw new IOException("Failed to replace " + file);
+        }
+        if (!tempFile.renameTo(file))
+        {
+            throw new IOException("Failed to rename " + tempFile + " to " + file);
+        }
+    }
+
+    private static void writeStructures(DataOutputStream stream, long seed, Map<String, Integer> objectIds,
+            Map<ChunkCoordinate, CustomObjectStructure> structures) throws IOException
+    {
+        stream.writeInt(FILE_VERSION);
+        stream.writeLong(seed);
+        stream.writeInt(objectIds.size());
+        for (String name : objectIds.keySet())
+        {
+            stream.writeUTF(name);
+        }
+
+        stream.writeInt(structures.size());
+        for (Map.Entry<ChunkCoordinate, CustomObjectStructure> entry : structures.entrySet())
+        {
+            stream.writeInt(entry.getKey().getChunkX());
+            stream.writeInt(entry.getKey().getChunkZ());
+            writeStructure(stream, entry.getValue(), objectIds);
+        }
+    }
+
+    private static void addObjectId(Map<String, Integer> objectIds, CustomObjectCoordinate coordObject)
+    {
+        String name = coordObject.getObject().getName();
+        if (!objectIds.containsKey(name))
+        {
+            objectIds.put(name, objectIds.size());
+        }
+    }
+
+    private static void writeStructure(DataOutputStream stream, CustomObjectStructure structure,
+            Map<String, Integer> objectIds) throws IOException
+    {
+        writeObject(stream, structure.getStart(), objectIds);
+        stream.writeLong(structure.getRandomState());
+
+        Map<ChunkCoordinate, Set<CustomObjectCoordinate>> objectsToSpawn = structure.getObjectsToSpawn();
+        stream.writeInt(objectsToSpawn.size());
+        long[] spawnedBits = new long[(objectsToSpawn.size() + 63) >> 6];
+        int i = 0;
+        for (ChunkCoordinate chunk : objectsToSpawn.keySet())
+        {
+            if (structure.isSpawned(chunk))
+            {
+                spawnedBits[i >> 6] |= 1L << (i & 63);
+            }
+            i++;
+        }
+        for (long bits : spawnedBits)
+        {
+            stream.writeLong(bits);
+        }
+
+        for (Map.Entry<ChunkCoordinate, Set<CustomObjectCoordinate>> entry : objectsToSpawn.entrySet())
+        {
+            stream.writeInt(entry.getKey().getChunkX());
+            stream.writeInt(entry.getKey().getChunkZ());
+            if (structure.isSpawned(entry.getKey()))
+            {
+                // No need to remember the objects
+                stream.writeInt(0);
+                continue;
+            }
+            stream.writeInt(entry.getValue().size());
+            for (CustomObjectCoordinate coordObject : entry.getValue())
+            {
+                writeObject(stream, coordObject, objectIds);
+            }
+        }
+    }
+
+    private static void writeObject(DataOutputStream stream, CustomObjectCoordinate coordObject,
+            Map<String, Integer> objectIds) throws IOException
+    {
+        stream.writeInt(objectIds.get(coordObject.getObject().getName()));
+        stream.writeByte(coordObject.getRotation().getRotationId());
+        stream.writeInt(coordObject.getX());
+        stream.writeShort(coordObject.getY());
+        stream.writeInt(coordObject.getZ());
+    }
+}
@@ -0,0 +1,274 @@
+package com.khorn.terraincontrol.customobjects;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.configuration.io.FileSettingsReader;
+import com.khorn.terraincontrol.configuration.io.SettingsMap;
+import com.khorn.terraincontrol.customobjects.bo2.BO2;
+import com.khorn.terraincontrol.customobjects.bo3.BO3;
+import com.khorn.terraincontrol.customobjects.bo3.BO3Config;
+import com.khorn.terraincontrol.logging.LogMarker;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches the directories of {@link CustomObjectCollection}s for edited BO2
+ * and BO3 files, so that those objects can be used without reloading the
+ * whole world.
+ *
+ * <p>The directories are checked for changed files on a background thread,
+ * which also reads the changed files. The new settings are only put into the
+ * objects by {@link #applyChanges()}, which must be called on the main
+ * thread, so that objects never change while they are being spawned.
+ * Structures that contain a changed object are removed from the
+ * {@link CustomObjectStructureCache}, so that they are planned again.
+ *
+ * <p>Only objects that were already loaded are updated. New and deleted
+ * files still require the settings to be reloaded.
+ */
+public final class CustomObjectWatcher implements Runnable
+{
+    /**
+     * Time between two checks of the directories.
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 2000;
+
+    private static final class WatchedCollection
+    {
+        private final CustomObjectCollection collection;
+        private final LocalWorld world;
+
+        /**
+         * Last known fingerprint of each file. Only used on the watcher
+         * thread. Null until the directory is checked for the first time.
+         */
+        private Map<File, Long> fingerprints;
+
+        private WatchedCollection(CustomObjectCollection collection, LocalWorld world)
+        {
+            this.collection = collection;
+            this.world = world;
+        }
+    }
+
+    private final List<WatchedCollection> watched = new CopyOnWriteArrayList<WatchedCollection>();
+    private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<Runnable>();
+    private volatile Thread thread;
+
+    /**
+     * Starts watching the directory of the given objects. Does nothing if
+     * the objects were not loaded from a directory.
+     * @param collection The objects.
+     * @param world      The world the objects belong to, or null for the
+     *                   global objects.
+     */
+    public void watch(CustomObjectCollection collection, LocalWorld world)
+    {
+        if (collection.getDirectory() != null)
+        {
+            watched.add(new WatchedCollection(collection, world));
+        }
+    }
+
+    /**
+     * Stops watching the directory of the given objects.
+     * @param collection The objects.
+     */
+    public void unwatch(CustomObjectCollection collection)
+    {
+        for (WatchedCollection watchedCollection : watched)
+        {
+            if (watchedCollection.collection == collection)
+            {
+                watched.remove(watchedCollection);
+            }
+        }
+    }
+
+    /**
+     * Starts the background thread. Does nothing if the thread is already
+     * running.
+     */
+    public synchronized void start()
+    {
+        if (thread == null)
+        {
+            thread = new Thread(this, "TerrainControl object watcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the background thread, and forgets all changes that were not
+     * applied yet.
+     */
+    public synchronized void stop()
+    {
+        if (thread != null)
+        {
+            thread.interrupt();
+            thread = null;
+        }
+        pendingChanges.clear();
+    }
+
+    /**
+     * Puts the settings of all changed objects that were read since the last
+     * call into the objects. Must be called on the main thread.
+     */
+    public void applyChanges()
+    {
+        Runnable change;
+        while ((change = pendingChanges.poll()) != null)
+        {
+            change.run();
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        Thread currentThread = Thread.currentThread();
+        while (thread == currentThread)
+        {
+            for (WatchedCollection watchedCollection : watched)
+            {
+                checkDirectory(watchedCollection);
+            }
+
+            try
+            {
+                Thread.sleep(CHECK_INTERVAL_MILLIS);
+            } catch (InterruptedException e)
+            {
+                return;
+            }
+        }
+    }
+
+    private void checkDirectory(WatchedCollection watchedCollection)
+    {
+        Map<File, Long> fingerprints = new HashMap<File, Long>();
+        addFingerprints(watchedCollection.collection.getDirectory(), fingerprints);
+
+        Map<File, Long> oldFingerprints = watchedCollection.fingerprints;
+        watchedCollection.fingerprints = fingerprints;
+        if (oldFingerprints == null)
+        {
+            // First check, nothing to compare with
+            return;
+        }
+
+        for (Map.Entry<File, Long> entry : fingerprints.entrySet())
+        {
+            Long oldFingerprint = oldFingerprints.get(entry.getKey());
+            if (oldFingerprint != null && !oldFingerprint.equals(entry.getValue()))
+            {
+                readChangedFile(watchedCollection, entry.getKey());
+            }
+        }
+    }
+
+    private void addFingerprints(File directory, Map<File, Long> fingerprints)
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (File file : files)
+        {
+            if (file.isDirectory())
+            {
+                addFingerprints(file, fingerprints);
+            } else if (getObjectName(file) != null)
+            {
+                fingerprints.put(file, file.lastModified() * 31 + file.length());
+            }
+        }
+    }
+
+    private void readChangedFile(final WatchedCollection watchedCollection, File file)
+    {
+        String objectName = getObjectName(file);
+        CustomObject object = watchedCollection.collection.getLoadedObject(objectName);
+        try
+        {
+            if (object instanceof BO3 && file.equals(((BO3) object).getFile()))
+            {
+                final BO3 bo3 = (BO3) object;
+                final BO3Config settings = bo3.readSettings();
+                pendingChanges.add(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        bo3.setSettings(settings);
+                        onObjectChanged(watchedCollection, bo3);
+                    }
+                });
+            } else if (object instanceof BO2 && file.equals(((BO2) object).getFile()))
+            {
+                final BO2 bo2 = (BO2) object;
+                final SettingsMap settings = FileSettingsReader.read(bo2.getName(), file);
+                pendingChanges.add(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        bo2.reload(settings);
+                        onObjectChanged(watchedCollection, bo2);
+                    }
+                });
+            }
+        } catch (RuntimeException e)
+        {
+            // Keep the old version, the file is probably being edited
+            TerrainControl.log(LogMarker.WARN, "Failed to read the changed object {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void onObjectChanged(WatchedCollection watchedCollection, CustomObject object)
+    {
+        for (WatchedCollection other : watched)
+        {
+            // Global objects can be used in all worlds
+            LocalWorld world = other.world;
+            if (world != null && (watchedCollection.world == null || watchedCollection.world == world)
+                    && world.getStructureCache() != null)
+            {
+                world.getStructureCache().invalidate(object.getName());
+            }
+        }
+        TerrainControl.log(LogMarker.INFO, "Custom object {} reloaded", object.getName());
+    }
+
+    /**
+     * Gets the name of the object in the given file.
+     * @param file The file.
+     * @return The name, or null if the file is not a BO2 or BO3 file.
+     */
+    private static String getObjectName(File file)
+    {
+        String fileName = file.getName();
+        int index = fileName.lastIndexOf('.');
+        if (index == -1)
+        {
+            return null;
+        }
+        String extension = fileName.substring(index + 1);
+        if (!extension.equalsIgnoreCase("bo2") && !extension.equalsIgnoreCase("bo3"))
+        {
+            return null;
+        }
+        return fileName.substring(0, index);
+    }
+}
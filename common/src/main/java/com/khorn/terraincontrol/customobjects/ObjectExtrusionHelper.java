@@ -1,11 +1,13 @@
 package com.khorn.terraincontrol.customobjects;
 
+import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings;
 import com.khorn.terraincontrol.customobjects.bo3.BlockFunction;
 import com.khorn.terraincontrol.util.MaterialSet;
+import com.khorn.terraincontrol.util.NamedBinaryTag;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -31,9 +33,14 @@ public class ObjectExtrusionHelper
 
     /**
      * These blocks are the blocks that are found to be at the location dictated by the extrudeMode, and will be
-     * extruded until hitting a material not listed in extrudeThroughBlocks
+     * extruded until hitting a material not listed in extrudeThroughBlocks. All of them are at blockExtrusionY, so
+     * only x and z are stored
      */
-    private ArrayList<BlockFunction> blocksToExtrude = new ArrayList<BlockFunction>();
+    private int[] extrudeXs = new int[16];
+    private int[] extrudeZs = new int[16];
+    private LocalMaterialData[] extrudeMaterials = new LocalMaterialData[16];
+    private NamedBinaryTag[] extrudeMetaDataTags = new NamedBinaryTag[16];
+    private int extrudeCount = 0;
 
     /**
      * Constructor
@@ -56,28 +63,55 @@ public class ObjectExtrusionHelper
      * @param block The block to add.
      */
     public void addBlock(BlockFunction block)
+    {
+        addBlock(block.x, block.y, block.z, block.material, block.metaDataTag);
+    }
+
+    /**
+     * Same as {@link #addBlock(BlockFunction)}, for blocks that are not stored as a {@link BlockFunction}.
+     *
+     * @param x           The x of the block, relative to the BO3.
+     * @param y           The y of the block, relative to the BO3.
+     * @param z           The z of the block, relative to the BO3.
+     * @param material    The material of the block.
+     * @param metaDataTag The metadata of the block, may be null.
+     */
+    public void addBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag)
     {
         if (extrudeMode != BO3Settings.ExtrudeMode.None)
         {
-            if (extrudeMode == BO3Settings.ExtrudeMode.BottomDown && block.y < blockExtrusionY)
+            if (extrudeMode == BO3Settings.ExtrudeMode.BottomDown && y < blockExtrusionY)
             {
-                blocksToExtrude.clear();
-                blockExtrusionY = block.y;
-            } else if (extrudeMode == BO3Settings.ExtrudeMode.TopUp && block.y > blockExtrusionY)
+                extrudeCount = 0;
+                blockExtrusionY = y;
+            } else if (extrudeMode == BO3Settings.ExtrudeMode.TopUp && y > blockExtrusionY)
             {
-                blocksToExtrude.clear();
-                blockExtrusionY = block.y;
+                extrudeCount = 0;
+                blockExtrusionY = y;
             }
-            if (block.y == blockExtrusionY)
+            if (y == blockExtrusionY)
             {
-                blocksToExtrude.add(block);
+                if (extrudeCount == extrudeXs.length)
+                {
+                    int newLength = extrudeCount * 2;
+                    extrudeXs = Arrays.copyOf(extrudeXs, newLength);
+                    extrudeZs = Arrays.copyOf(extrudeZs, newLength);
+                    extrudeMaterials = Arrays.copyOf(extrudeMaterials, newLength);
+                    extrudeMetaDataTags = Arrays.copyOf(extrudeMetaDataTags, newLength);
+                }
+                extrudeXs[extrudeCount] = x;
+                extrudeZs[extrudeCount] = z;
+                extrudeMaterials[extrudeCount] = material;
+                extrudeMetaDataTags[extrudeCount] = metaDataTag;
+                extrudeCount++;
             }
         }
     }
 
     /**
      * This method takes that blocks that have been added to this and extrudes them individually until a block outside
-     * of the extrudeThroughBlocks has been hit
+     * of the extrudeThroughBlocks has been hit. Each block is extruded as a single run using
+     * {@link LocalWorld#setBlockRun(int, int, int, int, boolean, MaterialSet, LocalMaterialData)}
      *
      * @param world  The LocalWorld to extrude block in
      * @param random The random generator to use to spawning
@@ -87,27 +121,84 @@ public class ObjectExtrusionHelper
      */
     public void extrude(LocalWorld world, Random random, int x, int y, int z)
     {
-        for (BlockFunction block : blocksToExtrude)
+        if (extrudeMode == BO3Settings.ExtrudeMode.None)
         {
-            if (extrudeMode == BO3Settings.ExtrudeMode.BottomDown)
-            {
-                for (int yi = y + block.y - 1;
-                     yi > extrudeMode.getEndingHeight() && extrudeThroughBlocks.contains(world.getMaterial(x + block.x, yi, z + block.z));
-                     --yi)
-                {
-                    block.spawn(world, random, x + block.x, yi, z + block.z);
-                }
-            } else if (extrudeMode == BO3Settings.ExtrudeMode.TopUp)
+            return;
+        }
+        boolean up = extrudeMode == BO3Settings.ExtrudeMode.TopUp;
+        int step = up ? 1 : -1;
+        int startY = y + blockExtrusionY + step;
+        for (int i = 0; i < extrudeCount; i++)
+        {
+            int blockX = x + extrudeXs[i];
+            int blockZ = z + extrudeZs[i];
+            int runLength = world.setBlockRun(blockX, blockZ, startY, extrudeMode.getEndingHeight(), up,
+                    extrudeThroughBlocks, extrudeMaterials[i]);
+            NamedBinaryTag metaDataTag = extrudeMetaDataTags[i];
+            if (metaDataTag != null)
             {
-                for (int yi = y + block.y + 1;
-                     yi < extrudeMode.getEndingHeight() && extrudeThroughBlocks.contains(world.getMaterial(x + block.x, yi, z + block.z));
-                     ++yi)
+                for (int j = 0; j < runLength; j++)
                 {
-                    block.spawn(world, random, x + block.x, yi, z + block.z);
+                    world.attachMetadata(blockX, startY + j * step, blockZ, metaDataTag);
                 }
             }
         }
     }
 
+    /**
+     * Same as {@link #extrude(LocalWorld, Random, int, int, int)}, but places the blocks in a buffer. Metadata is not
+     * supported.
+     *
+     * @param buffer The buffer to extrude the blocks in
+     * @param x      The BO3 base X spawn location
+     * @param y      The BO3 base Y spawn location
+     * @param z      The BO3 base Z spawn location
+     */
+    public void extrude(StructureChunkBuffer buffer, int x, int y, int z)
+    {
+        if (extrudeMode == BO3Settings.ExtrudeMode.None)
+        {
+            return;
+        }
+        boolean up = extrudeMode == BO3Settings.ExtrudeMode.TopUp;
+        int step = up ? 1 : -1;
+        int startY = y + blockExtrusionY + step;
+        for (int i = 0; i < extrudeCount; i++)
+        {
+            buffer.setBlockRun(x + extrudeXs[i], z + extrudeZs[i], startY, extrudeMode.getEndingHeight(), up,
+                    extrudeThroughBlocks, extrudeMaterials[i]);
+        }
+    }
+
+    /**
+     * Implementation of {@link LocalWorld#setBlockRun(int, int, int, int, boolean, MaterialSet, LocalMaterialData)} that reads
+     * and sets the blocks one by one, so that every block gets light updates and client notifications.
+     *
+     * @param world         The world.
+     * @param x             Block x.
+     * @param z             Block z.
+     * @param startY        The first block y to replace.
+     * @param endY          The block y the run stops at, exclusive.
+     * @param up            True to move up, false to move down.
+     * @param throughBlocks The blocks that may be replaced.
+     * @param material      The new block.
+     * @return The length of the run.
+     */
+    public static int setBlockRunPerBlock(LocalWorld world, int x, int z, int startY, int endY, boolean up,
+            MaterialSet throughBlocks, LocalMaterialData material)
+    {
+        int step = up ? 1 : -1;
+        int runLength = 0;
+        for (int y = startY; up ? y < endY : y > endY; y += step)
+        {
+            if (!throughBlocks.contains(world.getMaterial(x, y, z)))
+            {
+                break;
+            }
+            world.setBlock(x, y, z, material);
+            runLength++;
+        }
+        return runLength;
+    }
 
 }
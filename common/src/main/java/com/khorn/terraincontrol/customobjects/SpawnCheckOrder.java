@@ -0,0 +1,109 @@
+package com.khorn.terraincontrol.customobjects;
+
+/**
+ * The order in which the blocks of a custom object are checked before the
+ * object is spawned. The blocks at the corners of the footprint of the object
+ * are checked first: if the object doesn't fit, these blocks are the most
+ * likely to be in the way, so most failed spawn attempts are rejected before
+ * the rest of the object is read from the world.
+ *
+ * <p>A corner is the block that lies furthest in one of the four diagonal
+ * directions, with the lowest block winning ties. Rotating an object by 90
+ * degrees only moves its corners to another diagonal, so the same order works
+ * for all four rotations. The order never changes the outcome of a check,
+ * only how soon a failing check is noticed.
+ */
+public final class SpawnCheckOrder
+{
+    /**
+     * The maximum amount of corners.
+     */
+    private static final int MAX_SAMPLES = 4;
+
+    /**
+     * Indices in the block array of the object, in the order the blocks must
+     * be checked. Contains every index exactly once.
+     */
+    public final int[] indices;
+
+    /**
+     * The amount of corner blocks at the start of {@link #indices}.
+     */
+    public final int sampleCount;
+
+    /**
+     * Creates the check order for an object.
+     * @param xs X position of each block, relative to the object.
+     * @param ys Y position of each block, relative to the object.
+     * @param zs Z position of each block, relative to the object.
+     */
+    public SpawnCheckOrder(int[] xs, int[] ys, int[] zs)
+    {
+        int length = xs.length;
+        int[] corners = new int[MAX_SAMPLES];
+        int cornerCount = 0;
+
+        // Northwest, southeast, northeast and southwest
+        for (int direction = 0; direction < MAX_SAMPLES; direction++)
+        {
+            int best = -1;
+            for (int i = 0; i < length; i++)
+            {
+                if (best == -1 || isFurther(direction, xs[i], ys[i], zs[i], xs[best], ys[best], zs[best]))
+                {
+                    best = i;
+                }
+            }
+            if (best != -1 && !contains(corners, cornerCount, best))
+            {
+                corners[cornerCount++] = best;
+            }
+        }
+
+        this.indices = new int[length];
+        this.sampleCount = cornerCount;
+        System.arraycopy(corners, 0, this.indices, 0, cornerCount);
+        int next = cornerCount;
+        for (int i = 0; i < length; i++)
+        {
+            if (!contains(corners, cornerCount, i))
+            {
+                this.indices[next++] = i;
+            }
+        }
+    }
+
+    private static boolean isFurther(int direction, int x, int y, int z, int bestX, int bestY, int bestZ)
+    {
+        int distance = getDistance(direction, x, z);
+        int bestDistance = getDistance(direction, bestX, bestZ);
+        return distance > bestDistance || (distance == bestDistance && y < bestY);
+    }
+
+    private static int getDistance(int direction, int x, int z)
+    {
+        switch (direction)
+        {
+            case 0:
+                return -x - z;
+            case 1:
+                return x + z;
+            case 2:
+                return x - z;
+            default:
+                return z - x;
+        }
+    }
+
+    private static boolean contains(int[] array, int length, int value)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            if (array[i] == value)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+package com.khorn.terraincontrol.customobjects;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how custom object spawn attempts end, so that the effect of the
+ * staged spawn checks can be reported by the metrics.
+ *
+ * <p>A spawn check has three stages. The quick checks look at the height and
+ * at a few single blocks. The sample stage reads the corners of the object
+ * (see {@link SpawnCheckOrder}) and the full scan reads all other blocks. As
+ * soon as too many blocks are in the way, or a block is not loaded, the
+ * check stops: the blocks that were not read are counted as skipped. The
+ * time it would have taken to read the skipped blocks is estimated from the
+ * average time it took to read a block. This is compared with reading every
+ * block of the object, not with a check that reads the blocks in their
+ * normal order: such a check would also have stopped early, just later.
+ *
+ * <p>Counting is off by default, as it slows down every spawn check. Only
+ * enable it when something reads the counts.
+ */
+public final class SpawnCheckStats
+{
+    private static volatile boolean enabled = false;
+    private static final AtomicLong attempts = new AtomicLong();
+    private static final AtomicLong rejectedByQuickChecks = new AtomicLong();
+    private static final AtomicLong rejectedBySamples = new AtomicLong();
+    private static final AtomicLong rejectedByFullScan = new AtomicLong();
+    private static final AtomicLong blocksRead = new AtomicLong();
+    private static final AtomicLong blocksSkipped = new AtomicLong();
+    private static final AtomicLong nanosReading = new AtomicLong();
+
+    /**
+     * Gets whether spawn checks should be counted. Read this once at the
+     * start of a spawn check, and only call the other methods of this class
+     * if it returned true.
+     * @return True if spawn checks are counted.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Sets whether spawn checks should be counted.
+     * @param enabled True to count spawn checks.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        SpawnCheckStats.enabled = enabled;
+    }
+
+    /**
+     * Called at the start of every spawn check.
+     */
+    public static void onAttempt()
+    {
+        attempts.incrementAndGet();
+    }
+
+    /**
+     * Called when a spawn check failed before any block of the object was
+     * read.
+     */
+    public static void onRejectedByQuickChecks()
+    {
+        rejectedByQuickChecks.incrementAndGet();
+    }
+
+    /**
+     * Called after the blocks of an object have been read.
+     * @param read        The amount of blocks that were read.
+     * @param total       The amount of blocks in the object.
+     * @param sampleCount The amount of corner blocks that were read first.
+     * @param rejected    Whether the object cannot spawn.
+     * @param nanos       The time it took to read the blocks.
+     */
+    public static void onBlocksRead(int read, int total, int sampleCount, boolean rejected, long nanos)
+    {
+        blocksRead.addAndGet(read);
+        blocksSkipped.addAndGet(total - read);
+        nanosReading.addAndGet(nanos);
+        if (rejected)
+        {
+            if (read <= sampleCount)
+            {
+                rejectedBySamples.incrementAndGet();
+            } else
+            {
+                rejectedByFullScan.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of spawn checks.
+     * @return The amount.
+     */
+    public static long getAttempts()
+    {
+        return attempts.get();
+    }
+
+    /**
+     * Gets the amount of spawn checks that failed before reading the blocks
+     * of the object.
+     * @return The amount.
+     */
+    public static long getRejectedByQuickChecks()
+    {
+        return rejectedByQuickChecks.get();
+    }
+
+    /**
+     * Gets the amount of spawn checks that failed on the corner blocks.
+     * @return The amount.
+     */
+    public static long getRejectedBySamples()
+    {
+        return rejectedBySamples.get();
+    }
+
+    /**
+     * Gets the amount of spawn checks that failed after reading more than
+     * the corner blocks.
+     * @return The amount.
+     */
+    public static long getRejectedByFullScan()
+    {
+        return rejectedByFullScan.get();
+    }
+
+    /**
+     * Gets the estimated time it would have taken to read the blocks that
+     * were skipped because a spawn check stopped early. See the class
+     * description for what this is compared with.
+     * @return The time, in milliseconds.
+     */
+    public static long getEstimatedMillisOfSkippedBlocks()
+    {
+        long read = blocksRead.get();
+        if (read == 0)
+        {
+            return 0;
+        }
+        return (long) ((double) blocksSkipped.get() * nanosReading.get() / read / 1000000);
+    }
+
+    private SpawnCheckStats()
+    {
+    }
+}
@@ -0,0 +1,195 @@
+package com.khorn.terraincontrol.customobjects;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.util.MaterialSet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the blocks of all objects of a {@link CustomObjectStructure} that
+ * spawn in one chunk, so that they can be written to the world section by
+ * section instead of object by object.
+ *
+ * <p>Reads see the blocks placed earlier, so objects are checked against the
+ * same blocks as when they were spawned one by one, and later objects still
+ * override earlier ones. Blocks that the world wouldn't accept (unloaded or
+ * outside the world) are ignored right away, just like
+ * {@link LocalWorld#setBlock(int, int, int, LocalMaterialData)} does.
+ *
+ * <p>Things that need the blocks to be in the world, like metadata or light
+ * checks, must {@link #flush()} the buffer first.
+ */
+public final class StructureChunkBuffer
+{
+    private static final int SECTION_COUNT = (TerrainControl.WORLD_HEIGHT - TerrainControl.WORLD_DEPTH) >> 4;
+
+    private final LocalWorld world;
+
+    /**
+     * The placed blocks, by chunk column and then by section. Entries are
+     * null where no block was placed.
+     */
+    private final Map<Long, LocalMaterialData[][]> columns = new LinkedHashMap<Long, LocalMaterialData[][]>();
+
+    /**
+     * The column that was looked up last, as objects place and read many
+     * blocks in the same column in a row. The column is null if there is
+     * no column with that key.
+     */
+    private long lastColumnKey;
+    private LocalMaterialData[][] lastColumn;
+    private boolean hasLastColumn;
+
+    public StructureChunkBuffer(LocalWorld world)
+    {
+        this.world = world;
+    }
+
+    /**
+     * Gets the world the blocks will be written to.
+     * @return The world.
+     */
+    public LocalWorld getWorld()
+    {
+        return world;
+    }
+
+    /**
+     * @see LocalWorld#isLoaded(int, int, int)
+     */
+    public boolean isLoaded(int x, int y, int z)
+    {
+        return world.isLoaded(x, y, z);
+    }
+
+    /**
+     * Gets the block at the given position, which is the last block placed
+     * in this buffer, or else the block in the world.
+     * @see LocalWorld#getMaterial(int, int, int)
+     */
+    public LocalMaterialData getMaterial(int x, int y, int z)
+    {
+        if (y >= TerrainControl.WORLD_DEPTH && y < TerrainControl.WORLD_HEIGHT)
+        {
+            LocalMaterialData[][] column = getColumn(x, z, false);
+            if (column != null)
+            {
+                LocalMaterialData[] section = column[(y - TerrainControl.WORLD_DEPTH) >> 4];
+                if (section != null)
+                {
+                    LocalMaterialData material = section[getIndex(x, y, z)];
+                    if (material != null)
+                    {
+                        return material;
+                    }
+                }
+            }
+        }
+        return world.getMaterial(x, y, z);
+    }
+
+    /**
+     * Places a block in this buffer.
+     * @see LocalWorld#setBlock(int, int, int, LocalMaterialData)
+     */
+    public void setBlock(int x, int y, int z, LocalMaterialData material)
+    {
+        if (!world.isLoaded(x, y, z))
+        {
+            // The world would ignore this block too
+            return;
+        }
+
+        LocalMaterialData[][] column = getColumn(x, z, true);
+        int sectionIndex = (y - TerrainControl.WORLD_DEPTH) >> 4;
+        if (column[sectionIndex] == null)
+        {
+            column[sectionIndex] = new LocalMaterialData[16 * 16 * 16];
+        }
+        column[sectionIndex][getIndex(x, y, z)] = material;
+    }
+
+    /**
+     * Places a vertical run of blocks in this buffer.
+     * @see LocalWorld#setBlockRun(int, int, int, int, boolean, MaterialSet, LocalMaterialData)
+     */
+    public int setBlockRun(int x, int z, int startY, int endY, boolean up, MaterialSet throughBlocks, LocalMaterialData material)
+    {
+        int step = up ? 1 : -1;
+        int runLength = 0;
+        for (int y = startY; up ? y < endY : y > endY; y += step)
+        {
+            if (!throughBlocks.contains(getMaterial(x, y, z)))
+            {
+                break;
+            }
+            setBlock(x, y, z, material);
+            runLength++;
+        }
+        return runLength;
+    }
+
+    /**
+     * Writes all blocks to the world, one chunk section at a time using
+     * {@link LocalWorld#setSectionBlocks(int, int, int, LocalMaterialData[])},
+     * and empties this buffer. Sections of chunks that players may already
+     * see are placed block by block by the world, so players are still
+     * notified of the changes.
+     */
+    public void flush()
+    {
+        for (Map.Entry<Long, LocalMaterialData[][]> entry : columns.entrySet())
+        {
+            int chunkX = (int) (entry.getKey() >> 32);
+            int chunkZ = (int) entry.getKey().longValue();
+            LocalMaterialData[][] column = entry.getValue();
+            for (int sectionIndex = 0; sectionIndex < column.length; sectionIndex++)
+            {
+                if (column[sectionIndex] != null)
+                {
+                    world.setSectionBlocks(chunkX, (TerrainControl.WORLD_DEPTH >> 4) + sectionIndex, chunkZ, column[sectionIndex]);
+                }
+            }
+        }
+        columns.clear();
+        hasLastColumn = false;
+        lastColumn = null;
+    }
+
+    /**
+     * Gets the column of the chunk the given position is in.
+     * @param x      Block x.
+     * @param z      Block z.
+     * @param create Whether to create the column if it doesn't exist yet.
+     * @return The column, or null if it doesn't exist and create is false.
+     */
+    private LocalMaterialData[][] getColumn(int x, int z, boolean create)
+    {
+        long columnKey = getColumnKey(x, z);
+        if (!hasLastColumn || lastColumnKey != columnKey)
+        {
+            lastColumnKey = columnKey;
+            lastColumn = columns.get(columnKey);
+            hasLastColumn = true;
+        }
+        if (lastColumn == null && create)
+        {
+            lastColumn = new LocalMaterialData[SECTION_COUNT][];
+            columns.put(columnKey, lastColumn);
+        }
+        return lastColumn;
+    }
+
+    private static long getColumnKey(int x, int z)
+    {
+        return ((long) (x >> 4) << 32) | ((z >> 4) & 0xFFFFFFFFL);
+    }
+
+    private static int getIndex(int x, int y, int z)
+    {
+        return (((y - TerrainControl.WORLD_DEPTH) & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+}
@@ -11,7 +11,10 @@ import com.khorn.terraincontrol.configuration.io.SettingsMap;
 import com.khorn.terraincontrol.customobjects.Branch;
 import com.khorn.terraincontrol.customobjects.CustomObject;
 import com.khorn.terraincontrol.customobjects.CustomObjectCoordinate;
+import com.khorn.terraincontrol.customobjects.SpawnCheckOrder;
+import com.khorn.terraincontrol.customobjects.SpawnCheckStats;
 import com.khorn.terraincontrol.customobjects.StructurePartSpawnHeight;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.util.BoundingBox;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.MaterialSet;
@@ -36,10 +39,11 @@ public class BO2 extends ConfigFile implements CustomObject
      * so we can't simply use the output of
      * {@link #writeConfigSettings(SettingsMap)}, as we do for other configs.
      */
-    private final SettingsMap settingsMap;
+    private SettingsMap settingsMap;
     private final File file;
 
     public ObjectCoordinate[][] data = new ObjectCoordinate[4][];
+    private SpawnCheckOrder spawnCheckOrder;
 
     public BO2[] groupObjects = null;
 
@@ -113,6 +117,18 @@ public class BO2 extends ConfigFile implements CustomObject
         correctSettings();
     }
 
+    /**
+     * Replaces the settings of this BO2 by settings that were read from the
+     * file again. Copies of this BO2 made by
+     * {@link #applySettings(SettingsMap)} keep their old settings.
+     * @param settings The new settings.
+     */
+    public void reload(SettingsMap settings)
+    {
+        this.settingsMap = settings;
+        enable(settings);
+    }
+
     @Override
     public boolean canSpawnAsTree()
     {
@@ -162,7 +178,82 @@ public class BO2 extends ConfigFile implements CustomObject
     @Override
     public boolean canSpawnAt(LocalWorld world, Rotation rotation, int x, int y, int z)
     {
-        // Basic checks
+        boolean recordStats = SpawnCheckStats.isEnabled();
+        if (recordStats)
+        {
+            SpawnCheckStats.onAttempt();
+        }
+        if (!canSpawnAtQuick(world, x, y, z))
+        {
+            if (recordStats)
+            {
+                SpawnCheckStats.onRejectedByQuickChecks();
+            }
+            return false;
+        }
+
+        ObjectCoordinate[] objData = this.data[rotation.getRotationId()];
+
+        // Check all blocks, starting with the corners. The fault counter
+        // only grows, so we can stop as soon as it is too high. With a
+        // collision percentage of 100% the blocks themselves don't matter.
+        double maxFaults = objData.length * (collisionPercentage / 100);
+        boolean checkCollisions = !dig && maxFaults < objData.length;
+        int faultCounter = 0;
+        int blocksRead = 0;
+        boolean canSpawn = true;
+        long startTime = recordStats ? System.nanoTime() : 0;
+        for (int index : spawnCheckOrder.indices)
+        {
+            ObjectCoordinate point = objData[index];
+            blocksRead++;
+            if (!world.isLoaded((x + point.x), (y + point.y), (z + point.z)))
+            {
+                canSpawn = false;
+                break;
+            }
+
+            if (checkCollisions)
+            {
+                if (collisionBlockType.contains(world.getMaterial((x + point.x), (y + point.y), (z + point.z))))
+                {
+                    faultCounter++;
+                    if (faultCounter > maxFaults)
+                    {
+                        canSpawn = false;
+                        break;
+                    }
+                }
+            }
+        }
+        if (recordStats)
+        {
+            SpawnCheckStats.onBlocksRead(blocksRead, objData.length, spawnCheckOrder.sampleCount, !canSpawn, System.nanoTime() - startTime);
+        }
+        if (!canSpawn)
+        {
+            return false;
+        }
+
+        // Call event
+        if (TerrainControl.hasEventHandlers(EventType.CAN_CUSTOM_OBJECT_SPAWN)
+                && !TerrainControl.fireCanCustomObjectSpawnEvent(this, world, x, y, z))
+        {
+            // Cancelled
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks everything that doesn't depend on the blocks of the object.
+     */
+    private boolean canSpawnAtQuick(LocalWorld world, int x, int y, int z)
+    {
+        if ((y < spawnElevationMin) || (y > spawnElevationMax))
+            return false;
+
         if (world.isEmpty(x, y - 5, z) && (needsFoundation))
             return false;
 
@@ -190,42 +281,9 @@ public class BO2 extends ConfigFile implements CustomObject
                 return false;
         }
 
-        if ((y < spawnElevationMin) || (y > spawnElevationMax))
-            return false;
-
         if (!spawnOnBlockType.contains(world.getMaterial(x, y - 1, z)))
             return false;
 
-        ObjectCoordinate[] objData = this.data[rotation.getRotationId()];
-
-        // Check all blocks
-        int faultCounter = 0;
-
-        for (ObjectCoordinate point : objData)
-        {
-            if (!world.isLoaded((x + point.x), (y + point.y), (z + point.z)))
-                return false;
-
-            if (!dig)
-            {
-                if (collisionBlockType.contains(world.getMaterial((x + point.x), (y + point.y), (z + point.z))))
-                {
-                    faultCounter++;
-                    if (faultCounter > (objData.length * (collisionPercentage / 100)))
-                    {
-                        return false;
-                    }
-                }
-            }
-        }
-
-        // Call event
-        if (!TerrainControl.fireCanCustomObjectSpawnEvent(this, world, x, y, z))
-        {
-            // Cancelled
-            return false;
-        }
-
         return true;
     }
 
@@ -388,6 +446,17 @@ public class BO2 extends ConfigFile implements CustomObject
             data[3][i] = coordinate;
         }
 
+        int[] xs = new int[coordinates.size()];
+        int[] ys = new int[coordinates.size()];
+        int[] zs = new int[coordinates.size()];
+        for (int i = 0; i < coordinates.size(); i++)
+        {
+            xs[i] = data[0][i].x;
+            ys[i] = data[0][i].y;
+            zs[i] = data[0][i].z;
+        }
+        spawnCheckOrder = new SpawnCheckOrder(xs, ys, zs);
+
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.customobjects.bo3;
 
 import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.io.FileSettingsReader;
@@ -9,8 +10,10 @@ import com.khorn.terraincontrol.configuration.io.SettingsMap;
 import com.khorn.terraincontrol.customobjects.*;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.OutsideSourceBlock;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.SpawnHeightEnum;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.util.BoundingBox;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.CompiledMaterialSet;
 import com.khorn.terraincontrol.util.Rotation;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
@@ -57,6 +60,30 @@ public class BO3 implements CustomObject
         FileSettingsWriter.writeToFile(this.settings.getSettingsAsMap(), file, this.settings.settingsMode);
     }
 
+    /**
+     * Reads the settings file of this BO3 again. This BO3 is not changed,
+     * use {@link #setSettings(BO3Config)} for that. Unlike
+     * {@link #onEnable(Map)}, the file is not written back, so this method
+     * can be called from any thread.
+     *
+     * @return The new settings.
+     */
+    public BO3Config readSettings()
+    {
+        return new BO3Config(FileSettingsReader.read(name, file), file.getParentFile(), settings.otherObjects);
+    }
+
+    /**
+     * Replaces the settings of this BO3. Copies of this BO3 made by
+     * {@link #applySettings(SettingsMap)} keep their old settings.
+     *
+     * @param settings The new settings, see {@link #readSettings()}.
+     */
+    public void setSettings(BO3Config settings)
+    {
+        this.settings = settings;
+    }
+
     /**
      * Computes the offset and variance for spawning a bo3
      *
@@ -116,47 +143,128 @@ public class BO3 implements CustomObject
     @Override
     public boolean canSpawnAt(LocalWorld world, Rotation rotation, int x, int y, int z)
     {
-        BO3PlaceableFunction[] blocks = settings.blocks[rotation.getRotationId()];
+        return canSpawnAt(world, null, rotation, x, y, z);
+    }
+
+    /**
+     * Gets whether this object can be spawned in a
+     * {@link StructureChunkBuffer}: all blocks and checks must only read and
+     * place blocks.
+     * @return True if this object can be spawned in a buffer.
+     */
+    public boolean canSpawnInBuffer()
+    {
+        return settings.canSpawnInBuffer;
+    }
+
+    /**
+     * Spawns this object in the buffer if it can spawn there, see
+     * {@link #canSpawnInBuffer()}.
+     * @param buffer   The buffer.
+     * @param random   Random number generator.
+     * @param rotation Rotation of the object.
+     * @param x        X position of the object.
+     * @param y        Y position of the object.
+     * @param z        Z position of the object.
+     * @return Whether the object was spawned.
+     */
+    public boolean spawnWithChecks(StructureChunkBuffer buffer, Random random, Rotation rotation, int x, int y, int z)
+    {
+        LocalWorld world = buffer.getWorld();
+        if (!canSpawnAt(world, buffer, rotation, x, y, z))
+        {
+            return false;
+        }
+        return spawnForced(world, buffer, random, rotation, x, y, z);
+    }
+
+    /**
+     * Checks whether this object can spawn, reading blocks from the buffer
+     * if it isn't null.
+     */
+    private boolean canSpawnAt(LocalWorld world, StructureChunkBuffer buffer, Rotation rotation, int x, int y, int z)
+    {
+        BO3BlockList blocks = settings.blocks;
+        int rotationId = rotation.getRotationId();
         BO3Check[] checks = settings.bo3Checks[rotation.getRotationId()];
+        boolean recordStats = SpawnCheckStats.isEnabled();
+        if (recordStats)
+        {
+            SpawnCheckStats.onAttempt();
+        }
 
         // Height check
         if (y < settings.minHeight || y > settings.maxHeight)
         {
+            if (recordStats)
+            {
+                SpawnCheckStats.onRejectedByQuickChecks();
+            }
             return false;
         }
 
         // Check for spawning
         for (BO3Check check : checks)
         {
-            if (check.preventsSpawn(world, x + check.x, y + check.y, z + check.z))
+            boolean preventsSpawn = buffer == null
+                    ? check.preventsSpawn(world, x + check.x, y + check.y, z + check.z)
+                    : check.preventsSpawn(buffer, x + check.x, y + check.y, z + check.z);
+            if (preventsSpawn)
             {
                 // A check failed
+                if (recordStats)
+                {
+                    SpawnCheckStats.onRejectedByQuickChecks();
+                }
                 return false;
             }
         }
 
-        // Check for source blocks
+        // Check for source blocks, starting with the corners. The percentage
+        // only grows, so we can stop as soon as it is too high. With a
+        // maximum of 100% the blocks themselves don't matter.
+        boolean checkSourceBlocks = settings.maxPercentageOutsideSourceBlock < 100;
+        CompiledMaterialSet sourceBlocks = settings.sourceBlocks.compile();
+        SpawnCheckOrder order = settings.spawnCheckOrder;
         int blocksOutsideSourceBlock = 0;
-        for (BO3PlaceableFunction block : blocks)
+        int blocksRead = 0;
+        boolean canSpawn = true;
+        long startTime = recordStats ? System.nanoTime() : 0;
+        for (int index : order.indices)
         {
-            if (!world.isLoaded(x + block.x, y + block.y, z + block.z))
+            int blockX = x + blocks.getX(rotationId, index);
+            int blockY = y + blocks.getY(index);
+            int blockZ = z + blocks.getZ(rotationId, index);
+            blocksRead++;
+            if (!world.isLoaded(blockX, blockY, blockZ))
             {
                 // Cannot spawn BO3, part of world is not loaded
-                return false;
+                canSpawn = false;
+                break;
             }
-            if (!settings.sourceBlocks.contains(world.getMaterial(x + block.x, y + block.y, z + block.z)))
+            if (checkSourceBlocks && !sourceBlocks.contains(getMaterial(world, buffer, blockX, blockY, blockZ)))
             {
                 blocksOutsideSourceBlock++;
+                if ((((double) blocksOutsideSourceBlock / (double) blocks.size()) * 100.0) > settings.maxPercentageOutsideSourceBlock)
+                {
+                    // Too many blocks outside source block
+                    canSpawn = false;
+                    break;
+                }
             }
         }
-        if ((((double) blocksOutsideSourceBlock / (double) blocks.length) * 100.0) > settings.maxPercentageOutsideSourceBlock)
+        if (recordStats)
+        {
+            SpawnCheckStats.onBlocksRead(blocksRead, blocks.size(), order.sampleCount, !canSpawn, System.nanoTime() - startTime);
+        }
+        if (!canSpawn)
         {
-            // Too many blocks outside source block
             return false;
         }
 
         // Call event
-        if (!TerrainControl.fireCanCustomObjectSpawnEvent(this, world, x, y, z))
+        if (TerrainControl.hasEventHandlers(EventType.CAN_CUSTOM_OBJECT_SPAWN)
+                && !TerrainControl.fireCanCustomObjectSpawnEvent(this, world, x, y, z))
         {
             // Cancelled
             return false;
@@ -175,25 +283,58 @@ public class BO3 implements CustomObject
     @Override
     public boolean spawnForced(LocalWorld world, Random random, Rotation rotation, int x, int y, int z)
     {
-        BO3PlaceableFunction[] blocks = settings.blocks[rotation.getRotationId()];
+        return spawnForced(world, null, random, rotation, x, y, z);
+    }
+
+    /**
+     * Spawns this object, placing the blocks in the buffer if it isn't null.
+     */
+    private boolean spawnForced(LocalWorld world, StructureChunkBuffer buffer, Random random, Rotation rotation, int x, int y, int z)
+    {
+        BO3BlockList.Cursor block = settings.blocks.cursor(rotation.getRotationId());
         ObjectExtrusionHelper oeh = new ObjectExtrusionHelper(settings.extrudeMode, settings.extrudeThroughBlocks);
+        CompiledMaterialSet sourceBlocks = settings.sourceBlocks.compile();
         // Spawn
 
-        for (BO3PlaceableFunction block : blocks)
+        while (block.next())
         {
-            if (settings.outsideSourceBlock == OutsideSourceBlock.placeAnyway || settings.sourceBlocks.contains(world.getMaterial(x + block.x, y + block.y, z + block.z)))
+            int blockX = x + block.getX();
+            int blockY = y + block.getY();
+            int blockZ = z + block.getZ();
+            if (settings.outsideSourceBlock == OutsideSourceBlock.placeAnyway || sourceBlocks.contains(getMaterial(world, buffer, blockX, blockY, blockZ)))
             {
-                block.spawn(world, random, x + block.x, y + block.y, z + block.z);
+                if (buffer == null)
+                {
+                    block.spawn(world, random, blockX, blockY, blockZ);
+                } else
+                {
+                    block.spawn(buffer, random, blockX, blockY, blockZ);
+                }
             }
-            if (block instanceof BlockFunction)
+            BO3PlaceableFunction function = block.getFunction();
+            if (function == null)
+            {
+                oeh.addBlock(block.getX(), block.getY(), block.getZ(), block.getMaterial(), null);
+            } else if (function instanceof BlockFunction)
             {
-                oeh.addBlock((BlockFunction) block);
+                oeh.addBlock((BlockFunction) function);
             }
         }
-        oeh.extrude(world, random, x, y, z);
+        if (buffer == null)
+        {
+            oeh.extrude(world, random, x, y, z);
+        } else
+        {
+            oeh.extrude(buffer, x, y, z);
+        }
         return true;
     }
 
+    private static LocalMaterialData getMaterial(LocalWorld world, StructureChunkBuffer buffer, int x, int y, int z)
+    {
+        return buffer == null ? world.getMaterial(x, y, z) : buffer.getMaterial(x, y, z);
+    }
+
     protected boolean spawn(LocalWorld world, Random random, int x, int z)
     {
         Rotation rotation = settings.rotateRandomly ? Rotation.getRandomRotation(random) : Rotation.NORTH;
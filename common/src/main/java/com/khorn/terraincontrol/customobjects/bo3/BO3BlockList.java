@@ -0,0 +1,339 @@
+package com.khorn.terraincontrol.customobjects.bo3;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The blocks of a BO3, in all four rotations.
+ *
+ * <p>Large objects have a lot of blocks, so blocks are not stored as
+ * {@link BO3PlaceableFunction}s. The coordinates are stored as shorts and the
+ * material as an index in a palette of all materials in the object. Only the
+ * palette is stored for each rotation, the rotated coordinates are calculated
+ * when they are needed.
+ *
+ * <p>Blocks that are more than a material, like blocks with metadata and
+ * {@link RandomBlockFunction}s, are rare. Those are kept as functions, rotated
+ * once for each rotation.
+ */
+public final class BO3BlockList
+{
+    /**
+     * Material index of blocks that are stored as a function.
+     */
+    private static final short FUNCTION = -1;
+
+    private final short[] xs;
+    private final short[] ys;
+    private final short[] zs;
+    private final short[] materialIds;
+
+    /**
+     * The palette of each rotation.
+     */
+    private final LocalMaterialData[][] materials = new LocalMaterialData[4][];
+
+    /**
+     * The blocks stored as a function for each rotation, in the same order
+     * as the blocks.
+     */
+    private final BO3PlaceableFunction[][] functions = new BO3PlaceableFunction[4][];
+
+    /**
+     * Creates the block list. The functions are not used afterwards, except
+     * for the functions that cannot be stored as just a material.
+     * @param blocks The blocks, without rotation.
+     */
+    public BO3BlockList(List<BO3PlaceableFunction> blocks)
+    {
+        int size = blocks.size();
+        xs = new short[size];
+        ys = new short[size];
+        zs = new short[size];
+        materialIds = new short[size];
+
+        Map<LocalMaterialData, Short> palette = new HashMap<LocalMaterialData, Short>();
+        List<LocalMaterialData> paletteList = new ArrayList<LocalMaterialData>();
+        List<BO3PlaceableFunction> functionList = new ArrayList<BO3PlaceableFunction>();
+        for (int i = 0; i < size; i++)
+        {
+            BO3PlaceableFunction block = blocks.get(i);
+            xs[i] = (short) block.x;
+            ys[i] = (short) block.y;
+            zs[i] = (short) block.z;
+
+            Short materialId = null;
+            if (block instanceof BlockFunction && ((BlockFunction) block).metaDataTag == null)
+            {
+                LocalMaterialData material = ((BlockFunction) block).material;
+                materialId = palette.get(material);
+                if (materialId == null && paletteList.size() <= Short.MAX_VALUE)
+                {
+                    materialId = (short) paletteList.size();
+                    palette.put(material, materialId);
+                    paletteList.add(material);
+                }
+            }
+
+            if (materialId == null)
+            {
+                materialIds[i] = FUNCTION;
+                functionList.add(block);
+            } else
+            {
+                materialIds[i] = materialId;
+            }
+        }
+
+        materials[0] = paletteList.toArray(new LocalMaterialData[paletteList.size()]);
+        functions[0] = functionList.toArray(new BO3PlaceableFunction[functionList.size()]);
+
+        for (int rotation = 1; rotation < 4; rotation++)
+        {
+            LocalMaterialData[] previousMaterials = materials[rotation - 1];
+            materials[rotation] = new LocalMaterialData[previousMaterials.length];
+            for (int i = 0; i < previousMaterials.length; i++)
+            {
+                materials[rotation][i] = previousMaterials[i].rotate();
+            }
+            BO3PlaceableFunction[] previousFunctions = functions[rotation - 1];
+            functions[rotation] = new BO3PlaceableFunction[previousFunctions.length];
+            for (int i = 0; i < previousFunctions.length; i++)
+            {
+                functions[rotation][i] = previousFunctions[i].rotate();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of blocks.
+     * @return The number of blocks.
+     */
+    public int size()
+    {
+        return xs.length;
+    }
+
+    /**
+     * Gets the x of a block, relative to the center of the object.
+     * @param rotationId The rotation, see {@link com.khorn.terraincontrol.util.Rotation#getRotationId()}.
+     * @param index      Index of the block.
+     * @return The x.
+     */
+    public int getX(int rotationId, int index)
+    {
+        switch (rotationId)
+        {
+            case 1:
+                return zs[index];
+            case 2:
+                return -xs[index];
+            case 3:
+                return -zs[index];
+            default:
+                return xs[index];
+        }
+    }
+
+    /**
+     * Gets the y of a block, relative to the center of the object.
+     * @param index Index of the block.
+     * @return The y.
+     */
+    public int getY(int index)
+    {
+        return ys[index];
+    }
+
+    /**
+     * Gets the z of a block, relative to the center of the object.
+     * @param rotationId The rotation.
+     * @param index      Index of the block.
+     * @return The z.
+     */
+    public int getZ(int rotationId, int index)
+    {
+        switch (rotationId)
+        {
+            case 1:
+                return -xs[index];
+            case 2:
+                return -zs[index];
+            case 3:
+                return xs[index];
+            default:
+                return zs[index];
+        }
+    }
+
+    /**
+     * Gets whether all blocks only place blocks, so that they can be spawned
+     * in a {@link StructureChunkBuffer}.
+     * @return True if all blocks can be spawned in a buffer.
+     */
+    public boolean canSpawnInBuffer()
+    {
+        for (BO3PlaceableFunction function : functions[0])
+        {
+            if (!function.canSpawnInBuffer())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Iterates over the blocks of one rotation, in the order of the BO3
+     * file. Blocks that are stored as a function are only available as a
+     * function, the other blocks only as a material.
+     */
+    public final class Cursor
+    {
+        private final int rotationId;
+        private final LocalMaterialData[] rotatedMaterials;
+        private final BO3PlaceableFunction[] rotatedFunctions;
+        private int index = -1;
+        private int functionIndex = -1;
+
+        private Cursor(int rotationId)
+        {
+            this.rotationId = rotationId;
+            this.rotatedMaterials = materials[rotationId];
+            this.rotatedFunctions = functions[rotationId];
+        }
+
+        /**
+         * Moves to the next block.
+         * @return False if there are no more blocks.
+         */
+        public boolean next()
+        {
+            index++;
+            if (index >= xs.length)
+            {
+                return false;
+            }
+            if (materialIds[index] == FUNCTION)
+            {
+                functionIndex++;
+            }
+            return true;
+        }
+
+        public int getX()
+        {
+            return BO3BlockList.this.getX(rotationId, index);
+        }
+
+        public int getY()
+        {
+            return ys[index];
+        }
+
+        public int getZ()
+        {
+            return BO3BlockList.this.getZ(rotationId, index);
+        }
+
+        /**
+         * Gets the material of the current block.
+         * @return The material, or null if the block is stored as a function.
+         */
+        public LocalMaterialData getMaterial()
+        {
+            short materialId = materialIds[index];
+            return materialId == FUNCTION ? null : rotatedMaterials[materialId];
+        }
+
+        /**
+         * Gets the current block as a function.
+         * @return The function, or null if the block is only a material.
+         */
+        public BO3PlaceableFunction getFunction()
+        {
+            return materialIds[index] == FUNCTION ? rotatedFunctions[functionIndex] : null;
+        }
+
+        /**
+         * Spawns the current block at the given position.
+         * @param world  The world.
+         * @param random Random number generator.
+         * @param x      The absolute x.
+         * @param y      The absolute y.
+         * @param z      The absolute z.
+         */
+        public void spawn(LocalWorld world, Random random, int x, int y, int z)
+        {
+            short materialId = materialIds[index];
+            if (materialId == FUNCTION)
+            {
+                rotatedFunctions[functionIndex].spawn(world, random, x, y, z);
+            } else
+            {
+                world.setBlock(x, y, z, rotatedMaterials[materialId]);
+            }
+        }
+
+        /**
+         * Spawns the current block in the buffer. The buffer is flushed
+         * first if the block cannot be spawned in it, see
+         * {@link BO3BlockList#canSpawnInBuffer()}.
+         * @param buffer The buffer.
+         * @param random Random number generator.
+         * @param x      The absolute x.
+         * @param y      The absolute y.
+         * @param z      The absolute z.
+         */
+        public void spawn(StructureChunkBuffer buffer, Random random, int x, int y, int z)
+        {
+            short materialId = materialIds[index];
+            if (materialId == FUNCTION)
+            {
+                rotatedFunctions[functionIndex].spawn(buffer, random, x, y, z);
+            } else
+            {
+                buffer.setBlock(x, y, z, rotatedMaterials[materialId]);
+            }
+        }
+    }
+
+    /**
+     * Gets a cursor over the blocks of the given rotation.
+     * @param rotationId The rotation.
+     * @return The cursor, positioned before the first block.
+     */
+    public Cursor cursor(int rotationId)
+    {
+        return new Cursor(rotationId);
+    }
+
+    /**
+     * Creates functions for all blocks, without rotation. Used to write the
+     * blocks to the BO3 file.
+     * @param holder The BO3 of the blocks.
+     * @return The functions.
+     */
+    public List<BO3PlaceableFunction> toFunctions(BO3Config holder)
+    {
+        List<BO3PlaceableFunction> blocks = new ArrayList<BO3PlaceableFunction>(xs.length);
+        Cursor cursor = cursor(0);
+        while (cursor.next())
+        {
+            BO3PlaceableFunction function = cursor.getFunction();
+            if (function == null)
+            {
+                function = new BlockFunction(holder, cursor.getX(), cursor.getY(), cursor.getZ(), cursor.getMaterial());
+            }
+            blocks.add(function);
+        }
+        return blocks;
+    }
+}
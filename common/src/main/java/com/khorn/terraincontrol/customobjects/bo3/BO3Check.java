@@ -2,6 +2,7 @@ package com.khorn.terraincontrol.customobjects.bo3;
 
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.ConfigFunction;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 
 /**
  * Represents a check - something that can prevent the BO3 from spawning if this
@@ -42,6 +43,29 @@ public abstract class BO3Check extends BO3Function
      */
     public abstract boolean preventsSpawn(LocalWorld world, int x, int y, int z);
 
+    /**
+     * Returns whether this check would prevent spawning at the given
+     * position, reading the blocks from the buffer. Checks that need more
+     * than the blocks must flush the buffer and check the world instead.
+     *
+     * @param buffer The buffer to check in
+     * @param x      The x position
+     * @param y      The y position
+     * @param z      The z position
+     * @return Whether this check prevents the BO3 from spawning.
+     */
+    public abstract boolean preventsSpawn(StructureChunkBuffer buffer, int x, int y, int z);
+
+    /**
+     * Gets whether this check only reads blocks, so that it can check a
+     * {@link StructureChunkBuffer} without flushing it.
+     * @return True if this check can check a buffer.
+     */
+    public boolean canCheckInBuffer()
+    {
+        return false;
+    }
+
     /**
      * This implementation of
      * {@link ConfigFunction#isAnalogousTo(ConfigFunction)} simply checks
@@ -6,6 +6,8 @@ import com.khorn.terraincontrol.configuration.WorldConfig.ConfigMode;
 import com.khorn.terraincontrol.configuration.io.SettingsMap;
 import com.khorn.terraincontrol.configuration.standard.WorldStandardValues;
 import com.khorn.terraincontrol.customobjects.CustomObject;
+import com.khorn.terraincontrol.customobjects.SpawnCheckOrder;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.OutsideSourceBlock;
 import com.khorn.terraincontrol.customobjects.bo3.BO3Settings.SpawnHeightEnum;
 import com.khorn.terraincontrol.util.BoundingBox;
@@ -52,14 +54,25 @@ public class BO3Config extends ConfigFile
     public MaterialSet sourceBlocks;
     public int maxPercentageOutsideSourceBlock;
     public OutsideSourceBlock outsideSourceBlock;
-    public BO3PlaceableFunction[][] blocks = new BO3PlaceableFunction[4][]; // four
-    // rotations
+    public BO3BlockList blocks;
     public BO3Check[][] bo3Checks = new BO3Check[4][];
     public int maxBranchDepth;
     public BranchFunction[][] branches = new BranchFunction[4][];
 
     public BoundingBox[] boundingBoxes = new BoundingBox[4];
 
+    /**
+     * The order in which the blocks are checked before spawning, the same
+     * for all rotations.
+     */
+    public SpawnCheckOrder spawnCheckOrder;
+
+    /**
+     * Whether all blocks and checks only read and place blocks, so that the
+     * object can spawn in a {@link StructureChunkBuffer}.
+     */
+    public boolean canSpawnInBuffer;
+
     /**
      * Creates a BO3Config from a file.
      *
@@ -226,10 +239,27 @@ public class BO3Config extends ConfigFile
         }
 
         // Store the blocks
-        blocks[0] = tempBlocksList.toArray(new BO3PlaceableFunction[tempBlocksList.size()]);
+        blocks = new BO3BlockList(tempBlocksList);
         bo3Checks[0] = tempChecksList.toArray(new BO3Check[tempChecksList.size()]);
         branches[0] = tempBranchesList.toArray(new BranchFunction[tempBranchesList.size()]);
         boundingBoxes[0] = box;
+
+        int[] xs = new int[blocks.size()];
+        int[] ys = new int[blocks.size()];
+        int[] zs = new int[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            xs[i] = blocks.getX(0, i);
+            ys[i] = blocks.getY(i);
+            zs[i] = blocks.getZ(0, i);
+        }
+        spawnCheckOrder = new SpawnCheckOrder(xs, ys, zs);
+
+        canSpawnInBuffer = blocks.canSpawnInBuffer();
+        for (BO3Check check : bo3Checks[0])
+        {
+            canSpawnInBuffer &= check.canCheckInBuffer();
+        }
     }
 
     public void writeResources(SettingsMap writer)
@@ -247,7 +277,7 @@ public class BO3Config extends ConfigFile
                 " MinecraftObject(0,0,0," + DefaultStructurePart.IGLOO_BOTTOM.getPath() + ")",
                 " spawns the bottom part of an igloo.");
 
-        writer.addConfigFunctions(Arrays.asList(blocks[0]));
+        writer.addConfigFunctions(blocks.toFunctions(this));
 
         // BO3Checks
         writer.bigTitle("BO3 checks",
@@ -299,18 +329,13 @@ public class BO3Config extends ConfigFile
     }
 
     /**
-     * Rotates all the blocks and all the checks
+     * Rotates all the checks and branches. The blocks are rotated by
+     * {@link BO3BlockList}.
      */
     public void rotateBlocksAndChecks()
     {
         for (int i = 1; i < 4; i++)
         {
-            // Blocks (blocks[i - 1] is previous rotation)
-            blocks[i] = new BO3PlaceableFunction[blocks[i - 1].length];
-            for (int j = 0; j < blocks[i].length; j++)
-            {
-                blocks[i][j] = blocks[i - 1][j].rotate();
-            }
             // BO3 checks
             bo3Checks[i] = new BO3Check[bo3Checks[i - 1].length];
             for (int j = 0; j < bo3Checks[i].length; j++)
@@ -42,7 +42,7 @@ public class BO3Loader implements CustomObjectLoader
         return new BO3(objectName, file);
     }
 
-    public static NamedBinaryTag loadMetadata(String name, File bo3Folder)
+    public static synchronized NamedBinaryTag loadMetadata(String name, File bo3Folder)
     {
         String path = bo3Folder + File.separator + name;
 
@@ -130,7 +130,7 @@ public class BO3Loader implements CustomObjectLoader
      * @param metadata   The Tag object to be cached
      * @return the meta data that was cached
      */
-    public static NamedBinaryTag registerMetadata(String pathOnDisk, NamedBinaryTag metadata)
+    public static synchronized NamedBinaryTag registerMetadata(String pathOnDisk, NamedBinaryTag metadata)
     {
         // Add it to the cache
         loadedTags.put(pathOnDisk, metadata);
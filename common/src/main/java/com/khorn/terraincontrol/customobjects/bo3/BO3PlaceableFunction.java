@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.customobjects.bo3;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 
 import java.util.Random;
 
@@ -34,6 +35,27 @@ public abstract class BO3PlaceableFunction extends BO3Function
      */
     public abstract void spawn(LocalWorld world, Random random, int x, int y, int z);
 
+    /**
+     * Spawns this block in the buffer. Blocks that do more than placing
+     * blocks must flush the buffer and spawn in the world instead.
+     * @param buffer The buffer to spawn in.
+     * @param random The random number generator.
+     * @param x The absolute x to spawn.
+     * @param y The absolute y to spawn.
+     * @param z The absolute z to spawn.
+     */
+    public abstract void spawn(StructureChunkBuffer buffer, Random random, int x, int y, int z);
+
+    /**
+     * Gets whether this block only places blocks, so that it can be spawned
+     * in a {@link StructureChunkBuffer} without flushing it.
+     * @return True if this block can be spawned in a buffer.
+     */
+    public boolean canSpawnInBuffer()
+    {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      * @return {@inheritDoc}
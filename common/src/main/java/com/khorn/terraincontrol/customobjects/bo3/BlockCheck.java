@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.customobjects.bo3;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.MaterialSet;
 
@@ -35,6 +36,18 @@ public final class BlockCheck extends BO3Check
         return !toCheck.contains(world.getMaterial(x, y, z));
     }
 
+    @Override
+    public boolean preventsSpawn(StructureChunkBuffer buffer, int x, int y, int z)
+    {
+        return !toCheck.contains(buffer.getMaterial(x, y, z));
+    }
+
+    @Override
+    public boolean canCheckInBuffer()
+    {
+        return true;
+    }
+
     @Override
     public String toString()
     {
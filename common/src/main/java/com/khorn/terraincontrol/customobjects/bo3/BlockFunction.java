@@ -3,6 +3,7 @@ package com.khorn.terraincontrol.customobjects.bo3;
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.ConfigFunction;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 
@@ -79,6 +80,26 @@ public class BlockFunction extends BO3PlaceableFunction
         }
     }
 
+    @Override
+    public void spawn(StructureChunkBuffer buffer, Random random, int x, int y, int z)
+    {
+        if (metaDataTag != null)
+        {
+            // Metadata can only be attached to blocks in the world
+            buffer.flush();
+            spawn(buffer.getWorld(), random, x, y, z);
+            return;
+        }
+        buffer.setBlock(x, y, z, material);
+    }
+
+    @Override
+    public boolean canSpawnInBuffer()
+    {
+        // Metadata cannot be buffered
+        return metaDataTag == null;
+    }
+
     @Override
     public boolean isAnalogousTo(ConfigFunction<BO3Config> other)
     {
@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.customobjects.bo3;
 
 import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 
 import java.util.List;
@@ -49,6 +50,14 @@ public class LightCheck extends BO3Check
         return false;
     }
 
+    @Override
+    public boolean preventsSpawn(StructureChunkBuffer buffer, int x, int y, int z)
+    {
+        // Only blocks in the world are lit
+        buffer.flush();
+        return preventsSpawn(buffer.getWorld(), x, y, z);
+    }
+
     @Override
     public String toString()
     {
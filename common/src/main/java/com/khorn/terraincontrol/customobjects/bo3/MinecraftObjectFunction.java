@@ -2,6 +2,7 @@ package com.khorn.terraincontrol.customobjects.bo3;
 
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.ConfigFunction;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.util.Rotation;
@@ -61,6 +62,14 @@ public class MinecraftObjectFunction extends BO3PlaceableFunction
         object.spawnForced(world, random, rotation, x, y, z);
     }
 
+    @Override
+    public void spawn(StructureChunkBuffer buffer, Random random, int x, int y, int z)
+    {
+        // The structure part places its blocks in the world
+        buffer.flush();
+        spawn(buffer.getWorld(), random, x, y, z);
+    }
+
     @Override
     public boolean isAnalogousTo(ConfigFunction<BO3Config> other)
     {
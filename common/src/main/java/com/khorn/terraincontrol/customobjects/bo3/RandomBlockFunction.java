@@ -3,6 +3,7 @@ package com.khorn.terraincontrol.customobjects.bo3;
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.ConfigFunction;
+import com.khorn.terraincontrol.customobjects.StructureChunkBuffer;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 
@@ -135,6 +136,42 @@ public class RandomBlockFunction extends BO3PlaceableFunction
         }
     }
 
+    @Override
+    public void spawn(StructureChunkBuffer buffer, Random random, int x, int y, int z)
+    {
+        for (int i = 0; i < blockCount; i++)
+        {
+            if (random.nextInt(100) < blockChances[i])
+            {
+                if (metaDataTags[i] != null)
+                {
+                    // Metadata can only be attached to blocks in the world
+                    buffer.flush();
+                    buffer.getWorld().setBlock(x, y, z, blocks[i]);
+                    buffer.getWorld().attachMetadata(x, y, z, metaDataTags[i]);
+                } else
+                {
+                    buffer.setBlock(x, y, z, blocks[i]);
+                }
+                break;
+            }
+        }
+    }
+
+    @Override
+    public boolean canSpawnInBuffer()
+    {
+        // Metadata cannot be buffered
+        for (int i = 0; i < blockCount; i++)
+        {
+            if (metaDataTags[i] != null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean isAnalogousTo(ConfigFunction<BO3Config> other)
     {
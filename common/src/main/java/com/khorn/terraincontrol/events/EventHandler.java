@@ -4,7 +4,9 @@ import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.customobjects.CustomObject;
 import com.khorn.terraincontrol.generator.resource.Resource;
 
+import java.util.EnumSet;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Inherit this class, override methods as necessary and register it with
@@ -13,6 +15,22 @@ import java.util.Random;
  */
 public abstract class EventHandler
 {
+    /**
+     * Gets the events this handler wants to receive. Events that are not in
+     * this set are never passed to this handler, so Terrain Control can skip
+     * firing them if no other handler wants them. Called once, when the
+     * handler is registered.
+     * <p/>
+     * By default all events are received. Override this method if you only
+     * override some of the event methods.
+     *
+     * @return The events.
+     */
+    public Set<EventType> getHandledEvents()
+    {
+        return EnumSet.allOf(EventType.class);
+    }
+
     /**
      * Called when it's time to register the custom resources and objects.
      */
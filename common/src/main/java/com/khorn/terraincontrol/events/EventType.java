@@ -0,0 +1,16 @@
+package com.khorn.terraincontrol.events;
+
+/**
+ * All events that are fired for every chunk or object, and can be handled by
+ * an {@link EventHandler}. Used to check whether any event handler is
+ * interested in an event, so that firing the event can be skipped otherwise.
+ *
+ * @see EventHandler#getHandledEvents()
+ */
+public enum EventType
+{
+    CAN_CUSTOM_OBJECT_SPAWN,
+    RESOURCE_PROCESS,
+    POPULATE_START,
+    POPULATE_END
+}
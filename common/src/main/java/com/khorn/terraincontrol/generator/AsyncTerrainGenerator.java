@@ -0,0 +1,342 @@
+package com.khorn.terraincontrol.generator;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.configuration.ConfigProvider;
+import com.khorn.terraincontrol.configuration.WorldConfig;
+import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
+import com.khorn.terraincontrol.generator.biome.VanillaBiomeGenerator;
+import com.khorn.terraincontrol.logging.LogMarker;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the terrain of chunks on worker threads, before the server asks
+ * for them. The platform reports player movement using
+ * {@link #getChunksAhead(ChunkCoordinate, ChunkCoordinate, int)} and
+ * {@link #requestChunk(ChunkCoordinate)}, and then generates its chunks using
+ * {@link #generate(ChunkBuffer)}. When the terrain of a chunk is ready, the
+ * main thread only needs to copy the blocks and prepare the vanilla
+ * structures. Population always happens on the main thread.
+ *
+ * <p>The terrain generated on the worker threads is exactly the same as the
+ * terrain generated on the main thread: every worker thread has its own
+ * {@link ChunkProviderTC} with its own biome generator, and the chunk
+ * provider only depends on the seed, the configs and the chunk coordinates.
+ *
+ */
+public class AsyncTerrainGenerator
+{
+    /**
+     * Amount of chunk rings in front of the view distance of a player that
+     * are generated in advance.
+     */
+    private static final int LOOK_AHEAD_CHUNKS = 2;
+
+    /**
+     * A chunk that is waiting for a worker thread, being generated or ready.
+     */
+    private static class PendingChunk
+    {
+        private volatile boolean started;
+        private Future<PrecomputedChunk> future;
+    }
+
+    /**
+     * The chunk provider of a single worker thread.
+     */
+    private static class Worker
+    {
+        private final ChunkProviderTC chunkProvider;
+        private final BiomeGenerator biomeGenerator;
+
+        /**
+         * Value of {@link AsyncTerrainGenerator#settingsVersion} when this
+         * worker was created.
+         */
+        private final int settingsVersion;
+
+        private Worker(ChunkProviderTC chunkProvider, BiomeGenerator biomeGenerator, int settingsVersion)
+        {
+            this.chunkProvider = chunkProvider;
+            this.biomeGenerator = biomeGenerator;
+            this.settingsVersion = settingsVersion;
+        }
+    }
+
+    private final ConfigProvider configProvider;
+    private final LocalWorld world;
+    private final ChunkProviderTC mainThreadProvider;
+    private final int maxQueueSize;
+    private final ExecutorService executor;
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * Increased every time the settings are reloaded, so that the worker
+     * threads know that they must create a new chunk provider.
+     */
+    private final AtomicInteger settingsVersion = new AtomicInteger();
+
+    /**
+     * Chunks requested from the worker threads, oldest request first.
+     * Guarded by synchronizing on the map.
+     */
+    private final LinkedHashMap<ChunkCoordinate, PendingChunk> queue = new LinkedHashMap<ChunkCoordinate, PendingChunk>();
+
+    /**
+     * Creates a new asynchronous terrain generator and starts the worker
+     * threads.
+     *
+     * @param configs            The configs of the world.
+     * @param world              The world.
+     * @param mainThreadProvider Chunk provider used on the main thread, for
+     *                           chunks that are not ready yet.
+     * @param threads            Amount of worker threads.
+     * @param maxQueueSize       Maximum amount of chunks waiting in the queue.
+     */
+    public AsyncTerrainGenerator(ConfigProvider configs, LocalWorld world, ChunkProviderTC mainThreadProvider, int threads, int maxQueueSize)
+    {
+        this.configProvider = configs;
+        this.world = world;
+        this.mainThreadProvider = mainThreadProvider;
+        this.maxQueueSize = maxQueueSize;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "TerrainControl terrain worker #" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        this.workers = new ThreadLocal<Worker>()
+        {
+            @Override
+            protected Worker initialValue()
+            {
+                return createWorker();
+            }
+        };
+    }
+
+    /**
+     * Gets whether terrain of the given world can be generated outside the
+     * main thread. This is not possible if the world reads its biomes from
+     * the chunk data, or if it uses the biome generator of Minecraft.
+     *
+     * @param world The world.
+     * @return True if terrain can be generated outside the main thread.
+     */
+    public static boolean isSupported(LocalWorld world)
+    {
+        WorldConfig worldConfig = world.getConfigs().getWorldConfig();
+        if (worldConfig.terrainWorkerThreads <= 0 || worldConfig.populateUsingSavedBiomes)
+        {
+            return false;
+        }
+        return !VanillaBiomeGenerator.class.isAssignableFrom(worldConfig.biomeMode);
+    }
+
+    /**
+     * Gets the chunks that a player moving from one chunk to another will
+     * soon need: the chunks just outside the view distance, in the direction
+     * the player is moving in. The platform should skip the chunks that
+     * already exist before calling {@link #requestChunk(ChunkCoordinate)}.
+     *
+     * @param from         The chunk the player was in.
+     * @param to           The chunk the player is in now.
+     * @param viewDistance The view distance of the server, in chunks.
+     * @return The chunks ahead of the player, nearest chunks first.
+     */
+    public static List<ChunkCoordinate> getChunksAhead(ChunkCoordinate from, ChunkCoordinate to, int viewDistance)
+    {
+        int directionX = Integer.signum(to.getChunkX() - from.getChunkX());
+        int directionZ = Integer.signum(to.getChunkZ() - from.getChunkZ());
+        if (directionX == 0 && directionZ == 0)
+        {
+            return Collections.emptyList();
+        }
+
+        List<ChunkCoordinate> chunks = new ArrayList<ChunkCoordinate>();
+        for (int ring = viewDistance + 1; ring <= viewDistance + LOOK_AHEAD_CHUNKS; ring++)
+        {
+            for (int offsetX = -ring; offsetX <= ring; offsetX++)
+            {
+                for (int offsetZ = -ring; offsetZ <= ring; offsetZ++)
+                {
+                    if (Math.max(Math.abs(offsetX), Math.abs(offsetZ)) != ring)
+                    {
+                        // Not on this ring
+                        continue;
+                    }
+                    if (offsetX * directionX + offsetZ * directionZ <= 0)
+                    {
+                        // Behind or beside the player
+                        continue;
+                    }
+                    chunks.add(ChunkCoordinate.fromChunkCoords(to.getChunkX() + offsetX, to.getChunkZ() + offsetZ));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Asks the worker threads to generate the terrain of the given chunk. If
+     * the queue is full, the oldest request is dropped.
+     *
+     * @param chunkCoord The chunk.
+     */
+    public void requestChunk(final ChunkCoordinate chunkCoord)
+    {
+        synchronized (queue)
+        {
+            if (executor.isShutdown() || queue.containsKey(chunkCoord))
+            {
+                return;
+            }
+
+            if (queue.size() >= maxQueueSize)
+            {
+                Iterator<Entry<ChunkCoordinate, PendingChunk>> iterator = queue.entrySet().iterator();
+                iterator.next().getValue().future.cancel(false);
+                iterator.remove();
+            }
+
+            final PendingChunk pendingChunk = new PendingChunk();
+            pendingChunk.future = executor.submit(new Callable<PrecomputedChunk>()
+            {
+                @Override
+                public PrecomputedChunk call()
+                {
+                    pendingChunk.started = true;
+                    return generateOnWorker(chunkCoord);
+                }
+            });
+            queue.put(chunkCoord, pendingChunk);
+        }
+    }
+
+    /**
+     * Generates the given chunk. If a worker thread already generated the
+     * terrain, the blocks are copied from there, otherwise the terrain is
+     * generated on the current thread. Must be called on the main thread.
+     *
+     * @param chunkBuffer The chunk buffer, must be empty.
+     */
+    public void generate(ChunkBuffer chunkBuffer)
+    {
+        ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
+        PrecomputedChunk precomputed = takeFromQueue(chunkCoord);
+        if (precomputed == null)
+        {
+            mainThreadProvider.generate(chunkBuffer);
+            return;
+        }
+
+        precomputed.copyTo(chunkBuffer);
+        mainThreadProvider.prepareDefaultStructures(chunkCoord, precomputed.isDry());
+    }
+
+    /**
+     * Removes all chunks from the queue. Must be called when the settings
+     * are reloaded, as the chunks in the queue are generated using the old
+     * settings. The worker threads create a new chunk provider for the next
+     * chunk they generate.
+     */
+    public void invalidate()
+    {
+        synchronized (queue)
+        {
+            settingsVersion.incrementAndGet();
+            for (PendingChunk pendingChunk : queue.values())
+            {
+                pendingChunk.future.cancel(false);
+            }
+            queue.clear();
+        }
+    }
+
+    /**
+     * Stops the worker threads. Chunks are generated on the main thread
+     * afterwards.
+     */
+    public void shutdown()
+    {
+        invalidate();
+        executor.shutdown();
+    }
+
+    private PrecomputedChunk takeFromQueue(ChunkCoordinate chunkCoord)
+    {
+        PendingChunk pendingChunk;
+        synchronized (queue)
+        {
+            pendingChunk = queue.remove(chunkCoord);
+        }
+        if (pendingChunk == null)
+        {
+            return null;
+        }
+
+        Future<PrecomputedChunk> future = pendingChunk.future;
+        if (!future.isDone() && !pendingChunk.started)
+        {
+            // Still waiting for a worker thread, faster to generate it
+            // ourselves
+            future.cancel(false);
+            return null;
+        }
+
+        try
+        {
+            // Waits if the chunk is being generated right now
+            return future.get();
+        } catch (CancellationException e)
+        {
+            return null;
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e)
+        {
+            TerrainControl.log(LogMarker.WARN, "Failed to generate chunk {} on a worker thread, trying again on the main thread",
+                    chunkCoord);
+            TerrainControl.printStackTrace(LogMarker.WARN, e.getCause());
+            return null;
+        }
+    }
+
+    private PrecomputedChunk generateOnWorker(ChunkCoordinate chunkCoord)
+    {
+        Worker worker = workers.get();
+        if (worker.settingsVersion != settingsVersion.get())
+        {
+            // Settings were reloaded, the old chunk provider still uses the
+            // old settings
+            worker = createWorker();
+            workers.set(worker);
+        }
+        PrecomputedChunk precomputed = new PrecomputedChunk(chunkCoord);
+        precomputed.setDry(worker.chunkProvider.generateBlocks(precomputed));
+        worker.biomeGenerator.cleanupCache();
+        return precomputed;
+    }
+
+    private Worker createWorker()
+    {
+        int version = settingsVersion.get();
+        Class<? extends BiomeGenerator> biomeMode = configProvider.getWorldConfig().biomeMode;
+        BiomeGenerator biomeGenerator = TerrainControl.getBiomeModeManager().createCached(biomeMode, world);
+        return new Worker(new ChunkProviderTC(configProvider, world, biomeGenerator), biomeGenerator, version);
+    }
+}
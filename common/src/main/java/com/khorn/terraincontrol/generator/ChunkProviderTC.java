@@ -1,6 +1,7 @@
 package com.khorn.terraincontrol.generator;
 
 import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Y_SIZE;
 import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
 
 import com.khorn.terraincontrol.LocalMaterialData;
@@ -8,7 +9,9 @@ import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.ConfigProvider;
+import com.khorn.terraincontrol.configuration.ReplacedBlocksMatrix;
 import com.khorn.terraincontrol.configuration.WorldConfig;
+import com.khorn.terraincontrol.configuration.WorldConfig.ReplaceBlocksMode;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.generator.biome.OutputType;
 import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
@@ -47,10 +50,32 @@ public class ChunkProviderTC
 
     private final TerrainShapeBase terrainShape;
 
+    /**
+     * Biome generator used by this chunk provider, or null to use the
+     * biome generator of the world.
+     */
+    private final BiomeGenerator biomeGenerator;
+
     public ChunkProviderTC(ConfigProvider configs, LocalWorld world)
+    {
+        this(configs, world, null);
+    }
+
+    /**
+     * Creates a chunk provider with its own biome generator. Biome generators
+     * are not thread safe, so every thread that generates terrain needs its
+     * own chunk provider with its own biome generator.
+     *
+     * @param configs        The configs of the world.
+     * @param world          The world.
+     * @param biomeGenerator The cached biome generator, or null to use the
+     *                       biome generator of the world.
+     */
+    public ChunkProviderTC(ConfigProvider configs, LocalWorld world, BiomeGenerator biomeGenerator)
     {
         this.configProvider = configs;
         this.localWorld = world;
+        this.biomeGenerator = biomeGenerator;
         this.heightCap = world.getHeightCap();
 
         this.random = new Random(world.getSeed());
@@ -58,11 +83,27 @@ public class ChunkProviderTC
         this.terrainShape = new TerrainShapeNormal(configs, heightCap);
         this.noiseGen4 = new NoiseGeneratorNewOctaves(this.random, 4);
 
-        this.caveGen = new CavesGen(configs.getWorldConfig(), this.localWorld);
-        this.ravineGen = new RavinesGen(configs.getWorldConfig(), this.localWorld);
+        this.caveGen = new CavesGen(configs.getWorldConfig(), this.localWorld, biomeGenerator);
+        this.ravineGen = new RavinesGen(configs.getWorldConfig(), this.localWorld, biomeGenerator);
     }
 
     public void generate(ChunkBuffer chunkBuffer)
+    {
+        boolean dry = generateBlocks(chunkBuffer);
+        prepareDefaultStructures(chunkBuffer.getChunkCoordinate(), dry);
+    }
+
+    /**
+     * Generates all blocks of the chunk: the terrain shape, the biome blocks,
+     * the caves and the ravines. This method doesn't touch the world, so it
+     * can be called outside the main thread if this chunk provider has its
+     * own biome generator.
+     *
+     * @param chunkBuffer The chunk buffer to place the blocks in.
+     * @return Whether there is little water on the surface of the chunk, see
+     *         {@link #addBiomeBlocksAndCheckWater(ChunkBuffer)}.
+     */
+    public boolean generateBlocks(ChunkBuffer chunkBuffer)
     {
         ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
         int x = chunkCoord.getChunkX();
@@ -77,11 +118,29 @@ public class ChunkProviderTC
         this.ravineGen.generate(chunkBuffer);
 
         WorldConfig worldConfig = configProvider.getWorldConfig();
-        if (worldConfig.ModeTerrain == WorldConfig.TerrainMode.Normal || worldConfig.ModeTerrain == WorldConfig.TerrainMode.OldGenerator)
+        if (worldConfig.BiomeConfigsHaveReplacement && worldConfig.replaceBlocksMode == ReplaceBlocksMode.DuringTerrainGeneration)
         {
-            this.localWorld.prepareDefaultStructures(x, z, dry);
+            replaceBlocks(chunkBuffer);
         }
 
+        return dry;
+    }
+
+    /**
+     * Lets the world prepare the vanilla structures for the given chunk. Must
+     * be called on the main thread, after the blocks have been generated.
+     *
+     * @param chunkCoord The chunk.
+     * @param dry        Whether there is little water on the surface of the
+     *                   chunk. Villages are only placed in dry chunks.
+     */
+    public void prepareDefaultStructures(ChunkCoordinate chunkCoord, boolean dry)
+    {
+        WorldConfig worldConfig = configProvider.getWorldConfig();
+        if (worldConfig.ModeTerrain == WorldConfig.TerrainMode.Normal || worldConfig.ModeTerrain == WorldConfig.TerrainMode.OldGenerator)
+        {
+            this.localWorld.prepareDefaultStructures(chunkCoord.getChunkX(), chunkCoord.getChunkZ(), dry);
+        }
     }
 
     protected void generateTerrain(ChunkBuffer chunkBuffer)
@@ -93,7 +152,7 @@ public class ChunkProviderTC
         final int four = 4;
         final int oneEightOfHeight = this.heightCap / 8;
 
-        BiomeGenerator biomeGenerator = this.localWorld.getBiomeGenerator();
+        BiomeGenerator biomeGenerator = getBiomeGenerator();
 
         try
         {
@@ -212,7 +271,15 @@ public class ChunkProviderTC
         final double d1 = 0.03125D;
         this.noise4 = this.noiseGen4.a(this.noise4, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), CHUNK_X_SIZE, CHUNK_Z_SIZE, d1 * 2.0D, d1 * 2.0D, 1.0D);
 
-        GeneratingChunk generatingChunk = new GeneratingChunk(random, waterLevel, noise4, heightCap);
+        GeneratingChunk generatingChunk = new GeneratingChunk(this.localWorld.getSeed(), random, waterLevel, noise4, heightCap);
+
+        BiomeConfig chunkBiomeConfig = getSingleBiomeConfig();
+        if (chunkBiomeConfig != null)
+        {
+            // Whole chunk has the same biome, so the surface generator can
+            // do the whole chunk at once
+            chunkBiomeConfig.surfaceAndGroundControl.spawnChunk(generatingChunk, chunkBuffer, chunkBiomeConfig);
+        }
 
         for (int x = 0; x < CHUNK_X_SIZE; x++)
         {
@@ -221,9 +288,15 @@ public class ChunkProviderTC
                 // The following code is executed for each column in the chunk
 
                 // Get the current biome config and some properties
-                final BiomeConfig biomeConfig = this.configProvider.getBiomeByIdOrNull(this.biomeArray[(x + z * CHUNK_X_SIZE)]).getBiomeConfig();
-
-                biomeConfig.surfaceAndGroundControl.spawn(generatingChunk, chunkBuffer, biomeConfig, chunkCoord.getBlockX() + x, chunkCoord.getBlockZ() + z);
+                final BiomeConfig biomeConfig;
+                if (chunkBiomeConfig != null)
+                {
+                    biomeConfig = chunkBiomeConfig;
+                } else
+                {
+                    biomeConfig = this.configProvider.getBiomeByIdOrNull(this.biomeArray[(x + z * CHUNK_X_SIZE)]).getBiomeConfig();
+                    biomeConfig.surfaceAndGroundControl.spawn(generatingChunk, chunkBuffer, biomeConfig, chunkCoord.getBlockX() + x, chunkCoord.getBlockZ() + z);
+                }
 
                 // Count how many water there is
                 if (chunkBuffer.getBlock(x, biomeConfig.waterLevelMax, z).equals(biomeConfig.waterBlock))
@@ -238,6 +311,76 @@ public class ChunkProviderTC
         return dryBlocksOnSurface > 250;
     }
 
+    /**
+     * Gets the biome config used by all columns of the current chunk.
+     * 
+     * @return The biome config, or null if the chunk has multiple biomes.
+     */
+    private BiomeConfig getSingleBiomeConfig()
+    {
+        int biomeId = this.biomeArray[0];
+        for (int i = 1; i < CHUNK_X_SIZE * CHUNK_Z_SIZE; i++)
+        {
+            if (this.biomeArray[i] != biomeId)
+            {
+                return null;
+            }
+        }
+        return toBiomeConfig(biomeId);
+    }
+
+    /**
+     * Applies the ReplacedBlocks settings of the biomes to the generated
+     * terrain. Only used when {@link WorldConfig#replaceBlocksMode} is set to
+     * {@link ReplaceBlocksMode#DuringTerrainGeneration}, the world then only
+     * needs to check the sections changed during population.
+     *
+     * @param chunkBuffer The chunk to replace the blocks in.
+     */
+    protected void replaceBlocks(ChunkBuffer chunkBuffer)
+    {
+        for (int x = 0; x < CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < CHUNK_Z_SIZE; z++)
+            {
+                ReplacedBlocksMatrix matrix = toBiomeConfig(this.biomeArray[(x + z * CHUNK_X_SIZE)]).replacedBlocks;
+                if (!matrix.hasReplaceSettings())
+                {
+                    continue;
+                }
+
+                LocalMaterialData[][] replaceArray = matrix.compiledInstructions;
+                int minY = Math.max(0, matrix.getMinReplacedY());
+                int maxY = Math.min(CHUNK_Y_SIZE - 1, matrix.getMaxReplacedY());
+                for (int y = minY; y <= maxY; y++)
+                {
+                    LocalMaterialData block = chunkBuffer.getBlock(x, y, z);
+                    int blockId = block.getBlockId();
+                    if (!matrix.replacesBlock(blockId))
+                    {
+                        continue;
+                    }
+
+                    LocalMaterialData replaceTo = replaceArray[blockId][y];
+                    if (replaceTo == null || replaceTo.getBlockId() == blockId)
+                    {
+                        continue;
+                    }
+                    chunkBuffer.setBlock(x, y, z, replaceTo);
+                }
+            }
+        }
+    }
+
+    private BiomeGenerator getBiomeGenerator()
+    {
+        if (this.biomeGenerator == null)
+        {
+            return this.localWorld.getBiomeGenerator();
+        }
+        return this.biomeGenerator;
+    }
+
     /**
      * Gets the BiomeConfig with the given id.
      * 
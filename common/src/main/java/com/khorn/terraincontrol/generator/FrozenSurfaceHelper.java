@@ -13,12 +13,28 @@ import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
 
 public class FrozenSurfaceHelper
 {
+    /**
+     * The temperature of a biome drops at higher altitudes. This is more
+     * than the temperature can drop at the top of the world, so biomes that
+     * are this much warmer than {@link WorldStandardValues#SNOW_AND_ICE_MAX_TEMP}
+     * never get snow or ice.
+     */
+    private static final float MAX_TEMPERATURE_DROP = 0.5F;
+
     private final LocalWorld world;
-    private final WorldConfig worldConfig;
+    private WorldConfig worldConfig;
     private int decreaseFactor = 0;
     private final int maxPropagationSize = 15;
     private int currentPropagationSize = 0;
 
+    /**
+     * Biomes of the columns of the chunk that is being frozen, so that
+     * every biome is only looked up once.
+     */
+    private final LocalBiome[] columnBiomes = new LocalBiome[ChunkCoordinate.CHUNK_X_SIZE * ChunkCoordinate.CHUNK_Z_SIZE];
+    private int columnsStartX;
+    private int columnsStartZ;
+
     public FrozenSurfaceHelper(LocalWorld world)
     {
         this.world = world;
@@ -26,22 +42,51 @@ public class FrozenSurfaceHelper
     }
 
     /**
-     * Freezes and Applied snow to an offset chunkCoordinate
+     * Freezes and Applied snow to an offset chunkCoordinate. The biomes of
+     * all columns are looked up first, so that chunks without any cold
+     * biome are skipped without reading any block.
      * @param chunkCoord The chunk to freeze and snow on
      */
     protected void freezeChunk(ChunkCoordinate chunkCoord)
     {
-        int x = chunkCoord.getBlockXCenter();
-        int z = chunkCoord.getBlockZCenter();
+        // Settings may have been reloaded since the last chunk
+        this.worldConfig = world.getConfigs().getWorldConfig();
+
+        this.columnsStartX = chunkCoord.getBlockXCenter();
+        this.columnsStartZ = chunkCoord.getBlockZCenter();
+
+        boolean anyColdBiome = false;
         for (int i = 0; i < ChunkCoordinate.CHUNK_X_SIZE; i++)
         {
             for (int j = 0; j < ChunkCoordinate.CHUNK_Z_SIZE; j++)
             {
-                int blockToFreezeX = x + i;
-                int blockToFreezeZ = z + j;
-                freezeColumn(blockToFreezeX, blockToFreezeZ);
+                LocalBiome biome = world.getBiome(columnsStartX + i, columnsStartZ + j);
+                if (biome != null && !isAlwaysAboveFreezing(biome))
+                {
+                    anyColdBiome = true;
+                }
+                this.columnBiomes[i * ChunkCoordinate.CHUNK_Z_SIZE + j] = biome;
+            }
+        }
+
+        if (anyColdBiome)
+        {
+            for (int i = 0; i < ChunkCoordinate.CHUNK_X_SIZE; i++)
+            {
+                for (int j = 0; j < ChunkCoordinate.CHUNK_Z_SIZE; j++)
+                {
+                    LocalBiome biome = this.columnBiomes[i * ChunkCoordinate.CHUNK_Z_SIZE + j];
+                    if (biome != null && !isAlwaysAboveFreezing(biome))
+                    {
+                        freezeColumn(columnsStartX + i, columnsStartZ + j, biome);
+                    }
+                }
             }
         }
+
+        // Don't keep the biomes of this chunk for the neighbour lookups of
+        // the next chunk
+        this.columnsStartX = Integer.MIN_VALUE;
     }
 
     /**
@@ -51,25 +96,67 @@ public class FrozenSurfaceHelper
      */
     protected void freezeColumn(int x, int z)
     {
-        // Using the calculated biome id so that ReplaceToBiomeName can't mess up the ids
         LocalBiome biome = world.getBiome(x, z);
         if (biome != null)
         {
-            int blockToFreezeY = world.getHighestBlockYAt(x, z);
-            float tempAtBlockToFreeze = biome.getTemperatureAt(x, blockToFreezeY, z);
-            if (blockToFreezeY > 0 && tempAtBlockToFreeze < WorldStandardValues.SNOW_AND_ICE_MAX_TEMP)
+            freezeColumn(x, z, biome);
+        }
+    }
+
+    private void freezeColumn(int x, int z, LocalBiome biome)
+    {
+        int blockToFreezeY = world.getHighestBlockYAt(x, z);
+        if (blockToFreezeY <= 0)
+        {
+            return;
+        }
+        float tempAtBlockToFreeze = biome.getTemperatureAt(x, blockToFreezeY, z);
+        if (tempAtBlockToFreeze < WorldStandardValues.SNOW_AND_ICE_MAX_TEMP)
+        {
+            this.currentPropagationSize = 0;
+            // Start to freeze liquids
+            if (!this.freezeLiquid(x, blockToFreezeY -1, z))
             {
-                this.currentPropagationSize = 0;
-                // Start to freeze liquids
-                if (!this.freezeLiquid(x, blockToFreezeY -1, z))
-                {
-                    // Snow has to be placed on an empty space on a block that accepts snow in the world
-                    startSnowFall(x, blockToFreezeY, z, biome);
-                }
+                // Snow has to be placed on an empty space on a block that accepts snow in the world
+                startSnowFall(x, blockToFreezeY, z, biome, tempAtBlockToFreeze);
             }
         }
     }
 
+    /**
+     * Gets whether the given biome is too warm for snow and ice at every
+     * height. Only custom biomes use the temperature of their
+     * {@link BiomeConfig}, {@link LocalBiome#getTemperatureAt(int, int, int)}
+     * of a vanilla biome uses the vanilla temperature. So vanilla biomes
+     * are never skipped.
+     * @param biome The biome.
+     * @return True if the biome never gets snow or ice.
+     */
+    private boolean isAlwaysAboveFreezing(LocalBiome biome)
+    {
+        return biome.isCustom()
+                && biome.getBiomeConfig().biomeTemperature - MAX_TEMPERATURE_DROP >= WorldStandardValues.SNOW_AND_ICE_MAX_TEMP;
+    }
+
+    /**
+     * Gets the biome at the given column, using the biomes looked up in
+     * {@link #freezeChunk(ChunkCoordinate)} when possible.
+     * @param x Location X
+     * @param z Location Z
+     * @return The biome, or null if not found.
+     */
+    private LocalBiome getBiome(int x, int z)
+    {
+        int i = x - this.columnsStartX;
+        int j = z - this.columnsStartZ;
+        if (this.columnsStartX != Integer.MIN_VALUE
+                && i >= 0 && i < ChunkCoordinate.CHUNK_X_SIZE && j >= 0 && j < ChunkCoordinate.CHUNK_Z_SIZE)
+        {
+            return this.columnBiomes[i * ChunkCoordinate.CHUNK_Z_SIZE + j];
+        }
+        return world.getBiome(x, z);
+    }
+
     /**
      * Attempts to freeze liquids at the given location
      * @param x Location X
@@ -79,7 +166,7 @@ public class FrozenSurfaceHelper
      */
     private boolean freezeLiquid(int x, int y, int z)
     {
-        LocalBiome biome = world.getBiome(x, z);
+        LocalBiome biome = getBiome(x, z);
         if (biome != null)
         {
             LocalMaterialData materialToFreeze = world.getMaterial(x, y, z);
@@ -127,13 +214,13 @@ public class FrozenSurfaceHelper
      * @param y Location Y
      * @param z Location Z
      * @param biome The biome associated with the chunk column
+     * @param tempAtBlockToFreeze The temperature at the given location
      */
-    private void startSnowFall(int x, int y, int z, LocalBiome biome)
+    private void startSnowFall(int x, int y, int z, LocalBiome biome, float tempAtBlockToFreeze)
     {
         decreaseFactor = 0;
         BiomeConfig biomeConfig = biome.getBiomeConfig();
 
-        float tempAtBlockToFreeze = biome.getTemperatureAt(x, y, z);
         int snowHeight = biomeConfig.getSnowHeight(tempAtBlockToFreeze);
         // Decreased snow amounts for leaves
         LocalMaterialData materialToSnowAt = world.getMaterial(x, y, z);
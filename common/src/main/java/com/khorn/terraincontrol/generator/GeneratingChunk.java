@@ -18,12 +18,14 @@ public final class GeneratingChunk
     private static final int BEDROCK_LAYER_HEIGHT = 5;
 
     public final int heightCap;
+    public final long worldSeed;
     public final Random random;
     private final byte[] waterLevel;
     private final double[] surfaceNoise;
 
-    GeneratingChunk(Random random, byte[] waterLevel, double[] surfaceNoise, int heightCap)
+    GeneratingChunk(long worldSeed, Random random, byte[] waterLevel, double[] surfaceNoise, int heightCap)
     {
+        this.worldSeed = worldSeed;
         this.random = random;
         this.waterLevel = waterLevel;
         this.surfaceNoise = surfaceNoise;
@@ -4,13 +4,14 @@ import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
-import com.khorn.terraincontrol.configuration.ConfigFunction;
 import com.khorn.terraincontrol.configuration.ConfigProvider;
 import com.khorn.terraincontrol.configuration.WorldConfig;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
 import com.khorn.terraincontrol.generator.resource.Resource;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 
 import java.util.Random;
 
@@ -20,17 +21,22 @@ public class ObjectSpawner
     private final ConfigProvider configProvider;
     private final Random rand;
     private final LocalWorld world;
+    private final FrozenSurfaceHelper frozenSurfaceHelper;
 
     public ObjectSpawner(ConfigProvider configProvider, LocalWorld localWorld)
     {
         this.configProvider = configProvider;
-        this.rand = new Random();
+        this.rand = new FastRandom(0);
         this.world = localWorld;
+        this.frozenSurfaceHelper = new FrozenSurfaceHelper(localWorld);
         new NoiseGeneratorNewOctaves(new Random(world.getSeed()), 4);
     }
 
     public void populate(ChunkCoordinate chunkCoord)
     {
+        // Use the latest version of edited objects
+        TerrainControl.getCustomObjectManager().getWatcher().applyChanges();
+
         // Get the corner block coords
         int x = chunkCoord.getChunkX() * 16;
         int z = chunkCoord.getChunkZ() * 16;
@@ -60,27 +66,32 @@ public class ObjectSpawner
 
         // Mark population started
         world.startPopulation(chunkCoord);
-        TerrainControl.firePopulationStartEvent(world, rand, hasVillage,
-                chunkCoord);
+        if (TerrainControl.hasEventHandlers(EventType.POPULATE_START))
+        {
+            TerrainControl.firePopulationStartEvent(world, rand, hasVillage,
+                    chunkCoord);
+        }
 
         // Resource sequence
-        for (ConfigFunction<BiomeConfig> res : biomeConfig.resourceSequence)
+        for (Resource res : biomeConfig.getPopulationPlan())
         {
-            if (res instanceof Resource)
-                ((Resource) res).process(world, rand, hasVillage, chunkCoord);
+            res.process(world, rand, hasVillage, chunkCoord);
         }
 
         // Animals
         world.placePopulationMobs(biome, rand, chunkCoord);
 
         // Snow and ice
-        new FrozenSurfaceHelper(world).freezeChunk(chunkCoord);
+        this.frozenSurfaceHelper.freezeChunk(chunkCoord);
 
         // Replace blocks
         world.replaceBlocks(chunkCoord);
 
         // Mark population ended
-        TerrainControl.firePopulationEndEvent(world, rand, hasVillage, chunkCoord);
+        if (TerrainControl.hasEventHandlers(EventType.POPULATE_END))
+        {
+            TerrainControl.firePopulationEndEvent(world, rand, hasVillage, chunkCoord);
+        }
         world.endPopulation();
     }
 
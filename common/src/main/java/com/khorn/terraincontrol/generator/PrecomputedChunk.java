@@ -0,0 +1,104 @@
+package com.khorn.terraincontrol.generator;
+
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Y_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
+
+/**
+ * Platform independent chunk buffer, used to generate terrain outside the
+ * main thread. Once the server asks for the chunk, the blocks are copied to
+ * the chunk buffer of the platform using {@link #copyTo(ChunkBuffer)}.
+ *
+ */
+final class PrecomputedChunk implements ChunkBuffer
+{
+    private final LocalMaterialData air = TerrainControl.toLocalMaterialData(DefaultMaterial.AIR, 0);
+
+    private final ChunkCoordinate chunkCoord;
+    private final LocalMaterialData[] blocks = new LocalMaterialData[CHUNK_X_SIZE * CHUNK_Y_SIZE * CHUNK_Z_SIZE];
+    private int highestBlockY = -1;
+    private boolean dry;
+
+    PrecomputedChunk(ChunkCoordinate chunkCoord)
+    {
+        this.chunkCoord = chunkCoord;
+    }
+
+    @Override
+    public ChunkCoordinate getChunkCoordinate()
+    {
+        return chunkCoord;
+    }
+
+    @Override
+    public void setBlock(int blockX, int blockY, int blockZ, LocalMaterialData material)
+    {
+        blocks[getIndex(blockX, blockY, blockZ)] = material;
+        if (blockY > highestBlockY && !material.isAir())
+        {
+            highestBlockY = blockY;
+        }
+    }
+
+    @Override
+    public LocalMaterialData getBlock(int blockX, int blockY, int blockZ)
+    {
+        LocalMaterialData material = blocks[getIndex(blockX, blockY, blockZ)];
+        if (material == null)
+        {
+            return air;
+        }
+        return material;
+    }
+
+    /**
+     * Copies all blocks to the given chunk buffer. Air blocks are skipped,
+     * so the chunk buffer must be empty.
+     *
+     * @param chunkBuffer The chunk buffer.
+     */
+    void copyTo(ChunkBuffer chunkBuffer)
+    {
+        for (int blockX = 0; blockX < CHUNK_X_SIZE; blockX++)
+        {
+            for (int blockZ = 0; blockZ < CHUNK_Z_SIZE; blockZ++)
+            {
+                int columnIndex = getIndex(blockX, 0, blockZ);
+                for (int blockY = 0; blockY <= highestBlockY; blockY++)
+                {
+                    LocalMaterialData material = blocks[columnIndex + blockY];
+                    if (material != null && !material.isAir())
+                    {
+                        chunkBuffer.setBlock(blockX, blockY, blockZ, material);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets whether there is little water on the surface of this chunk.
+     *
+     * @return True if there is little water, false otherwise.
+     * @see ChunkProviderTC#generateBlocks(ChunkBuffer)
+     */
+    boolean isDry()
+    {
+        return dry;
+    }
+
+    void setDry(boolean dry)
+    {
+        this.dry = dry;
+    }
+
+    private static int getIndex(int blockX, int blockY, int blockZ)
+    {
+        return (blockX * CHUNK_Z_SIZE + blockZ) * CHUNK_Y_SIZE + blockY;
+    }
+}
@@ -26,7 +26,12 @@ public class ArraysCacheManager
             }
 
         }
-        return null; // Exception ??
+        // All pooled caches are in use, which happens when terrain is
+        // generated on worker threads. Hand out a temporary cache instead;
+        // it is simply garbage collected after it is released.
+        ArraysCache cache = new ArraysCache();
+        cache.isFree = false;
+        return cache;
     }
 
     public static void ReleaseCache(ArraysCache cache)
@@ -0,0 +1,145 @@
+package com.khorn.terraincontrol.generator.biome;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks whether structures of Minecraft are allowed to spawn in an area.
+ * Like Minecraft, this works on the unzoomed biomes, so every cell is four by
+ * four blocks. Villages and other structures check the same positions for
+ * every chunk that is generated near them, so the biomes of small areas are
+ * cached.
+ *
+ * <p>Not thread safe, just like the biome providers of Minecraft that use
+ * this class.
+ */
+public class StructureBiomeChecker
+{
+    /**
+     * Maximum amount of cells in the cache.
+     */
+    private static final int MAX_CACHED_CELLS = 4096;
+
+    /**
+     * Areas with more cells than this are not cached. Strongholds search
+     * very large areas only once, caching those would only push the village
+     * positions out of the cache.
+     */
+    private static final int MAX_CACHED_AREA = 256;
+
+    private final BiomeGenerator biomeGenerator;
+    private final Map<Long, Integer> cache = new LinkedHashMap<Long, Integer>(MAX_CACHED_CELLS, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest)
+        {
+            return size() > MAX_CACHED_CELLS;
+        }
+    };
+
+    /**
+     * Reused for every call, to avoid creating a new array every time.
+     */
+    private int[] biomeArray;
+
+    public StructureBiomeChecker(BiomeGenerator biomeGenerator)
+    {
+        this.biomeGenerator = biomeGenerator;
+    }
+
+    /**
+     * Gets whether all biomes in the given area are allowed.
+     *
+     * @param blockX          X coordinate of the center, in blocks.
+     * @param blockZ          Z coordinate of the center, in blocks.
+     * @param radius          Radius of the area, in blocks.
+     * @param allowedBiomeIds The generation ids of all allowed biomes.
+     * @return True if all biomes are allowed, false otherwise.
+     */
+    public boolean areBiomesViable(int blockX, int blockZ, int radius, BitSet allowedBiomeIds)
+    {
+        int minX = blockX - radius >> 2;
+        int minZ = blockZ - radius >> 2;
+        int maxX = blockX + radius >> 2;
+        int maxZ = blockZ + radius >> 2;
+        int xSize = maxX - minX + 1;
+        int zSize = maxZ - minZ + 1;
+        boolean useCache = xSize * zSize <= MAX_CACHED_AREA;
+
+        if (useCache)
+        {
+            // Check the cached cells first, a single cached biome that is not
+            // allowed means that no biomes need to be generated
+            boolean allCached = true;
+            for (int cellX = minX; cellX <= maxX; cellX++)
+            {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++)
+                {
+                    Integer biomeId = this.cache.get(toKey(cellX, cellZ));
+                    if (biomeId == null)
+                    {
+                        allCached = false;
+                    } else if (!allowedBiomeIds.get(biomeId))
+                    {
+                        return false;
+                    }
+                }
+            }
+            if (allCached)
+            {
+                return true;
+            }
+        }
+
+        this.biomeArray = this.biomeGenerator.getBiomesUnZoomed(this.biomeArray, minX, minZ, xSize, zSize, OutputType.DEFAULT_FOR_WORLD);
+        if (useCache)
+        {
+            for (int i = 0; i < xSize * zSize; i++)
+            {
+                this.cache.put(toKey(minX + i % xSize, minZ + i / xSize), this.biomeArray[i]);
+            }
+        }
+
+        for (int i = 0; i < xSize * zSize; i++)
+        {
+            if (!allowedBiomeIds.get(this.biomeArray[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets all cached biomes. Must be called when the settings are
+     * reloaded, as the biome layout may have changed.
+     */
+    public void clearCache()
+    {
+        this.cache.clear();
+    }
+
+    /**
+     * Gets the unzoomed biomes of the given area. The returned array is
+     * reused on the next call of any method of this class.
+     *
+     * @param cellX X coordinate of the first cell.
+     * @param cellZ Z coordinate of the first cell.
+     * @param xSize Size of the area on the x axis, in cells.
+     * @param zSize Size of the area on the z axis, in cells.
+     * @return The generation ids of the biomes, x changes fastest.
+     */
+    public int[] getBiomesUnZoomed(int cellX, int cellZ, int xSize, int zSize)
+    {
+        this.biomeArray = this.biomeGenerator.getBiomesUnZoomed(this.biomeArray, cellX, cellZ, xSize, zSize, OutputType.DEFAULT_FOR_WORLD);
+        return this.biomeArray;
+    }
+
+    private static Long toKey(int cellX, int cellZ)
+    {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
@@ -28,6 +28,49 @@ public class NoiseGeneratorNewOctaves {
         return d2;
     }
 
+    /**
+     * Gets the same values as {@link #a(double, double)} for a grid of
+     * positions. The value at ({@code (startX + i) * scale, (startZ + j) *
+     * scale}) is stored at index {@code i + j * xSize}.
+     *
+     * @param buffer Array to store the values in, or null to create a new one.
+     * @param startX Start x position, before scaling.
+     * @param startZ Start z position, before scaling.
+     * @param xSize  Amount of positions on the x axis.
+     * @param zSize  Amount of positions on the z axis.
+     * @param scale  Scale of the positions.
+     * @return The values.
+     */
+    public double[] getGridValues(double[] buffer, int startX, int startZ, int xSize, int zSize, double scale) {
+        if (buffer != null && buffer.length >= xSize * zSize) {
+            for (int k = 0; k < xSize * zSize; ++k) {
+                buffer[k] = 0.0D;
+            }
+        } else {
+            buffer = new double[xSize * zSize];
+        }
+
+        double d3 = 1.0D;
+
+        for (int i = 0; i < this.b; ++i) {
+            NoiseGeneratorNew octave = this.a[i];
+            int k = 0;
+
+            for (int j = 0; j < zSize; ++j) {
+                double d1 = (startZ + j) * scale;
+
+                for (int l = 0; l < xSize; ++l) {
+                    double d0 = (startX + l) * scale;
+
+                    buffer[k++] += octave.a(d0 * d3, d1 * d3) / d3;
+                }
+            }
+            d3 /= 2.0D;
+        }
+
+        return buffer;
+    }
+
     public double[] a(double[] adouble, double d0, double d1, int i, int j, double d2, double d3, double d4) {
         return this.a(adouble, d0, d1, i, j, d2, d3, d4, 0.5D);
     }
@@ -48,6 +48,12 @@ public class CustomObjectGen extends Resource
         // Left blank, as process(..) already handles this.
     }
 
+    @Override
+    protected boolean spawnsPerChunk()
+    {
+        return true;
+    }
+
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
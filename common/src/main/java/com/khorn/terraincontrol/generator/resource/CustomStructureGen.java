@@ -58,6 +58,12 @@ public class CustomStructureGen extends Resource
         // Left blank, as spawnInChunk(..) already handles this.
     }
 
+    @Override
+    protected boolean spawnsPerChunk()
+    {
+        return true;
+    }
+
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
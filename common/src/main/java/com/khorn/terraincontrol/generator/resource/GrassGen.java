@@ -146,6 +146,12 @@ public class GrassGen extends Resource
         }
     }
 
+    @Override
+    protected boolean spawnsPerChunk()
+    {
+        return true;
+    }
+
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
@@ -5,6 +5,7 @@ import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.ConfigFunction;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 
@@ -106,6 +107,33 @@ public abstract class Resource extends ConfigFunction<BiomeConfig> implements Co
         return 0;
     }
 
+    /**
+     * Gets whether this resource never does anything: it never places blocks
+     * and never uses the random number generator. This is the case for
+     * resources with a frequency of zero that use the default
+     * {@link #spawnInChunk(LocalWorld, Random, boolean, ChunkCoordinate)}.
+     * Such resources can be left out of the population without changing
+     * the generated world.
+     * @return True if the resource never does anything.
+     */
+    public boolean isNeverSpawned()
+    {
+        return frequency <= 0 && !spawnsPerChunk();
+    }
+
+    /**
+     * Gets whether this resource overrides
+     * {@link #spawnInChunk(LocalWorld, Random, boolean, ChunkCoordinate)}
+     * with its own logic, so that the frequency alone doesn't say whether
+     * the resource does anything. Resources that override spawnInChunk must
+     * override this method to return true.
+     * @return True if the resource spawns using its own spawnInChunk.
+     */
+    protected boolean spawnsPerChunk()
+    {
+        return false;
+    }
+
     @Override
     public int hashCode()
     {
@@ -143,7 +171,7 @@ public abstract class Resource extends ConfigFunction<BiomeConfig> implements Co
     public final void process(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
         // Fire event
-        if (!TerrainControl.fireResourceProcessEvent(this, world,
+        if (TerrainControl.hasEventHandlers(EventType.RESOURCE_PROCESS) && !TerrainControl.fireResourceProcessEvent(this, world,
                 random, villageInChunk, chunkCoord.getChunkX(), chunkCoord.getChunkZ()))
         {
             return;
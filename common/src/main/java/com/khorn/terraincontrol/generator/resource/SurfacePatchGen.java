@@ -134,6 +134,12 @@ public class SurfacePatchGen extends Resource
         }
     }
 
+    @Override
+    protected boolean spawnsPerChunk()
+    {
+        return true;
+    }
+
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
@@ -122,6 +122,12 @@ public class TreeGen extends Resource
         // Left blank, as process() already handles this
     }
 
+    @Override
+    protected boolean spawnsPerChunk()
+    {
+        return true;
+    }
+
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
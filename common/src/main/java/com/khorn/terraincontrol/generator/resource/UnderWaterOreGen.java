@@ -1,6 +1,5 @@
 package com.khorn.terraincontrol.generator.resource;
 
-import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
@@ -85,11 +84,7 @@ public class UnderWaterOreGen extends Resource
                 {
                     for (int y = firstSolidBlock - two; y <= firstSolidBlock + two; y++)
                     {
-                        LocalMaterialData sourceBlock = world.getMaterial(currentX, y, currentZ);
-                        if (sourceBlocks.contains(sourceBlock))
-                        {
-                            world.setBlock(currentX, y, currentZ, material);
-                        }
+                        world.replaceBlock(currentX, y, currentZ, sourceBlocks, material);
                     }
                 }
             }
@@ -5,6 +5,7 @@ import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.FastRandom;
 import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
 
@@ -24,6 +25,8 @@ public class VeinGen extends Resource
     public MaterialSet sourceBlocks; // Blocks for the ore to spawn in
     public double veinRarity; // Chance for the vein to spawn in a chunk
 
+    private final VeinStartCache veinStartCache = new VeinStartCache(this);
+
     public VeinGen(BiomeConfig biomeConfig, List<String> args) throws InvalidConfigException
     {
         super(biomeConfig);
@@ -83,8 +86,24 @@ public class VeinGen extends Resource
      */
     public Vein getVeinStartInChunk(LocalWorld world, int chunkX, int chunkZ)
     {
-        // Create a random generator that is constant for this chunk and vein
-        Random random = RandomHelper.getRandomForCoords(chunkX, chunkZ, material.hashCode() * (minRadius + maxRadius + 100) + world.getSeed());
+        return getVeinStartInChunk(world, chunkX, chunkZ, new FastRandom(0));
+    }
+
+    /**
+     * Returns the vein that starts in the chunk, using the given random
+     * generator. The random generator is reseeded, so that it is constant
+     * for this chunk and vein.
+     * @param world  The world to spawn in.
+     * @param chunkX The x of the chunk.
+     * @param chunkZ The z of the chunk.
+     * @param random The random generator to reuse.
+     * @return The vein that starts in the chunk, or null if there is no
+     *         starting vein.
+     */
+    Vein getVeinStartInChunk(LocalWorld world, int chunkX, int chunkZ, Random random)
+    {
+        // Make the random generator constant for this chunk and vein
+        RandomHelper.setSeedForCoords(random, chunkX, chunkZ, material.hashCode() * (minRadius + maxRadius + 100) + world.getSeed());
 
         if (random.nextDouble() * 100.0 < veinRarity)
         {
@@ -128,6 +147,12 @@ public class VeinGen extends Resource
     {
     }
 
+    @Override
+    protected boolean spawnsPerChunk()
+    {
+        return true;
+    }
+
     @Override
     protected void spawnInChunk(LocalWorld world, Random random, boolean villageInChunk, ChunkCoordinate chunkCoord)
     {
@@ -136,16 +161,13 @@ public class VeinGen extends Resource
 
         int currentChunkX = chunkCoord.getChunkX();
         int currentChunkZ = chunkCoord.getChunkZ();
-        for (int searchChunkX = currentChunkX - searchRadius; searchChunkX < currentChunkX + searchRadius; searchChunkX++)
+        List<Vein> veins = veinStartCache.getVeinsReaching(world,
+                currentChunkX - searchRadius, currentChunkZ - searchRadius,
+                currentChunkX + searchRadius, currentChunkZ + searchRadius,
+                currentChunkX, currentChunkZ);
+        for (Vein vein : veins)
         {
-            for (int searchChunkZ = currentChunkZ - searchRadius; searchChunkZ < currentChunkZ + searchRadius; searchChunkZ++)
-            {
-                Vein vein = getVeinStartInChunk(world, searchChunkX, searchChunkZ);
-                if (vein != null && vein.reachesChunk(currentChunkX, currentChunkZ))
-                {
-                    vein.spawn(world, random, chunkCoord, this);
-                }
-            }
+            vein.spawn(world, random, chunkCoord, this);
         }
     }
 
@@ -0,0 +1,211 @@
+package com.khorn.terraincontrol.generator.resource;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.util.FastRandom;
+
+import java.util.*;
+
+/**
+ * Remembers where the veins of a {@link VeinGen} start. Calculating whether a
+ * vein starts in a chunk requires a new random number generator, and every
+ * populated chunk checks all chunks in the vein radius. Vein starts are
+ * stored per region of {@value #REGION_SIZE} by {@value #REGION_SIZE} chunks,
+ * so a populated chunk only has to look at the few regions around it. Regions
+ * without any vein are cached too.
+ *
+ */
+final class VeinStartCache
+{
+    private static final int REGION_SIZE_BITS = 3;
+    private static final int REGION_SIZE = 1 << REGION_SIZE_BITS;
+
+    /**
+     * Maximum amount of regions in the cache. Each region is a few hundred
+     * bytes at most.
+     */
+    private static final int MAX_CACHED_REGIONS = 1024;
+
+    /**
+     * All veins starting in a region, in the order their chunks are visited
+     * by {@link VeinGen}: x first, then z.
+     */
+    private static class Region
+    {
+        private final int[] chunkXs;
+        private final int[] chunkZs;
+        private final Vein[] veins;
+
+        private Region(int[] chunkXs, int[] chunkZs, Vein[] veins)
+        {
+            this.chunkXs = chunkXs;
+            this.chunkZs = chunkZs;
+            this.veins = veins;
+        }
+    }
+
+    /**
+     * A vein together with the chunk it starts in, used for sorting.
+     */
+    private static class VeinStart implements Comparable<VeinStart>
+    {
+        private final int chunkX;
+        private final int chunkZ;
+        private final Vein vein;
+
+        private VeinStart(int chunkX, int chunkZ, Vein vein)
+        {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.vein = vein;
+        }
+
+        @Override
+        public int compareTo(VeinStart other)
+        {
+            if (this.chunkX != other.chunkX)
+            {
+                return this.chunkX < other.chunkX ? -1 : 1;
+            }
+            if (this.chunkZ != other.chunkZ)
+            {
+                return this.chunkZ < other.chunkZ ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+
+    private final VeinGen veinGen;
+    private final Map<Long, Region> regions = new LinkedHashMap<Long, Region>(64, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Region> eldest)
+        {
+            return size() > MAX_CACHED_REGIONS;
+        }
+    };
+    private long worldSeed;
+
+    /**
+     * Reseeded for every chunk in a new region. Only used while holding the
+     * lock on this cache.
+     */
+    private final FastRandom random = new FastRandom(0);
+
+    VeinStartCache(VeinGen veinGen)
+    {
+        this.veinGen = veinGen;
+    }
+
+    /**
+     * Gets all veins that start in the given area of chunks and that reach
+     * the given chunk.
+     *
+     * @param world       The world.
+     * @param minChunkX   Minimum chunk x of the start, inclusive.
+     * @param minChunkZ   Minimum chunk z of the start, inclusive.
+     * @param maxChunkX   Maximum chunk x of the start, exclusive.
+     * @param maxChunkZ   Maximum chunk z of the start, exclusive.
+     * @param reachChunkX X of the chunk the veins must reach.
+     * @param reachChunkZ Z of the chunk the veins must reach.
+     * @return The veins, sorted on the x and then the z of their start
+     *         chunks.
+     */
+    synchronized List<Vein> getVeinsReaching(LocalWorld world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ,
+            int reachChunkX, int reachChunkZ)
+    {
+        if (world.getSeed() != this.worldSeed)
+        {
+            // Different world, so all starts are different
+            this.regions.clear();
+            this.worldSeed = world.getSeed();
+        }
+
+        List<VeinStart> found = null;
+        int maxRegionX = (maxChunkX - 1) >> REGION_SIZE_BITS;
+        int maxRegionZ = (maxChunkZ - 1) >> REGION_SIZE_BITS;
+        for (int regionX = minChunkX >> REGION_SIZE_BITS; regionX <= maxRegionX; regionX++)
+        {
+            for (int regionZ = minChunkZ >> REGION_SIZE_BITS; regionZ <= maxRegionZ; regionZ++)
+            {
+                Region region = getRegion(world, regionX, regionZ);
+                for (int i = 0; i < region.veins.length; i++)
+                {
+                    int chunkX = region.chunkXs[i];
+                    int chunkZ = region.chunkZs[i];
+                    if (chunkX < minChunkX || chunkX >= maxChunkX || chunkZ < minChunkZ || chunkZ >= maxChunkZ)
+                    {
+                        continue;
+                    }
+                    Vein vein = region.veins[i];
+                    if (!vein.reachesChunk(reachChunkX, reachChunkZ))
+                    {
+                        continue;
+                    }
+                    if (found == null)
+                    {
+                        found = new ArrayList<VeinStart>();
+                    }
+                    found.add(new VeinStart(chunkX, chunkZ, vein));
+                }
+            }
+        }
+
+        if (found == null)
+        {
+            return Collections.emptyList();
+        }
+
+        Collections.sort(found);
+        List<Vein> veins = new ArrayList<Vein>(found.size());
+        for (VeinStart veinStart : found)
+        {
+            veins.add(veinStart.vein);
+        }
+        return veins;
+    }
+
+    private Region getRegion(LocalWorld world, int regionX, int regionZ)
+    {
+        Long key = ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+        Region region = this.regions.get(key);
+        if (region == null)
+        {
+            region = createRegion(world, regionX, regionZ);
+            this.regions.put(key, region);
+        }
+        return region;
+    }
+
+    private Region createRegion(LocalWorld world, int regionX, int regionZ)
+    {
+        List<Vein> veins = new ArrayList<Vein>();
+        List<Integer> chunkXs = new ArrayList<Integer>();
+        List<Integer> chunkZs = new ArrayList<Integer>();
+        int startChunkX = regionX << REGION_SIZE_BITS;
+        int startChunkZ = regionZ << REGION_SIZE_BITS;
+        for (int chunkX = startChunkX; chunkX < startChunkX + REGION_SIZE; chunkX++)
+        {
+            for (int chunkZ = startChunkZ; chunkZ < startChunkZ + REGION_SIZE; chunkZ++)
+            {
+                Vein vein = this.veinGen.getVeinStartInChunk(world, chunkX, chunkZ, this.random);
+                if (vein != null)
+                {
+                    veins.add(vein);
+                    chunkXs.add(chunkX);
+                    chunkZs.add(chunkZ);
+                }
+            }
+        }
+
+        int[] chunkXArray = new int[veins.size()];
+        int[] chunkZArray = new int[veins.size()];
+        for (int i = 0; i < chunkXArray.length; i++)
+        {
+            chunkXArray[i] = chunkXs.get(i);
+            chunkZArray[i] = chunkZs.get(i);
+        }
+        return new Region(chunkXArray, chunkZArray, veins.toArray(new Vein[veins.size()]));
+    }
+}
@@ -0,0 +1,199 @@
+package com.khorn.terraincontrol.generator.surface;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
+import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+/**
+ * The clay bands and noise generators of the mesa surface. They only depend
+ * on the world seed, so they are shared by all mesa biomes of a world. Like
+ * in vanilla Minecraft, all noise generators are created from the world
+ * seed, so the mesas look the same regardless of which chunk is generated
+ * first.
+ *
+ * <p>Instances are immutable, so they can be used by multiple threads.
+ */
+final class MesaClayBands
+{
+    /**
+     * Amount of world seeds to keep the clay bands for. There is normally
+     * one world per seed.
+     */
+    private static final int CACHE_SIZE = 8;
+
+    private static final Map<Long, MesaClayBands> CACHE = new LinkedHashMap<Long, MesaClayBands>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Entry<Long, MesaClayBands> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Gets the clay bands for the given world seed, creating them if
+     * necessary.
+     * @param worldSeed The world seed.
+     * @return The clay bands.
+     */
+    static MesaClayBands forSeed(long worldSeed)
+    {
+        synchronized (CACHE)
+        {
+            MesaClayBands clayBands = CACHE.get(worldSeed);
+            if (clayBands == null)
+            {
+                clayBands = new MesaClayBands(worldSeed);
+                CACHE.put(worldSeed, clayBands);
+            }
+            return clayBands;
+        }
+    }
+
+    final long worldSeed;
+    final NoiseGeneratorNewOctaves noiseGenBryce1;
+    final NoiseGeneratorNewOctaves noiseGenBryce2;
+    private final NoiseGeneratorNewOctaves noiseGenBlockData;
+    private final LocalMaterialData[] bands;
+
+    private MesaClayBands(long worldSeed)
+    {
+        this.worldSeed = worldSeed;
+
+        Random random = new Random(worldSeed);
+        this.noiseGenBlockData = new NoiseGeneratorNewOctaves(random, 1);
+        this.bands = createBands(random);
+
+        Random bryceRandom = new Random(worldSeed);
+        this.noiseGenBryce1 = new NoiseGeneratorNewOctaves(bryceRandom, 4);
+        this.noiseGenBryce2 = new NoiseGeneratorNewOctaves(bryceRandom, 1);
+    }
+
+    /**
+     * Gets the offset of the clay bands. Only depends on the x position, so
+     * it is the same for the whole column.
+     * @param xInWorld X position in the world.
+     * @return The offset, to be used in {@link #getBlock(int, int)}.
+     */
+    int getOffset(int xInWorld)
+    {
+        return (int) Math.round(this.noiseGenBlockData.a(xInWorld * 1.0D / 512.0D, xInWorld * 1.0D / 512.0D) * 2.0D);
+    }
+
+    /**
+     * Gets the clay block at the given height.
+     * @param offset The offset of the column, from {@link #getOffset(int)}.
+     * @param y      The y position.
+     * @return The clay block.
+     */
+    LocalMaterialData getBlock(int offset, int y)
+    {
+        return this.bands[(y + offset + 64) % 64];
+    }
+
+    private static LocalMaterialData[] createBands(Random random)
+    {
+        LocalMaterialData hardenedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.HARD_CLAY, 0);
+        LocalMaterialData whiteStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 0);
+        LocalMaterialData orangeStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 1);
+        LocalMaterialData yellowStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 4);
+        LocalMaterialData brownStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 12);
+        LocalMaterialData redStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 14);
+        LocalMaterialData silverStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 8);
+
+        LocalMaterialData[] bands = new LocalMaterialData[64];
+        Arrays.fill(bands, hardenedClay);
+
+        int j;
+
+        for (j = 0; j < 64; ++j)
+        {
+            j += random.nextInt(5) + 1;
+            if (j < 64)
+            {
+                bands[j] = orangeStainedClay;
+            }
+        }
+
+        j = random.nextInt(4) + 2;
+
+        int k;
+        int l;
+        int i1;
+        int j1;
+
+        for (k = 0; k < j; ++k)
+        {
+            l = random.nextInt(3) + 1;
+            i1 = random.nextInt(64);
+
+            for (j1 = 0; i1 + j1 < 64 && j1 < l; ++j1)
+            {
+                bands[i1 + j1] = yellowStainedClay;
+            }
+        }
+
+        k = random.nextInt(4) + 2;
+
+        int k1;
+
+        for (l = 0; l < k; ++l)
+        {
+            i1 = random.nextInt(3) + 2;
+            j1 = random.nextInt(64);
+
+            for (k1 = 0; j1 + k1 < 64 && k1 < i1; ++k1)
+            {
+                bands[j1 + k1] = brownStainedClay;
+            }
+        }
+
+        l = random.nextInt(4) + 2;
+
+        for (i1 = 0; i1 < l; ++i1)
+        {
+            j1 = random.nextInt(3) + 1;
+            k1 = random.nextInt(64);
+
+            for (int l1 = 0; k1 + l1 < 64 && l1 < j1; ++l1)
+            {
+                bands[k1 + l1] = redStainedClay;
+            }
+        }
+
+        i1 = random.nextInt(3) + 3;
+        j1 = 0;
+
+        for (k1 = 0; k1 < i1; ++k1)
+        {
+            byte b0 = 1;
+
+            j1 += random.nextInt(16) + 4;
+
+            for (int i2 = 0; j1 + i2 < 64 && i2 < b0; ++i2)
+            {
+                bands[j1 + i2] = whiteStainedClay;
+                if (j1 + i2 > 1 && random.nextBoolean())
+                {
+                    bands[j1 + i2 - 1] = silverStainedClay;
+                }
+
+                if (j1 + i2 < 63 && random.nextBoolean())
+                {
+                    bands[j1 + i2 + 1] = silverStainedClay;
+                }
+            }
+        }
+
+        return bands;
+    }
+}
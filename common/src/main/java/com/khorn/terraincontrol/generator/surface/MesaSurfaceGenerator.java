@@ -1,23 +1,26 @@
 package com.khorn.terraincontrol.generator.surface;
 
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
+
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
 import com.khorn.terraincontrol.generator.GeneratingChunk;
-import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
 
-import java.util.Arrays;
-import java.util.Random;
-
-public class MesaSurfaceGenerator implements SurfaceGenerator
+public class MesaSurfaceGenerator extends SurfaceGeneratorBase
 {
     public static final String NAME_NORMAL = "Mesa";
     public static final String NAME_FOREST = "MesaForest";
     public static final String NAME_BRYCE = "MesaBryce";
 
+    private static final double BRYCE_SCALE_1 = 0.25D;
+    private static final double BRYCE_SCALE_2 = 0.001953125D;
+
     /**
      * Returns the mesa surface generator representing the setting value. If
      * no mes surface generator represents this setting value, null is
@@ -43,21 +46,19 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
         return null;
     }
 
-    private LocalMaterialData[] blockDataValuesArray;
-    private boolean isForestMesa;
-    private boolean isBryceMesa;
-    private NoiseGeneratorNewOctaves noiseGenBryce1;
-    private NoiseGeneratorNewOctaves noiseGenBryce2;
-    private NoiseGeneratorNewOctaves noiseGenBlockData;
+    private final boolean isForestMesa;
+    private final boolean isBryceMesa;
+
+    /**
+     * The clay bands of the world that was generated last, or null if no
+     * chunk has been generated yet.
+     */
+    private volatile MesaClayBands clayBands;
 
     private final LocalMaterialData hardenedClay;
     private final LocalMaterialData redSand;
     private final LocalMaterialData whiteStainedClay;
     private final LocalMaterialData orangeStainedClay;
-    private final LocalMaterialData yellowStainedClay;
-    private final LocalMaterialData brownStainedClay;
-    private final LocalMaterialData redStainedClay;
-    private final LocalMaterialData silverStainedClay;
     private final LocalMaterialData coarseDirt;
 
     public MesaSurfaceGenerator(boolean mountainMesa, boolean forestMesa)
@@ -70,152 +71,120 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
         this.coarseDirt = TerrainControl.toLocalMaterialData(DefaultMaterial.DIRT, 1);
         this.whiteStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 0);
         this.orangeStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 1);
-        this.yellowStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 4);
-        this.brownStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 12);
-        this.redStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 14);
-        this.silverStainedClay = TerrainControl.toLocalMaterialData(DefaultMaterial.STAINED_CLAY, 8);
-    }
-
-    private LocalMaterialData getBlockData(int i, int j, int k)
-    {
-        int l = (int) Math.round(this.noiseGenBlockData.a(i * 1.0D / 512.0D, i * 1.0D / 512.0D) * 2.0D);
-
-        return this.blockDataValuesArray[(j + l + 64) % 64];
     }
 
-    private void initializeSmallByteArray(Random random)
+    /**
+     * Gets the clay bands for the world of the chunk. They are shared with
+     * all other mesa surface generators of that world.
+     * @param generatingChunk The chunk being generated.
+     * @return The clay bands.
+     */
+    private MesaClayBands getClayBands(GeneratingChunk generatingChunk)
     {
-        this.blockDataValuesArray = new LocalMaterialData[64];
-        Arrays.fill(this.blockDataValuesArray, this.hardenedClay);
-
-        this.noiseGenBlockData = new NoiseGeneratorNewOctaves(random, 1);
-
-        int j;
-
-        for (j = 0; j < 64; ++j)
+        MesaClayBands clayBands = this.clayBands;
+        if (clayBands == null || clayBands.worldSeed != generatingChunk.worldSeed)
         {
-            j += random.nextInt(5) + 1;
-            if (j < 64)
-            {
-                this.blockDataValuesArray[j] = this.orangeStainedClay;
-            }
+            clayBands = MesaClayBands.forSeed(generatingChunk.worldSeed);
+            this.clayBands = clayBands;
         }
+        return clayBands;
+    }
 
-        j = random.nextInt(4) + 2;
-
-        int k;
-        int l;
-        int i1;
-        int j1;
+    @Override
+    public void spawn(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, int xInWorld, int zInWorld)
+    {
+        int x = xInWorld & 0xf;
+        int z = zInWorld & 0xf;
+        double noise = generatingChunk.getNoise(x, z);
+        MesaClayBands clayBands = getClayBands(generatingChunk);
 
-        for (k = 0; k < j; ++k)
+        double bryceHeight = 0.0D;
+        if (this.isBryceMesa)
         {
-            l = random.nextInt(3) + 1;
-            i1 = random.nextInt(64);
-
-            for (j1 = 0; i1 + j1 < 64 && j1 < l; ++j1)
-            {
-                this.blockDataValuesArray[i1 + j1] = this.yellowStainedClay;
-            }
+            int k = (xInWorld & -16) + (zInWorld & 15);
+            int l = (zInWorld & -16) + (xInWorld & 15);
+            bryceHeight = getBryceHeight(noise, clayBands.noiseGenBryce1.a(k * BRYCE_SCALE_1, l * BRYCE_SCALE_1),
+                    clayBands.noiseGenBryce2.a(k * BRYCE_SCALE_2, l * BRYCE_SCALE_2));
         }
+        spawnColumn(generatingChunk, chunkBuffer, biomeConfig, clayBands, x, z, noise, bryceHeight, clayBands.getOffset(xInWorld));
+    }
 
-        k = random.nextInt(4) + 2;
-
-        int k1;
-
-        for (l = 0; l < k; ++l)
+    @Override
+    public void spawnChunk(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig)
+    {
+        MesaClayBands clayBands = getClayBands(generatingChunk);
+        ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
+        int blockX = chunkCoord.getBlockX();
+        int blockZ = chunkCoord.getBlockZ();
+
+        // The noise doesn't use the random number generator of the chunk, so
+        // it can be calculated for all columns at once
+        int[] clayBandOffsets = new int[CHUNK_X_SIZE];
+        for (int x = 0; x < CHUNK_X_SIZE; x++)
         {
-            i1 = random.nextInt(3) + 2;
-            j1 = random.nextInt(64);
-
-            for (k1 = 0; j1 + k1 < 64 && k1 < i1; ++k1)
-            {
-                this.blockDataValuesArray[j1 + k1] = this.brownStainedClay;
-            }
+            clayBandOffsets[x] = clayBands.getOffset(blockX + x);
         }
-
-        l = random.nextInt(4) + 2;
-
-        for (i1 = 0; i1 < l; ++i1)
+        double[] bryceHeights = null;
+        if (this.isBryceMesa)
         {
-            j1 = random.nextInt(3) + 1;
-            k1 = random.nextInt(64);
-
-            for (int l1 = 0; k1 + l1 < 64 && l1 < j1; ++l1)
+            // Vanilla swaps the x and z coordinates within the chunk, so the
+            // noise at index z + x * 16 belongs to column (x, z)
+            double[] bryceNoise1 = clayBands.noiseGenBryce1.getGridValues(null, blockX, blockZ, CHUNK_Z_SIZE, CHUNK_X_SIZE, BRYCE_SCALE_1);
+            double[] bryceNoise2 = clayBands.noiseGenBryce2.getGridValues(null, blockX, blockZ, CHUNK_Z_SIZE, CHUNK_X_SIZE, BRYCE_SCALE_2);
+            bryceHeights = new double[CHUNK_X_SIZE * CHUNK_Z_SIZE];
+            for (int x = 0; x < CHUNK_X_SIZE; x++)
             {
-                this.blockDataValuesArray[k1 + l1] = this.redStainedClay;
+                for (int z = 0; z < CHUNK_Z_SIZE; z++)
+                {
+                    int i = z + x * CHUNK_Z_SIZE;
+                    bryceHeights[i] = getBryceHeight(generatingChunk.getNoise(x, z), bryceNoise1[i], bryceNoise2[i]);
+                }
             }
         }
 
-        i1 = random.nextInt(3) + 3;
-        j1 = 0;
-
-        for (k1 = 0; k1 < i1; ++k1)
+        for (int x = 0; x < CHUNK_X_SIZE; x++)
         {
-            byte b0 = 1;
-
-            j1 += random.nextInt(16) + 4;
-
-            for (int i2 = 0; j1 + i2 < 64 && i2 < b0; ++i2)
+            for (int z = 0; z < CHUNK_Z_SIZE; z++)
             {
-                this.blockDataValuesArray[j1 + i2] = this.whiteStainedClay;
-                if (j1 + i2 > 1 && random.nextBoolean())
-                {
-                    this.blockDataValuesArray[j1 + i2 - 1] = this.silverStainedClay;
-                }
-
-                if (j1 + i2 < 63 && random.nextBoolean())
-                {
-                    this.blockDataValuesArray[j1 + i2 + 1] = this.silverStainedClay;
-                }
+                double bryceHeight = bryceHeights == null ? 0.0D : bryceHeights[z + x * CHUNK_Z_SIZE];
+                spawnColumn(generatingChunk, chunkBuffer, biomeConfig, clayBands, x, z, generatingChunk.getNoise(x, z), bryceHeight,
+                        clayBandOffsets[x]);
             }
         }
     }
 
-    @Override
-    public void spawn(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, int xInWorld, int zInWorld)
+    /**
+     * Gets the height of the Bryce spikes.
+     * @param noise       The surface noise of the column.
+     * @param bryceNoise1 Value of the first Bryce noise generator.
+     * @param bryceNoise2 Value of the second Bryce noise generator.
+     * @return The height, or 0 if there is no spike.
+     */
+    private static double getBryceHeight(double noise, double bryceNoise1, double bryceNoise2)
     {
-        int x = xInWorld & 0xf;
-        int z = zInWorld & 0xf;
-        double noise = generatingChunk.getNoise(x, z);
-        if (this.blockDataValuesArray == null)
-        {
-            this.initializeSmallByteArray(generatingChunk.random);
-        }
-
-        // Bryce spike calculations
         double bryceHeight = 0.0D;
-        if (this.isBryceMesa)
+        double bryceNoiseValue = Math.min(Math.abs(noise), bryceNoise1);
+
+        if (bryceNoiseValue > 0.0D)
         {
-            if (this.noiseGenBryce1 == null || this.noiseGenBryce2 == null)
-            {
-                Random newRandom = new Random(generatingChunk.random.nextLong());
+            double d4 = Math.abs(bryceNoise2);
 
-                this.noiseGenBryce1 = new NoiseGeneratorNewOctaves(newRandom, 4);
-                this.noiseGenBryce2 = new NoiseGeneratorNewOctaves(newRandom, 1);
-            }
+            bryceHeight = bryceNoiseValue * bryceNoiseValue * 2.5D;
+            double d5 = Math.ceil(d4 * 50.0D) + 14.0D;
 
-            int k = (xInWorld & -16) + (zInWorld & 15);
-            int l = (zInWorld & -16) + (xInWorld & 15);
-            double bryceNoiseValue = Math.min(Math.abs(noise), this.noiseGenBryce1.a(k * 0.25D, l * 0.25D));
-
-            if (bryceNoiseValue > 0.0D)
+            if (bryceHeight > d5)
             {
-                double d3 = 0.001953125D;
-                double d4 = Math.abs(this.noiseGenBryce2.a(k * d3, l * d3));
-
-                bryceHeight = bryceNoiseValue * bryceNoiseValue * 2.5D;
-                double d5 = Math.ceil(d4 * 50.0D) + 14.0D;
-
-                if (bryceHeight > d5)
-                {
-                    bryceHeight = d5;
-                }
-
-                bryceHeight += 64.0D;
+                bryceHeight = d5;
             }
+
+            bryceHeight += 64.0D;
         }
+        return bryceHeight;
+    }
 
+    private void spawnColumn(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, MesaClayBands clayBands,
+            int x, int z, double noise, double bryceHeight, int clayBandOffset)
+    {
         int waterLevel = generatingChunk.getWaterLevel(x, z);
         LocalMaterialData currentSurfaceBlock = whiteStainedClay;
         LocalMaterialData currentGroundBlock = whiteStainedClay;
@@ -287,7 +256,7 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
                                         iblockdata3 = this.hardenedClay;
                                     } else
                                     {
-                                        iblockdata3 = this.getBlockData(xInWorld, y, zInWorld);
+                                        iblockdata3 = clayBands.getBlock(clayBandOffset, y);
                                     }
                                 } else
                                 {
@@ -316,7 +285,7 @@ public class MesaSurfaceGenerator implements SurfaceGenerator
                             chunkBuffer.setBlock(x, y, z, this.orangeStainedClay);
                         } else
                         {
-                            iblockdata3 = this.getBlockData(xInWorld, y, zInWorld);
+                            iblockdata3 = clayBands.getBlock(clayBandOffset, y);
                             chunkBuffer.setBlock(x, y, z, iblockdata3);
                         }
                     }
@@ -1,5 +1,8 @@
 package com.khorn.terraincontrol.generator.surface;
 
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
+
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
@@ -40,7 +43,7 @@ public class MultipleLayersSurfaceGenerator extends SimpleSurfaceGenerator
     }
 
     // Must be sorted based on the noise field
-    private List<LayerChoice> layerChoices;
+    private final LayerChoice[] layerChoices;
 
     public MultipleLayersSurfaceGenerator(String[] args) throws InvalidConfigException
     {
@@ -49,7 +52,7 @@ public class MultipleLayersSurfaceGenerator extends SimpleSurfaceGenerator
             throw new InvalidConfigException("Needs at least two arguments");
         }
 
-        layerChoices = new ArrayList<LayerChoice>();
+        List<LayerChoice> layerChoices = new ArrayList<LayerChoice>();
         for (int i = 0; i < args.length - 2; i += 3)
         {
             LocalMaterialData surfaceBlock = TerrainControl.readMaterial(args[i]);
@@ -58,6 +61,7 @@ public class MultipleLayersSurfaceGenerator extends SimpleSurfaceGenerator
             layerChoices.add(new LayerChoice(surfaceBlock, groundBlock, maxNoise));
         }
         Collections.sort(layerChoices);
+        this.layerChoices = layerChoices.toArray(new LayerChoice[layerChoices.size()]);
     }
 
     @Override
@@ -65,19 +69,61 @@ public class MultipleLayersSurfaceGenerator extends SimpleSurfaceGenerator
     {
         int x = xInWorld & 0xf;
         int z = zInWorld & 0xf;
-        double noise = generatingChunkInfo.getNoise(x, z);
+        LayerChoice layer = getLayer(generatingChunkInfo.getNoise(x, z));
+        if (layer != null)
+        {
+            spawnColumn(layer.surfaceBlock, layer.groundBlock, generatingChunkInfo, chunkBuffer, config, x, z);
+        } else
+        {
+            // Fall back on normal column
+            spawnColumn(config.surfaceBlock, config.groundBlock, generatingChunkInfo, chunkBuffer, config, x, z);
+        }
+    }
+
+    @Override
+    public void spawnChunk(GeneratingChunk generatingChunkInfo, ChunkBuffer chunkBuffer, BiomeConfig config)
+    {
+        // Choose the layers of all columns first, the noise is already known
+        LayerChoice[] layers = new LayerChoice[CHUNK_X_SIZE * CHUNK_Z_SIZE];
+        for (int i = 0; i < layers.length; i++)
+        {
+            layers[i] = getLayer(generatingChunkInfo.getNoise(i / CHUNK_Z_SIZE, i % CHUNK_Z_SIZE));
+        }
 
+        int i = 0;
+        for (int x = 0; x < CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < CHUNK_Z_SIZE; z++)
+            {
+                LayerChoice layer = layers[i++];
+                if (layer != null)
+                {
+                    spawnColumn(layer.surfaceBlock, layer.groundBlock, generatingChunkInfo, chunkBuffer, config, x, z);
+                } else
+                {
+                    // Fall back on normal column
+                    spawnColumn(config.surfaceBlock, config.groundBlock, generatingChunkInfo, chunkBuffer, config, x, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the layer for the given noise value.
+     * @param noise The surface noise of a column.
+     * @return The layer, or null if the normal surface and ground blocks of
+     * the biome must be used.
+     */
+    private LayerChoice getLayer(double noise)
+    {
         for (LayerChoice layer : this.layerChoices)
         {
             if (noise <= layer.maxNoise)
             {
-                spawnColumn(layer.surfaceBlock, layer.groundBlock, generatingChunkInfo, chunkBuffer, config, x, z);
-                return;
+                return layer;
             }
         }
-
-        // Fall back on normal column
-        spawnColumn(config.surfaceBlock, config.groundBlock, generatingChunkInfo, chunkBuffer, config, x, z);
+        return null;
     }
 
     @Override
@@ -1,6 +1,8 @@
 package com.khorn.terraincontrol.generator.surface;
 
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
 import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Y_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
 
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.TerrainControl;
@@ -15,7 +17,7 @@ import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
  * Implementation of {@link SurfaceGenerator} that does absolutely nothing.
  *
  */
-public class SimpleSurfaceGenerator implements SurfaceGenerator
+public class SimpleSurfaceGenerator extends SurfaceGeneratorBase
 {
     private final LocalMaterialData air = TerrainControl.toLocalMaterialData(DefaultMaterial.AIR, 0);
     private final LocalMaterialData sandstone = TerrainControl.toLocalMaterialData(DefaultMaterial.SANDSTONE, 0);
@@ -26,6 +28,20 @@ public class SimpleSurfaceGenerator implements SurfaceGenerator
         spawnColumn(biomeConfig.surfaceBlock, biomeConfig.groundBlock, generatingChunk, chunkBuffer, biomeConfig, xInWorld & 0xf, zInWorld & 0xf);
     }
 
+    @Override
+    public void spawnChunk(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig)
+    {
+        LocalMaterialData surfaceBlock = biomeConfig.surfaceBlock;
+        LocalMaterialData groundBlock = biomeConfig.groundBlock;
+        for (int x = 0; x < CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < CHUNK_Z_SIZE; z++)
+            {
+                spawnColumn(surfaceBlock, groundBlock, generatingChunk, chunkBuffer, biomeConfig, x, z);
+            }
+        }
+    }
+
     protected final void spawnColumn(LocalMaterialData defaultSurfaceBlock, LocalMaterialData defaultGroundBlock, GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, int x, int z)
     {
         WorldConfig worldConfig = biomeConfig.worldConfig;
@@ -28,6 +28,21 @@ public interface SurfaceGenerator
      */
     void spawn(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig, int xInWorld, int zInWorld);
 
+    /**
+     * Spawns this surface layer in all columns of the chunk, for chunks that
+     * consist of a single biome. Must give the same result as calling
+     * {@link #spawn(GeneratingChunk, ChunkBuffer, BiomeConfig, int, int)} for
+     * every column, with x in the outer loop and z in the inner loop: the
+     * random number generator of the chunk is shared by all columns.
+     *
+     * <p>See {@link SurfaceGeneratorBase} for an implementation that simply
+     * does that.
+     * @param generatingChunk Information about the chunk being generated.
+     * @param chunkBuffer     The chunk buffer.
+     * @param biomeConfig     The biome config of all columns in the chunk.
+     */
+    void spawnChunk(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig);
+
     /**
      * Writes the settings used to a string. There must be a constructor to
      * read this string again.
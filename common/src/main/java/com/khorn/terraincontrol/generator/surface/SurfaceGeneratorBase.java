@@ -0,0 +1,33 @@
+package com.khorn.terraincontrol.generator.surface;
+
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_X_SIZE;
+import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
+
+import com.khorn.terraincontrol.configuration.BiomeConfig;
+import com.khorn.terraincontrol.generator.ChunkBuffer;
+import com.khorn.terraincontrol.generator.GeneratingChunk;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+
+/**
+ * Base class for surface generators. Spawns the surface of a whole chunk by
+ * spawning the surface of each column. Subclasses can override
+ * {@link #spawnChunk(GeneratingChunk, ChunkBuffer, BiomeConfig)} to do work
+ * that is the same for all columns only once.
+ */
+public abstract class SurfaceGeneratorBase implements SurfaceGenerator
+{
+    @Override
+    public void spawnChunk(GeneratingChunk generatingChunk, ChunkBuffer chunkBuffer, BiomeConfig biomeConfig)
+    {
+        ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();
+        int blockX = chunkCoord.getBlockX();
+        int blockZ = chunkCoord.getBlockZ();
+        for (int x = 0; x < CHUNK_X_SIZE; x++)
+        {
+            for (int z = 0; z < CHUNK_Z_SIZE; z++)
+            {
+                spawn(generatingChunk, chunkBuffer, biomeConfig, blockX + x, blockZ + z);
+            }
+        }
+    }
+}
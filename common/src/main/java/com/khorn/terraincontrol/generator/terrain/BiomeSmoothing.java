@@ -0,0 +1,424 @@
+package com.khorn.terraincontrol.generator.terrain;
+
+import com.khorn.terraincontrol.util.helpers.MathHelper;
+
+/**
+ * Calculates the weighted average height and volatility of the biomes around
+ * each noise column, for all noise columns of an area at once. Biomes closer
+ * to the column have a higher weight.
+ *
+ * <p>By default the weights of all biomes within the smooth radius of the
+ * biome in the column are added, which takes (2 * radius + 1)^2 steps per
+ * column. When using summed-area tables, columns that only have a single
+ * biome (and river state) within their smooth radius are detected in a
+ * constant number of steps. The weighted average of a single biome is just
+ * the setting of that biome, so the weights don't need to be added for those
+ * columns. The result is the same, except for small rounding differences.
+ *
+ * <p>Instances are not thread safe.
+ */
+final class BiomeSmoothing
+{
+    private final int maxSmoothRadius;
+    private final int maxSmoothDiameter;
+    private final float[] nearBiomeWeightArray;
+
+    // Settings of all biomes, indexed by generation id
+    private float[] biomeHeight;
+    private float[] biomeVolatility;
+    private float[] riverHeight;
+    private float[] riverVolatility;
+    private int[] smoothRadius;
+
+    // Results for each column, at index x * zSize + z
+    private int zSize;
+    private float[] volatilityResult;
+    private double[] heightResult;
+    private float[] riverVolatilityResult;
+    private float[] riverHeightResult;
+    private boolean[] riverFoundResult;
+
+    // Summed-area tables of the places where the biome changes
+    private int[] xChangesTable;
+    private int[] zChangesTable;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxSmoothRadius The highest smooth radius of all biomes. The
+     *                        biome arrays must have this amount of extra
+     *                        columns on each side.
+     */
+    BiomeSmoothing(int maxSmoothRadius)
+    {
+        this.maxSmoothRadius = maxSmoothRadius;
+        this.maxSmoothDiameter = maxSmoothRadius * 2 + 1;
+
+        // Contains 2d array maxSmoothDiameter*maxSmoothDiameter.
+        // Maximum weight is in array center.
+        this.nearBiomeWeightArray = new float[maxSmoothDiameter * maxSmoothDiameter];
+        for (int x = -maxSmoothRadius; x <= maxSmoothRadius; x++)
+        {
+            for (int z = -maxSmoothRadius; z <= maxSmoothRadius; z++)
+            {
+                final float f1 = 10.0F / MathHelper.sqrt(x * x + z * z + 0.2F);
+                nearBiomeWeightArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * maxSmoothDiameter)] = f1;
+            }
+        }
+    }
+
+    /**
+     * Sets the settings of all biomes. All arrays are indexed by generation
+     * id.
+     *
+     * @param biomeHeight     The BiomeHeight settings.
+     * @param biomeVolatility The BiomeVolatility settings.
+     * @param riverHeight     The RiverHeight settings.
+     * @param riverVolatility The RiverVolatility settings.
+     * @param smoothRadius    The SmoothRadius settings, no higher than the
+     *                        maximum smooth radius.
+     */
+    void setBiomes(float[] biomeHeight, float[] biomeVolatility, float[] riverHeight, float[] riverVolatility, int[] smoothRadius)
+    {
+        this.biomeHeight = biomeHeight;
+        this.biomeVolatility = biomeVolatility;
+        this.riverHeight = riverHeight;
+        this.riverVolatility = riverVolatility;
+        this.smoothRadius = smoothRadius;
+    }
+
+    /**
+     * Calculates the weighted averages for all columns in an area. Use the
+     * getters to get the results.
+     *
+     * @param biomeArray     Biome ids of the area, including the extra
+     *                       columns on each side. The biome at (x, z) is at
+     *                       index {@code x + z * (xSize + 2 * maxSmoothRadius)}.
+     * @param riverArray     Same layout as the biome array, 1 where there is
+     *                       a river. Null if improved rivers are disabled.
+     * @param xSize          Amount of columns on the x axis, without the extra
+     *                       columns.
+     * @param zSize          Amount of columns on the z axis, without the extra
+     *                       columns.
+     * @param useSummedAreas Whether summed-area tables must be used to skip
+     *                       columns with only a single biome around them.
+     */
+    void smooth(int[] biomeArray, int[] riverArray, int xSize, int zSize, boolean useSummedAreas)
+    {
+        this.zSize = zSize;
+        int size = xSize * zSize;
+        if (volatilityResult == null || volatilityResult.length != size)
+        {
+            volatilityResult = new float[size];
+            heightResult = new double[size];
+            riverVolatilityResult = new float[size];
+            riverHeightResult = new float[size];
+            riverFoundResult = new boolean[size];
+        }
+
+        int gridXSize = xSize + maxSmoothDiameter - 1;
+        int gridZSize = zSize + maxSmoothDiameter - 1;
+        if (useSummedAreas)
+        {
+            createSummedAreaTables(biomeArray, riverArray, gridXSize, gridZSize);
+        }
+
+        for (int x = 0; x < xSize; x++)
+        {
+            for (int z = 0; z < zSize; z++)
+            {
+                int gridX = x + maxSmoothRadius;
+                int gridZ = z + maxSmoothRadius;
+                int centerBiomeId = biomeArray[gridX + gridZ * gridXSize];
+                int lookRadius = smoothRadius[centerBiomeId];
+
+                if (useSummedAreas && isSingleBiome(gridX, gridZ, lookRadius, gridXSize))
+                {
+                    setSingleBiome(x * zSize + z, centerBiomeId,
+                            riverArray != null && riverArray[gridX + gridZ * gridXSize] == 1);
+                } else if (riverArray == null)
+                {
+                    addWeights(biomeArray, gridXSize, x, z);
+                } else
+                {
+                    addWeightsWithRivers(biomeArray, riverArray, gridXSize, x, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the summed-area tables of the places where the biome changes.
+     * The x table counts the columns that differ from the column before on
+     * the x axis, the z table does the same for the z axis. The tables are
+     * one larger than the grid on each axis, the value at (x, z) is the
+     * amount of changes in the area from (0, 0) to (x - 1, z - 1).
+     */
+    private void createSummedAreaTables(int[] biomeArray, int[] riverArray, int gridXSize, int gridZSize)
+    {
+        int tableSize = (gridXSize + 1) * (gridZSize + 1);
+        if (xChangesTable == null || xChangesTable.length != tableSize)
+        {
+            xChangesTable = new int[tableSize];
+            zChangesTable = new int[tableSize];
+        }
+
+        int tableXSize = gridXSize + 1;
+        for (int z = 0; z < gridZSize; z++)
+        {
+            int xChangesInRow = 0;
+            int zChangesInRow = 0;
+            for (int x = 0; x < gridXSize; x++)
+            {
+                int i = x + z * gridXSize;
+                if (x > 0 && isChange(biomeArray, riverArray, i, i - 1))
+                {
+                    xChangesInRow++;
+                }
+                if (z > 0 && isChange(biomeArray, riverArray, i, i - gridXSize))
+                {
+                    zChangesInRow++;
+                }
+
+                int tableIndex = (x + 1) + (z + 1) * tableXSize;
+                xChangesTable[tableIndex] = xChangesTable[tableIndex - tableXSize] + xChangesInRow;
+                zChangesTable[tableIndex] = zChangesTable[tableIndex - tableXSize] + zChangesInRow;
+            }
+        }
+    }
+
+    private static boolean isChange(int[] biomeArray, int[] riverArray, int i, int j)
+    {
+        if (biomeArray[i] != biomeArray[j])
+        {
+            return true;
+        }
+        return riverArray != null && riverArray[i] != riverArray[j];
+    }
+
+    /**
+     * Gets the amount of changes in the given area of a summed-area table.
+     * The area is inclusive on all sides.
+     */
+    private static int getChanges(int[] table, int tableXSize, int minX, int minZ, int maxX, int maxZ)
+    {
+        return table[(maxX + 1) + (maxZ + 1) * tableXSize] - table[minX + (maxZ + 1) * tableXSize]
+                - table[(maxX + 1) + minZ * tableXSize] + table[minX + minZ * tableXSize];
+    }
+
+    /**
+     * Gets whether the area around the given column contains only a single
+     * biome and river state.
+     */
+    private boolean isSingleBiome(int gridX, int gridZ, int radius, int gridXSize)
+    {
+        if (radius == 0)
+        {
+            return true;
+        }
+        int tableXSize = gridXSize + 1;
+        int minX = gridX - radius;
+        int minZ = gridZ - radius;
+        int maxX = gridX + radius;
+        int maxZ = gridZ + radius;
+
+        // Changes on the x axis are counted at the second column, so the
+        // change between minX - 1 and minX is not part of this area
+        if (getChanges(xChangesTable, tableXSize, minX + 1, minZ, maxX, maxZ) != 0)
+        {
+            return false;
+        }
+        return getChanges(zChangesTable, tableXSize, minX, minZ + 1, maxX, maxZ) == 0;
+    }
+
+    private void setSingleBiome(int i, int biomeId, boolean isRiver)
+    {
+        volatilityResult[i] = biomeVolatility[biomeId];
+        heightResult[i] = biomeHeight[biomeId];
+        riverFoundResult[i] = isRiver;
+        riverVolatilityResult[i] = isRiver ? riverVolatility[biomeId] : biomeVolatility[biomeId];
+        riverHeightResult[i] = isRiver ? riverHeight[biomeId] : biomeHeight[biomeId];
+    }
+
+    private void addWeights(int[] biomeArray, int gridXSize, int x, int z)
+    {
+        float volatilitySum = 0.0F;
+        double heightSum = 0.0F;
+        float biomeWeightSum = 0.0F;
+
+        final int centerBiomeId = biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * gridXSize)];
+        final float centerBiomeHeight = biomeHeight[centerBiomeId];
+        final int lookRadius = smoothRadius[centerBiomeId];
+
+        float nextBiomeHeight, biomeWeight;
+
+        for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
+        {
+            for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
+            {
+                final int nextBiomeId = biomeArray[(x + nextX + maxSmoothRadius + (z + nextZ + maxSmoothRadius) * gridXSize)];
+
+                nextBiomeHeight = biomeHeight[nextBiomeId];
+
+                biomeWeight = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
+                biomeWeight = Math.abs(biomeWeight);
+                if (nextBiomeHeight > centerBiomeHeight)
+                {
+                    biomeWeight /= 2.0F;
+                }
+                volatilitySum += biomeVolatility[nextBiomeId] * biomeWeight;
+                heightSum += nextBiomeHeight * biomeWeight;
+                biomeWeightSum += biomeWeight;
+            }
+        }
+
+        volatilitySum /= biomeWeightSum;
+        heightSum /= biomeWeightSum;
+
+        int i = x * zSize + z;
+        volatilityResult[i] = volatilitySum;
+        heightResult[i] = heightSum;
+        riverFoundResult[i] = false;
+    }
+
+    private void addWeightsWithRivers(int[] biomeArray, int[] riverArray, int gridXSize, int x, int z)
+    {
+        float volatilitySum = 0.0F;
+        float heightSum = 0.0F;
+        float WeightSum = 0.0F;
+
+        float riverVolatilitySum = 0.0F;
+        float riverHeightSum = 0.0F;
+        float riverWeightSum = 0.0F;
+
+        final int biomeId = biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * gridXSize)];
+        final float centerBiomeHeight = biomeHeight[biomeId];
+
+        final int lookRadius = smoothRadius[biomeId];
+
+        boolean riverFound = riverArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * gridXSize)] == 1;
+
+        final float riverCenterHeight = riverFound ? riverHeight[biomeId] : centerBiomeHeight;
+
+        int nextBiomeId;
+        float nextBiomeHeight, biomeWeight, nextRiverHeight, riverWeight;
+
+        for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
+        {
+            for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
+            {
+
+                nextBiomeId = biomeArray[(x + nextX + maxSmoothRadius + (z + nextZ + maxSmoothRadius) * gridXSize)];
+                nextBiomeHeight = biomeHeight[nextBiomeId];
+                biomeWeight = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
+
+                biomeWeight = Math.abs(biomeWeight);
+                if (nextBiomeHeight > centerBiomeHeight)
+                {
+                    biomeWeight /= 2.0F;
+                }
+                volatilitySum += biomeVolatility[nextBiomeId] * biomeWeight;
+                heightSum += nextBiomeHeight * biomeWeight;
+                WeightSum += biomeWeight;
+
+                // River part
+
+                boolean isRiver = false;
+                if (riverArray[(x + nextX + maxSmoothRadius + (z + nextZ + maxSmoothRadius) * gridXSize)] == 1)
+                {
+                    riverFound = true;
+                    isRiver = true;
+                }
+
+                nextRiverHeight = (isRiver) ? riverHeight[nextBiomeId] : nextBiomeHeight;
+                riverWeight = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)] / (nextRiverHeight + 2.0F);
+
+                riverWeight = Math.abs(riverWeight);
+                if (nextRiverHeight > riverCenterHeight)
+                {
+                    nextRiverHeight = riverCenterHeight;
+                }
+                riverVolatilitySum += (isRiver ? riverVolatility[nextBiomeId] : biomeVolatility[nextBiomeId]) * riverWeight;
+                riverHeightSum += nextRiverHeight * riverWeight;
+                riverWeightSum += riverWeight;
+            }
+        }
+
+        volatilitySum /= WeightSum;
+        heightSum /= WeightSum;
+
+        riverVolatilitySum /= riverWeightSum;
+        riverHeightSum /= riverWeightSum;
+
+        int i = x * zSize + z;
+        volatilityResult[i] = volatilitySum;
+        heightResult[i] = heightSum;
+        riverFoundResult[i] = riverFound;
+        riverVolatilityResult[i] = riverVolatilitySum;
+        riverHeightResult[i] = riverHeightSum;
+    }
+
+    /**
+     * Gets the weighted average volatility of a column.
+     *
+     * @param x X position of the column, without the extra columns.
+     * @param z Z position of the column, without the extra columns.
+     * @return The volatility.
+     */
+    float getVolatility(int x, int z)
+    {
+        return volatilityResult[x * zSize + z];
+    }
+
+    /**
+     * Gets the weighted average height of a column. When rivers are used,
+     * this is always a float value.
+     *
+     * @param x X position of the column, without the extra columns.
+     * @param z Z position of the column, without the extra columns.
+     * @return The height.
+     */
+    double getHeight(int x, int z)
+    {
+        return heightResult[x * zSize + z];
+    }
+
+    /**
+     * Gets whether there is a river within the smooth radius of the column.
+     * Always false when no river array was given.
+     *
+     * @param x X position of the column, without the extra columns.
+     * @param z Z position of the column, without the extra columns.
+     * @return True if a river was found, false otherwise.
+     */
+    boolean isRiverFound(int x, int z)
+    {
+        return riverFoundResult[x * zSize + z];
+    }
+
+    /**
+     * Gets the weighted average river volatility of a column. Only
+     * calculated when a river array was given.
+     *
+     * @param x X position of the column, without the extra columns.
+     * @param z Z position of the column, without the extra columns.
+     * @return The river volatility.
+     */
+    float getRiverVolatility(int x, int z)
+    {
+        return riverVolatilityResult[x * zSize + z];
+    }
+
+    /**
+     * Gets the weighted average river height of a column. Only calculated
+     * when a river array was given.
+     *
+     * @param x X position of the column, without the extra columns.
+     * @param z Z position of the column, without the extra columns.
+     * @return The river height.
+     */
+    float getRiverHeight(int x, int z)
+    {
+        return riverHeightResult[x * zSize + z];
+    }
+}
@@ -6,6 +6,7 @@ import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.WorldConfig;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
+import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
@@ -17,9 +18,9 @@ public class CavesGen extends TerrainGenBase
 {
     private WorldConfig worldSettings;
 
-    public CavesGen(WorldConfig wrk, LocalWorld world)
+    public CavesGen(WorldConfig wrk, LocalWorld world, BiomeGenerator biomeGenerator)
     {
-        super(world);
+        super(world, biomeGenerator);
         this.worldSettings = wrk;
     }
 
@@ -165,7 +166,7 @@ public class CavesGen extends TerrainGenBase
                 double d9 = (local_x + generatingChunk.getBlockX() + 0.5D - x) / d3;
                 for (int local_z = i3; local_z < i4; local_z++)
                 {
-                    LocalBiome biome = this.world.getBiome(local_x + generatingChunk.getBlockX(), local_z + generatingChunk.getBlockZ());
+                    LocalBiome biome = this.getBiome(local_x + generatingChunk.getBlockX(), local_z + generatingChunk.getBlockZ());
                     double d10 = (local_z + generatingChunk.getBlockZ() + 0.5D - z) / d3;
 
                     boolean grassFound = false;
@@ -6,6 +6,7 @@ import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.WorldConfig;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
+import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.helpers.MathHelper;
 import com.khorn.terraincontrol.util.helpers.RandomHelper;
@@ -18,9 +19,9 @@ public class RavinesGen extends TerrainGenBase
     private float[] a = new float[1024];
     private WorldConfig worldSettings;
 
-    public RavinesGen(WorldConfig wrk, LocalWorld world)
+    public RavinesGen(WorldConfig wrk, LocalWorld world, BiomeGenerator biomeGenerator)
     {
-        super(world);
+        super(world, biomeGenerator);
         this.worldSettings = wrk;
     }
 
@@ -145,7 +146,7 @@ public class RavinesGen extends TerrainGenBase
                 double d9 = (localX + generatingChunk.getBlockX() + 0.5D - paramDouble1) / d3;
                 for (int localZ = i2; localZ < i3; localZ++)
                 {
-                    LocalBiome biome = world.getBiome(localZ + generatingChunk.getBlockX(), localX + generatingChunk.getBlockZ());
+                    LocalBiome biome = getBiome(localZ + generatingChunk.getBlockX(), localX + generatingChunk.getBlockZ());
                     BiomeConfig biomeConfig = biome.getBiomeConfig();
                     double d10 = (localZ + generatingChunk.getBlockZ() + 0.5D - paramDouble3) / d3;
                     boolean grassFound = false;
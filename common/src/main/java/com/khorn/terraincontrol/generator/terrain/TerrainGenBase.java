@@ -1,9 +1,11 @@
 package com.khorn.terraincontrol.generator.terrain;
 
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.generator.ChunkBuffer;
+import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
 
@@ -18,12 +20,24 @@ public abstract class TerrainGenBase
     protected int checkAreaSize = 8;
     protected Random random = new Random();
     protected LocalWorld world;
+    private final BiomeGenerator biomeGenerator;
     private final long worldLong1;
     private final long worldLong2;
 
-    public TerrainGenBase(LocalWorld world)
+    /**
+     * Creates a new terrain generator.
+     *
+     * @param world          The world.
+     * @param biomeGenerator The (cached) biome generator used to look up
+     *                       biomes, or null to use {@link
+     *                       LocalWorld#getBiome(int, int)}. Terrain generated
+     *                       outside the main thread must provide its own
+     *                       biome generator.
+     */
+    public TerrainGenBase(LocalWorld world, BiomeGenerator biomeGenerator)
     {
         this.world = world;
+        this.biomeGenerator = biomeGenerator;
         this.random.setSeed(this.world.getSeed());
         worldLong1 = this.random.nextLong();
         worldLong2 = this.random.nextLong();
@@ -46,6 +60,22 @@ public abstract class TerrainGenBase
             }
     }
 
+    /**
+     * Gets the biome at the given column.
+     *
+     * @param blockX The block x.
+     * @param blockZ The block z.
+     * @return The biome.
+     */
+    protected LocalBiome getBiome(int blockX, int blockZ)
+    {
+        if (this.biomeGenerator == null)
+        {
+            return this.world.getBiome(blockX, blockZ);
+        }
+        return this.world.getBiomeByIdOrNull(this.biomeGenerator.getBiome(blockX, blockZ));
+    }
+
     /**
      * Generates the structure for the given chunk. The terrain generator
      * calls this method for all chunks not more than {@link #checkAreaSize}
@@ -1,5 +1,6 @@
 package com.khorn.terraincontrol.generator.terrain;
 
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.ConfigProvider;
 import com.khorn.terraincontrol.configuration.WorldConfig;
@@ -9,7 +10,6 @@ import com.khorn.terraincontrol.generator.biome.OutputType;
 import com.khorn.terraincontrol.generator.noise.NoiseGeneratorNewOctaves;
 import com.khorn.terraincontrol.generator.noise.NoiseGeneratorPerlinOctaves;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
-import com.khorn.terraincontrol.util.helpers.MathHelper;
 
 import java.util.Random;
 
@@ -31,10 +31,135 @@ public class TerrainShapeNormal extends TerrainShapeBase
     private final int maxSmoothDiameter;
     private final int maxSmoothRadius;
     private final int maxYSections;
-    private final float[] nearBiomeWeightArray;
+    private final BiomeSmoothing biomeSmoothing;
 
     private final ChunkSpecific chunkSpecific = new ChunkSpecific();
 
+    /**
+     * The terrain settings of all biomes, or null if not created yet.
+     *
+     * @see #getBiomeTable()
+     */
+    private BiomeTable biomeTable;
+
+    /**
+     * The terrain settings of all biomes, stored in arrays indexed by the
+     * generation id of the biome. The settings of the biomes near a column
+     * are read many times when smoothing the terrain, this way that doesn't
+     * require looking up the biome and its config each time.
+     */
+    private static class BiomeTable
+    {
+        private final BiomeConfig[] biomeConfigs;
+
+        private final float[] biomeHeight;
+        private final float[] biomeVolatility;
+        private final float[] riverHeight;
+        private final float[] riverVolatility;
+        private final float[] biomeTemperature;
+        private final float[] biomeWetness;
+        private final int[] smoothRadius;
+        private final int[] waterLevelMax;
+        private final int[] riverWaterLevel;
+        private final double[] maxAverageHeight;
+        private final double[] maxAverageDepth;
+        private final double[] volatility1;
+        private final double[] volatility2;
+        private final double[] volatilityWeight1;
+        private final double[] volatilityWeight2;
+        private final boolean[] disableNotchHeightControl;
+
+        /**
+         * Height matrices of all biomes, the value for biome id and y section
+         * is at index {@code id * ySections + y}.
+         */
+        private final double[] heightMatrix;
+        private final double[] riverHeightMatrix;
+        private final int ySections;
+
+        private BiomeTable(LocalBiome[] biomes, int ySections)
+        {
+            int size = biomes.length;
+            this.ySections = ySections;
+
+            this.biomeConfigs = new BiomeConfig[size];
+            this.biomeHeight = new float[size];
+            this.biomeVolatility = new float[size];
+            this.riverHeight = new float[size];
+            this.riverVolatility = new float[size];
+            this.biomeTemperature = new float[size];
+            this.biomeWetness = new float[size];
+            this.smoothRadius = new int[size];
+            this.waterLevelMax = new int[size];
+            this.riverWaterLevel = new int[size];
+            this.maxAverageHeight = new double[size];
+            this.maxAverageDepth = new double[size];
+            this.volatility1 = new double[size];
+            this.volatility2 = new double[size];
+            this.volatilityWeight1 = new double[size];
+            this.volatilityWeight2 = new double[size];
+            this.disableNotchHeightControl = new boolean[size];
+            this.heightMatrix = new double[size * ySections];
+            this.riverHeightMatrix = new double[size * ySections];
+
+            for (int id = 0; id < size; id++)
+            {
+                if (biomes[id] == null)
+                {
+                    continue;
+                }
+                BiomeConfig biomeConfig = biomes[id].getBiomeConfig();
+                this.biomeConfigs[id] = biomeConfig;
+
+                this.biomeHeight[id] = biomeConfig.biomeHeight;
+                this.biomeVolatility[id] = biomeConfig.biomeVolatility;
+                this.riverHeight[id] = biomeConfig.riverHeight;
+                this.riverVolatility[id] = biomeConfig.riverVolatility;
+                this.biomeTemperature[id] = biomeConfig.biomeTemperature;
+                this.biomeWetness[id] = biomeConfig.biomeWetness;
+                this.smoothRadius[id] = biomeConfig.smoothRadius;
+                this.waterLevelMax[id] = biomeConfig.waterLevelMax;
+                this.riverWaterLevel[id] = biomeConfig.riverWaterLevel;
+                this.maxAverageHeight[id] = biomeConfig.maxAverageHeight;
+                this.maxAverageDepth[id] = biomeConfig.maxAverageDepth;
+                this.volatility1[id] = biomeConfig.volatility1;
+                this.volatility2[id] = biomeConfig.volatility2;
+                this.volatilityWeight1[id] = biomeConfig.volatilityWeight1;
+                this.volatilityWeight2[id] = biomeConfig.volatilityWeight2;
+                this.disableNotchHeightControl[id] = biomeConfig.disableNotchHeightControl;
+                System.arraycopy(biomeConfig.heightMatrix, 0, this.heightMatrix, id * ySections,
+                        Math.min(ySections, biomeConfig.heightMatrix.length));
+                System.arraycopy(biomeConfig.riverHeightMatrix, 0, this.riverHeightMatrix, id * ySections,
+                        Math.min(ySections, biomeConfig.riverHeightMatrix.length));
+            }
+        }
+
+        /**
+         * Gets whether this table still contains the settings of the given
+         * biomes. Biome configs are replaced, not changed, when the settings
+         * are reloaded.
+         *
+         * @param biomes The biomes, indexed by generation id.
+         * @return True if the table is up to date, false otherwise.
+         */
+        private boolean isUpToDate(LocalBiome[] biomes)
+        {
+            if (biomes.length != this.biomeConfigs.length)
+            {
+                return false;
+            }
+            for (int id = 0; id < biomes.length; id++)
+            {
+                LocalBiome biome = biomes[id];
+                if ((biome == null ? null : biome.getBiomeConfig()) != this.biomeConfigs[id])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Used to calculate and store all variables that need to be changed when
      * noise for a new region is created. All the arrays are reused when
@@ -69,6 +194,7 @@ public class TerrainShapeNormal extends TerrainShapeBase
         private int xSize;
         private int zSize;
         private BiomeGenerator biomeGenerator;
+        private BiomeTable biomeTable;
 
         private void generateTerrainNoise(BiomeGenerator biomeGenerator, int xStart, int yStart, int zStart, int xSize, int ySize, int zSize, int usedYSections)
         {
@@ -77,6 +203,8 @@ public class TerrainShapeNormal extends TerrainShapeBase
             this.xSize = xSize;
             this.zSize = zSize;
             this.biomeGenerator = biomeGenerator;
+            this.biomeTable = getBiomeTable();
+            final BiomeTable biomeTable = this.biomeTable;
 
             if (rawTerrain == null || rawTerrain.length != xSize * ySize * zSize)
             {
@@ -106,6 +234,11 @@ public class TerrainShapeNormal extends TerrainShapeBase
             {
                 noise5 = noiseGen5.Noise2D(noise5, xStart, zStart, xSize, zSize, 1.121D, 1.121D);
             }
+            if (!worldConfig.oldTerrainGenerator)
+            {
+                biomeSmoothing.smooth(biomeArray, worldConfig.improvedRivers ? riverArray : null, xSize, zSize,
+                        worldConfig.fastBiomeSmoothing);
+            }
             noise6 = noiseGen6.Noise2D(noise6, xStart, zStart, xSize, zSize, 200.0D, 200.0D);
 
             noise3 = noiseGen3.Noise3D(noise3, xStart, yStart, zStart, xSize, ySize, zSize, xzScale / 80.0D, yScale / 160.0D, xzScale / 80.0D);
@@ -121,7 +254,6 @@ public class TerrainShapeNormal extends TerrainShapeBase
                 {
 
                     final int biomeId = biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))];
-                    final BiomeConfig biomeConfig = configProvider.getBiomeByIdOrNull(biomeId).getBiomeConfig();
 
                     double noiseHeight = noise6[i2D] / 8000.0D;
                     if (noiseHeight < 0.0D)
@@ -137,7 +269,7 @@ public class TerrainShapeNormal extends TerrainShapeBase
                         {
                             noiseHeight = -1.0D;
                         }
-                        noiseHeight -= biomeConfig.maxAverageDepth;
+                        noiseHeight -= biomeTable.maxAverageDepth[biomeId];
                         noiseHeight /= 1.4D;
                         noiseHeight /= 2.0D;
                     } else
@@ -146,7 +278,7 @@ public class TerrainShapeNormal extends TerrainShapeBase
                         {
                             noiseHeight = 1.0D;
                         }
-                        noiseHeight += biomeConfig.maxAverageHeight;
+                        noiseHeight += biomeTable.maxAverageHeight[biomeId];
                         noiseHeight /= 8.0D;
                     }
 
@@ -161,6 +293,14 @@ public class TerrainShapeNormal extends TerrainShapeBase
 
                     i2D++;
 
+                    final double volatility1 = biomeTable.volatility1[biomeId];
+                    final double volatility2 = biomeTable.volatility2[biomeId];
+                    final double volatilityWeight1 = biomeTable.volatilityWeight1[biomeId];
+                    final double volatilityWeight2 = biomeTable.volatilityWeight2[biomeId];
+                    final boolean disableNotchHeightControl = biomeTable.disableNotchHeightControl[biomeId];
+                    final double[] heightMatrix = riverFound ? biomeTable.riverHeightMatrix : biomeTable.heightMatrix;
+                    final int heightMatrixStart = biomeId * biomeTable.ySections;
+
                     for (int y = 0; y < ySize; y++)
                     {
                         double output;
@@ -179,14 +319,14 @@ public class TerrainShapeNormal extends TerrainShapeBase
                             d8 *= 4.0D;
                         }
 
-                        final double vol1 = noise1[i3D] / 512.0D * biomeConfig.volatility1;
-                        final double vol2 = noise2[i3D] / 512.0D * biomeConfig.volatility2;
+                        final double vol1 = noise1[i3D] / 512.0D * volatility1;
+                        final double vol2 = noise2[i3D] / 512.0D * volatility2;
 
                         final double noise = (noise3[i3D] / 10.0D + 1.0D) / 2.0D;
-                        if (noise < biomeConfig.volatilityWeight1)
+                        if (noise < volatilityWeight1)
                         {
                             output = vol1;
-                        } else if (noise > biomeConfig.volatilityWeight2)
+                        } else if (noise > volatilityWeight2)
                         {
                             output = vol2;
                         } else
@@ -194,7 +334,7 @@ public class TerrainShapeNormal extends TerrainShapeBase
                             output = vol1 + (vol2 - vol1) * noise;
                         }
 
-                        if (!biomeConfig.disableNotchHeightControl)
+                        if (!disableNotchHeightControl)
                         {
                             output += d8;
 
@@ -206,13 +346,7 @@ public class TerrainShapeNormal extends TerrainShapeBase
                             }
 
                         }
-                        if (riverFound)
-                        {
-                            output += biomeConfig.riverHeightMatrix[y];
-                        } else
-                        {
-                            output += biomeConfig.heightMatrix[y];
-                        }
+                        output += heightMatrix[heightMatrixStart + y];
 
                         rawTerrain[i3D] = output;
                         i3D++;
@@ -232,9 +366,8 @@ public class TerrainShapeNormal extends TerrainShapeBase
                 this.volatilityFactor = 1.0 - product;
             } else
             {
-                final BiomeConfig biomeConfig = toBiomeConfig(this.biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius)
-                        * (xSize + maxSmoothDiameter))]);
-                this.volatilityFactor = (1.0D - Math.min(1, biomeConfig.biomeTemperature) * biomeConfig.biomeWetness);
+                final int biomeId = this.biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))];
+                this.volatilityFactor = (1.0D - Math.min(1, biomeTable.biomeTemperature[biomeId]) * biomeTable.biomeWetness[biomeId]);
             }
 
             volatilityFactor *= volatilityFactor;
@@ -256,39 +389,11 @@ public class TerrainShapeNormal extends TerrainShapeBase
 
         private void biomeFactor(int x, int z, int ySections, double noiseHeight)
         {
-            float volatilitySum = 0.0F;
-            double heightSum = 0.0F;
-            float biomeWeightSum = 0.0F;
-
-            final BiomeConfig centerBiomeConfig = toBiomeConfig(biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))]);
-            final int lookRadius = centerBiomeConfig.smoothRadius;
+            float volatilitySum = biomeSmoothing.getVolatility(x, z);
+            double heightSum = biomeSmoothing.getHeight(x, z);
 
-            float nextBiomeHeight, biomeWeight;
-
-            for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
-            {
-                for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
-                {
-                    final BiomeConfig nextBiomeConfig = toBiomeConfig(biomeArray[(x + nextX + maxSmoothRadius + (z + nextZ + maxSmoothRadius) * (xSize + maxSmoothDiameter))]);
-
-                    nextBiomeHeight = nextBiomeConfig.biomeHeight;
-
-                    biomeWeight = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
-                    biomeWeight = Math.abs(biomeWeight);
-                    if (nextBiomeHeight > centerBiomeConfig.biomeHeight)
-                    {
-                        biomeWeight /= 2.0F;
-                    }
-                    volatilitySum += nextBiomeConfig.biomeVolatility * biomeWeight;
-                    heightSum += nextBiomeHeight * biomeWeight;
-                    biomeWeightSum += biomeWeight;
-                }
-            }
-
-            volatilitySum /= biomeWeightSum;
-            heightSum /= biomeWeightSum;
-
-            waterLevelRaw[x * zSize + z] = (byte) centerBiomeConfig.waterLevelMax;
+            final int centerBiomeId = biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))];
+            waterLevelRaw[x * zSize + z] = (byte) biomeTable.waterLevelMax[centerBiomeId];
 
             volatilitySum = volatilitySum * 0.9F + 0.1F;   // Must be != 0
             heightSum = (heightSum * 4.0F - 1.0F) / 8.0F;  // Silly magic
@@ -300,73 +405,16 @@ public class TerrainShapeNormal extends TerrainShapeBase
 
         private void biomeFactorWithRivers(int x, int z, int ySections, double noiseHeight)
         {
-            float volatilitySum = 0.0F;
-            float heightSum = 0.0F;
-            float WeightSum = 0.0F;
-
-            float riverVolatilitySum = 0.0F;
-            float riverHeightSum = 0.0F;
-            float riverWeightSum = 0.0F;
-
-            final BiomeConfig biomeConfig = toBiomeConfig(biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))]);
-
-            final int lookRadius = biomeConfig.smoothRadius;
-
-            riverFound = riverArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))] == 1;
-
-            final float riverCenterHeight = riverFound ? biomeConfig.riverHeight : biomeConfig.biomeHeight;
-
-            BiomeConfig nextBiomeConfig;
-            float nextBiomeHeight, biomeWeight, nextRiverHeight, riverWeight;
-
-            for (int nextX = -lookRadius; nextX <= lookRadius; nextX++)
-            {
-                for (int nextZ = -lookRadius; nextZ <= lookRadius; nextZ++)
-                {
-
-                    nextBiomeConfig = toBiomeConfig(biomeArray[(x + nextX + maxSmoothRadius + (z + nextZ + maxSmoothRadius) * (xSize + maxSmoothDiameter))]);
-                    nextBiomeHeight = nextBiomeConfig.biomeHeight;
-                    biomeWeight = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)] / (nextBiomeHeight + 2.0F);
-
-                    biomeWeight = Math.abs(biomeWeight);
-                    if (nextBiomeHeight > biomeConfig.biomeHeight)
-                    {
-                        biomeWeight /= 2.0F;
-                    }
-                    volatilitySum += nextBiomeConfig.biomeVolatility * biomeWeight;
-                    heightSum += nextBiomeHeight * biomeWeight;
-                    WeightSum += biomeWeight;
-
-                    // River part
+            float volatilitySum = biomeSmoothing.getVolatility(x, z);
+            // Always a float value when rivers are used
+            float heightSum = (float) biomeSmoothing.getHeight(x, z);
 
-                    boolean isRiver = false;
-                    if (riverArray[(x + nextX + maxSmoothRadius + (z + nextZ + maxSmoothRadius) * (xSize + maxSmoothDiameter))] == 1)
-                    {
-                        riverFound = true;
-                        isRiver = true;
-                    }
-
-                    nextRiverHeight = (isRiver) ? nextBiomeConfig.riverHeight : nextBiomeHeight;
-                    riverWeight = nearBiomeWeightArray[(nextX + maxSmoothRadius + (nextZ + maxSmoothRadius) * maxSmoothDiameter)] / (nextRiverHeight + 2.0F);
-
-                    riverWeight = Math.abs(riverWeight);
-                    if (nextRiverHeight > riverCenterHeight)
-                    {
-                        nextRiverHeight = riverCenterHeight;
-                    }
-                    riverVolatilitySum += (isRiver ? nextBiomeConfig.riverVolatility : nextBiomeConfig.biomeVolatility) * riverWeight;
-                    riverHeightSum += nextRiverHeight * riverWeight;
-                    riverWeightSum += riverWeight;
-                }
-            }
-
-            volatilitySum /= WeightSum;
-            heightSum /= WeightSum;
-
-            riverVolatilitySum /= riverWeightSum;
-            riverHeightSum /= riverWeightSum;
+            float riverVolatilitySum = biomeSmoothing.getRiverVolatility(x, z);
+            float riverHeightSum = biomeSmoothing.getRiverHeight(x, z);
+            riverFound = biomeSmoothing.isRiverFound(x, z);
 
-            int waterLevelSum = riverFound ? biomeConfig.riverWaterLevel : biomeConfig.waterLevelMax;
+            final int biomeId = biomeArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * (xSize + maxSmoothDiameter))];
+            int waterLevelSum = riverFound ? biomeTable.riverWaterLevel[biomeId] : biomeTable.waterLevelMax[biomeId];
             waterLevelRaw[x * zSize + z] = (byte) waterLevelSum;
 
             volatilitySum = volatilitySum * 0.9F + 0.1F;   // Must be != 0
@@ -402,22 +450,9 @@ public class TerrainShapeNormal extends TerrainShapeBase
         noiseGen5 = new NoiseGeneratorPerlinOctaves(random, 10);
         noiseGen6 = new NoiseGeneratorPerlinOctaves(random, 16);
 
-        // Contains 2d array maxSmoothDiameter*maxSmoothDiameter.
-        // Maximum weight is in array center.
-
         maxSmoothDiameter = worldConfig.maxSmoothRadius * 2 + 1;
         maxSmoothRadius = worldConfig.maxSmoothRadius;
-
-        nearBiomeWeightArray = new float[maxSmoothDiameter * maxSmoothDiameter];
-
-        for (int x = -maxSmoothRadius; x <= maxSmoothRadius; x++)
-        {
-            for (int z = -maxSmoothRadius; z <= maxSmoothRadius; z++)
-            {
-                final float f1 = 10.0F / MathHelper.sqrt(x * x + z * z + 0.2F);
-                nearBiomeWeightArray[(x + maxSmoothRadius + (z + maxSmoothRadius) * maxSmoothDiameter)] = f1;
-            }
-        }
+        biomeSmoothing = new BiomeSmoothing(maxSmoothRadius);
 
         maxYSections = heightCap / TerrainShapeBase.PIECE_Y_SIZE + 1;
 
@@ -443,14 +478,21 @@ public class TerrainShapeNormal extends TerrainShapeBase
     }
 
     /**
-     * Gets the BiomeConfig with the given id.
+     * Gets the terrain settings of all biomes. The table is created again if
+     * the biome configs have changed since it was created.
      *
-     * @param id The generation id of the biome.
-     * @return The BiomeConfig.
+     * @return The table.
      */
-    private BiomeConfig toBiomeConfig(int id)
+    private BiomeTable getBiomeTable()
     {
-        return configProvider.getBiomeByIdOrNull(id).getBiomeConfig();
+        LocalBiome[] biomes = configProvider.getBiomeArray();
+        if (biomeTable == null || !biomeTable.isUpToDate(biomes))
+        {
+            biomeTable = new BiomeTable(biomes, maxYSections);
+            biomeSmoothing.setBiomes(biomeTable.biomeHeight, biomeTable.biomeVolatility, biomeTable.riverHeight,
+                    biomeTable.riverVolatility, biomeTable.smoothRadius);
+        }
+        return biomeTable;
     }
 
     @Override
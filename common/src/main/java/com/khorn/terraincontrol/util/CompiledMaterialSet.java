@@ -0,0 +1,142 @@
+package com.khorn.terraincontrol.util;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
+
+/**
+ * Immutable form of a {@link MaterialSet}, created using
+ * {@link MaterialSet#compile()}. Every combination of block id and block data
+ * has one bit, at index {@code blockId << 4 | blockData}, so checking whether
+ * a material is in the set is a single array lookup.
+ *
+ * <p>The "All", "Solid" and "NonSolid" keywords are expanded when the set is
+ * compiled. This is only possible for the blocks of vanilla Minecraft, as
+ * {@link DefaultMaterial} knows whether those are solid. For other block ids
+ * the keywords are still checked using the material itself.
+ */
+public final class CompiledMaterialSet
+{
+    private static final int BLOCK_DATA_BITS = 4;
+    private static final int MAX_BLOCK_DATA = (1 << BLOCK_DATA_BITS) - 1;
+    private static final int SIZE = TerrainControl.SUPPORTED_BLOCK_IDS << BLOCK_DATA_BITS;
+
+    private final long[] bits = new long[SIZE >>> 6];
+
+    /**
+     * Block ids where the keywords must be checked using the material
+     * itself. Null if the set contains no keywords.
+     */
+    private final boolean[] uncompiledBlockIds;
+
+    private final boolean allMaterials;
+    private final boolean allSolidMaterials;
+    private final boolean allNonSolidMaterials;
+
+    CompiledMaterialSet(boolean allMaterials, boolean allSolidMaterials, boolean allNonSolidMaterials,
+            Iterable<MaterialSetEntry> entries)
+    {
+        this.allMaterials = allMaterials;
+        this.allSolidMaterials = allSolidMaterials;
+        this.allNonSolidMaterials = allNonSolidMaterials;
+
+        for (MaterialSetEntry entry : entries)
+        {
+            LocalMaterialData material = entry.getMaterial();
+            int blockId = material.getBlockId();
+            if (entry.includesBlockData())
+            {
+                set(blockId, material.getBlockData() & MAX_BLOCK_DATA);
+            } else
+            {
+                for (int blockData = 0; blockData <= MAX_BLOCK_DATA; blockData++)
+                {
+                    set(blockId, blockData);
+                }
+            }
+        }
+
+        if (!allMaterials && !allSolidMaterials && !allNonSolidMaterials)
+        {
+            this.uncompiledBlockIds = null;
+            return;
+        }
+
+        this.uncompiledBlockIds = new boolean[TerrainControl.SUPPORTED_BLOCK_IDS];
+        for (int blockId = 0; blockId < TerrainControl.SUPPORTED_BLOCK_IDS; blockId++)
+        {
+            // UNKNOWN_BLOCK is a placeholder, not a vanilla block, so a
+            // modded block may use its id
+            if (!DefaultMaterial.contains(blockId) || blockId == DefaultMaterial.UNKNOWN_BLOCK.id)
+            {
+                this.uncompiledBlockIds[blockId] = true;
+                continue;
+            }
+
+            // Air is the only vanilla block with id 0
+            boolean air = blockId == DefaultMaterial.AIR.id;
+            boolean solid = DefaultMaterial.getMaterial(blockId).isSolid();
+            if ((allMaterials && !air) || (allSolidMaterials && solid) || (allNonSolidMaterials && !solid))
+            {
+                for (int blockData = 0; blockData <= MAX_BLOCK_DATA; blockData++)
+                {
+                    set(blockId, blockData);
+                }
+            }
+        }
+    }
+
+    private void set(int blockId, int blockData)
+    {
+        int index = blockId << BLOCK_DATA_BITS | blockData;
+        this.bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Gets whether the specified material is in this set. Returns false if
+     * the material is null.
+     *
+     * @param material The material to check.
+     * @return True if the material is in this set.
+     */
+    public boolean contains(LocalMaterialData material)
+    {
+        if (material == null)
+        {
+            return false;
+        }
+        int blockId = material.getBlockId();
+        if (blockId < 0 || blockId >= TerrainControl.SUPPORTED_BLOCK_IDS)
+        {
+            return false;
+        }
+
+        int index = blockId << BLOCK_DATA_BITS | (material.getBlockData() & MAX_BLOCK_DATA);
+        if ((this.bits[index >>> 6] & (1L << index)) != 0)
+        {
+            return true;
+        }
+        if (this.uncompiledBlockIds != null && this.uncompiledBlockIds[blockId])
+        {
+            return containsUsingKeywords(material);
+        }
+        return false;
+    }
+
+    private boolean containsUsingKeywords(LocalMaterialData material)
+    {
+        if (this.allMaterials && !material.isAir())
+        {
+            return true;
+        }
+        if (this.allSolidMaterials && material.isSolid())
+        {
+            return true;
+        }
+        if (this.allNonSolidMaterials && !material.isSolid())
+        {
+            return true;
+        }
+        return false;
+    }
+}
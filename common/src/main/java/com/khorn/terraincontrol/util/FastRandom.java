@@ -0,0 +1,107 @@
+package com.khorn.terraincontrol.util;
+
+import java.util.Random;
+
+/**
+ * Random number generator that gives exactly the same numbers as
+ * {@link Random} for the same seed, so it can be used for terrain generation
+ * without changing existing worlds.
+ *
+ * <p>{@link Random} is thread safe: it stores its seed in an
+ * {@link java.util.concurrent.atomic.AtomicLong} that is updated for every
+ * number. This class stores its seed in a normal field instead, which is a
+ * lot cheaper. Instances must therefore never be shared between threads.
+ * Reseed an instance using {@link #setSeed(long)} instead of creating a new
+ * one.
+ */
+public final class FastRandom extends Random
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Not initialized here, as the constructor of Random calls setSeed
+    // before the fields of this class are initialized
+    private long seed;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    /**
+     * Creates a new random number generator.
+     *
+     * @param seed The initial seed.
+     * @see Random#Random(long)
+     */
+    public FastRandom(long seed)
+    {
+        super(seed);
+        setSeed(seed);
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+    /**
+     * Gets the internal state of this generator. Unlike the value passed to
+     * {@link #setSeed(long)}, this state changes every time a number is
+     * generated, so it can be used to continue the sequence of numbers later
+     * on using {@link #setState(long)}.
+     *
+     * @return The internal state.
+     */
+    public long getState()
+    {
+        return this.seed;
+    }
+
+    /**
+     * Restores the internal state of this generator, as returned by
+     * {@link #getState()}. A pending second value of
+     * {@link #nextGaussian()} is discarded.
+     *
+     * @param state The internal state.
+     */
+    public void setState(long state)
+    {
+        this.seed = state & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        long nextSeed = (this.seed * MULTIPLIER + ADDEND) & MASK;
+        this.seed = nextSeed;
+        return (int) (nextSeed >>> (48 - bits));
+    }
+
+    @Override
+    public double nextGaussian()
+    {
+        // Same algorithm as Random, which keeps its second value in private
+        // fields
+        if (this.haveNextNextGaussian)
+        {
+            this.haveNextNextGaussian = false;
+            return this.nextNextGaussian;
+        }
+
+        double v1, v2, s;
+        do
+        {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        this.nextNextGaussian = v2 * multiplier;
+        this.haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+}
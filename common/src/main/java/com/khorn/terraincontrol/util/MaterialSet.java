@@ -5,7 +5,6 @@ import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.exception.InvalidConfigException;
 import com.khorn.terraincontrol.util.helpers.StringHelper;
 
-import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -39,9 +38,13 @@ public class MaterialSet
     private boolean allSolidMaterials = false;
     private boolean allNonSolidMaterials = false;
 
-    private int[] materialIntSet = new int[0];
     private Set<MaterialSetEntry> materials = new LinkedHashSet<MaterialSetEntry>();
-    private boolean intSetUpToDate = true;
+
+    /**
+     * The compiled form of this set, null if not compiled since the last
+     * change.
+     */
+    private volatile CompiledMaterialSet compiled;
 
     /**
      * Adds the given material to the list.
@@ -64,16 +67,19 @@ public class MaterialSet
     {
         if (input.equalsIgnoreCase(ALL_MATERIALS))
         {
+            this.compiled = null;
             this.allMaterials = true;
             return;
         }
         if (input.equalsIgnoreCase(SOLID_MATERIALS))
         {
+            this.compiled = null;
             this.allSolidMaterials = true;
             return;
         }
         if (input.equalsIgnoreCase(NON_SOLID_MATERIALS))
         {
+            this.compiled = null;
             this.allNonSolidMaterials = true;
             return;
         }
@@ -140,34 +146,25 @@ public class MaterialSet
      */
     public void add(MaterialSetEntry entry)
     {
-        // Add the appropriate hashCode
-        intSetUpToDate = false;
+        compiled = null;
         materials.add(entry);
     }
 
     /**
-     * Updates the int (hashCode) set, so that is is up to date again with the
-     * material set.
+     * Gets the compiled form of this set. The compiled form is immutable and
+     * is not updated when this set is changed afterwards.
+     *
+     * @return The compiled form.
      */
-    private void updateIntSet()
+    public CompiledMaterialSet compile()
     {
-        if (intSetUpToDate)
-        {
-            // Already up to date
-            return;
-        }
-
-        // Update the int set
-        materialIntSet = new int[materials.size()];
-        int i = 0;
-        for (MaterialSetEntry entry : materials)
+        CompiledMaterialSet compiled = this.compiled;
+        if (compiled == null)
         {
-            materialIntSet[i] = entry.hashCode();
-            i++;
+            compiled = new CompiledMaterialSet(allMaterials, allSolidMaterials, allNonSolidMaterials, materials);
+            this.compiled = compiled;
         }
-        // Sort int set so that we can use Arrays.binarySearch
-        Arrays.sort(materialIntSet);
-        intSetUpToDate = true;
+        return compiled;
     }
 
     /**
@@ -179,36 +176,7 @@ public class MaterialSet
      */
     public boolean contains(LocalMaterialData material)
     {
-        if (material == null)
-        {
-            return false;
-        }
-        if (allMaterials && !material.isAir())
-        {
-            return true;
-        }
-        if (allSolidMaterials && material.isSolid())
-        {
-            return true;
-        }
-        if (allNonSolidMaterials && !material.isSolid())
-        {
-            return true;
-        }
-
-        // Try to update int set
-        updateIntSet();
-
-        // Check if the material is included
-        if (Arrays.binarySearch(materialIntSet, material.hashCodeWithoutBlockData()) >= 0)
-        {
-            return true;
-        }
-        if (Arrays.binarySearch(materialIntSet, material.hashCode()) >= 0)
-        {
-            return true;
-        }
-        return false;
+        return compile().contains(material);
     }
 
     /**
@@ -273,7 +241,6 @@ public class MaterialSet
         {
             rotated.allNonSolidMaterials = true;
         }
-        rotated.intSetUpToDate = false;
         for (MaterialSetEntry material : this.materials)
         {
             rotated.materials.add(material.rotate());
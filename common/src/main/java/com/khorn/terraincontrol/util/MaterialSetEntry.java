@@ -13,6 +13,27 @@ public class MaterialSetEntry
         this.includesBlockData = includesBlockData;
     }
 
+    /**
+     * Gets the material of this entry.
+     *
+     * @return The material.
+     */
+    LocalMaterialData getMaterial()
+    {
+        return material;
+    }
+
+    /**
+     * Gets whether this entry only matches materials with exactly the same
+     * block data.
+     *
+     * @return True if the block data is checked, false otherwise.
+     */
+    boolean includesBlockData()
+    {
+        return includesBlockData;
+    }
+
     @Override
     public boolean equals(Object other)
     {
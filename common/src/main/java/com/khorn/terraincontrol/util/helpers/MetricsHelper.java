@@ -52,4 +52,14 @@ public abstract class MetricsHelper
         }
     }
 
+    /**
+     * Converts a counter to a value that can be plotted.
+     * @param value The counter.
+     * @return The counter, or {@link Integer#MAX_VALUE} if it is too large.
+     */
+    protected static int toPlotValue(long value)
+    {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
 }
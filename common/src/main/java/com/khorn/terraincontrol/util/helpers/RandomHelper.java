@@ -1,5 +1,7 @@
 package com.khorn.terraincontrol.util.helpers;
 
+import com.khorn.terraincontrol.util.FastRandom;
+
 import java.util.Random;
 
 /**
@@ -19,12 +21,27 @@ public class RandomHelper
      */
     public static Random getRandomForCoords(int x, int z, long seed)
     {
-        Random random = new Random();
+        Random random = new FastRandom(seed);
+        setSeedForCoords(random, x, z, seed);
+        return random;
+    }
+
+    /**
+     * Sets the seed of the random generator to the seed that
+     * {@link #getRandomForCoords(int, int, long)} would use. Use this to
+     * reuse a random generator, for example a {@link FastRandom}.
+     *
+     * @param random The random generator to reseed.
+     * @param x      X-coord to start with.
+     * @param z      Z-coord to start with.
+     * @param seed   Seed to start with.
+     */
+    public static void setSeedForCoords(Random random, int x, int z, long seed)
+    {
         random.setSeed(seed);
         long l1 = random.nextLong() + 1L;
         long l2 = random.nextLong() + 1L;
         random.setSeed(x * l1 + z * l2 ^ seed);
-        return random;
     }
 
     /**
@@ -52,11 +69,27 @@ public class RandomHelper
      */
     public static Random getRandomForCoords(int x, int y, int z, long seed)
     {
-        Random random = getRandomForCoords(x, z, seed);
-        random.setSeed(random.nextInt() * y);
+        Random random = new FastRandom(seed);
+        setSeedForCoords(random, x, y, z, seed);
         return random;
     }
 
+    /**
+     * Sets the seed of the random generator to the seed that
+     * {@link #getRandomForCoords(int, int, int, long)} would use.
+     *
+     * @param random The random generator to reseed.
+     * @param x      X-coord to start with.
+     * @param y      Y-coord to start with.
+     * @param z      Z-coord to start with.
+     * @param seed   Seed to start with.
+     */
+    public static void setSeedForCoords(Random random, int x, int y, int z, long seed)
+    {
+        setSeedForCoords(random, x, z, seed);
+        random.setSeed(random.nextInt() * y);
+    }
+
     private RandomHelper()
     {
     }
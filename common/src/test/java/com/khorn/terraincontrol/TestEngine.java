@@ -0,0 +1,149 @@
+package com.khorn.terraincontrol;
+
+import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
+import com.khorn.terraincontrol.logging.LogMarker;
+import com.khorn.terraincontrol.logging.Logger;
+import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Engine without a server, for tests that need {@link TerrainControl} to
+ * log messages or read settings. Materials only know their name. Start the
+ * engine using {@link #start()} and stop it again using {@link #stop()}.
+ */
+public final class TestEngine extends TerrainControlEngine
+{
+    private final File dataFolder;
+
+    /**
+     * Starts a new engine, with the plugin settings in an empty temporary
+     * folder.
+     * @throws IOException If the folder could not be created.
+     */
+    public static void start() throws IOException
+    {
+        File dataFolder = File.createTempFile("terraincontrol", "test");
+        if (!dataFolder.delete() || !dataFolder.mkdir())
+        {
+            throw new IOException("Failed to create " + dataFolder);
+        }
+        TerrainControl.setEngine(new TestEngine(dataFolder));
+    }
+
+    /**
+     * Stops the engine started by {@link #start()} and deletes its folder.
+     */
+    public static void stop()
+    {
+        File dataFolder = TerrainControl.getEngine().getTCDataFolder();
+        TerrainControl.stopEngine();
+        deleteRecursively(dataFolder);
+    }
+
+    private static void deleteRecursively(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private TestEngine(File dataFolder)
+    {
+        super(new Logger()
+        {
+            @Override
+            public void log(LogMarker level, String message, Object... params)
+            {
+                // Ignore
+            }
+        });
+        this.dataFolder = dataFolder;
+    }
+
+    @Override
+    public File getGlobalObjectsDirectory()
+    {
+        return new File(dataFolder, PluginStandardValues.BO_DirectoryName);
+    }
+
+    @Override
+    public File getTCDataFolder()
+    {
+        return dataFolder;
+    }
+
+    @Override
+    public LocalWorld getWorld(String name)
+    {
+        return null;
+    }
+
+    @Override
+    public LocalMaterialData readMaterial(String name)
+    {
+        return createMaterial(name);
+    }
+
+    @Override
+    public LocalMaterialData toLocalMaterialData(DefaultMaterial defaultMaterial, int blockData)
+    {
+        return createMaterial(defaultMaterial.name() + ":" + blockData);
+    }
+
+    /**
+     * Creates a material that only knows its name.
+     */
+    private static LocalMaterialData createMaterial(final String name)
+    {
+        return (LocalMaterialData) Proxy.newProxyInstance(LocalMaterialData.class.getClassLoader(),
+                new Class<?>[] {LocalMaterialData.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String methodName = method.getName();
+                        if (methodName.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        if (methodName.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        if (methodName.equals("toString") || methodName.equals("getName"))
+                        {
+                            return name;
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type)
+    {
+        if (type == boolean.class)
+        {
+            return false;
+        }
+        if (type == int.class)
+        {
+            return 0;
+        }
+        if (type == byte.class)
+        {
+            return (byte) 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,283 @@
+package com.khorn.terraincontrol.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.khorn.terraincontrol.BiomeIds;
+import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TestEngine;
+import com.khorn.terraincontrol.configuration.io.SettingsMap;
+import com.khorn.terraincontrol.configuration.io.SimpleSettingsMap;
+import com.khorn.terraincontrol.configuration.standard.BiomeStandardValues;
+import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
+import com.khorn.terraincontrol.configuration.standard.StandardBiomeTemplate;
+import com.khorn.terraincontrol.configuration.standard.WorldStandardValues;
+import com.khorn.terraincontrol.customobjects.CustomObjectCollection;
+import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.zip.InflaterInputStream;
+
+public class ConfigToNetworkSenderTest
+{
+    private static final String WORLD_NAME = "TestWorld";
+    private static final int CUSTOM_BIOME_ID = 40;
+
+    /**
+     * Creates a world that creates simple biomes.
+     */
+    private static LocalWorld createWorld()
+    {
+        return (LocalWorld) Proxy.newProxyInstance(LocalWorld.class.getClassLoader(),
+                new Class<?>[] {LocalWorld.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+                        if (name.equals("getName"))
+                        {
+                            return WORLD_NAME;
+                        }
+                        if (name.equals("getMaxBiomesCount"))
+                        {
+                            return 1024;
+                        }
+                        if (name.equals("createBiomeFor"))
+                        {
+                            return createBiome((BiomeConfig) args[0], (BiomeIds) args[1]);
+                        }
+                        if (name.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        if (name.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    private static LocalBiome createBiome(final BiomeConfig config, final BiomeIds ids)
+    {
+        return (LocalBiome) Proxy.newProxyInstance(LocalBiome.class.getClassLoader(),
+                new Class<?>[] {LocalBiome.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+                        if (name.equals("isCustom"))
+                        {
+                            return !DefaultBiome.Contain(config.getName());
+                        }
+                        if (name.equals("getName"))
+                        {
+                            return config.getName();
+                        }
+                        if (name.equals("getIds"))
+                        {
+                            return ids;
+                        }
+                        if (name.equals("getBiomeConfig"))
+                        {
+                            return config;
+                        }
+                        if (name.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        if (name.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    /**
+     * Settings of a server world, with one vanilla and one custom biome.
+     */
+    private static class TestConfigProvider implements ConfigProvider
+    {
+        private final LocalWorld world;
+        private final CustomObjectCollection customObjects = new CustomObjectCollection();
+        private WorldConfig worldConfig;
+        private LocalBiome[] biomes = new LocalBiome[1024];
+
+        TestConfigProvider(LocalWorld world, int worldFog)
+        {
+            this.world = world;
+            setWorldFog(worldFog);
+            setBiome("Plains", DefaultBiome.PLAINS.Id, 0x7BA5FF);
+            setBiome("Red Desert", CUSTOM_BIOME_ID, 0x112233);
+        }
+
+        void setWorldFog(int worldFog)
+        {
+            SettingsMap settings = new SimpleSettingsMap(WORLD_NAME, false);
+            settings.putSetting(WorldStandardValues.WORLD_FOG, worldFog);
+            worldConfig = new WorldConfig(new File("."), settings, world, customObjects);
+            worldConfig.customBiomeGenerationIds.put("Red Desert", CUSTOM_BIOME_ID);
+        }
+
+        void setBiome(String name, int id, int skyColor)
+        {
+            SettingsMap settings = new SimpleSettingsMap(name, false);
+            settings.putSetting(BiomeStandardValues.SKY_COLOR, skyColor);
+            BiomeLoadInstruction instruction = new BiomeLoadInstruction(name, id,
+                    new StandardBiomeTemplate(worldConfig.worldHeightCap));
+            BiomeConfig config = new BiomeConfig(instruction, settings, worldConfig);
+            biomes[id] = createBiome(config, new BiomeIds(id));
+        }
+
+        @Override
+        public WorldConfig getWorldConfig()
+        {
+            return worldConfig;
+        }
+
+        @Override
+        public LocalBiome getBiomeByIdOrNull(int id)
+        {
+            return biomes[id];
+        }
+
+        @Override
+        public LocalBiome[] getBiomeArray()
+        {
+            return biomes;
+        }
+
+        @Override
+        public void reload()
+        {
+            // Changed by the tests instead
+        }
+
+        @Override
+        public CustomObjectCollection getCustomObjects()
+        {
+            return customObjects;
+        }
+    }
+
+    @BeforeClass
+    public static void startEngine() throws IOException
+    {
+        TestEngine.start();
+    }
+
+    @AfterClass
+    public static void stopEngine()
+    {
+        TestEngine.stop();
+    }
+
+    /**
+     * Reads the header of the packet, checks the packet type and returns
+     * the decompressed settings, starting with the world name.
+     */
+    private static DataInputStream openPacket(byte[] packet, byte expectedType) throws IOException
+    {
+        DataInputStream stream = new DataInputStream(new ByteArrayInputStream(packet));
+        assertEquals(PluginStandardValues.ProtocolVersion, stream.readInt());
+        assertEquals(expectedType, stream.readByte());
+        DataInputStream wrappedStream = new DataInputStream(new InflaterInputStream(stream));
+        assertEquals(WORLD_NAME, ConfigFile.readStringFromStream(wrappedStream));
+        return wrappedStream;
+    }
+
+    @Test
+    public void testFullPacketRoundTrip() throws IOException
+    {
+        LocalWorld world = createWorld();
+        TestConfigProvider serverConfigs = new TestConfigProvider(world, 0x123456);
+
+        byte[] packet = ConfigToNetworkSender.createPacket(serverConfigs);
+        ClientConfigProvider clientConfigs = new ClientConfigProvider(openPacket(packet, ConfigToNetworkSender.PACKET_FULL), world);
+
+        assertEquals(0x123456, clientConfigs.getWorldConfig().WorldFog);
+        assertEquals(Integer.valueOf(CUSTOM_BIOME_ID), clientConfigs.getWorldConfig().customBiomeGenerationIds.get("Red Desert"));
+        assertEquals("Plains", clientConfigs.getBiomeByIdOrNull(DefaultBiome.PLAINS.Id).getName());
+        assertEquals(0x7BA5FF, clientConfigs.getBiomeByIdOrNull(DefaultBiome.PLAINS.Id).getBiomeConfig().skyColor);
+        assertEquals("Red Desert", clientConfigs.getBiomeByIdOrNull(CUSTOM_BIOME_ID).getName());
+        assertEquals(0x112233, clientConfigs.getBiomeByIdOrNull(CUSTOM_BIOME_ID).getBiomeConfig().skyColor);
+    }
+
+    @Test
+    public void testNoUpdateWithoutChanges() throws IOException
+    {
+        TestConfigProvider serverConfigs = new TestConfigProvider(createWorld(), 0x123456);
+        ConfigToNetworkSender.Snapshot snapshot = ConfigToNetworkSender.createSnapshot(serverConfigs);
+
+        // New objects, same settings
+        serverConfigs.setWorldFog(0x123456);
+        serverConfigs.setBiome("Red Desert", CUSTOM_BIOME_ID, 0x112233);
+
+        assertNull(ConfigToNetworkSender.createUpdatePacket(snapshot, serverConfigs));
+    }
+
+    @Test
+    public void testUpdatePacketRoundTrip() throws IOException
+    {
+        LocalWorld world = createWorld();
+        TestConfigProvider serverConfigs = new TestConfigProvider(world, 0x123456);
+        byte[] fullPacket = ConfigToNetworkSender.createPacket(serverConfigs);
+        ClientConfigProvider clientConfigs = new ClientConfigProvider(openPacket(fullPacket, ConfigToNetworkSender.PACKET_FULL), world);
+        LocalBiome oldPlains = clientConfigs.getBiomeByIdOrNull(DefaultBiome.PLAINS.Id);
+        LocalBiome[] oldBiomeArray = clientConfigs.getBiomeArray();
+
+        // Change the fog and the custom biome
+        ConfigToNetworkSender.Snapshot snapshot = ConfigToNetworkSender.createSnapshot(serverConfigs);
+        serverConfigs.setWorldFog(0x654321);
+        serverConfigs.setBiome("Red Desert", CUSTOM_BIOME_ID, 0x445566);
+
+        byte[] updatePacket = ConfigToNetworkSender.createUpdatePacket(snapshot, serverConfigs);
+        assertNotNull(updatePacket);
+        clientConfigs.update(openPacket(updatePacket, ConfigToNetworkSender.PACKET_UPDATE), world);
+
+        assertEquals(0x654321, clientConfigs.getWorldConfig().WorldFog);
+        assertEquals(Integer.valueOf(CUSTOM_BIOME_ID), clientConfigs.getWorldConfig().customBiomeGenerationIds.get("Red Desert"));
+        assertEquals(0x445566, clientConfigs.getBiomeByIdOrNull(CUSTOM_BIOME_ID).getBiomeConfig().skyColor);
+
+        // Unchanged biomes are not sent again
+        assertSame(oldPlains, clientConfigs.getBiomeByIdOrNull(DefaultBiome.PLAINS.Id));
+
+        // The array is replaced, so that the biome colors are looked up again
+        assertFalse(oldBiomeArray == clientConfigs.getBiomeArray());
+    }
+
+    @Test
+    public void testFullPacketWhenCustomBiomesChange() throws IOException
+    {
+        TestConfigProvider serverConfigs = new TestConfigProvider(createWorld(), 0x123456);
+        ConfigToNetworkSender.Snapshot snapshot = ConfigToNetworkSender.createSnapshot(serverConfigs);
+
+        // Add a custom biome, the client cannot register it using an update
+        serverConfigs.getWorldConfig().customBiomeGenerationIds.put("Blue Desert", CUSTOM_BIOME_ID + 1);
+        serverConfigs.setBiome("Blue Desert", CUSTOM_BIOME_ID + 1, 0x0000FF);
+
+        byte[] packet = ConfigToNetworkSender.createUpdatePacket(snapshot, serverConfigs);
+        assertNotNull(packet);
+        DataInputStream stream = new DataInputStream(new ByteArrayInputStream(packet));
+        assertEquals(PluginStandardValues.ProtocolVersion, stream.readInt());
+        assertEquals(ConfigToNetworkSender.PACKET_FULL, stream.readByte());
+    }
+}
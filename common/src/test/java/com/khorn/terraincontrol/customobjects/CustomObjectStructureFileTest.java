@@ -0,0 +1,260 @@
+package com.khorn.terraincontrol.customobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TestEngine;
+import com.khorn.terraincontrol.configuration.ConfigProvider;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.Rotation;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class CustomObjectStructureFileTest
+{
+    private static final long SEED = 1234L;
+    private static final long RANDOM_STATE = 0x5DEECE66DL;
+
+    private static final ChunkCoordinate SPAWNED_CHUNK = ChunkCoordinate.fromChunkCoords(2, 3);
+    private static final ChunkCoordinate WAITING_CHUNK = ChunkCoordinate.fromChunkCoords(3, 3);
+    private static final ChunkCoordinate CASTLE_SEARCH_CHUNK = ChunkCoordinate.fromChunkCoords(2, 2);
+    private static final ChunkCoordinate RUIN_SEARCH_CHUNK = ChunkCoordinate.fromChunkCoords(5, 5);
+
+    /**
+     * Creates an object that only knows its name.
+     */
+    private static CustomObject createObject(final String name)
+    {
+        return (CustomObject) Proxy.newProxyInstance(CustomObject.class.getClassLoader(),
+                new Class<?>[] {CustomObject.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String methodName = method.getName();
+                        if (methodName.equals("getName"))
+                        {
+                            return name;
+                        }
+                        if (methodName.equals("getMaxBranchDepth"))
+                        {
+                            return 0;
+                        }
+                        if (methodName.equals("getStructurePartSpawnHeight"))
+                        {
+                            return null;
+                        }
+                        if (methodName.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        if (methodName.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+    /**
+     * Creates a world with the given seed and objects.
+     */
+    private static LocalWorld createWorld(final long seed, CustomObject... objects)
+    {
+        final CustomObjectCollection customObjects = new CustomObjectCollection();
+        for (CustomObject object : objects)
+        {
+            customObjects.addLoadedObject(object);
+        }
+        final ConfigProvider configs = (ConfigProvider) Proxy.newProxyInstance(ConfigProvider.class.getClassLoader(),
+                new Class<?>[] {ConfigProvider.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        if (method.getName().equals("getCustomObjects"))
+                        {
+                            return customObjects;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return (LocalWorld) Proxy.newProxyInstance(LocalWorld.class.getClassLoader(),
+                new Class<?>[] {LocalWorld.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+                        if (name.equals("getSeed"))
+                        {
+                            return seed;
+                        }
+                        if (name.equals("getConfigs"))
+                        {
+                            return configs;
+                        }
+                        if (name.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        if (name.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    /**
+     * Creates a structure of two chunks, of which the first one is already
+     * spawned.
+     */
+    private static CustomObjectStructure createPartlySpawnedStructure(LocalWorld world, CustomObject startObject,
+            CustomObject branchObject)
+    {
+        CustomObjectCoordinate start = new CustomObjectCoordinate(startObject, Rotation.NORTH, 40, 64, 56);
+        Map<ChunkCoordinate, Set<CustomObjectCoordinate>> objectsToSpawn = new LinkedHashMap<ChunkCoordinate, Set<CustomObjectCoordinate>>();
+        objectsToSpawn.put(SPAWNED_CHUNK, Collections.singleton(start));
+        Set<CustomObjectCoordinate> waitingObjects = new LinkedHashSet<CustomObjectCoordinate>();
+        waitingObjects.add(new CustomObjectCoordinate(branchObject, Rotation.EAST, 50, 70, 52));
+        waitingObjects.add(new CustomObjectCoordinate(branchObject, Rotation.WEST, 60, 65, 54));
+        objectsToSpawn.put(WAITING_CHUNK, waitingObjects);
+        Set<ChunkCoordinate> spawnedChunks = new HashSet<ChunkCoordinate>();
+        spawnedChunks.add(SPAWNED_CHUNK);
+        return new CustomObjectStructure(world, start, objectsToSpawn, spawnedChunks, RANDOM_STATE);
+    }
+
+    @BeforeClass
+    public static void startEngine() throws IOException
+    {
+        // Needed to log the discarded files
+        TestEngine.start();
+    }
+
+    @AfterClass
+    public static void stopEngine()
+    {
+        TestEngine.stop();
+    }
+
+    private static File createTempFile() throws IOException
+    {
+        File file = File.createTempFile("structures", ".tcs");
+        file.delete();
+        return file;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        CustomObject castle = createObject("Castle");
+        CustomObject tower = createObject("Tower");
+        CustomObject ruin = createObject("Ruin");
+        LocalWorld world = createWorld(SEED, castle, tower, ruin);
+
+        Map<ChunkCoordinate, CustomObjectStructure> structures = new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        structures.put(CASTLE_SEARCH_CHUNK, createPartlySpawnedStructure(world, castle, tower));
+        structures.put(RUIN_SEARCH_CHUNK, createPartlySpawnedStructure(world, ruin, ruin));
+
+        File file = createTempFile();
+        try
+        {
+            CustomObjectStructureFile.write(world, file, structures);
+
+            // Objects are loaded again after a restart, and the ruin was
+            // removed
+            CustomObject newCastle = createObject("Castle");
+            CustomObject newTower = createObject("Tower");
+            LocalWorld newWorld = createWorld(SEED, newCastle, newTower);
+            Map<ChunkCoordinate, CustomObjectStructure> read = CustomObjectStructureFile.read(newWorld, file);
+
+            assertEquals(1, read.size());
+            CustomObjectStructure castleStructure = read.get(CASTLE_SEARCH_CHUNK);
+            assertSame(newCastle, castleStructure.getStart().getObject());
+            assertEquals(structures.get(CASTLE_SEARCH_CHUNK).getStart(), castleStructure.getStart());
+            assertEquals(RANDOM_STATE, castleStructure.getRandomState());
+
+            // Spawned chunks are remembered, but their objects are not
+            assertTrue(castleStructure.isSpawned(SPAWNED_CHUNK));
+            assertTrue(castleStructure.getObjectsToSpawn().get(SPAWNED_CHUNK).isEmpty());
+
+            // The objects of other chunks are kept in order
+            assertFalse(castleStructure.isSpawned(WAITING_CHUNK));
+            Set<CustomObjectCoordinate> waitingObjects = castleStructure.getObjectsToSpawn().get(WAITING_CHUNK);
+            assertEquals(structures.get(CASTLE_SEARCH_CHUNK).getObjectsToSpawn().get(WAITING_CHUNK), waitingObjects);
+            for (CustomObjectCoordinate coordObject : waitingObjects)
+            {
+                assertSame(newTower, coordObject.getObject());
+            }
+        } finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOtherSeedDeletesFile() throws IOException
+    {
+        CustomObject castle = createObject("Castle");
+        CustomObject tower = createObject("Tower");
+        LocalWorld world = createWorld(SEED, castle, tower);
+        Map<ChunkCoordinate, CustomObjectStructure> structures = new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        structures.put(CASTLE_SEARCH_CHUNK, createPartlySpawnedStructure(world, castle, tower));
+
+        File file = createTempFile();
+        try
+        {
+            CustomObjectStructureFile.write(world, file, structures);
+            assertTrue(file.exists());
+
+            LocalWorld regeneratedWorld = createWorld(SEED + 1, castle, tower);
+            assertTrue(CustomObjectStructureFile.read(regeneratedWorld, file).isEmpty());
+            assertFalse(file.exists());
+        } finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNoStructuresDeletesFile() throws IOException
+    {
+        CustomObject castle = createObject("Castle");
+        CustomObject tower = createObject("Tower");
+        LocalWorld world = createWorld(SEED, castle, tower);
+        Map<ChunkCoordinate, CustomObjectStructure> structures = new HashMap<ChunkCoordinate, CustomObjectStructure>();
+        structures.put(CASTLE_SEARCH_CHUNK, createPartlySpawnedStructure(world, castle, tower));
+
+        File file = createTempFile();
+        try
+        {
+            CustomObjectStructureFile.write(world, file, structures);
+            CustomObjectStructureFile.write(world, file, new HashMap<ChunkCoordinate, CustomObjectStructure>());
+            assertFalse(file.exists());
+            assertTrue(CustomObjectStructureFile.read(world, file).isEmpty());
+        } finally
+        {
+            file.delete();
+        }
+    }
+}
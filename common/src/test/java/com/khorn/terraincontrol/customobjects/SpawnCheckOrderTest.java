@@ -0,0 +1,71 @@
+package com.khorn.terraincontrol.customobjects;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SpawnCheckOrderTest
+{
+
+    @Test
+    public void testCornersFirst()
+    {
+        // A 3x2x3 box, the lowest corners must come first
+        int[] xs = new int[18];
+        int[] ys = new int[18];
+        int[] zs = new int[18];
+        int i = 0;
+        for (int y = 1; y >= 0; y--)
+        {
+            for (int x = -1; x <= 1; x++)
+            {
+                for (int z = -1; z <= 1; z++)
+                {
+                    xs[i] = x;
+                    ys[i] = y;
+                    zs[i] = z;
+                    i++;
+                }
+            }
+        }
+
+        SpawnCheckOrder order = new SpawnCheckOrder(xs, ys, zs);
+        assertEquals(4, order.sampleCount);
+        for (int j = 0; j < order.sampleCount; j++)
+        {
+            int index = order.indices[j];
+            assertEquals(0, ys[index]);
+            assertEquals(1, Math.abs(xs[index]));
+            assertEquals(1, Math.abs(zs[index]));
+        }
+        assertIsPermutation(order.indices);
+    }
+
+    @Test
+    public void testSingleBlock()
+    {
+        SpawnCheckOrder order = new SpawnCheckOrder(new int[] {0}, new int[] {0}, new int[] {0});
+        assertEquals(1, order.sampleCount);
+        assertEquals(0, order.indices[0]);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        SpawnCheckOrder order = new SpawnCheckOrder(new int[0], new int[0], new int[0]);
+        assertEquals(0, order.sampleCount);
+        assertEquals(0, order.indices.length);
+    }
+
+    private static void assertIsPermutation(int[] indices)
+    {
+        int[] sorted = indices.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+        {
+            assertEquals(i, sorted[i]);
+        }
+    }
+}
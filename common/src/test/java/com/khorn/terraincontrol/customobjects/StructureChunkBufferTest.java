@@ -0,0 +1,257 @@
+package com.khorn.terraincontrol.customobjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.LocalWorld;
+import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.customobjects.bo3.BO3BlockList;
+import com.khorn.terraincontrol.customobjects.bo3.BO3PlaceableFunction;
+import com.khorn.terraincontrol.customobjects.bo3.BlockFunction;
+import com.khorn.terraincontrol.util.NamedBinaryTag;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class StructureChunkBufferTest
+{
+    private static final LocalMaterialData AIR = createMaterial("air");
+    private static final LocalMaterialData STONE = createMaterial("stone");
+    private static final LocalMaterialData PLANKS = createMaterial("planks");
+    private static final LocalMaterialData CHEST = createMaterial("chest");
+
+    /**
+     * Creates a material that is its own rotation.
+     */
+    private static LocalMaterialData createMaterial(final String name)
+    {
+        return (LocalMaterialData) Proxy.newProxyInstance(LocalMaterialData.class.getClassLoader(),
+                new Class<?>[] {LocalMaterialData.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String methodName = method.getName();
+                        if (methodName.equals("rotate"))
+                        {
+                            return proxy;
+                        }
+                        if (methodName.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        if (methodName.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        return name;
+                    }
+                });
+    }
+
+    /**
+     * World that keeps its blocks in a map, and records how they were
+     * placed.
+     */
+    private static class TestWorld implements InvocationHandler
+    {
+        final Map<String, LocalMaterialData> blocks = new HashMap<String, LocalMaterialData>();
+        final List<String> metadataPositions = new ArrayList<String>();
+        int setBlockCalls;
+        int setSectionBlocksCalls;
+
+        LocalWorld createProxy()
+        {
+            return (LocalWorld) Proxy.newProxyInstance(LocalWorld.class.getClassLoader(),
+                    new Class<?>[] {LocalWorld.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+        {
+            String name = method.getName();
+            if (name.equals("isLoaded"))
+            {
+                int y = (Integer) args[1];
+                return y >= TerrainControl.WORLD_DEPTH && y < TerrainControl.WORLD_HEIGHT;
+            }
+            if (name.equals("getMaterial"))
+            {
+                LocalMaterialData material = blocks.get(key((Integer) args[0], (Integer) args[1], (Integer) args[2]));
+                return material == null ? AIR : material;
+            }
+            if (name.equals("setBlock"))
+            {
+                setBlockCalls++;
+                blocks.put(key((Integer) args[0], (Integer) args[1], (Integer) args[2]), (LocalMaterialData) args[3]);
+                return null;
+            }
+            if (name.equals("setSectionBlocks"))
+            {
+                setSectionBlocksCalls++;
+                int chunkX = (Integer) args[0];
+                int sectionY = (Integer) args[1];
+                int chunkZ = (Integer) args[2];
+                LocalMaterialData[] sectionBlocks = (LocalMaterialData[]) args[3];
+                for (int index = 0; index < sectionBlocks.length; index++)
+                {
+                    if (sectionBlocks[index] != null)
+                    {
+                        int x = (chunkX << 4) | (index & 0xF);
+                        int y = (sectionY << 4) | (index >> 8);
+                        int z = (chunkZ << 4) | ((index >> 4) & 0xF);
+                        blocks.put(key(x, y, z), sectionBlocks[index]);
+                    }
+                }
+                return null;
+            }
+            if (name.equals("attachMetadata"))
+            {
+                String position = key((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+                metadataPositions.add(position + "=" + blocks.get(position));
+                return null;
+            }
+            if (name.equals("hashCode"))
+            {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("equals"))
+            {
+                return proxy == args[0];
+            }
+            throw new UnsupportedOperationException(name);
+        }
+
+        private static String key(int x, int y, int z)
+        {
+            return x + "," + y + "," + z;
+        }
+    }
+
+    /**
+     * Creates the pieces of a small structure. The pieces overlap, cross a
+     * chunk border and a section border, and one block has metadata, so it
+     * cannot be placed in the buffer.
+     */
+    private static List<BO3BlockList> createPieces()
+    {
+        List<BO3PlaceableFunction> cube = new ArrayList<BO3PlaceableFunction>();
+        for (int x = 0; x < 4; x++)
+        {
+            for (int y = 0; y < 4; y++)
+            {
+                for (int z = 0; z < 4; z++)
+                {
+                    cube.add(new BlockFunction(null, x, y, z, STONE));
+                }
+            }
+        }
+
+        BlockFunction chest = new BlockFunction(null, 1, 1, 1, CHEST);
+        chest.metaDataName = "chest.nbt";
+        chest.metaDataTag = new NamedBinaryTag(NamedBinaryTag.Type.TAG_End, null, (Object) null);
+        List<BO3PlaceableFunction> floor = new ArrayList<BO3PlaceableFunction>();
+        for (int x = -2; x < 3; x++)
+        {
+            for (int z = -2; z < 3; z++)
+            {
+                floor.add(new BlockFunction(null, x, 0, z, PLANKS));
+            }
+        }
+        floor.add(chest);
+        floor.add(new BlockFunction(null, 1, 2, 1, PLANKS));
+
+        List<BO3PlaceableFunction> hole = new ArrayList<BO3PlaceableFunction>();
+        hole.add(new BlockFunction(null, 0, 0, 0, AIR));
+        hole.add(new BlockFunction(null, 0, 1, 0, AIR));
+        hole.add(new BlockFunction(null, 1, 0, 0, AIR));
+
+        List<BO3BlockList> pieces = new ArrayList<BO3BlockList>();
+        pieces.add(new BO3BlockList(cube));
+        pieces.add(new BO3BlockList(floor));
+        pieces.add(new BO3BlockList(hole));
+        return pieces;
+    }
+
+    private static final int[][] PIECE_POSITIONS = {{14, 62, 14}, {16, 64, 16}, {15, 63, 15}};
+    private static final int[] PIECE_ROTATIONS = {0, 1, 2};
+
+    @Test
+    public void testSameBlocksAsPerPiece()
+    {
+        List<BO3BlockList> pieces = createPieces();
+
+        // Old path: every piece directly in the world
+        TestWorld perPieceWorld = new TestWorld();
+        LocalWorld perPiece = perPieceWorld.createProxy();
+        for (int i = 0; i < pieces.size(); i++)
+        {
+            BO3BlockList.Cursor cursor = pieces.get(i).cursor(PIECE_ROTATIONS[i]);
+            int[] position = PIECE_POSITIONS[i];
+            while (cursor.next())
+            {
+                cursor.spawn(perPiece, new Random(0), position[0] + cursor.getX(), position[1] + cursor.getY(),
+                        position[2] + cursor.getZ());
+            }
+        }
+
+        // New path: all pieces in one buffer
+        TestWorld bufferedWorld = new TestWorld();
+        StructureChunkBuffer buffer = new StructureChunkBuffer(bufferedWorld.createProxy());
+        for (int i = 0; i < pieces.size(); i++)
+        {
+            BO3BlockList.Cursor cursor = pieces.get(i).cursor(PIECE_ROTATIONS[i]);
+            int[] position = PIECE_POSITIONS[i];
+            while (cursor.next())
+            {
+                cursor.spawn(buffer, new Random(0), position[0] + cursor.getX(), position[1] + cursor.getY(),
+                        position[2] + cursor.getZ());
+            }
+        }
+        buffer.flush();
+
+        assertEquals(perPieceWorld.blocks, bufferedWorld.blocks);
+        assertEquals(perPieceWorld.metadataPositions, bufferedWorld.metadataPositions);
+
+        // Only the chest went through setBlock, the rest was written per
+        // section
+        assertEquals(1, bufferedWorld.setBlockCalls);
+        assertTrue(bufferedWorld.setSectionBlocksCalls > 0);
+    }
+
+    @Test
+    public void testReadsSeeBufferedBlocks()
+    {
+        TestWorld testWorld = new TestWorld();
+        StructureChunkBuffer buffer = new StructureChunkBuffer(testWorld.createProxy());
+
+        buffer.setBlock(1, 70, 1, STONE);
+        buffer.setBlock(40, 70, 40, PLANKS);
+        assertSame(STONE, buffer.getMaterial(1, 70, 1));
+        assertSame(PLANKS, buffer.getMaterial(40, 70, 40));
+        assertSame(AIR, buffer.getMaterial(1, 71, 1));
+        assertTrue(testWorld.blocks.isEmpty());
+
+        // Blocks outside the world are ignored
+        buffer.setBlock(1, TerrainControl.WORLD_HEIGHT, 1, STONE);
+        assertSame(AIR, buffer.getMaterial(1, TerrainControl.WORLD_HEIGHT, 1));
+
+        buffer.flush();
+        assertEquals(2, testWorld.blocks.size());
+        assertSame(STONE, testWorld.blocks.get("1,70,1"));
+        assertSame(PLANKS, testWorld.blocks.get("40,70,40"));
+
+        // The buffer is empty after flushing
+        testWorld.blocks.clear();
+        assertSame(AIR, buffer.getMaterial(1, 70, 1));
+    }
+}
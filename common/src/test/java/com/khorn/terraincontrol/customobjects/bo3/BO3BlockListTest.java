@@ -0,0 +1,105 @@
+package com.khorn.terraincontrol.customobjects.bo3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.util.NamedBinaryTag;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BO3BlockListTest
+{
+
+    /**
+     * Creates a material that is its own rotation.
+     */
+    private static LocalMaterialData createMaterial()
+    {
+        return (LocalMaterialData) Proxy.newProxyInstance(LocalMaterialData.class.getClassLoader(),
+                new Class<?>[] {LocalMaterialData.class}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+                        if (name.equals("rotate"))
+                        {
+                            return proxy;
+                        }
+                        if (name.equals("equals"))
+                        {
+                            return proxy == args[0];
+                        }
+                        if (name.equals("hashCode"))
+                        {
+                            return System.identityHashCode(proxy);
+                        }
+                        return "material";
+                    }
+                });
+    }
+
+    @Test
+    public void testRotatedCoordinates()
+    {
+        LocalMaterialData material = createMaterial();
+        List<BO3PlaceableFunction> blocks = new ArrayList<BO3PlaceableFunction>();
+        blocks.add(new BlockFunction(null, 1, 2, 3, material));
+        blocks.add(new BlockFunction(null, -4, 0, 5, material));
+        blocks.add(new BlockFunction(null, 0, -7, -6, material));
+        BO3BlockList blockList = new BO3BlockList(blocks);
+
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            BO3PlaceableFunction rotated = blocks.get(i);
+            for (int rotationId = 0; rotationId < 4; rotationId++)
+            {
+                assertEquals(rotated.x, blockList.getX(rotationId, i));
+                assertEquals(rotated.y, blockList.getY(i));
+                assertEquals(rotated.z, blockList.getZ(rotationId, i));
+                rotated = rotated.rotate();
+            }
+        }
+    }
+
+    @Test
+    public void testFunctionsKeepOrder()
+    {
+        LocalMaterialData material = createMaterial();
+        BlockFunction withMetaData = new BlockFunction(null, 0, 1, 0, material);
+        withMetaData.metaDataName = "chest.nbt";
+        withMetaData.metaDataTag = new NamedBinaryTag(NamedBinaryTag.Type.TAG_End, null, (Object) null);
+
+        List<BO3PlaceableFunction> blocks = new ArrayList<BO3PlaceableFunction>();
+        blocks.add(new BlockFunction(null, 0, 0, 0, material));
+        blocks.add(withMetaData);
+        blocks.add(new BlockFunction(null, 0, 2, 0, material));
+        BO3BlockList blockList = new BO3BlockList(blocks);
+        assertFalse(blockList.canSpawnInBuffer());
+
+        BO3BlockList.Cursor cursor = blockList.cursor(0);
+        assertTrue(cursor.next());
+        assertSame(material, cursor.getMaterial());
+        assertTrue(cursor.next());
+        assertSame(withMetaData, cursor.getFunction());
+        assertTrue(cursor.next());
+        assertEquals(2, cursor.getY());
+        assertSame(material, cursor.getMaterial());
+        assertFalse(cursor.next());
+
+        List<BO3PlaceableFunction> functions = blockList.toFunctions(null);
+        assertEquals(blocks.size(), functions.size());
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            assertEquals(blocks.get(i).toString(), functions.get(i).toString());
+        }
+    }
+}
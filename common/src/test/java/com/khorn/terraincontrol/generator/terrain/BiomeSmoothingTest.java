@@ -0,0 +1,137 @@
+package com.khorn.terraincontrol.generator.terrain;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BiomeSmoothingTest
+{
+    private static final int BIOME_COUNT = 5;
+    private static final int MAX_SMOOTH_RADIUS = 6;
+    private static final int SIZE = 5;
+    private static final int GRID_SIZE = SIZE + MAX_SMOOTH_RADIUS * 2;
+
+    private static final double TOLERANCE = 0.0001;
+
+    private BiomeSmoothing createSmoothing(Random random)
+    {
+        float[] biomeHeight = new float[BIOME_COUNT];
+        float[] biomeVolatility = new float[BIOME_COUNT];
+        float[] riverHeight = new float[BIOME_COUNT];
+        float[] riverVolatility = new float[BIOME_COUNT];
+        int[] smoothRadius = new int[BIOME_COUNT];
+        for (int i = 0; i < BIOME_COUNT; i++)
+        {
+            biomeHeight[i] = random.nextFloat() * 3 - 1;
+            biomeVolatility[i] = random.nextFloat();
+            riverHeight[i] = random.nextFloat() - 1;
+            riverVolatility[i] = random.nextFloat();
+            smoothRadius[i] = random.nextInt(MAX_SMOOTH_RADIUS + 1);
+        }
+
+        BiomeSmoothing smoothing = new BiomeSmoothing(MAX_SMOOTH_RADIUS);
+        smoothing.setBiomes(biomeHeight, biomeVolatility, riverHeight, riverVolatility, smoothRadius);
+        return smoothing;
+    }
+
+    /**
+     * Creates a grid of large square patches, so that some columns only have
+     * a single biome around them.
+     */
+    private int[] createGrid(Random random, int values, int patchSize)
+    {
+        int[] grid = new int[GRID_SIZE * GRID_SIZE];
+        int patches = GRID_SIZE / patchSize + 1;
+        int[] patchValues = new int[patches * patches];
+        for (int i = 0; i < patchValues.length; i++)
+        {
+            patchValues[i] = random.nextInt(values);
+        }
+        for (int x = 0; x < GRID_SIZE; x++)
+        {
+            for (int z = 0; z < GRID_SIZE; z++)
+            {
+                grid[x + z * GRID_SIZE] = patchValues[x / patchSize + z / patchSize * patches];
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    public void testSummedAreas()
+    {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++)
+        {
+            BiomeSmoothing smoothing = createSmoothing(random);
+            int[] biomeArray = createGrid(random, BIOME_COUNT, 1 + random.nextInt(GRID_SIZE));
+
+            smoothing.smooth(biomeArray, null, SIZE, SIZE, false);
+            float[] volatility = new float[SIZE * SIZE];
+            double[] height = new double[SIZE * SIZE];
+            for (int x = 0; x < SIZE; x++)
+            {
+                for (int z = 0; z < SIZE; z++)
+                {
+                    volatility[x * SIZE + z] = smoothing.getVolatility(x, z);
+                    height[x * SIZE + z] = smoothing.getHeight(x, z);
+                }
+            }
+
+            smoothing.smooth(biomeArray, null, SIZE, SIZE, true);
+            for (int x = 0; x < SIZE; x++)
+            {
+                for (int z = 0; z < SIZE; z++)
+                {
+                    assertEquals(volatility[x * SIZE + z], smoothing.getVolatility(x, z), TOLERANCE);
+                    assertEquals(height[x * SIZE + z], smoothing.getHeight(x, z), TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSummedAreasWithRivers()
+    {
+        Random random = new Random(43);
+        for (int run = 0; run < 200; run++)
+        {
+            BiomeSmoothing smoothing = createSmoothing(random);
+            int[] biomeArray = createGrid(random, BIOME_COUNT, 1 + random.nextInt(GRID_SIZE));
+            int[] riverArray = createGrid(random, 2, 1 + random.nextInt(GRID_SIZE));
+
+            smoothing.smooth(biomeArray, riverArray, SIZE, SIZE, false);
+            float[] volatility = new float[SIZE * SIZE];
+            double[] height = new double[SIZE * SIZE];
+            float[] riverVolatility = new float[SIZE * SIZE];
+            float[] riverHeight = new float[SIZE * SIZE];
+            boolean[] riverFound = new boolean[SIZE * SIZE];
+            for (int x = 0; x < SIZE; x++)
+            {
+                for (int z = 0; z < SIZE; z++)
+                {
+                    volatility[x * SIZE + z] = smoothing.getVolatility(x, z);
+                    height[x * SIZE + z] = smoothing.getHeight(x, z);
+                    riverVolatility[x * SIZE + z] = smoothing.getRiverVolatility(x, z);
+                    riverHeight[x * SIZE + z] = smoothing.getRiverHeight(x, z);
+                    riverFound[x * SIZE + z] = smoothing.isRiverFound(x, z);
+                }
+            }
+
+            smoothing.smooth(biomeArray, riverArray, SIZE, SIZE, true);
+            for (int x = 0; x < SIZE; x++)
+            {
+                for (int z = 0; z < SIZE; z++)
+                {
+                    assertEquals(volatility[x * SIZE + z], smoothing.getVolatility(x, z), TOLERANCE);
+                    assertEquals(height[x * SIZE + z], smoothing.getHeight(x, z), TOLERANCE);
+                    assertEquals(riverVolatility[x * SIZE + z], smoothing.getRiverVolatility(x, z), TOLERANCE);
+                    assertEquals(riverHeight[x * SIZE + z], smoothing.getRiverHeight(x, z), TOLERANCE);
+                    assertEquals(riverFound[x * SIZE + z], smoothing.isRiverFound(x, z));
+                }
+            }
+        }
+    }
+}
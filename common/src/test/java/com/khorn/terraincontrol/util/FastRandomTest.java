@@ -0,0 +1,76 @@
+package com.khorn.terraincontrol.util;
+
+import static org.junit.Assert.assertEquals;
+
+import com.khorn.terraincontrol.util.helpers.RandomHelper;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class FastRandomTest
+{
+
+    @Test
+    public void testSameNumbersAsRandom()
+    {
+        Random expected = new Random(15);
+        Random actual = new FastRandom(15);
+
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(expected.nextInt(), actual.nextInt());
+            assertEquals(expected.nextInt(100), actual.nextInt(100));
+            assertEquals(expected.nextInt(64), actual.nextInt(64));
+            assertEquals(expected.nextLong(), actual.nextLong());
+            assertEquals(expected.nextBoolean(), actual.nextBoolean());
+            assertEquals(expected.nextFloat(), actual.nextFloat(), 0);
+            assertEquals(expected.nextDouble(), actual.nextDouble(), 0);
+            assertEquals(expected.nextGaussian(), actual.nextGaussian(), 0);
+        }
+    }
+
+    @Test
+    public void testSetSeed()
+    {
+        Random expected = new Random();
+        Random actual = new FastRandom(0);
+
+        for (long seed = -5; seed < 5; seed++)
+        {
+            // Leave a gaussian number behind, setSeed must clear it
+            expected.nextGaussian();
+            actual.nextGaussian();
+
+            expected.setSeed(seed * 1234567L);
+            actual.setSeed(seed * 1234567L);
+            assertEquals(expected.nextGaussian(), actual.nextGaussian(), 0);
+            assertEquals(expected.nextLong(), actual.nextLong());
+        }
+    }
+
+    @Test
+    public void testRestoreState()
+    {
+        FastRandom random = new FastRandom(99);
+        random.nextInt();
+        long state = random.getState();
+        long expected = random.nextLong();
+
+        FastRandom restored = new FastRandom(0);
+        restored.setState(state);
+        assertEquals(expected, restored.nextLong());
+    }
+
+    @Test
+    public void testRandomForCoords()
+    {
+        Random random = new FastRandom(0);
+        RandomHelper.setSeedForCoords(random, 12, -7, 42);
+        Random old = new Random(42);
+        long l1 = old.nextLong() + 1L;
+        long l2 = old.nextLong() + 1L;
+        old.setSeed(12 * l1 + -7 * l2 ^ 42);
+
+        assertEquals(old.nextLong(), random.nextLong());
+    }
+}
@@ -0,0 +1,205 @@
+package com.khorn.terraincontrol.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.khorn.terraincontrol.LocalMaterialData;
+import com.khorn.terraincontrol.exception.InvalidConfigException;
+import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
+import org.junit.Test;
+
+public class MaterialSetTest
+{
+    /**
+     * Minimal material, with the solidity given to the constructor.
+     */
+    private static class TestMaterial implements LocalMaterialData
+    {
+        private final int blockId;
+        private final int blockData;
+        private final boolean solid;
+
+        TestMaterial(int blockId, int blockData)
+        {
+            this(blockId, blockData, false);
+        }
+
+        TestMaterial(int blockId, int blockData, boolean solid)
+        {
+            this.blockId = blockId;
+            this.blockData = blockData;
+            this.solid = solid;
+        }
+
+        @Override
+        public String getName()
+        {
+            return blockId + ":" + blockData;
+        }
+
+        @Override
+        public int getBlockId()
+        {
+            return blockId;
+        }
+
+        @Override
+        public byte getBlockData()
+        {
+            return (byte) blockData;
+        }
+
+        @Override
+        public boolean isLiquid()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isSolid()
+        {
+            return solid;
+        }
+
+        @Override
+        public boolean isAir()
+        {
+            return blockId == 0;
+        }
+
+        @Override
+        public DefaultMaterial toDefaultMaterial()
+        {
+            return DefaultMaterial.getMaterial(blockId);
+        }
+
+        @Override
+        public boolean canSnowFallOn()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isMaterial(DefaultMaterial material)
+        {
+            return material.id == blockId;
+        }
+
+        @Override
+        public LocalMaterialData withBlockData(int newData)
+        {
+            return new TestMaterial(blockId, newData, solid);
+        }
+
+        @Override
+        public LocalMaterialData withDefaultBlockData()
+        {
+            return new TestMaterial(blockId, 0, solid);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 4096 + blockId * 16 + blockData;
+        }
+
+        @Override
+        public int hashCodeWithoutBlockData()
+        {
+            return blockId;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof TestMaterial && other.hashCode() == hashCode();
+        }
+
+        @Override
+        public LocalMaterialData rotate()
+        {
+            return this;
+        }
+
+        @Override
+        public boolean canFall()
+        {
+            return false;
+        }
+    }
+
+    @Test
+    public void testEntries()
+    {
+        MaterialSet set = new MaterialSet();
+        set.add(new MaterialSetEntry(new TestMaterial(1, 0), false));
+        set.add(new MaterialSetEntry(new TestMaterial(35, 14), true));
+
+        assertTrue(set.contains(new TestMaterial(1, 0)));
+        assertTrue(set.contains(new TestMaterial(1, 5)));
+        assertTrue(set.contains(new TestMaterial(35, 14)));
+        assertFalse(set.contains(new TestMaterial(35, 0)));
+        assertFalse(set.contains(new TestMaterial(2, 0)));
+        assertFalse(set.contains(null));
+    }
+
+    @Test
+    public void testChangeAfterCompile()
+    {
+        MaterialSet set = new MaterialSet();
+        assertFalse(set.contains(new TestMaterial(3, 0)));
+
+        set.add(new MaterialSetEntry(new TestMaterial(3, 0), false));
+        assertTrue(set.contains(new TestMaterial(3, 0)));
+    }
+
+    @Test
+    public void testKeywords() throws InvalidConfigException
+    {
+        MaterialSet all = new MaterialSet();
+        all.parseAndAdd(MaterialSet.ALL_MATERIALS);
+        MaterialSet solid = new MaterialSet();
+        solid.parseAndAdd(MaterialSet.SOLID_MATERIALS);
+        MaterialSet nonSolid = new MaterialSet();
+        nonSolid.parseAndAdd(MaterialSet.NON_SOLID_MATERIALS);
+
+        // Air
+        TestMaterial air = new TestMaterial(0, 0, false);
+        assertFalse(all.contains(air));
+        assertFalse(solid.contains(air));
+        assertTrue(nonSolid.contains(air));
+
+        // Stone, solid according to DefaultMaterial
+        TestMaterial stone = new TestMaterial(1, 0, true);
+        assertTrue(all.contains(stone));
+        assertTrue(solid.contains(stone));
+        assertFalse(nonSolid.contains(stone));
+
+        // Water, not solid according to DefaultMaterial
+        TestMaterial water = new TestMaterial(9, 3, false);
+        assertTrue(all.contains(water));
+        assertFalse(solid.contains(water));
+        assertTrue(nonSolid.contains(water));
+    }
+
+    @Test
+    public void testKeywordsForModdedBlocks() throws InvalidConfigException
+    {
+        MaterialSet solid = new MaterialSet();
+        solid.parseAndAdd(MaterialSet.SOLID_MATERIALS);
+        MaterialSet nonSolid = new MaterialSet();
+        nonSolid.parseAndAdd(MaterialSet.NON_SOLID_MATERIALS);
+
+        // Unknown to DefaultMaterial, so the material itself decides. 254 is
+        // the id of DefaultMaterial.UNKNOWN_BLOCK, which is solid
+        for (int blockId : new int[] {254, 300})
+        {
+            TestMaterial solidBlock = new TestMaterial(blockId, 0, true);
+            TestMaterial nonSolidBlock = new TestMaterial(blockId, 0, false);
+            assertTrue(solid.contains(solidBlock));
+            assertFalse(nonSolid.contains(solidBlock));
+            assertFalse(solid.contains(nonSolidBlock));
+            assertTrue(nonSolid.contains(nonSolidBlock));
+        }
+    }
+}
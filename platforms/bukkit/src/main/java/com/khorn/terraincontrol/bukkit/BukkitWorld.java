@@ -8,13 +8,16 @@ import com.khorn.terraincontrol.bukkit.generator.TCWorldProvider;
 import com.khorn.terraincontrol.bukkit.generator.structures.*;
 import com.khorn.terraincontrol.bukkit.util.NBTHelper;
 import com.khorn.terraincontrol.configuration.*;
+import com.khorn.terraincontrol.configuration.WorldConfig.ReplaceBlocksMode;
 import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
 import com.khorn.terraincontrol.customobjects.CustomObjectStructureCache;
+import com.khorn.terraincontrol.customobjects.ObjectExtrusionHelper;
 import com.khorn.terraincontrol.exception.BiomeNotFoundException;
 import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 import com.khorn.terraincontrol.util.helpers.ReflectionHelper;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
@@ -23,6 +26,7 @@ import net.minecraft.server.v1_10_R1.*;
 import org.bukkit.craftbukkit.v1_10_R1.CraftWorld;
 import org.bukkit.craftbukkit.v1_10_R1.generator.CustomChunkGenerator;
 
+import java.io.File;
 import java.util.*;
 
 public class BukkitWorld implements LocalWorld
@@ -38,6 +42,12 @@ public class BukkitWorld implements LocalWorld
     private BiomeGenerator biomeGenerator;
     private DataConverter dataConverter;
 
+    /**
+     * Our biome provider for Minecraft, or null when Minecraft's own biome
+     * generator is used.
+     */
+    private TCWorldChunkManager worldChunkManager;
+
     private static int nextBiomeId = DefaultBiome.values().length;
 
     private static final int MAX_BIOMES_COUNT = 1024;
@@ -72,6 +82,19 @@ public class BukkitWorld implements LocalWorld
 
     private Chunk[] chunkCache;
 
+    /**
+     * Used in {@link #replaceBlocks(Chunk, int)}, to avoid creating a new array
+     * for every chunk.
+     */
+    private final ReplacedBlocksMatrix[] replacedBlocksColumns = new ReplacedBlocksMatrix[16 * 16];
+
+    /**
+     * Sections changed by {@link #setBlock(int, int, int, LocalMaterialData)}
+     * during population. Bit {@code chunkIndex * 16 + sectionY} is set when
+     * section sectionY of {@code chunkCache[chunkIndex]} was changed.
+     */
+    private long populatedSections;
+
     public BukkitWorld(String _name)
     {
         this.name = _name;
@@ -268,63 +291,167 @@ public class BukkitWorld implements LocalWorld
         // Get cache
         Chunk[] cache = getChunkCache(chunkCoord);
 
+        // When the terrain was already replaced during terrain generation,
+        // only the sections changed during population need to be checked
+        boolean onlyPopulatedSections = this.settings.getWorldConfig().replaceBlocksMode == ReplaceBlocksMode.DuringTerrainGeneration
+                && cache == this.chunkCache;
+
         // Replace the blocks
-        for(int i = 0; i < 4; i++) {
-            replaceBlocks(cache[i], 0, 0, 16);
+        for (int i = 0; i < 4; i++)
+        {
+            int sectionMask = onlyPopulatedSections ? (int) (this.populatedSections >>> (i * 16)) & 0xFFFF : 0xFFFF;
+            if (sectionMask != 0)
+            {
+                replaceBlocks(cache[i], sectionMask);
+            }
         }
     }
 
-    private void replaceBlocks(Chunk rawChunk, int startXInChunk, int startZInChunk, int size)
+    private void replaceBlocks(Chunk rawChunk, int sectionMask)
     {
-        int endXInChunk = startXInChunk + size;
-        int endZInChunk = startZInChunk + size;
         int worldStartX = rawChunk.locX * 16;
         int worldStartZ = rawChunk.locZ * 16;
 
+        // Look up the biome of each column only once
+        ReplacedBlocksMatrix[] columnMatrices = this.replacedBlocksColumns;
+        int minReplacedY = Integer.MAX_VALUE;
+        int maxReplacedY = Integer.MIN_VALUE;
+        // Sections without blocks can only be skipped if air is not replaced
+        boolean replacesAir = false;
+        for (int sectionX = 0; sectionX < 16; sectionX++)
+        {
+            for (int sectionZ = 0; sectionZ < 16; sectionZ++)
+            {
+                LocalBiome biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
+                ReplacedBlocksMatrix matrix = null;
+                if (biome != null && biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                {
+                    matrix = biome.getBiomeConfig().replacedBlocks;
+                    minReplacedY = Math.min(minReplacedY, matrix.getMinReplacedY());
+                    maxReplacedY = Math.max(maxReplacedY, matrix.getMaxReplacedY());
+                    replacesAir |= matrix.replacesBlock(0);
+                }
+                columnMatrices[sectionX * 16 + sectionZ] = matrix;
+            }
+        }
+
+        if (minReplacedY > maxReplacedY)
+        {
+            // No biome in this chunk replaces blocks
+            return;
+        }
+
         ChunkSection[] sectionsArray = rawChunk.getSections();
 
         for (ChunkSection section : sectionsArray)
         {
-            if (section == null)
+            if (section == null || (!replacesAir && section.a()))
                 continue;
 
-            for (int sectionX = startXInChunk; sectionX < endXInChunk; sectionX++)
+            int sectionStartY = section.getYPosition();
+            if ((sectionMask & (1 << (sectionStartY >> 4))) == 0)
             {
-                for (int sectionZ = startZInChunk; sectionZ < endZInChunk; sectionZ++)
+                // Section not changed since it was replaced
+                continue;
+            }
+            if (sectionStartY > maxReplacedY || sectionStartY + 15 < minReplacedY)
+            {
+                // Nothing is replaced at this height
+                continue;
+            }
+
+            for (int sectionX = 0; sectionX < 16; sectionX++)
+            {
+                for (int sectionZ = 0; sectionZ < 16; sectionZ++)
                 {
-                    LocalBiome biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
-                    if (biome != null && biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                    ReplacedBlocksMatrix matrix = columnMatrices[sectionX * 16 + sectionZ];
+                    if (matrix == null || !matrix.replacesBlocksBetween(sectionStartY, sectionStartY + 15))
+                        continue;
+
+                    LocalMaterialData[][] replaceArray = matrix.compiledInstructions;
+                    for (int sectionY = 0; sectionY < 16; sectionY++)
                     {
-                        LocalMaterialData[][] replaceArray = biome.getBiomeConfig().replacedBlocks.compiledInstructions;
-                        for (int sectionY = 0; sectionY < 16; sectionY++)
-                        {
-                            IBlockData block = section.getType(sectionX, sectionY, sectionZ);
-                            int blockId = Block.getId(block.getBlock());
-                            if (replaceArray[blockId] == null)
-                                continue;
-
-                            int y = section.getYPosition() + sectionY;
-                            if (y >= replaceArray[blockId].length)
-                                break;
-
-                            BukkitMaterialData replaceTo = (BukkitMaterialData) replaceArray[blockId][y];
-                            if (replaceTo == null || replaceTo.getBlockId() == blockId)
-                                continue;
-
-                            section.setType(sectionX, sectionY, sectionZ, replaceTo.internalBlock());
-                        }
+                        IBlockData block = section.getType(sectionX, sectionY, sectionZ);
+                        int blockId = Block.getId(block.getBlock());
+                        if (!matrix.replacesBlock(blockId))
+                            continue;
+
+                        int y = sectionStartY + sectionY;
+                        if (y >= replaceArray[blockId].length)
+                            break;
+
+                        BukkitMaterialData replaceTo = (BukkitMaterialData) replaceArray[blockId][y];
+                        if (replaceTo == null || replaceTo.getBlockId() == blockId)
+                            continue;
+
+                        section.setType(sectionX, sectionY, sectionZ, replaceTo.internalBlock());
                     }
                 }
             }
         }
     }
 
+    /**
+     * Remembers that a block in the given chunk section was changed, if the
+     * chunk is being populated.
+     *
+     * @param chunk The chunk.
+     * @param y     The y position of the block.
+     */
+    private void markPopulatedSection(Chunk chunk, int y)
+    {
+        if (this.chunkCache == null)
+        {
+            return;
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            if (this.chunkCache[i] == chunk)
+            {
+                this.populatedSections |= 1L << (i * 16 + (y >> 4));
+                return;
+            }
+        }
+    }
+
     @Override
     public void placePopulationMobs(LocalBiome biome, Random random, ChunkCoordinate chunkCoord)
     {
         SpawnerCreature.a(this.world, ((BukkitBiome) biome).getHandle(), chunkCoord.getChunkX() * 16 + 8, chunkCoord.getChunkZ() * 16 + 8, 16, 16, random);
     }
 
+    /**
+     * Gets whether blocks in the given chunk can be written straight to its
+     * sections. This is only the case for the chunk that is being populated
+     * and for the other cached chunks that are not populated yet. Players
+     * never see those chunks. The other chunks may already be populated,
+     * lit and sent to players, so changes to them must go through
+     * {@link #setBlock(int, int, int, LocalMaterialData)}, so that players
+     * are notified of them.
+     *
+     * @param chunk The chunk.
+     * @return True if the sections of the chunk can be changed directly.
+     */
+    private boolean isPopulatingChunk(Chunk chunk)
+    {
+        if (this.chunkCache == null)
+        {
+            return false;
+        }
+        if (this.chunkCache[0] == chunk)
+        {
+            return true;
+        }
+        for (Chunk cachedChunk : this.chunkCache)
+        {
+            if (cachedChunk == chunk)
+            {
+                return !chunk.isDone();
+            }
+        }
+        return false;
+    }
+
     private Chunk getChunk(int x, int y, int z)
     {
         if (y < TerrainControl.WORLD_DEPTH || y >= TerrainControl.WORLD_HEIGHT)
@@ -417,6 +544,103 @@ public class BukkitWorld implements LocalWorld
         return BukkitMaterialData.ofMinecraftBlockData(chunk.a(x, y, z));
     }
 
+    @Override
+    public boolean replaceBlock(int x, int y, int z, MaterialSet sourceBlocks, LocalMaterialData material)
+    {
+        Chunk chunk = this.getChunk(x, y, z);
+        if (chunk == null)
+        {
+            return false;
+        }
+
+        ChunkSection section = chunk.getSections()[y >> 4];
+        if (!isPopulatingChunk(chunk) || section == null)
+        {
+            // Players may see the chunk, or section is still empty: use the
+            // normal path
+            if (!sourceBlocks.contains(getMaterial(x, y, z)))
+            {
+                return false;
+            }
+            setBlock(x, y, z, material);
+            return true;
+        }
+
+        IBlockData oldBlockData = section.getType(x & 0xF, y & 0xF, z & 0xF);
+        if (!sourceBlocks.contains(BukkitMaterialData.ofMinecraftBlockData(oldBlockData)))
+        {
+            return false;
+        }
+
+        IBlockData newBlockData = ((BukkitMaterialData) material).internalBlock();
+        if (newBlockData.c() != oldBlockData.c() || newBlockData.d() != oldBlockData.d()
+                || newBlockData.getBlock() instanceof ITileEntity || oldBlockData.getBlock() instanceof ITileEntity)
+        {
+            // Light or tile entities need updating
+            setBlock(x, y, z, material);
+            return true;
+        }
+
+        section.setType(x & 0xF, y & 0xF, z & 0xF, newBlockData);
+        markPopulatedSection(chunk, y);
+        return true;
+    }
+
+    @Override
+    public void setSectionBlocks(int chunkX, int sectionY, int chunkZ, LocalMaterialData[] blocks)
+    {
+        int startX = chunkX << 4;
+        int startY = sectionY << 4;
+        int startZ = chunkZ << 4;
+        Chunk chunk = this.getChunk(startX, startY, startZ);
+        if (chunk == null)
+        {
+            return;
+        }
+        boolean populating = isPopulatingChunk(chunk);
+
+        for (int index = 0; index < blocks.length; index++)
+        {
+            LocalMaterialData material = blocks[index];
+            if (material == null)
+            {
+                continue;
+            }
+            int x = startX | (index & 0xF);
+            int y = startY | (index >> 8);
+            int z = startZ | ((index >> 4) & 0xF);
+
+            ChunkSection section = chunk.getSections()[sectionY];
+            if (!populating || section == null)
+            {
+                // Players may see the chunk, or section is still empty
+                setBlock(x, y, z, material);
+                continue;
+            }
+
+            IBlockData oldBlockData = section.getType(x & 0xF, y & 0xF, z & 0xF);
+            IBlockData newBlockData = ((BukkitMaterialData) material).internalBlock();
+            if (newBlockData.c() != oldBlockData.c() || newBlockData.d() != oldBlockData.d()
+                    || newBlockData.getBlock() instanceof ITileEntity || oldBlockData.getBlock() instanceof ITileEntity)
+            {
+                // Light or tile entities need updating
+                setBlock(x, y, z, material);
+                continue;
+            }
+
+            section.setType(x & 0xF, y & 0xF, z & 0xF, newBlockData);
+            markPopulatedSection(chunk, y);
+        }
+    }
+
+    @Override
+    public int setBlockRun(int x, int z, int startY, int endY, boolean up, MaterialSet throughBlocks, LocalMaterialData material)
+    {
+        // Blocks are set one by one, so that every block gets the light
+        // updates and client notifications of setBlock
+        return ObjectExtrusionHelper.setBlockRunPerBlock(this, x, z, startY, endY, up, throughBlocks, material);
+    }
+
     @Override
     public void setBlock(int x, int y, int z, LocalMaterialData material)
     {
@@ -444,6 +668,8 @@ public class BukkitWorld implements LocalWorld
                 return;
             }
 
+            markPopulatedSection(chunk, y);
+
             BlockPosition blockPos = new BlockPosition(x, y, z);
 
             // Disable nearby block physics and set block
@@ -548,6 +774,7 @@ public class BukkitWorld implements LocalWorld
 
         // Initialize cache
         this.chunkCache = loadFourChunks(chunkCoord);
+        this.populatedSections = 0;
     }
 
     private Chunk[] getChunkCache(ChunkCoordinate topLeft)
@@ -629,6 +856,12 @@ public class BukkitWorld implements LocalWorld
         return world.getSeed();
     }
 
+    @Override
+    public File getWorldSaveFolder()
+    {
+        return world.getWorld().getWorldFolder();
+    }
+
     @Override
     public int getHeightCap()
     {
@@ -669,12 +902,49 @@ public class BukkitWorld implements LocalWorld
     }
 
     /**
-     * Loads all settings again from disk.
+     * Loads all settings again from disk. Only the changed files are read,
+     * see {@link ServerConfigProvider#reload()}.
      */
     public void reloadSettings()
     {
-        this.biomeNames.clear();
+        if (this.structureCache != null)
+        {
+            // Save the structures while their objects can still be found
+            this.structureCache.save();
+        }
+
         this.settings.reload();
+        if (!this.settings.hasChangedOnLastReload())
+        {
+            // Keep the pregenerated chunks
+            return;
+        }
+
+        if (this.structureCache != null)
+        {
+            // Structures are read again using the new objects
+            this.structureCache.reload(this);
+        }
+
+        // Biomes that were not reloaded are still registered under their
+        // name, only remove the biomes that no longer exist
+        this.biomeNames.clear();
+        for (LocalBiome biome : this.settings.getBiomeArray())
+        {
+            if (biome != null)
+            {
+                this.biomeNames.put(biome.getName(), biome);
+            }
+        }
+
+        if (this.generator != null)
+        {
+            this.generator.onSettingsReloaded();
+        }
+        if (this.worldChunkManager != null)
+        {
+            this.worldChunkManager.onSettingsReloaded();
+        }
     }
 
     /**
@@ -772,6 +1042,7 @@ public class BukkitWorld implements LocalWorld
 
     private void injectWorldChunkManager(BiomeGenerator biomeGenerator)
     {
+        this.worldChunkManager = null;
         if (biomeGenerator instanceof BukkitVanillaBiomeGenerator)
         {
             // Let our biome generator depend on Minecraft's
@@ -779,8 +1050,9 @@ public class BukkitWorld implements LocalWorld
         } else
         {
             // Let Minecraft's biome generator depend on ours
+            this.worldChunkManager = new TCWorldChunkManager(this, biomeGenerator);
             ReflectionHelper.setValueInFieldOfType(this.world.worldProvider,
-                    WorldChunkManager.class, new TCWorldChunkManager(this, biomeGenerator));
+                    WorldChunkManager.class, this.worldChunkManager);
         }
     }
 
@@ -798,6 +1070,21 @@ public class BukkitWorld implements LocalWorld
      */
     public void disable()
     {
+        // Save the planned custom structures
+        if (this.structureCache != null)
+        {
+            this.structureCache.save();
+        }
+
+        // Stop watching the objects of this world
+        TerrainControl.getCustomObjectManager().getWatcher().unwatch(this.settings.getCustomObjects());
+
+        // Stop generating terrain in the background
+        if (this.generator != null)
+        {
+            this.generator.onDisable();
+        }
+
         // Restore old world provider if replaced
         if (world.worldProvider instanceof TCWorldProvider)
         {
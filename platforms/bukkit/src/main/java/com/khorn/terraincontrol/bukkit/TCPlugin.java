@@ -45,6 +45,15 @@ public class TCPlugin extends JavaPlugin
     @Override
     public void onDisable()
     {
+        // Worlds are not unloaded when the server stops
+        for (BukkitWorld world : worlds.values())
+        {
+            if (world.getStructureCache() != null)
+            {
+                world.getStructureCache().save();
+            }
+        }
+
         if (cleanupOnDisable)
         {
             // Cleanup worlds
@@ -4,10 +4,15 @@ import com.khorn.terraincontrol.TerrainControl;
 import com.khorn.terraincontrol.bukkit.BukkitWorld;
 import com.khorn.terraincontrol.bukkit.TCPerm;
 import com.khorn.terraincontrol.bukkit.TCPlugin;
+import com.khorn.terraincontrol.bukkit.events.TCSender;
+import com.khorn.terraincontrol.configuration.ConfigToNetworkSender;
 import com.khorn.terraincontrol.logging.LogMarker;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
 import java.util.List;
 
 public class ReloadCommand extends BaseCommand
@@ -32,8 +37,24 @@ public class ReloadCommand extends BaseCommand
             return false;
         }
 
+        // Remember what the clients know, so that only changes are sent
+        ConfigToNetworkSender.Snapshot clientSettings = null;
+        try
+        {
+            clientSettings = ConfigToNetworkSender.createSnapshot(world.getConfigs());
+        } catch (IOException e)
+        {
+            TerrainControl.printStackTrace(LogMarker.WARN, e);
+        }
+
         world.reloadSettings();
 
+        World bukkitWorld = Bukkit.getWorld(world.getName());
+        if (clientSettings != null && bukkitWorld != null)
+        {
+            new TCSender(plugin).sendUpdate(bukkitWorld, clientSettings);
+        }
+
         sender.sendMessage(MESSAGE_COLOR + "Configs for world '" + world.getName() + "' reloaded");
         if (sender instanceof Player)
         {
@@ -1,13 +1,17 @@
 package com.khorn.terraincontrol.bukkit.events;
 
+import com.khorn.terraincontrol.bukkit.BukkitWorld;
 import com.khorn.terraincontrol.bukkit.TCPlugin;
 import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerRegisterChannelEvent;
 import org.bukkit.event.world.StructureGrowEvent;
 import org.bukkit.event.world.WorldInitEvent;
@@ -56,6 +60,31 @@ public class TCListener implements Listener
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event)
+    {
+        // Generates terrain in advance in the direction the player is moving
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        int fromChunkX = from.getBlockX() >> 4;
+        int fromChunkZ = from.getBlockZ() >> 4;
+        int toChunkX = to.getBlockX() >> 4;
+        int toChunkZ = to.getBlockZ() >> 4;
+        if (fromChunkX == toChunkX && fromChunkZ == toChunkZ || !from.getWorld().equals(to.getWorld()))
+        {
+            return;
+        }
+
+        BukkitWorld world = this.tcPlugin.worlds.get(to.getWorld().getName());
+        if (world == null || world.getChunkGenerator() == null)
+        {
+            return;
+        }
+        world.getChunkGenerator().onPlayerChunkChange(to.getWorld(),
+                ChunkCoordinate.fromChunkCoords(fromChunkX, fromChunkZ),
+                ChunkCoordinate.fromChunkCoords(toChunkX, toChunkZ));
+    }
+
     @EventHandler
     public void onPlayerChangedWorld(PlayerChangedWorldEvent event)
     {
@@ -9,8 +9,6 @@ import com.khorn.terraincontrol.logging.LogMarker;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 
 public class TCSender
@@ -32,21 +30,51 @@ public class TCSender
         {
             ConfigProvider configs = plugin.worlds.get(world.getName()).getConfigs();
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            DataOutputStream stream = new DataOutputStream(outputStream);
-
+            byte[] data;
             try
             {
-                stream.writeInt(PluginStandardValues.ProtocolVersion);
-                ConfigToNetworkSender.send(configs, stream);
-                stream.flush();
+                data = ConfigToNetworkSender.createPacket(configs);
             } catch (IOException e)
             {
                 TerrainControl.printStackTrace(LogMarker.FATAL, e);
+                return;
             }
 
-            byte[] data = outputStream.toByteArray();
+            player.sendPluginMessage(plugin, PluginStandardValues.ChannelName, data);
+        }
+    }
+
+    /**
+     * Sends the settings that changed since the snapshot was taken to all
+     * players in the world. Sends nothing if no setting changed.
+     * @param world       The world.
+     * @param oldSnapshot Snapshot taken before the settings were reloaded.
+     */
+    public void sendUpdate(World world, ConfigToNetworkSender.Snapshot oldSnapshot)
+    {
+        if (!plugin.worlds.containsKey(world.getName()))
+        {
+            return;
+        }
+        ConfigProvider configs = plugin.worlds.get(world.getName()).getConfigs();
 
+        byte[] data;
+        try
+        {
+            data = ConfigToNetworkSender.createUpdatePacket(oldSnapshot, configs);
+        } catch (IOException e)
+        {
+            TerrainControl.printStackTrace(LogMarker.FATAL, e);
+            return;
+        }
+        if (data == null)
+        {
+            // Nothing changed that the clients need to know
+            return;
+        }
+
+        for (Player player : world.getPlayers())
+        {
             player.sendPluginMessage(plugin, PluginStandardValues.ChannelName, data);
         }
     }
@@ -3,10 +3,16 @@ package com.khorn.terraincontrol.bukkit.generator;
 import com.khorn.terraincontrol.bukkit.BukkitWorld;
 import com.khorn.terraincontrol.bukkit.TCPlugin;
 import com.khorn.terraincontrol.configuration.WorldConfig;
+import com.khorn.terraincontrol.generator.AsyncTerrainGenerator;
 import com.khorn.terraincontrol.generator.ChunkProviderTC;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import net.minecraft.server.v1_10_R1.ChunkRegionLoader;
+import net.minecraft.server.v1_10_R1.IChunkLoader;
+import net.minecraft.server.v1_10_R1.WorldServer;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.World;
+import org.bukkit.craftbukkit.v1_10_R1.CraftWorld;
 import org.bukkit.generator.BlockPopulator;
 import org.bukkit.generator.ChunkGenerator;
 
@@ -17,6 +23,7 @@ import java.util.Random;
 public class TCChunkGenerator extends ChunkGenerator
 {
     private ChunkProviderTC chunkProviderTC;
+    private AsyncTerrainGenerator asyncTerrainGenerator;
     private ArrayList<BlockPopulator> BlockPopulator = new ArrayList<BlockPopulator>();
     private boolean NotGenerate = false;
     private TCPlugin plugin;
@@ -51,7 +58,14 @@ public class TCChunkGenerator extends ChunkGenerator
     {
         this.chunkProviderTC = new ChunkProviderTC(_world.getConfigs(), _world);
 
-        WorldConfig.TerrainMode mode = _world.getConfigs().getWorldConfig().ModeTerrain;
+        WorldConfig worldConfig = _world.getConfigs().getWorldConfig();
+        if (AsyncTerrainGenerator.isSupported(_world))
+        {
+            this.asyncTerrainGenerator = new AsyncTerrainGenerator(_world.getConfigs(), _world, this.chunkProviderTC,
+                    worldConfig.terrainWorkerThreads, worldConfig.terrainReadyQueueSize);
+        }
+
+        WorldConfig.TerrainMode mode = worldConfig.ModeTerrain;
 
         if (mode == WorldConfig.TerrainMode.Normal || mode == WorldConfig.TerrainMode.OldGenerator)
             this.BlockPopulator.add(new TCBlockPopulator(_world));
@@ -89,9 +103,77 @@ public class TCChunkGenerator extends ChunkGenerator
 
         ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
         BukkitChunkBuffer chunkBuffer = new BukkitChunkBuffer(chunkCoord, chunkData);
-        this.chunkProviderTC.generate(chunkBuffer);
+        if (this.asyncTerrainGenerator != null)
+        {
+            this.asyncTerrainGenerator.generate(chunkBuffer);
+        } else
+        {
+            this.chunkProviderTC.generate(chunkBuffer);
+        }
 
         return chunkData;
     }
 
+    /**
+     * Called when a player moves to another chunk. Starts generating the
+     * terrain of the chunks ahead of the player on the worker threads.
+     *
+     * @param world The world the player is in.
+     * @param from  The chunk the player was in.
+     * @param to    The chunk the player is in now.
+     */
+    public void onPlayerChunkChange(World world, ChunkCoordinate from, ChunkCoordinate to)
+    {
+        if (this.asyncTerrainGenerator == null)
+            return;
+
+        for (ChunkCoordinate chunkCoord : AsyncTerrainGenerator.getChunksAhead(from, to, Bukkit.getViewDistance()))
+        {
+            int chunkX = chunkCoord.getChunkX();
+            int chunkZ = chunkCoord.getChunkZ();
+            if (!world.isChunkLoaded(chunkX, chunkZ) && !isChunkOnDisk(world, chunkX, chunkZ))
+            {
+                this.asyncTerrainGenerator.requestChunk(chunkCoord);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the chunk was saved before. Such a chunk is read from
+     * disk and never generated, so it must not be generated in advance.
+     * @param world  The world.
+     * @param chunkX The chunk x.
+     * @param chunkZ The chunk z.
+     * @return True if the chunk exists on disk, false otherwise.
+     */
+    private boolean isChunkOnDisk(World world, int chunkX, int chunkZ)
+    {
+        WorldServer worldServer = ((CraftWorld) world).getHandle();
+        IChunkLoader chunkLoader = worldServer.getChunkProviderServer().chunkLoader;
+        return chunkLoader instanceof ChunkRegionLoader
+                && ((ChunkRegionLoader) chunkLoader).chunkExists(worldServer, chunkX, chunkZ);
+    }
+
+    /**
+     * Called after the settings of the world have been reloaded. Drops the
+     * terrain generated using the old settings.
+     */
+    public void onSettingsReloaded()
+    {
+        if (this.asyncTerrainGenerator != null)
+            this.asyncTerrainGenerator.invalidate();
+    }
+
+    /**
+     * Called when the world is disabled. Stops the worker threads.
+     */
+    public void onDisable()
+    {
+        if (this.asyncTerrainGenerator != null)
+        {
+            this.asyncTerrainGenerator.shutdown();
+            this.asyncTerrainGenerator = null;
+        }
+    }
+
 }
\ No newline at end of file
@@ -1,15 +1,21 @@
 package com.khorn.terraincontrol.bukkit.generator;
 
+import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.bukkit.BukkitBiome;
 import com.khorn.terraincontrol.bukkit.BukkitWorld;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.generator.biome.OutputType;
+import com.khorn.terraincontrol.generator.biome.StructureBiomeChecker;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
 import net.minecraft.server.v1_10_R1.BiomeBase;
 import net.minecraft.server.v1_10_R1.BlockPosition;
 import net.minecraft.server.v1_10_R1.WorldChunkManager;
 import net.minecraft.server.v1_10_R1.WorldGenVillage;
 
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -21,11 +27,20 @@ public class TCWorldChunkManager extends WorldChunkManager
 {
     private BukkitWorld localWorld;
     private BiomeGenerator biomeGenerator;
+    private final StructureBiomeChecker structureBiomeChecker;
+
+    /**
+     * Biome lists of Minecraft are static, so they can be cached by
+     * identity.
+     */
+    private final Map<List<?>, BitSet> allowedBiomeIds = new IdentityHashMap<List<?>, BitSet>();
+    private final Map<List<?>, BitSet> allowedVanillaBiomeIds = new IdentityHashMap<List<?>, BitSet>();
 
     public TCWorldChunkManager(BukkitWorld world, BiomeGenerator biomeGenerator)
     {
         this.localWorld = world;
         this.biomeGenerator = biomeGenerator;
+        this.structureBiomeChecker = new StructureBiomeChecker(biomeGenerator);
     }
 
     @Override
@@ -84,22 +99,7 @@ public class TCWorldChunkManager extends WorldChunkManager
             paramList = localWorld.villageGen.villageSpawnBiomes;
         }
 
-        int i = paramInt1 - paramInt3 >> 2;
-        int j = paramInt2 - paramInt3 >> 2;
-        int k = paramInt1 + paramInt3 >> 2;
-        int m = paramInt2 + paramInt3 >> 2;
-
-        int n = k - i + 1;
-        int i1 = m - j + 1;
-        BiomeBase[] arrayOfInt = this.getBiomes(null, i, j, n, i1);
-        for (int i2 = 0; i2 < n * i1; i2++)
-        {
-            BiomeBase localBiomeBase = arrayOfInt[i2];
-            if (!paramList.contains(localBiomeBase))
-                return false;
-        }
-
-        return true;
+        return this.structureBiomeChecker.areBiomesViable(paramInt1, paramInt2, paramInt3, getAllowedBiomeIds(paramList));
     }
 
     @Override
@@ -113,18 +113,16 @@ public class TCWorldChunkManager extends WorldChunkManager
 
         int n = k - i + 1;
         int i1 = m - j + 1;
-        int[] arrayOfInt = this.biomeGenerator.getBiomesUnZoomed(null, i, j, n, i1, OutputType.DEFAULT_FOR_WORLD);
+        BitSet allowedVanillaIds = getAllowedVanillaBiomeIds(paramList);
+        int[] arrayOfInt = this.structureBiomeChecker.getBiomesUnZoomed(i, j, n, i1);
         BlockPosition localBlockPosition = null;
         int i2 = 0;
-        for (int i3 = 0; i3 < arrayOfInt.length; i3++)
+        for (int i3 = 0; i3 < n * i1; i3++)
         {
-            if (arrayOfInt[i3] >= DefaultBiome.values().length)
+            if (!allowedVanillaIds.get(arrayOfInt[i3]) || ((localBlockPosition != null) && (paramRandom.nextInt(i2 + 1) != 0)))
                 continue;
             int i4 = i + i3 % n << 2;
             int i5 = j + i3 / n << 2;
-            BiomeBase localBiomeBase = BiomeBase.getBiome(arrayOfInt[i3]);
-            if ((!paramList.contains(localBiomeBase)) || ((localBlockPosition != null) && (paramRandom.nextInt(i2 + 1) != 0)))
-                continue;
             localBlockPosition = new BlockPosition(i4, 0, i5);
             i2++;
         }
@@ -132,6 +130,68 @@ public class TCWorldChunkManager extends WorldChunkManager
         return localBlockPosition;
     }
 
+    /**
+     * Called after the settings of the world have been reloaded. Biome ids
+     * and biome names may have changed, so the cached biomes are forgotten.
+     */
+    public void onSettingsReloaded()
+    {
+        this.allowedBiomeIds.clear();
+        this.allowedVanillaBiomeIds.clear();
+        this.structureBiomeChecker.clearCache();
+    }
+
+    /**
+     * Gets the generation ids of all biomes of this world that have their
+     * handle in the given list.
+     *
+     * @param biomes The list, must not be modified afterwards.
+     * @return The generation ids.
+     */
+    private BitSet getAllowedBiomeIds(List<?> biomes)
+    {
+        BitSet allowedIds = this.allowedBiomeIds.get(biomes);
+        if (allowedIds == null)
+        {
+            allowedIds = new BitSet();
+            for (LocalBiome biome : this.localWorld.getConfigs().getBiomeArray())
+            {
+                if (biome != null && biomes.contains(((BukkitBiome) biome).getHandle()))
+                {
+                    allowedIds.set(biome.getIds().getGenerationId());
+                }
+            }
+            this.allowedBiomeIds.put(biomes, allowedIds);
+        }
+        return allowedIds;
+    }
+
+    /**
+     * Gets the ids of all vanilla biomes in the given list. Biome ids of
+     * custom biomes are never included.
+     *
+     * @param biomes The list, must not be modified afterwards.
+     * @return The biome ids.
+     */
+    private BitSet getAllowedVanillaBiomeIds(List<?> biomes)
+    {
+        BitSet allowedIds = this.allowedVanillaBiomeIds.get(biomes);
+        if (allowedIds == null)
+        {
+            allowedIds = new BitSet();
+            for (int biomeId = 0; biomeId < DefaultBiome.values().length; biomeId++)
+            {
+                BiomeBase biomeBase = BiomeBase.getBiome(biomeId);
+                if (biomeBase != null && biomes.contains(biomeBase))
+                {
+                    allowedIds.set(biomeId);
+                }
+            }
+            this.allowedVanillaBiomeIds.put(biomes, allowedIds);
+        }
+        return allowedIds;
+    }
+
     @Override
     public void b()
     {
@@ -2,6 +2,7 @@ package com.khorn.terraincontrol.bukkit.metrics;
 
 import com.khorn.terraincontrol.bukkit.TCPlugin;
 import com.khorn.terraincontrol.bukkit.metrics.Metrics.Graph;
+import com.khorn.terraincontrol.customobjects.SpawnCheckStats;
 import com.khorn.terraincontrol.util.helpers.MetricsHelper;
 import org.bukkit.Bukkit;
 
@@ -93,7 +94,54 @@ public class BukkitMetricsHelper extends MetricsHelper
                 }
             });
 
-            metrics.start();
+            Graph spawnChecksGraph = metrics.createGraph("Custom object spawn checks");
+
+            spawnChecksGraph.addPlotter(new Metrics.Plotter("Attempts")
+            {
+                @Override
+                public int getValue()
+                {
+                    return toPlotValue(SpawnCheckStats.getAttempts());
+                }
+            });
+            spawnChecksGraph.addPlotter(new Metrics.Plotter("Rejected by quick checks")
+            {
+                @Override
+                public int getValue()
+                {
+                    return toPlotValue(SpawnCheckStats.getRejectedByQuickChecks());
+                }
+            });
+            spawnChecksGraph.addPlotter(new Metrics.Plotter("Rejected by corners")
+            {
+                @Override
+                public int getValue()
+                {
+                    return toPlotValue(SpawnCheckStats.getRejectedBySamples());
+                }
+            });
+            spawnChecksGraph.addPlotter(new Metrics.Plotter("Rejected by full scan")
+            {
+                @Override
+                public int getValue()
+                {
+                    return toPlotValue(SpawnCheckStats.getRejectedByFullScan());
+                }
+            });
+            spawnChecksGraph.addPlotter(new Metrics.Plotter("Milliseconds of skipped blocks")
+            {
+                @Override
+                public int getValue()
+                {
+                    return toPlotValue(SpawnCheckStats.getEstimatedMillisOfSkippedBlocks());
+                }
+            });
+
+            if (metrics.start())
+            {
+                // Only count spawn checks if the counts are submitted
+                SpawnCheckStats.setEnabled(true);
+            }
         } catch (IOException e)
         {
             // Failed to submit stats
@@ -1,11 +1,15 @@
 package com.khorn.terraincontrol.forge;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 import com.google.common.base.Preconditions;
 import com.khorn.terraincontrol.*;
 import com.khorn.terraincontrol.configuration.*;
+import com.khorn.terraincontrol.configuration.WorldConfig.ReplaceBlocksMode;
 import com.khorn.terraincontrol.customobjects.CustomObjectStructureCache;
+import com.khorn.terraincontrol.customobjects.ObjectExtrusionHelper;
 import com.khorn.terraincontrol.exception.BiomeNotFoundException;
 import com.khorn.terraincontrol.forge.generator.BiomeGenCustom;
 import com.khorn.terraincontrol.forge.generator.ChunkProvider;
@@ -15,10 +19,13 @@ import com.khorn.terraincontrol.generator.SpawnableObject;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.logging.LogMarker;
 import com.khorn.terraincontrol.util.ChunkCoordinate;
+import com.khorn.terraincontrol.util.MaterialSet;
 import com.khorn.terraincontrol.util.NamedBinaryTag;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
 import com.khorn.terraincontrol.util.minecraftTypes.TreeType;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.minecraft.block.*;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.state.IBlockState;
@@ -88,6 +95,25 @@ public class ForgeWorld implements LocalWorld
 
     private Chunk[] chunkCache;
 
+    /**
+     * Used in {@link #replaceBlocks(Chunk, int)}, to avoid creating a new array
+     * for every chunk.
+     */
+    private final ReplacedBlocksMatrix[] replacedBlocksColumns = new ReplacedBlocksMatrix[16 * 16];
+
+    /**
+     * Sections changed by {@link #setBlock(int, int, int, LocalMaterialData)}
+     * during population. Bit {@code chunkIndex * 16 + sectionY} is set when
+     * section sectionY of {@code chunkCache[chunkIndex]} was changed.
+     */
+    private long populatedSections;
+
+    /**
+     * The settings for the clients, created when the first player logs in.
+     * Null when not created yet or when the settings changed.
+     */
+    private ByteBuf configPacket;
+
     public ForgeWorld(String _name)
     {
         this.name = _name;
@@ -286,58 +312,129 @@ public class ForgeWorld implements LocalWorld
         // Get cache
         Chunk[] cache = getChunkCache(chunkCoord);
 
+        // When the terrain was already replaced during terrain generation,
+        // only the sections changed during population need to be checked
+        boolean onlyPopulatedSections = this.settings.getWorldConfig().replaceBlocksMode == ReplaceBlocksMode.DuringTerrainGeneration
+                && cache == this.chunkCache;
+
         // Replace the blocks
         for (int i = 0; i < 4; i++)
         {
-            replaceBlocks(cache[i], 0, 0, 16);
+            int sectionMask = onlyPopulatedSections ? (int) (this.populatedSections >>> (i * 16)) & 0xFFFF : 0xFFFF;
+            if (sectionMask != 0)
+            {
+                replaceBlocks(cache[i], sectionMask);
+            }
         }
     }
 
-    private void replaceBlocks(Chunk rawChunk, int startXInChunk, int startZInChunk, int size)
+    private void replaceBlocks(Chunk rawChunk, int sectionMask)
     {
-        int endXInChunk = startXInChunk + size;
-        int endZInChunk = startZInChunk + size;
         int worldStartX = rawChunk.xPosition * 16;
         int worldStartZ = rawChunk.zPosition * 16;
 
+        // Look up the biome of each column only once
+        ReplacedBlocksMatrix[] columnMatrices = this.replacedBlocksColumns;
+        int minReplacedY = Integer.MAX_VALUE;
+        int maxReplacedY = Integer.MIN_VALUE;
+        // Sections without blocks can only be skipped if air is not replaced
+        boolean replacesAir = false;
+        for (int sectionX = 0; sectionX < 16; sectionX++)
+        {
+            for (int sectionZ = 0; sectionZ < 16; sectionZ++)
+            {
+                LocalBiome biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
+                ReplacedBlocksMatrix matrix = null;
+                if (biome != null && biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                {
+                    matrix = biome.getBiomeConfig().replacedBlocks;
+                    minReplacedY = Math.min(minReplacedY, matrix.getMinReplacedY());
+                    maxReplacedY = Math.max(maxReplacedY, matrix.getMaxReplacedY());
+                    replacesAir |= matrix.replacesBlock(0);
+                }
+                columnMatrices[sectionX * 16 + sectionZ] = matrix;
+            }
+        }
+
+        if (minReplacedY > maxReplacedY)
+        {
+            // No biome in this chunk replaces blocks
+            return;
+        }
+
         ExtendedBlockStorage[] sectionsArray = rawChunk.getBlockStorageArray();
 
         for (ExtendedBlockStorage section : sectionsArray)
         {
-            if (section == null)
+            if (section == null || (!replacesAir && section.isEmpty()))
                 continue;
 
-            for (int sectionX = startXInChunk; sectionX < endXInChunk; sectionX++)
+            int sectionStartY = section.getYLocation();
+            if ((sectionMask & (1 << (sectionStartY >> 4))) == 0)
+            {
+                // Section not changed since it was replaced
+                continue;
+            }
+            if (sectionStartY > maxReplacedY || sectionStartY + 15 < minReplacedY)
             {
-                for (int sectionZ = startZInChunk; sectionZ < endZInChunk; sectionZ++)
+                // Nothing is replaced at this height
+                continue;
+            }
+
+            for (int sectionX = 0; sectionX < 16; sectionX++)
+            {
+                for (int sectionZ = 0; sectionZ < 16; sectionZ++)
                 {
-                    LocalBiome biome = this.getBiome(worldStartX + sectionX, worldStartZ + sectionZ);
-                    if (biome != null && biome.getBiomeConfig().replacedBlocks.hasReplaceSettings())
+                    ReplacedBlocksMatrix matrix = columnMatrices[sectionX * 16 + sectionZ];
+                    if (matrix == null || !matrix.replacesBlocksBetween(sectionStartY, sectionStartY + 15))
+                        continue;
+
+                    LocalMaterialData[][] replaceArray = matrix.compiledInstructions;
+                    for (int sectionY = 0; sectionY < 16; sectionY++)
                     {
-                        LocalMaterialData[][] replaceArray = biome.getBiomeConfig().replacedBlocks.compiledInstructions;
-                        for (int sectionY = 0; sectionY < 16; sectionY++)
-                        {
-                            IBlockState block = section.getData().get(sectionX, sectionY, sectionZ);
-                            int blockId = Block.getIdFromBlock(block.getBlock());
-                            if (replaceArray[blockId] == null)
-                                continue;
-
-                            int y = section.getYLocation() + sectionY;
-                            if (y >= replaceArray[blockId].length)
-                                break;
-
-                            ForgeMaterialData replaceTo = (ForgeMaterialData) replaceArray[blockId][y];
-                            if (replaceTo == null || replaceTo.getBlockId() == blockId)
-                                continue;
-
-                            section.set(sectionX, sectionY, sectionZ, replaceTo.internalBlock());
-                        }
+                        IBlockState block = section.getData().get(sectionX, sectionY, sectionZ);
+                        int blockId = Block.getIdFromBlock(block.getBlock());
+                        if (!matrix.replacesBlock(blockId))
+                            continue;
+
+                        int y = sectionStartY + sectionY;
+                        if (y >= replaceArray[blockId].length)
+                            break;
+
+                        ForgeMaterialData replaceTo = (ForgeMaterialData) replaceArray[blockId][y];
+                        if (replaceTo == null || replaceTo.getBlockId() == blockId)
+                            continue;
+
+                        section.set(sectionX, sectionY, sectionZ, replaceTo.internalBlock());
                     }
                 }
             }
         }
     }
 
+    /**
+     * Remembers that a block in the given chunk section was changed, if the
+     * chunk is being populated.
+     *
+     * @param chunk The chunk.
+     * @param y     The y position of the block.
+     */
+    private void markPopulatedSection(Chunk chunk, int y)
+    {
+        if (this.chunkCache == null)
+        {
+            return;
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            if (this.chunkCache[i] == chunk)
+            {
+                this.populatedSections |= 1L << (i * 16 + (y >> 4));
+                return;
+            }
+        }
+    }
+
     @Override
     public void placePopulationMobs(LocalBiome biome, Random random, ChunkCoordinate chunkCoord)
     {
@@ -346,6 +443,38 @@ public class ForgeWorld implements LocalWorld
                 ChunkCoordinate.CHUNK_X_SIZE, ChunkCoordinate.CHUNK_Z_SIZE, random);
     }
 
+    /**
+     * Gets whether blocks in the given chunk can be written straight to its
+     * storage arrays. This is only the case for the chunk that is being
+     * populated and for the other cached chunks that are not populated yet.
+     * Players never see those chunks. The other chunks may already be
+     * populated, lit and sent to players, so changes to them must go through
+     * {@link #setBlock(int, int, int, LocalMaterialData)}, so that players
+     * are notified of them.
+     *
+     * @param chunk The chunk.
+     * @return True if the storage arrays of the chunk can be changed directly.
+     */
+    private boolean isPopulatingChunk(Chunk chunk)
+    {
+        if (this.chunkCache == null)
+        {
+            return false;
+        }
+        if (this.chunkCache[0] == chunk)
+        {
+            return true;
+        }
+        for (Chunk cachedChunk : this.chunkCache)
+        {
+            if (cachedChunk == chunk)
+            {
+                return !chunk.isTerrainPopulated();
+            }
+        }
+        return false;
+    }
+
     private Chunk getChunk(int x, int y, int z)
     {
         if (y < TerrainControl.WORLD_DEPTH || y >= TerrainControl.WORLD_HEIGHT)
@@ -446,6 +575,103 @@ public class ForgeWorld implements LocalWorld
         return ForgeMaterialData.ofMinecraftBlockState(blockState);
     }
 
+    @Override
+    public boolean replaceBlock(int x, int y, int z, MaterialSet sourceBlocks, LocalMaterialData material)
+    {
+        Chunk chunk = this.getChunk(x, y, z);
+        if (chunk == null)
+        {
+            return false;
+        }
+
+        ExtendedBlockStorage section = chunk.getBlockStorageArray()[y >> 4];
+        if (!isPopulatingChunk(chunk) || section == null)
+        {
+            // Players may see the chunk, or section is still empty: use the
+            // normal path
+            if (!sourceBlocks.contains(getMaterial(x, y, z)))
+            {
+                return false;
+            }
+            setBlock(x, y, z, material);
+            return true;
+        }
+
+        IBlockState oldState = section.get(x & 0xF, y & 0xF, z & 0xF);
+        if (!sourceBlocks.contains(ForgeMaterialData.ofMinecraftBlockState(oldState)))
+        {
+            return false;
+        }
+
+        IBlockState newState = ((ForgeMaterialData) material).internalBlock();
+        if (newState.getLightOpacity() != oldState.getLightOpacity() || newState.getLightValue() != oldState.getLightValue()
+                || newState.getBlock().hasTileEntity(newState) || oldState.getBlock().hasTileEntity(oldState))
+        {
+            // Light or tile entities need updating
+            setBlock(x, y, z, material);
+            return true;
+        }
+
+        section.set(x & 0xF, y & 0xF, z & 0xF, newState);
+        markPopulatedSection(chunk, y);
+        return true;
+    }
+
+    @Override
+    public void setSectionBlocks(int chunkX, int sectionY, int chunkZ, LocalMaterialData[] blocks)
+    {
+        int startX = chunkX << 4;
+        int startY = sectionY << 4;
+        int startZ = chunkZ << 4;
+        Chunk chunk = this.getChunk(startX, startY, startZ);
+        if (chunk == null)
+        {
+            return;
+        }
+        boolean populating = isPopulatingChunk(chunk);
+
+        for (int index = 0; index < blocks.length; index++)
+        {
+            LocalMaterialData material = blocks[index];
+            if (material == null)
+            {
+                continue;
+            }
+            int x = startX | (index & 0xF);
+            int y = startY | (index >> 8);
+            int z = startZ | ((index >> 4) & 0xF);
+
+            ExtendedBlockStorage section = chunk.getBlockStorageArray()[sectionY];
+            if (!populating || section == null)
+            {
+                // Players may see the chunk, or section is still empty
+                setBlock(x, y, z, material);
+                continue;
+            }
+
+            IBlockState oldState = section.get(x & 0xF, y & 0xF, z & 0xF);
+            IBlockState newState = ((ForgeMaterialData) material).internalBlock();
+            if (newState.getLightOpacity() != oldState.getLightOpacity() || newState.getLightValue() != oldState.getLightValue()
+                    || newState.getBlock().hasTileEntity(newState) || oldState.getBlock().hasTileEntity(oldState))
+            {
+                // Light or tile entities need updating
+                setBlock(x, y, z, material);
+                continue;
+            }
+
+            section.set(x & 0xF, y & 0xF, z & 0xF, newState);
+            markPopulatedSection(chunk, y);
+        }
+    }
+
+    @Override
+    public int setBlockRun(int x, int z, int startY, int endY, boolean up, MaterialSet throughBlocks, LocalMaterialData material)
+    {
+        // Blocks are set one by one, so that every block gets the light
+        // updates and client notifications of setBlock
+        return ObjectExtrusionHelper.setBlockRunPerBlock(this, x, z, startY, endY, up, throughBlocks, material);
+    }
+
     @Override
     public void setBlock(int x, int y, int z, LocalMaterialData material)
     {
@@ -471,6 +697,8 @@ public class ForgeWorld implements LocalWorld
             return;
         }
 
+        markPopulatedSection(chunk, y);
+
         BlockPos pos = new BlockPos(x, y, z);
 
         IBlockState oldState = world.getBlockState(pos);
@@ -536,6 +764,7 @@ public class ForgeWorld implements LocalWorld
 
         // Initialize cache
         this.chunkCache = loadFourChunks(chunkCoord);
+        this.populatedSections = 0;
     }
 
     private Chunk[] getChunkCache(ChunkCoordinate topLeft)
@@ -618,6 +847,17 @@ public class ForgeWorld implements LocalWorld
         return this.seed;
     }
 
+    @Override
+    public File getWorldSaveFolder()
+    {
+        if (!(this.world instanceof WorldServer))
+        {
+            // Client worlds are saved by the server
+            return null;
+        }
+        return this.world.getSaveHandler().getWorldDirectory();
+    }
+
     @Override
     public int getHeightCap()
     {
@@ -651,6 +891,36 @@ public class ForgeWorld implements LocalWorld
     {
         Preconditions.checkNotNull(configs, "configs");
         this.settings = configs;
+        invalidateConfigPacket();
+    }
+
+    /**
+     * Gets the compressed settings for the clients, as created by
+     * {@link ConfigToNetworkSender#createPacket(ConfigProvider)}. The
+     * settings are only serialized the first time this method is called.
+     * The returned buffer is shared and read-only, so use
+     * {@link ByteBuf#duplicate()} before reading from it.
+     * @return The settings.
+     * @throws IOException If the settings could not be serialized.
+     */
+    public synchronized ByteBuf getConfigPacket() throws IOException
+    {
+        if (this.configPacket == null)
+        {
+            byte[] packet = ConfigToNetworkSender.createPacket(this.settings);
+            this.configPacket = Unpooled.unreleasableBuffer(Unpooled.unmodifiableBuffer(Unpooled.wrappedBuffer(packet)));
+        }
+        return this.configPacket;
+    }
+
+    /**
+     * Makes sure that the settings for the clients are serialized again the
+     * next time a player logs in. Call this method when the settings have
+     * changed.
+     */
+    public synchronized void invalidateConfigPacket()
+    {
+        this.configPacket = null;
     }
 
     /**
@@ -1,10 +1,8 @@
 package com.khorn.terraincontrol.forge;
 
-import com.google.common.base.Function;
-import com.khorn.terraincontrol.LocalBiome;
+import com.google.common.base.Supplier;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
-import com.khorn.terraincontrol.configuration.BiomeConfig;
 import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
 import com.khorn.terraincontrol.events.EventPriority;
 import com.khorn.terraincontrol.forge.events.*;
@@ -13,7 +11,6 @@ import com.khorn.terraincontrol.forge.generator.structure.RareBuildingStart;
 import com.khorn.terraincontrol.forge.generator.structure.VillageStart;
 import com.khorn.terraincontrol.generator.biome.VanillaBiomeGenerator;
 import com.khorn.terraincontrol.util.minecraftTypes.StructureNames;
-import net.minecraft.world.biome.Biome;
 import net.minecraft.world.gen.structure.MapGenStructureIO;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.FMLCommonHandler;
@@ -69,27 +66,24 @@ public class TCPlugin
         // Register player tracker, for sending configs.
         MinecraftForge.EVENT_BUS.register(new PlayerTracker(worldLoader));
 
+        // Register chunk preloader, for generating terrain ahead of players.
+        MinecraftForge.EVENT_BUS.register(new ChunkPreloadListener(worldLoader));
+
         // Register sapling tracker, for custom tree growth.
         SaplingListener saplingListener = new SaplingListener(worldLoader);
         MinecraftForge.TERRAIN_GEN_BUS.register(saplingListener);
         MinecraftForge.EVENT_BUS.register(saplingListener);
 
         // Register colorizer, for biome colors
-        Function<Biome, BiomeConfig> getBiomeConfig = new Function<Biome, BiomeConfig>()
+        Supplier<LocalWorld> getWorld = new Supplier<LocalWorld>()
         {
             @Override
-            public BiomeConfig apply(Biome input)
+            public LocalWorld get()
             {
-                LocalWorld world = engine.getWorld();
-                if (world == null)
-                    return null;
-                LocalBiome biome = world.getBiomeByName(input.getBiomeName());
-                if (biome == null)
-                    return null;
-                return biome.getBiomeConfig();
+                return engine.getWorld();
             }
         };
-        MinecraftForge.EVENT_BUS.register(new BiomeColorsListener(getBiomeConfig));
+        MinecraftForge.EVENT_BUS.register(new BiomeColorsListener(getWorld));
 
         // Register to our own events, so that they can be fired again as
         // Forge events.
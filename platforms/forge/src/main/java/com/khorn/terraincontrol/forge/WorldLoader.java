@@ -115,6 +115,19 @@ public final class WorldLoader
         if (world != null)
         {
             TerrainControl.log(LogMarker.INFO, "Unloading world \"{}\"...", world.getName());
+            if (world.getChunkGenerator() != null)
+            {
+                world.getChunkGenerator().shutdown();
+            }
+            if (world.getStructureCache() != null)
+            {
+                world.getStructureCache().save();
+            }
+            if (world.getConfigs() instanceof ServerConfigProvider)
+            {
+                // Client worlds use the global objects, keep watching those
+                TerrainControl.getCustomObjectManager().getWatcher().unwatch(world.getConfigs().getCustomObjects());
+            }
             markBiomeIdsAsFree(world);
         }
 
@@ -167,10 +180,35 @@ public final class WorldLoader
         ClientConfigProvider configs = new ClientConfigProvider(wrappedStream, world);
         world.provideClientConfigs(mcWorld, configs);
 
-        if (this.worldOrNull == null)
+        ForgeWorld oldWorld = this.worldOrNull;
+        if (oldWorld == null || oldWorld.getConfigs() instanceof ClientConfigProvider)
         {
+            // No world yet, or the server sent all settings again after
+            // /tc reload: replace the client world and its settings. On
+            // singleplayer the server world is kept.
             this.worldOrNull = world;
         }
     }
 
+    /**
+     * Updates the settings of the client world using an update packet sent
+     * after the server reloaded its settings. Ignored if the packet is for
+     * another world.
+     * @param wrappedStream The decompressed contents of the packet.
+     * @throws IOException If the packet could not be read.
+     */
+    @SideOnly(Side.CLIENT)
+    public void updateClientWorld(DataInputStream wrappedStream) throws IOException
+    {
+        String worldName = ConfigFile.readStringFromStream(wrappedStream);
+        ForgeWorld world = this.worldOrNull;
+        if (world == null || !world.getName().equals(worldName) || !(world.getConfigs() instanceof ClientConfigProvider))
+        {
+            TerrainControl.log(LogMarker.WARN, "Received settings update for unknown world \"{}\"", worldName);
+            return;
+        }
+
+        ((ClientConfigProvider) world.getConfigs()).update(wrappedStream, world);
+    }
+
 }
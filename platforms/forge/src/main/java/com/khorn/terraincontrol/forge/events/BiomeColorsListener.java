@@ -1,7 +1,10 @@
 package com.khorn.terraincontrol.forge.events;
 
-import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.khorn.terraincontrol.LocalBiome;
+import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.configuration.BiomeConfig;
+import com.khorn.terraincontrol.exception.BiomeNotFoundException;
 import net.minecraft.world.biome.Biome;
 import net.minecraftforge.event.terraingen.BiomeEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
@@ -9,63 +12,195 @@ import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 /**
  * Listens to various events in order to change the grass color, water color and
  * foliage color.
+ *
+ * <p>The renderer asks for the colors of every block it draws, so the colors
+ * are looked up in tables indexed by biome id. The tables are created again
+ * when the world or its biomes change.
  */
 public final class BiomeColorsListener
 {
-    private final Function<Biome, BiomeConfig> getBiomeConfig;
+    /**
+     * Keep the color of Minecraft.
+     */
+    private static final byte KEEP_COLOR = 0;
 
-    public BiomeColorsListener(Function<Biome, BiomeConfig> getBiomeConfig)
+    /**
+     * Replace the color of Minecraft.
+     */
+    private static final byte REPLACE_COLOR = 1;
+
+    /**
+     * Use the average of the color of Minecraft and the configured color.
+     */
+    private static final byte AVERAGE_COLOR = 2;
+
+    /**
+     * The colors of all biomes of a world, indexed by biome id.
+     */
+    private static final class ColorTable
+    {
+        private final LocalWorld world;
+        private final LocalBiome[] biomeArray;
+
+        private final byte[] grassModes;
+        private final int[] grassColors;
+        private final byte[] foliageModes;
+        private final int[] foliageColors;
+        private final byte[] waterModes;
+        private final int[] waterColors;
+
+        private ColorTable(LocalWorld world, LocalBiome[] biomeArray, int size)
+        {
+            this.world = world;
+            this.biomeArray = biomeArray;
+            this.grassModes = new byte[size];
+            this.grassColors = new int[size];
+            this.foliageModes = new byte[size];
+            this.foliageColors = new int[size];
+            this.waterModes = new byte[size];
+            this.waterColors = new int[size];
+        }
+
+        private void setColors(int biomeId, BiomeConfig biomeConfig)
+        {
+            if (biomeConfig.grassColorIsMultiplier)
+            {
+                // This ignores the default grass color
+                grassModes[biomeId] = biomeConfig.grassColor != 0xffffff ? AVERAGE_COLOR : KEEP_COLOR;
+            } else
+            {
+                grassModes[biomeId] = REPLACE_COLOR;
+            }
+            grassColors[biomeId] = biomeConfig.grassColor;
+
+            if (biomeConfig.foliageColor == 0xffffff)
+            {
+                foliageModes[biomeId] = KEEP_COLOR;
+            } else
+            {
+                foliageModes[biomeId] = biomeConfig.foliageColorIsMultiplier ? AVERAGE_COLOR : REPLACE_COLOR;
+            }
+            foliageColors[biomeId] = biomeConfig.foliageColor;
+
+            waterModes[biomeId] = REPLACE_COLOR;
+            waterColors[biomeId] = biomeConfig.waterColor;
+        }
+    }
+
+    private final Supplier<LocalWorld> getWorld;
+
+    /**
+     * The current color table, null if not created yet. Colors are requested
+     * by multiple render threads, so the table is never changed after it has
+     * been created.
+     */
+    private volatile ColorTable colorTable;
+
+    public BiomeColorsListener(Supplier<LocalWorld> getWorld)
+    {
+        this.getWorld = getWorld;
+    }
+
+    /**
+     * Gets the color table of the current world, creating it if the world or
+     * its biomes changed.
+     * @return The color table, or null if there is no world.
+     */
+    private ColorTable getColorTable()
     {
-        this.getBiomeConfig = getBiomeConfig;
+        LocalWorld world = this.getWorld.get();
+        if (world == null)
+            return null;
+
+        LocalBiome[] biomeArray = world.getConfigs().getBiomeArray();
+        ColorTable table = this.colorTable;
+        if (table != null && table.world == world && table.biomeArray == biomeArray)
+            return table;
+
+        int size = 0;
+        for (Biome biome : Biome.REGISTRY)
+        {
+            size = Math.max(size, Biome.getIdForBiome(biome) + 1);
+        }
+
+        table = new ColorTable(world, biomeArray, size);
+        for (Biome biome : Biome.REGISTRY)
+        {
+            LocalBiome localBiome;
+            try
+            {
+                localBiome = world.getBiomeByName(biome.getBiomeName());
+            } catch (BiomeNotFoundException e)
+            {
+                // Biome not used by TerrainControl, keep the colors
+                continue;
+            }
+            if (localBiome == null)
+                continue;
+            table.setColors(Biome.getIdForBiome(biome), localBiome.getBiomeConfig());
+        }
+
+        this.colorTable = table;
+        return table;
     }
 
     @SubscribeEvent
     public void grassColor(BiomeEvent.GetGrassColor grassColorEvent)
     {
-        BiomeConfig biomeConfig = this.getBiomeConfig.apply(grassColorEvent.getBiome());
-        if (biomeConfig == null)
+        ColorTable table = getColorTable();
+        if (table == null)
+            return;
+
+        int biomeId = Biome.getIdForBiome(grassColorEvent.getBiome());
+        if (biomeId < 0 || biomeId >= table.grassModes.length)
             return;
 
-        if (biomeConfig.grassColorIsMultiplier)
+        byte mode = table.grassModes[biomeId];
+        if (mode == AVERAGE_COLOR)
         {
-            if (biomeConfig.grassColor != 0xffffff)
-            {
-                // ^ This ignores the default grass color
-                grassColorEvent.setNewColor((grassColorEvent.getOriginalColor() + biomeConfig.grassColor) / 2);
-            }
-        } else
+            grassColorEvent.setNewColor((grassColorEvent.getOriginalColor() + table.grassColors[biomeId]) / 2);
+        } else if (mode == REPLACE_COLOR)
         {
-            grassColorEvent.setNewColor(biomeConfig.grassColor);
+            grassColorEvent.setNewColor(table.grassColors[biomeId]);
         }
     }
 
     @SubscribeEvent
     public void foliageColor(BiomeEvent.GetFoliageColor foliageColorEvent)
     {
-        BiomeConfig biomeConfig = this.getBiomeConfig.apply(foliageColorEvent.getBiome());
-        if (biomeConfig == null)
+        ColorTable table = getColorTable();
+        if (table == null)
             return;
-        if (biomeConfig.foliageColor == 0xffffff)
+
+        int biomeId = Biome.getIdForBiome(foliageColorEvent.getBiome());
+        if (biomeId < 0 || biomeId >= table.foliageModes.length)
             return;
 
-        if (biomeConfig.foliageColorIsMultiplier)
+        byte mode = table.foliageModes[biomeId];
+        if (mode == AVERAGE_COLOR)
         {
-            foliageColorEvent.setNewColor((foliageColorEvent.getOriginalColor() + biomeConfig.foliageColor) / 2);
-        } else
+            foliageColorEvent.setNewColor((foliageColorEvent.getOriginalColor() + table.foliageColors[biomeId]) / 2);
+        } else if (mode == REPLACE_COLOR)
         {
-            foliageColorEvent.setNewColor(biomeConfig.foliageColor);
+            foliageColorEvent.setNewColor(table.foliageColors[biomeId]);
         }
     }
 
     @SubscribeEvent
     public void waterColor(BiomeEvent.GetWaterColor waterColorEvent)
     {
-        BiomeConfig biomeConfig = this.getBiomeConfig.apply(waterColorEvent.getBiome());
-        if (biomeConfig == null)
+        ColorTable table = getColorTable();
+        if (table == null)
             return;
 
-        waterColorEvent.setNewColor(biomeConfig.waterColor);
-    }
+        int biomeId = Biome.getIdForBiome(waterColorEvent.getBiome());
+        if (biomeId < 0 || biomeId >= table.waterModes.length)
+            return;
 
+        if (table.waterModes[biomeId] == REPLACE_COLOR)
+        {
+            waterColorEvent.setNewColor(table.waterColors[biomeId]);
+        }
+    }
 
 }
@@ -0,0 +1,54 @@
+package com.khorn.terraincontrol.forge.events;
+
+import com.google.common.base.Preconditions;
+import com.khorn.terraincontrol.forge.ForgeWorld;
+import com.khorn.terraincontrol.forge.WorldLoader;
+import com.khorn.terraincontrol.forge.util.WorldHelper;
+import com.khorn.terraincontrol.util.ChunkCoordinate;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.event.entity.EntityEvent;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Tells the chunk provider when a player enters another chunk, so that the
+ * terrain in front of the player can be generated in advance.
+ *
+ */
+public class ChunkPreloadListener
+{
+    private final WorldLoader worldLoader;
+
+    public ChunkPreloadListener(WorldLoader worldLoader)
+    {
+        this.worldLoader = Preconditions.checkNotNull(worldLoader);
+    }
+
+    @SubscribeEvent
+    public void onEnteringChunk(EntityEvent.EnteringChunk event)
+    {
+        if (!(event.getEntity() instanceof EntityPlayerMP))
+        {
+            return;
+        }
+
+        ForgeWorld world = worldLoader.getWorld(WorldHelper.getName(event.getEntity().getEntityWorld()));
+        if (world == null || world.getChunkGenerator() == null)
+        {
+            return;
+        }
+
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        if (server == null)
+        {
+            return;
+        }
+
+        world.getChunkGenerator().onPlayerChunkChange(
+                ChunkCoordinate.fromChunkCoords(event.getOldChunkX(), event.getOldChunkZ()),
+                ChunkCoordinate.fromChunkCoords(event.getNewChunkX(), event.getNewChunkZ()),
+                server.getPlayerList().getViewDistance());
+    }
+}
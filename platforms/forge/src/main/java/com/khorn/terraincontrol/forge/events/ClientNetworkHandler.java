@@ -2,11 +2,13 @@ package com.khorn.terraincontrol.forge.events;
 
 import com.google.common.base.Preconditions;
 import com.khorn.terraincontrol.TerrainControl;
+import com.khorn.terraincontrol.configuration.ConfigToNetworkSender;
 import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
 import com.khorn.terraincontrol.forge.WorldLoader;
 import com.khorn.terraincontrol.logging.LogMarker;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.WorldClient;
 import net.minecraft.util.text.ITextComponent;
@@ -20,7 +22,7 @@ import net.minecraftforge.fml.common.network.FMLNetworkEvent.ClientDisconnection
 import net.minecraftforge.fml.common.network.internal.FMLProxyPacket;
 
 import java.io.DataInputStream;
-import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
 
 public class ClientNetworkHandler
 {
@@ -57,9 +59,18 @@ public class ClientNetworkHandler
                     // (If no client world exists yet, then we're on a local
                     // server, and we can discard the packet.)
 
-                    DataInputStream wrappedStream = new DataInputStream(new ByteBufInputStream(stream));
-
-                    worldLoader.demandClientWorld(worldMC, wrappedStream);
+                    // Everything after the packet type is compressed
+                    byte packetType = stream.readByte();
+                    DataInputStream wrappedStream = new DataInputStream(new InflaterInputStream(new ByteBufInputStream(stream)));
+
+                    if (packetType == ConfigToNetworkSender.PACKET_UPDATE)
+                    {
+                        // Only the changed biomes, after /tc reload
+                        worldLoader.updateClientWorld(wrappedStream);
+                    } else
+                    {
+                        worldLoader.demandClientWorld(worldMC, wrappedStream);
+                    }
                 }
 
                 TerrainControl.log(LogMarker.INFO, "Config received from server");
@@ -82,7 +93,7 @@ public class ClientNetworkHandler
         {
             TerrainControl.log(LogMarker.FATAL, "Failed to receive packet");
             TerrainControl.printStackTrace(LogMarker.FATAL, e);
-            TerrainControl.log(LogMarker.FATAL, "Packet contents: {}", Arrays.toString(stream.array()));
+            TerrainControl.log(LogMarker.FATAL, "Packet contents: {}", ByteBufUtil.hexDump(stream, 0, stream.writerIndex()));
             sendMessage(TextFormatting.RED, "Error receiving packet.");
         }
     }
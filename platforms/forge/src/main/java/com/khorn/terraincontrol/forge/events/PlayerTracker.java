@@ -1,19 +1,13 @@
 package com.khorn.terraincontrol.forge.events;
 
-import java.io.DataOutput;
 import java.io.IOException;
 
-import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.TerrainControl;
-import com.khorn.terraincontrol.configuration.ConfigProvider;
-import com.khorn.terraincontrol.configuration.ConfigToNetworkSender;
 import com.khorn.terraincontrol.configuration.standard.PluginStandardValues;
+import com.khorn.terraincontrol.forge.ForgeWorld;
 import com.khorn.terraincontrol.forge.WorldLoader;
 import com.khorn.terraincontrol.logging.LogMarker;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
-import io.netty.buffer.Unpooled;
 import jline.internal.Preconditions;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.PacketBuffer;
@@ -46,26 +40,22 @@ public class PlayerTracker
 
         EntityPlayerMP player = (EntityPlayerMP) event.player;
 
-        LocalWorld worldTC = worldLoader.getWorld(player.getEntityWorld());
+        ForgeWorld worldTC = (ForgeWorld) worldLoader.getWorld(player.getEntityWorld());
         if (worldTC == null)
         {
             // World not loaded
             return;
         }
-        ConfigProvider configs = worldTC.getConfigs();
 
-        // Serialize it
-        ByteBuf nettyBuffer = Unpooled.buffer();
-        PacketBuffer mojangBuffer = new PacketBuffer(nettyBuffer);
-
-        DataOutput stream = new ByteBufOutputStream(nettyBuffer);
+        // Get the serialized configs, shared by all players
+        PacketBuffer mojangBuffer;
         try
         {
-            stream.writeInt(PluginStandardValues.ProtocolVersion);
-            ConfigToNetworkSender.send(configs, stream);
+            mojangBuffer = new PacketBuffer(worldTC.getConfigPacket().duplicate());
         } catch (IOException e)
         {
             TerrainControl.printStackTrace(LogMarker.FATAL, e);
+            return;
         }
 
         // Make the packet
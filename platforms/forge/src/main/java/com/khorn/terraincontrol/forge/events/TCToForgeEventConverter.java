@@ -6,6 +6,7 @@ import static com.khorn.terraincontrol.util.ChunkCoordinate.CHUNK_Z_SIZE;
 import com.khorn.terraincontrol.LocalMaterialData;
 import com.khorn.terraincontrol.LocalWorld;
 import com.khorn.terraincontrol.events.EventHandler;
+import com.khorn.terraincontrol.events.EventType;
 import com.khorn.terraincontrol.forge.ForgeWorld;
 import com.khorn.terraincontrol.generator.resource.*;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultMaterial;
@@ -19,9 +20,11 @@ import net.minecraftforge.event.terraingen.PopulateChunkEvent;
 import net.minecraftforge.event.terraingen.PopulateChunkEvent.Populate;
 import net.minecraftforge.event.terraingen.TerrainGen;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Translates TerrainControl events into MinecraftForge terrain events.
@@ -46,13 +49,18 @@ public class TCToForgeEventConverter extends EventHandler
     private Map<String, Boolean> hasOreGenBegun = new HashMap<String, Boolean>();
     private Map<String, Boolean> hasDecorationBegun = new HashMap<String, Boolean>();
 
+    @Override
+    public Set<EventType> getHandledEvents()
+    {
+        return EnumSet.of(EventType.RESOURCE_PROCESS, EventType.POPULATE_START, EventType.POPULATE_END);
+    }
+
     @Override
     public boolean onResourceProcess(Resource resource, LocalWorld localWorld, Random random, boolean villageInChunk, int chunkX, int chunkZ, boolean isCancelled)
     {
         ForgeWorld world = (ForgeWorld) localWorld;
         int blockX = chunkX * CHUNK_X_SIZE;
         int blockZ = chunkZ * CHUNK_Z_SIZE;
-        BlockPos blockPos = new BlockPos(blockX, 0, blockZ);
 
         // Convert to Forge event and fire
         if (resource instanceof DungeonGen ||
@@ -67,6 +75,7 @@ public class TCToForgeEventConverter extends EventHandler
                     villageInChunk, forgeEvent);
         } else if (resource instanceof OreGen || resource instanceof VeinGen)
         {
+            BlockPos blockPos = new BlockPos(blockX, 0, blockZ);
             if (!hasOreGenerationBegun(world))
             {
                 // Fire ore generation start event
@@ -79,6 +88,7 @@ public class TCToForgeEventConverter extends EventHandler
             return TerrainGen.generateOre(world.getWorld(), random, null, blockPos, forgeEvent);
         } else
         {
+            BlockPos blockPos = new BlockPos(blockX, 0, blockZ);
             if (!hasDecorationBegun(world))
             {
                 // Fire decoration start event
@@ -112,13 +122,13 @@ public class TCToForgeEventConverter extends EventHandler
         ForgeWorld world = (ForgeWorld) localWorld;
         int blockX = chunkX * CHUNK_X_SIZE;
         int blockZ = chunkZ * CHUNK_Z_SIZE;
-        BlockPos blockPos = new BlockPos(blockX, 0, blockZ);
 
         // Fire all events
 
         // Decoration close
         if (hasDecorationBegun(world))
         {
+            BlockPos blockPos = new BlockPos(blockX, 0, blockZ);
             MinecraftForge.EVENT_BUS.post(new DecorateBiomeEvent.Post(world.getWorld(), random, blockPos));
             setDecorationBegun(world, false);
         }
@@ -126,6 +136,7 @@ public class TCToForgeEventConverter extends EventHandler
         // Ore generation close
         if (hasOreGenerationBegun(world))
         {
+            BlockPos blockPos = new BlockPos(blockX, 0, blockZ);
             MinecraftForge.ORE_GEN_BUS.post(new OreGenEvent.Post(world.getWorld(), random, blockPos));
             setOreGenerationBegun(world, false);
         }
@@ -70,6 +70,12 @@ public class BiomeGenCustom extends Biome
         Biome alreadyRegisteredBiome = registry.getObject(registryKey);
         if (alreadyRegisteredBiome != null)
         {
+            if (alreadyRegisteredBiome instanceof BiomeGenCustom)
+            {
+                // The settings may have been reloaded, or the client may
+                // have received new settings from the server
+                ((BiomeGenCustom) alreadyRegisteredBiome).updateSettings(biomeConfig);
+            }
             return alreadyRegisteredBiome;
         }
 
@@ -81,7 +87,7 @@ public class BiomeGenCustom extends Biome
         return biome;
     }
 
-    private int skyColor;
+    private volatile int skyColor;
 
     public final int generationId;
 
@@ -91,6 +97,17 @@ public class BiomeGenCustom extends Biome
         setRegistryName(registryKey);
         this.generationId = id.getGenerationId();
 
+        updateSettings(config);
+    }
+
+    /**
+     * Updates the sky color and the mobs of this biome. The other properties
+     * of the biome are final in Minecraft, they are only read when the biome
+     * is created.
+     * @param config The new settings of the biome.
+     */
+    private void updateSettings(BiomeConfig config)
+    {
         this.skyColor = config.skyColor;
 
         // Mob spawning
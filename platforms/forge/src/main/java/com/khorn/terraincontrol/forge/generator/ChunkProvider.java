@@ -8,6 +8,7 @@ import java.util.List;
 import com.khorn.terraincontrol.configuration.ConfigProvider;
 import com.khorn.terraincontrol.configuration.WorldConfig;
 import com.khorn.terraincontrol.forge.ForgeWorld;
+import com.khorn.terraincontrol.generator.AsyncTerrainGenerator;
 import com.khorn.terraincontrol.generator.ChunkProviderTC;
 import com.khorn.terraincontrol.generator.ObjectSpawner;
 import com.khorn.terraincontrol.generator.biome.OutputType;
@@ -21,6 +22,10 @@ import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.Biome.SpawnListEntry;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.IChunkGenerator;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.chunk.storage.AnvilChunkLoader;
+import net.minecraft.world.chunk.storage.IChunkLoader;
+import net.minecraft.world.gen.ChunkProviderServer;
 
 public class ChunkProvider implements IChunkGenerator
 {
@@ -30,6 +35,7 @@ public class ChunkProvider implements IChunkGenerator
     private boolean TestMode = false;
 
     private ChunkProviderTC generator;
+    private AsyncTerrainGenerator asyncGenerator;
     private ObjectSpawner spawner;
 
     /** 
@@ -48,6 +54,13 @@ public class ChunkProvider implements IChunkGenerator
         this.generator = new ChunkProviderTC(this.world.getConfigs(), this.world);
         this.spawner = new ObjectSpawner(this.world.getConfigs(), this.world);
 
+        if (AsyncTerrainGenerator.isSupported(this.world))
+        {
+            WorldConfig worldConfig = this.world.getConfigs().getWorldConfig();
+            this.asyncGenerator = new AsyncTerrainGenerator(this.world.getConfigs(), this.world, this.generator,
+                    worldConfig.terrainWorkerThreads, worldConfig.terrainReadyQueueSize);
+        }
+
     }
 
     @Override
@@ -55,7 +68,13 @@ public class ChunkProvider implements IChunkGenerator
     {
         ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
         ForgeChunkBuffer chunkBuffer = new ForgeChunkBuffer(chunkCoord);
-        this.generator.generate(chunkBuffer);
+        if (this.asyncGenerator != null)
+        {
+            this.asyncGenerator.generate(chunkBuffer);
+        } else
+        {
+            this.generator.generate(chunkBuffer);
+        }
 
         Chunk chunk = chunkBuffer.toChunk(this.worldHandle);
         fillBiomeArray(chunk);
@@ -64,6 +83,60 @@ public class ChunkProvider implements IChunkGenerator
         return chunk;
     }
 
+    /**
+     * Called when a player moves to another chunk. Starts generating the
+     * terrain of the chunks ahead of the player on the worker threads.
+     *
+     * @param from         The chunk the player was in.
+     * @param to           The chunk the player is in now.
+     * @param viewDistance The view distance of the server, in chunks.
+     */
+    public void onPlayerChunkChange(ChunkCoordinate from, ChunkCoordinate to, int viewDistance)
+    {
+        if (this.asyncGenerator == null)
+            return;
+
+        for (ChunkCoordinate chunkCoord : AsyncTerrainGenerator.getChunksAhead(from, to, viewDistance))
+        {
+            int chunkX = chunkCoord.getChunkX();
+            int chunkZ = chunkCoord.getChunkZ();
+            if (this.worldHandle.getChunkProvider().getLoadedChunk(chunkX, chunkZ) == null
+                    && !isChunkOnDisk(chunkX, chunkZ))
+            {
+                this.asyncGenerator.requestChunk(chunkCoord);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the chunk was saved before. Such a chunk is read from
+     * disk and never generated, so it must not be generated in advance.
+     * @param chunkX The chunk x.
+     * @param chunkZ The chunk z.
+     * @return True if the chunk exists on disk, false otherwise.
+     */
+    private boolean isChunkOnDisk(int chunkX, int chunkZ)
+    {
+        IChunkProvider chunkProvider = this.worldHandle.getChunkProvider();
+        if (!(chunkProvider instanceof ChunkProviderServer))
+            return false;
+        IChunkLoader chunkLoader = ((ChunkProviderServer) chunkProvider).chunkLoader;
+        return chunkLoader instanceof AnvilChunkLoader
+                && ((AnvilChunkLoader) chunkLoader).chunkExists(this.worldHandle, chunkX, chunkZ);
+    }
+
+    /**
+     * Stops the worker threads, if any. Called when the world is unloaded.
+     */
+    public void shutdown()
+    {
+        if (this.asyncGenerator != null)
+        {
+            this.asyncGenerator.shutdown();
+            this.asyncGenerator = null;
+        }
+    }
+
     /**
      * Fills the biome array of a chunk with the proper saved ids (no
      * generation ids).
@@ -1,12 +1,17 @@
 package com.khorn.terraincontrol.forge.generator;
 
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
+import com.khorn.terraincontrol.LocalBiome;
 import com.khorn.terraincontrol.forge.ForgeBiome;
 import com.khorn.terraincontrol.forge.ForgeWorld;
 import com.khorn.terraincontrol.generator.biome.BiomeGenerator;
 import com.khorn.terraincontrol.generator.biome.OutputType;
+import com.khorn.terraincontrol.generator.biome.StructureBiomeChecker;
 import com.khorn.terraincontrol.util.minecraftTypes.DefaultBiome;
 
 import net.minecraft.util.math.BlockPos;
@@ -23,11 +28,20 @@ public class TCBiomeProvider extends BiomeProvider
 {
     private final BiomeGenerator biomeGenerator;
     private final ForgeWorld localWorld;
+    private final StructureBiomeChecker structureBiomeChecker;
+
+    /**
+     * Biome lists of Minecraft are static, so they can be cached by
+     * identity.
+     */
+    private final Map<List<?>, BitSet> allowedBiomeIds = new IdentityHashMap<List<?>, BitSet>();
+    private final Map<List<?>, BitSet> allowedVanillaBiomeIds = new IdentityHashMap<List<?>, BitSet>();
 
     public TCBiomeProvider(ForgeWorld world, BiomeGenerator biomeGenerator)
     {
         this.localWorld = world;
         this.biomeGenerator = biomeGenerator;
+        this.structureBiomeChecker = new StructureBiomeChecker(biomeGenerator);
     }
 
     @Override
@@ -94,22 +108,7 @@ public class TCBiomeProvider extends BiomeProvider
             paramList = localWorld.villageGen.villageSpawnBiomes;
         }
 
-        int i = paramInt1 - paramInt3 >> 2;
-        int j = paramInt2 - paramInt3 >> 2;
-        int k = paramInt1 + paramInt3 >> 2;
-        int m = paramInt2 + paramInt3 >> 2;
-
-        int n = k - i + 1;
-        int i1 = m - j + 1;
-        Biome[] arrayOfInt = this.getBiomesForGeneration(null, i, j, n, i1);
-        for (int i2 = 0; i2 < n * i1; i2++)
-        {
-            Biome localBiomeBase = arrayOfInt[i2];
-            if (!paramList.contains(localBiomeBase))
-                return false;
-        }
-
-        return true;
+        return this.structureBiomeChecker.areBiomesViable(paramInt1, paramInt2, paramInt3, getAllowedBiomeIds(paramList));
     }
 
     @Override
@@ -123,18 +122,16 @@ public class TCBiomeProvider extends BiomeProvider
 
         int n = k - i + 1;
         int i1 = m - j + 1;
-        int[] arrayOfInt = this.biomeGenerator.getBiomesUnZoomed(null, i, j, n, i1, OutputType.DEFAULT_FOR_WORLD);
+        BitSet allowedVanillaIds = getAllowedVanillaBiomeIds(paramList);
+        int[] arrayOfInt = this.structureBiomeChecker.getBiomesUnZoomed(i, j, n, i1);
         BlockPos blockPos = null;
         int i2 = 0;
-        for (int i3 = 0; i3 < arrayOfInt.length; i3++)
+        for (int i3 = 0; i3 < n * i1; i3++)
         {
-            if (arrayOfInt[i3] >= DefaultBiome.values().length)
+            if (!allowedVanillaIds.get(arrayOfInt[i3]) || ((blockPos != null) && (paramRandom.nextInt(i2 + 1) != 0)))
                 continue;
             int i4 = i + i3 % n << 2;
             int i5 = j + i3 / n << 2;
-            Biome localBiomeBase = Biome.getBiome(arrayOfInt[i3]);
-            if ((!paramList.contains(localBiomeBase)) || ((blockPos != null) && (paramRandom.nextInt(i2 + 1) != 0)))
-                continue;
             blockPos = new BlockPos(i4, 0, i5);
             i2++;
         }
@@ -142,6 +139,57 @@ public class TCBiomeProvider extends BiomeProvider
         return blockPos;
     }
 
+    /**
+     * Gets the generation ids of all biomes of this world that have their
+     * handle in the given list.
+     *
+     * @param biomes The list, must not be modified afterwards.
+     * @return The generation ids.
+     */
+    private BitSet getAllowedBiomeIds(List<?> biomes)
+    {
+        BitSet allowedIds = this.allowedBiomeIds.get(biomes);
+        if (allowedIds == null)
+        {
+            allowedIds = new BitSet();
+            for (LocalBiome biome : this.localWorld.getConfigs().getBiomeArray())
+            {
+                if (biome != null && biomes.contains(((ForgeBiome) biome).getHandle()))
+                {
+                    allowedIds.set(biome.getIds().getGenerationId());
+                }
+            }
+            this.allowedBiomeIds.put(biomes, allowedIds);
+        }
+        return allowedIds;
+    }
+
+    /**
+     * Gets the ids of all vanilla biomes in the given list. Biome ids of
+     * custom biomes are never included.
+     *
+     * @param biomes The list, must not be modified afterwards.
+     * @return The biome ids.
+     */
+    private BitSet getAllowedVanillaBiomeIds(List<?> biomes)
+    {
+        BitSet allowedIds = this.allowedVanillaBiomeIds.get(biomes);
+        if (allowedIds == null)
+        {
+            allowedIds = new BitSet();
+            for (int biomeId = 0; biomeId < DefaultBiome.values().length; biomeId++)
+            {
+                Biome biome = Biome.getBiome(biomeId);
+                if (biome != null && biomes.contains(biome))
+                {
+                    allowedIds.set(biomeId);
+                }
+            }
+            this.allowedVanillaBiomeIds.put(biomes, allowedIds);
+        }
+        return allowedIds;
+    }
+
     @Override
     public void cleanupCache()
     {